@@ -0,0 +1,156 @@
+package com.mvp.kyc;
+
+import com.mvp.kyc.KycService.CheckStatus;
+import com.mvp.kyc.screening.SanctionsScreening;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Мемоизация вердиктов KYC поверх {@link KycEngine}: повторная отправка той же формы
+ * (после ошибки валидации — частый случай) получает готовый вердикт без прогона пайплайна.
+ *
+ * Ключ — ФИО (регистр и лишние пробелы не важны), номер паспорта как есть и SHA-256 трёх документов.
+ * LRU на kyc.cache.max-size записей, каждая живёт kyc.cache.ttl. Перечитанный санкционный список
+ * ({@link SanctionsScreening#generation()}) сбрасывает весь кэш: вердикт по старому списку
+ * не отдаётся ни разу после подмены.
+ *
+ * Не кэшируются вердикты с TIMED_OUT/ERROR (сбой, а не ответ) и с отклонёнными на приёме документами
+ * (там считать нечего).
+ */
+@Service
+@Primary
+public class CachingKycService implements KycService {
+
+  private static final Logger log = LoggerFactory.getLogger(CachingKycService.class);
+
+  private record Key(String name, String passport, String idFront, String idBack, String selfie) { }
+
+  private record Cached(KycResult result, long expiresAt) { }
+
+  private final KycEngine engine;
+  private final KycDocuments documents;
+  private final KycProperties.Cache cfg;
+  private final SanctionsScreening sanctions;
+  private final Map<Key, Cached> cache;
+  private long cacheSanctions; // под cache: версия списка, к которой относятся записи
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder savedNanos = new LongAdder();
+
+  public CachingKycService(KycEngine engine, KycDocuments documents, KycProperties props,
+                           SanctionsScreening sanctions) {
+    this.engine = engine;
+    this.documents = documents;
+    this.cfg = props.getCache();
+    this.sanctions = sanctions;
+    int max = Math.max(1, cfg.getMaxSize());
+    this.cache = new LinkedHashMap<>(Math.min(max, 1024) * 4 / 3, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+        return size() > max;
+      }
+    };
+  }
+
+  @Override
+  public KycResult checkApplicant(String fullName, String passportNumber,
+                                  byte[] idFront, byte[] idBack, byte[] selfie) {
+    return checkApplicant(fullName, passportNumber,
+        documents.of(idFront), documents.of(idBack), documents.of(selfie));
+  }
+
+  @Override
+  public KycResult checkApplicant(String fullName, String passportNumber,
+                                  KycDocument idFront, KycDocument idBack, KycDocument selfie) {
+    if (!cfg.isEnabled() || rejected(idFront) || rejected(idBack) || rejected(selfie)) {
+      return engine.checkApplicant(fullName, passportNumber, idFront, idBack, selfie);
+    }
+
+    Key key = new Key(name(fullName), passportNumber, digest(idFront), digest(idBack), digest(selfie));
+    long now = System.nanoTime();
+    long gen = sanctions.generation();
+    Cached c;
+    synchronized (cache) {
+      if (gen != cacheSanctions) {
+        // список перечитан: все вердикты посчитаны по старому
+        cache.clear();
+        cacheSanctions = gen;
+      }
+      c = cache.get(key);
+      if (c != null && c.expiresAt() - now <= 0) {
+        cache.remove(key);
+        c = null;
+      }
+    }
+    if (c != null) {
+      hits.increment();
+      savedNanos.add(c.result().totalNanos());
+      log.debug("KYC verdict from cache ({} ms saved)", c.result().totalMillis());
+      return c.result();
+    }
+
+    misses.increment();
+    KycResult r = engine.checkApplicant(fullName, passportNumber, idFront, idBack, selfie);
+    if (cacheable(r)) {
+      synchronized (cache) {
+        // пока шёл пайплайн, список могли перечитать — такой вердикт не кладём
+        if (gen == cacheSanctions && gen == sanctions.generation()) {
+          cache.put(key, new Cached(r, System.nanoTime() + cfg.getTtl().toNanos()));
+        }
+      }
+    }
+    return r;
+  }
+
+  public long getHits() { return hits.sum(); }
+  public long getMisses() { return misses.sum(); }
+
+  /** Доля попаданий 0..1; без запросов — 0. */
+  public double getHitRate() {
+    long h = hits.sum(), m = misses.sum();
+    return h + m == 0 ? 0.0 : (double) h / (h + m);
+  }
+
+  /** Сколько «стеночного» времени пайплайна сэкономили попадания, мс. */
+  public double getSavedMillis() { return savedNanos.sum() / 1_000_000.0; }
+
+  public int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  private static boolean cacheable(KycResult r) {
+    if (Thread.currentThread().isInterrupted()) return false;
+    for (CheckTiming t : r.checks()) {
+      if (t.status() == CheckStatus.TIMED_OUT || t.status() == CheckStatus.ERROR) return false;
+    }
+    return true;
+  }
+
+  private static boolean rejected(KycDocument d) {
+    return d != null && d.isRejected();
+  }
+
+  private static String digest(KycDocument d) {
+    return d == null ? "" : d.sha256();
+  }
+
+  private static String name(String fullName) {
+    return fullName == null ? "" : String.join(" ", fullName.strip().toLowerCase(Locale.ROOT).split("\\s+"));
+  }
+}
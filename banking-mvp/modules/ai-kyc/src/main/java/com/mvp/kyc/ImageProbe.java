@@ -0,0 +1,173 @@
+package com.mvp.kyc;
+
+import com.mvp.kyc.KycDocument.Format;
+
+/**
+ * Формат и размеры изображения по заголовку, без декодирования.
+ * Байты скармливаются кусками по мере прихода загрузки ({@link #feed}); пробе нужны только первые
+ * десятки байт (PNG, WebP) или заголовки сегментов JPEG до SOF — содержимое сегментов
+ * (EXIF, миниатюры) пропускается, не копируясь.
+ */
+final class ImageProbe {
+
+  private enum Jpeg { MARKER, CODE, LENGTH, SKIP, SOF }
+
+  private static final int SIGNATURE_BYTES = 12;
+
+  private final byte[] head = new byte[30];
+  private int headLen;
+  private int headNeed = SIGNATURE_BYTES;
+  private boolean signatureSeen;
+
+  private Format format;
+  private int width = -1;
+  private int height = -1;
+  private boolean done;
+
+  // состояние обхода сегментов JPEG
+  private Jpeg js = Jpeg.MARKER;
+  private int marker;
+  private int segLen;
+  private int lenRead;
+  private int skip;
+  private final byte[] sof = new byte[5];
+  private int sofRead;
+
+  /** Больше байт не нужно: размеры найдены или понятно, что их не найти. */
+  boolean isDone() { return done; }
+
+  /** Первые байты уже пришли и формат определён (null — не поддерживается). */
+  boolean signatureSeen() { return signatureSeen; }
+
+  Format format() { return format; }
+
+  boolean hasDimensions() { return width > 0 && height > 0; }
+
+  int width() { return width; }
+
+  int height() { return height; }
+
+  void feed(byte[] b, int off, int len) {
+    int end = off + len;
+    while (off < end && !done) {
+      if (format == Format.JPEG) {
+        off = jpeg(b, off, end);
+        continue;
+      }
+      int k = Math.min(end - off, headNeed - headLen);
+      System.arraycopy(b, off, head, headLen, k);
+      headLen += k;
+      off += k;
+      if (headLen == headNeed) onHead();
+    }
+  }
+
+  private void onHead() {
+    if (!signatureSeen) {
+      signatureSeen = true;
+      if (u8(0) == 0xFF && u8(1) == 0xD8) {
+        format = Format.JPEG;
+        jpeg(head, 2, headLen);
+      } else if (u8(0) == 0x89 && u8(1) == 'P' && u8(2) == 'N' && u8(3) == 'G') {
+        format = Format.PNG;
+        headNeed = 24;
+      } else if (ascii(0, "RIFF") && ascii(8, "WEBP")) {
+        format = Format.WEBP;
+        headNeed = 30;
+      } else {
+        done = true;
+      }
+      return;
+    }
+    if (format == Format.PNG) {
+      // сигнатура(8) + длина(4) + "IHDR" + ширина(4) + высота(4), big-endian
+      width = be32(16);
+      height = be32(20);
+    } else if (ascii(12, "VP8 ")) {
+      width = le16(26) & 0x3FFF;
+      height = le16(28) & 0x3FFF;
+    } else if (ascii(12, "VP8L")) {
+      int bits = le16(21) | le16(23) << 16;
+      width = (bits & 0x3FFF) + 1;
+      height = ((bits >>> 14) & 0x3FFF) + 1;
+    } else if (ascii(12, "VP8X")) {
+      width = 1 + (le16(24) | u8(26) << 16);
+      height = 1 + (le16(27) | u8(29) << 16);
+    }
+    done = true;
+  }
+
+  /** Обход маркеров JPEG до первого SOFn; возвращает, докуда дочитали. */
+  private int jpeg(byte[] b, int off, int end) {
+    while (off < end && !done) {
+      int x = b[off] & 0xFF;
+      switch (js) {
+        case MARKER -> {
+          off++;
+          if (x == 0xFF) js = Jpeg.CODE;
+          else done = true; // мусор вместо маркера — размеры не узнать
+        }
+        case CODE -> {
+          off++;
+          if (x == 0xFF) break; // заполнитель
+          marker = x;
+          if (x == 0xD8 || x == 0x01 || (x >= 0xD0 && x <= 0xD7)) {
+            js = Jpeg.MARKER; // маркеры без длины
+          } else if (x == 0xD9 || x == 0xDA) {
+            done = true; // EOI/начало скана, а SOF так и не встретился
+          } else {
+            js = Jpeg.LENGTH;
+            segLen = 0;
+            lenRead = 0;
+          }
+        }
+        case LENGTH -> {
+          off++;
+          segLen = segLen << 8 | x;
+          if (++lenRead < 2) break;
+          if (segLen < 2) {
+            done = true;
+          } else if (isSof(marker)) {
+            js = Jpeg.SOF;
+            sofRead = 0;
+          } else {
+            skip = segLen - 2;
+            js = skip == 0 ? Jpeg.MARKER : Jpeg.SKIP;
+          }
+        }
+        case SKIP -> {
+          int k = Math.min(skip, end - off);
+          off += k;
+          skip -= k;
+          if (skip == 0) js = Jpeg.MARKER;
+        }
+        case SOF -> {
+          off++;
+          sof[sofRead++] = (byte) x;
+          if (sofRead == sof.length) {
+            // точность(1) высота(2) ширина(2)
+            height = (sof[1] & 0xFF) << 8 | (sof[2] & 0xFF);
+            width = (sof[3] & 0xFF) << 8 | (sof[4] & 0xFF);
+            done = true;
+          }
+        }
+      }
+    }
+    return off;
+  }
+
+  private static boolean isSof(int m) {
+    return m >= 0xC0 && m <= 0xCF && m != 0xC4 && m != 0xC8 && m != 0xCC;
+  }
+
+  private int u8(int i) { return head[i] & 0xFF; }
+
+  private int le16(int i) { return u8(i) | u8(i + 1) << 8; }
+
+  private int be32(int i) { return u8(i) << 24 | u8(i + 1) << 16 | u8(i + 2) << 8 | u8(i + 3); }
+
+  private boolean ascii(int at, String s) {
+    for (int i = 0; i < s.length(); i++) if (u8(at + i) != s.charAt(i)) return false;
+    return true;
+  }
+}
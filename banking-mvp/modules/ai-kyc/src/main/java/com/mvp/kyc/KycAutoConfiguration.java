@@ -0,0 +1,44 @@
+package com.mvp.kyc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Автоконфигурация KYC: свойства kyc.*, пул проверок и скан пакета com.mvp.kyc.
+ * Пул можно подменить своим бином с именем "kycExecutor".
+ */
+@Configuration
+@ComponentScan("com.mvp.kyc")
+public class KycAutoConfiguration {
+
+  @Bean
+  @ConfigurationProperties(prefix = "kyc")
+  public KycProperties kycProperties() {
+    return new KycProperties();
+  }
+
+  @Bean(name = "kycExecutor", destroyMethod = "shutdownNow")
+  public ExecutorService kycExecutor(KycProperties props) {
+    int threads = props.getThreads() > 0 ? props.getThreads() : Runtime.getRuntime().availableProcessors();
+    AtomicInteger n = new AtomicInteger();
+    ThreadFactory tf = r -> {
+      Thread t = new Thread(r, "kyc-" + n.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    };
+    // CallerRuns: под перегрузкой проверка идёт в потоке заявки, а не теряется. Таймаут её там
+    // не прерывает — заявка ждёт проверку целиком; KycEngine засчитывает её результат как
+    // TIMED_OUT, если тот пришёл позже дедлайна. Размер очереди — kyc.queue-capacity.
+    return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(props.getQueueCapacity()), tf, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+}
@@ -0,0 +1,48 @@
+package com.mvp.kyc;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Одна независимая проверка KYC-пайплайна. Все бины этого типа подхватывает {@link KycEngine}
+ * и гоняет параллельно; порядок в отчёте — по @Order.
+ *
+ * Новые проверки (MRZ, FaceMatch, санкции/PEP) добавляются отдельным бином — движок трогать не нужно.
+ */
+public interface KycCheck {
+
+  /**
+   * Данные заявителя, как они пришли в {@link KycService#checkApplicant}.
+   * Документы уже прочитаны {@link KycDocuments} (размер, хэш, размеры изображения известны); null — не передан.
+   */
+  record Applicant(String fullName, String passportNumber,
+                   KycDocument idFront, KycDocument idBack, KycDocument selfie) { }
+
+  /** Короткое имя для отчёта и метрик. */
+  String name();
+
+  /**
+   * «Жёсткая» проверка: её провал делает остальные бессмысленными
+   * (нет документа — нечего сверять с санкционными списками), движок отменяет незавершённые.
+   */
+  default boolean hard() { return false; }
+
+  /**
+   * Выполнять в потоке заявки, а не в пуле: для проверок на микросекунды передача в пул
+   * дороже самой проверки. Таймаут к inline-проверкам не применяется.
+   */
+  default boolean inline() { return false; }
+
+  /** Свой таймаут; null — kyc.check-timeout из настроек. */
+  default Duration timeout() { return null; }
+
+  /** Найденные проблемы; пустой список — проверка пройдена. */
+  List<String> run(Applicant applicant) throws Exception;
+
+  /**
+   * Заявка прошла KYC целиком (все проверки) — зовётся в потоке заявки после пайплайна.
+   * Для проверок, которые что-то запоминают о заявителе: запоминать стоит только принятые заявки,
+   * иначе исправленная повторная подача споткнётся о собственную первую попытку.
+   */
+  default void onPassed(Applicant applicant) { }
+}
@@ -0,0 +1,99 @@
+package com.mvp.kyc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Загруженный документ (скан, селфи) для KYC — уже прочитанный {@link KycDocuments} один раз потоком:
+ * размер, SHA-256, формат и размеры изображения известны, сами байты — в heap (небольшие файлы)
+ * или во временном файле на диске.
+ *
+ * Если загрузку отклонили на лету (формат, разрешение, лимит размера), документ «отклонён»:
+ * байтов нет, есть только причина — её покажут правила {@link KycRules}.
+ *
+ * close() удаляет временный файл; чужой файл (из {@link KycDocuments#read(Path)}) не трогает.
+ */
+public final class KycDocument implements AutoCloseable {
+
+  public enum Format { JPEG, PNG, WEBP }
+
+  private final Format format;
+  private final int width;
+  private final int height;
+  private final long size;
+  private final String sha256;
+  private final byte[] bytes;   // в памяти: bytes[0..size)
+  private final Path file;      // на диске
+  private final boolean ownsFile;
+  private final String rejection;
+
+  private KycDocument(Format format, int width, int height, long size, String sha256,
+                      byte[] bytes, Path file, boolean ownsFile, String rejection) {
+    this.format = format;
+    this.width = width;
+    this.height = height;
+    this.size = size;
+    this.sha256 = sha256;
+    this.bytes = bytes;
+    this.file = file;
+    this.ownsFile = ownsFile;
+    this.rejection = rejection;
+  }
+
+  static KycDocument inMemory(Format format, int width, int height, byte[] bytes, int length, String sha256) {
+    return new KycDocument(format, width, height, length, sha256, bytes, null, false, null);
+  }
+
+  static KycDocument onDisk(Format format, int width, int height, long size, String sha256,
+                            Path file, boolean ownsFile) {
+    return new KycDocument(format, width, height, size, sha256, null, file, ownsFile, null);
+  }
+
+  static KycDocument rejected(String reason, long bytesRead) {
+    return new KycDocument(null, -1, -1, bytesRead, null, null, null, false, reason);
+  }
+
+  public boolean isRejected() { return rejection != null; }
+
+  /** Почему загрузка отклонена; null — не отклонена. */
+  public String rejection() { return rejection; }
+
+  public Format format() { return format; }
+  public int width() { return width; }
+  public int height() { return height; }
+
+  /** Размер в байтах (для отклонённого — сколько успели прочитать). */
+  public long size() { return size; }
+
+  /** SHA-256 содержимого, hex; у отклонённого — null. */
+  public String sha256() { return sha256; }
+
+  /** Лежит ли содержимое на диске, а не в heap. */
+  public boolean isOnDisk() { return file != null; }
+
+  /** Содержимое заново, потоком — для проверок, которым нужны сами пиксели. */
+  public InputStream openStream() throws IOException {
+    if (rejection != null) throw new IllegalStateException("Document was rejected: " + rejection);
+    return bytes != null ? new ByteArrayInputStream(bytes, 0, (int) size) : Files.newInputStream(file);
+  }
+
+  @Override
+  public void close() {
+    if (ownsFile && file != null) {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException ignored) {
+        // временный каталог всё равно чистится; заявку из-за этого не роняем
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    if (rejection != null) return "rejected(" + rejection + ")";
+    return format + " " + width + "x" + height + ", " + size + " B" + (file != null ? ", on disk" : "");
+  }
+}
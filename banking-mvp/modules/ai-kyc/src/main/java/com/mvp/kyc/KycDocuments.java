@@ -0,0 +1,184 @@
+package com.mvp.kyc;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Приём документов для KYC потоком, без целого файла в heap.
+ *
+ * Загрузка читается кусками по 16 КБ, и за один проход:
+ * - считается SHA-256;
+ * - по первым байтам определяются формат и размеры изображения ({@link ImageProbe});
+ * - первые kyc.documents.memory-threshold байт копятся в памяти, дальше всё уходит во временный файл.
+ *
+ * Неподходящая загрузка отклоняется на лету, не дочитывая переданный поток: не картинка, слишком
+ * низкое разрешение (известно уже по заголовку), больше kyc.documents.max-size. Для загрузки через
+ * multipart-форму это экономит только копирование во временный файл: часть формы контейнер к этому
+ * моменту уже принял целиком, и сеть/диск ограничивает spring.servlet.multipart.max-file-size.
+ * Отклонённый документ возвращается с причиной, а не исключением — его покажут правила KYC.
+ */
+@Component
+public class KycDocuments {
+
+  private static final int CHUNK = 16 * 1024;
+
+  /** Дальше этого заголовок изображения не ищем (JPEG с огромным EXIF — без размеров). */
+  private static final int PROBE_LIMIT = 256 * 1024;
+
+  private final KycProperties.Documents cfg;
+
+  public KycDocuments(KycProperties props) {
+    this.cfg = props.getDocuments();
+  }
+
+  /**
+   * Прочитать загрузку. Поток не закрывается и при отказе дочитан не будет — это дело вызывающего.
+   * Документ нужно закрыть (удаляет временный файл).
+   */
+  public KycDocument read(InputStream in) throws IOException {
+    long max = cfg.getMaxSize().toBytes();
+    int threshold = (int) Math.min(cfg.getMemoryThreshold().toBytes(), Integer.MAX_VALUE - 8);
+
+    MessageDigest sha = sha256();
+    ImageProbe probe = new ImageProbe();
+    byte[] chunk = new byte[CHUNK];
+    byte[] mem = new byte[Math.min(threshold, CHUNK)];
+    int memLen = 0;
+    Path spill = null;
+    OutputStream out = null;
+    long size = 0;
+    boolean keep = false;
+
+    try {
+      int r;
+      while ((r = in.read(chunk)) != -1) {
+        if (r == 0) continue;
+        if (size + r > max) return KycDocument.rejected(tooLarge(), size + r);
+        if (!probe.isDone() && size < PROBE_LIMIT) {
+          probe.feed(chunk, 0, r);
+          String why = early(probe);
+          if (why != null) return KycDocument.rejected(why, size + r);
+        }
+        size += r;
+        sha.update(chunk, 0, r);
+
+        if (out == null && memLen + r <= threshold) {
+          if (memLen + r > mem.length) {
+            mem = Arrays.copyOf(mem, (int) Math.min(threshold, Math.max(mem.length * 2L, memLen + r)));
+          }
+          System.arraycopy(chunk, 0, mem, memLen, r);
+          memLen += r;
+        } else {
+          if (out == null) {
+            spill = Files.createTempFile(tempDir(), "kyc-", ".upload");
+            out = Files.newOutputStream(spill);
+            out.write(mem, 0, memLen);
+            mem = null;
+          }
+          out.write(chunk, 0, r);
+        }
+      }
+
+      String why = finish(probe);
+      if (why != null) return KycDocument.rejected(why, size);
+      keep = true;
+      String hex = HexFormat.of().formatHex(sha.digest());
+      return spill == null
+          ? KycDocument.inMemory(probe.format(), probe.width(), probe.height(), mem, memLen, hex)
+          : KycDocument.onDisk(probe.format(), probe.width(), probe.height(), size, hex, spill, true);
+    } finally {
+      if (out != null) out.close();
+      if (!keep && spill != null) Files.deleteIfExists(spill);
+    }
+  }
+
+  /** Файл, уже лежащий на диске (например, multipart-часть): читается один раз, не копируется и не удаляется. */
+  public KycDocument read(Path file) throws IOException {
+    long size = Files.size(file);
+    if (size > cfg.getMaxSize().toBytes()) return KycDocument.rejected(tooLarge(), 0);
+
+    MessageDigest sha = sha256();
+    ImageProbe probe = new ImageProbe();
+    byte[] chunk = new byte[CHUNK];
+    long seen = 0;
+    try (InputStream in = Files.newInputStream(file)) {
+      int r;
+      while ((r = in.read(chunk)) != -1) {
+        if (!probe.isDone() && seen < PROBE_LIMIT) {
+          probe.feed(chunk, 0, r);
+          String why = early(probe);
+          if (why != null) return KycDocument.rejected(why, seen + r);
+        }
+        seen += r;
+        sha.update(chunk, 0, r);
+      }
+    }
+    String why = finish(probe);
+    if (why != null) return KycDocument.rejected(why, seen);
+    return KycDocument.onDisk(probe.format(), probe.width(), probe.height(), seen,
+        HexFormat.of().formatHex(sha.digest()), file, false);
+  }
+
+  /**
+   * Уже буферизованные байты (старый API), без копии. Поведение прежнее: по формату, разрешению
+   * и размеру не отказываем — судит только минимальный размер в {@link KycRules}; формат и размеры
+   * заполняются, если их удалось распознать по заголовку. null/пусто — null.
+   */
+  public KycDocument of(byte[] data) {
+    if (data == null || data.length == 0) return null;
+    ImageProbe probe = new ImageProbe();
+    probe.feed(data, 0, Math.min(data.length, PROBE_LIMIT));
+    boolean known = probe.format() != null && probe.hasDimensions();
+    return KycDocument.inMemory(known ? probe.format() : null, known ? probe.width() : -1,
+        known ? probe.height() : -1, data, data.length, HexFormat.of().formatHex(sha256().digest(data)));
+  }
+
+  /** Причина отказа, понятная уже по заголовку; null — читаем дальше. */
+  private String early(ImageProbe probe) {
+    if (probe.signatureSeen() && probe.format() == null) return unsupported();
+    if (probe.hasDimensions() && Math.min(probe.width(), probe.height()) < cfg.getMinSide()) {
+      return "Слишком низкое разрешение изображения: " + probe.width() + "x" + probe.height()
+          + " (нужно не меньше " + cfg.getMinSide() + " px по короткой стороне)";
+    }
+    return null;
+  }
+
+  private String finish(ImageProbe probe) {
+    String why = early(probe);
+    if (why != null) return why;
+    if (probe.format() == null) return unsupported();
+    if (!probe.hasDimensions()) return "Не удалось определить размеры изображения";
+    return null;
+  }
+
+  private static String unsupported() {
+    return "Неподдерживаемый формат файла (нужен JPEG, PNG или WebP)";
+  }
+
+  private String tooLarge() {
+    return "Файл больше " + cfg.getMaxSize().toMegabytes() + " МБ";
+  }
+
+  private Path tempDir() throws IOException {
+    String dir = cfg.getTempDir();
+    if (dir == null || dir.isBlank()) return Path.of(System.getProperty("java.io.tmpdir"));
+    return Files.createDirectories(Path.of(dir));
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package com.mvp.kyc;
+
+import com.mvp.kyc.KycCheck.Applicant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KYC-пайплайн: все {@link KycCheck} запускаются параллельно в пуле "kycExecutor",
+ * заявка ждёт самую долгую проверку, а не сумму всех. Дешёвые (inline) проверки
+ * выполняются в потоке заявки, пока тяжёлые идут в пуле.
+ *
+ * - у каждой проверки свой дедлайн (от старта пайплайна): не успела — TIMED_OUT, поток прерывается;
+ * - провал «жёсткой» проверки (kyc.short-circuit=true) отменяет незавершённые — они SKIPPED;
+ * - исключение (и Error) внутри проверки — ERROR; KYC при этом не пройден (fail-closed);
+ * - пул переполнен — проверка выполняется прямо в потоке заявки (CallerRuns, см. {@link KycAutoConfiguration}):
+ *   прервать её там некому, заявка ждёт её целиком, но результат позже дедлайна — TIMED_OUT.
+ */
+@Service
+public class KycEngine implements KycService {
+
+  private static final Logger log = LoggerFactory.getLogger(KycEngine.class);
+
+  private final List<KycCheck> checks;
+  private final ExecutorService executor;
+  private final KycProperties props;
+  private final KycDocuments documents;
+
+  private record Done(int index, CheckTiming timing) { }
+
+  public KycEngine(List<KycCheck> checks,
+                   @Qualifier("kycExecutor") ExecutorService executor,
+                   KycProperties props,
+                   KycDocuments documents) {
+    this.checks = List.copyOf(checks);
+    this.executor = executor;
+    this.props = props;
+    this.documents = documents;
+  }
+
+  @Override
+  public KycResult checkApplicant(String fullName,
+                                  String passportNumber,
+                                  byte[] idFront,
+                                  byte[] idBack,
+                                  byte[] selfie) {
+    return checkApplicant(fullName, passportNumber,
+        documents.of(idFront), documents.of(idBack), documents.of(selfie));
+  }
+
+  @Override
+  public KycResult checkApplicant(String fullName,
+                                  String passportNumber,
+                                  KycDocument idFront,
+                                  KycDocument idBack,
+                                  KycDocument selfie) {
+
+    Applicant applicant = new Applicant(fullName, passportNumber, idFront, idBack, selfie);
+    long t0 = System.nanoTime();
+    int n = checks.size();
+
+    CheckTiming[] out = new CheckTiming[n];
+    long[] deadlines = new long[n];
+    List<Future<Done>> futures = new ArrayList<>(n);
+    CompletionService<Done> ecs = new ExecutorCompletionService<>(executor);
+
+    for (int i = 0; i < n; i++) {
+      KycCheck c = checks.get(i);
+      int idx = i;
+      if (c.inline()) {
+        deadlines[i] = Long.MAX_VALUE;
+        futures.add(null);
+      } else {
+        deadlines[i] = t0 + timeoutOf(c).toNanos();
+        long deadline = deadlines[i];
+        futures.add(ecs.submit(() -> new Done(idx, runOne(c, applicant, deadline))));
+      }
+    }
+
+    int pending = n;
+    boolean stop = false;
+    for (int i = 0; i < n && !stop; i++) {
+      if (futures.get(i) != null) continue;
+      out[i] = runOne(checks.get(i), applicant, Long.MAX_VALUE);
+      pending--;
+      stop = isHardFailure(i, out[i]);
+    }
+
+    try {
+      while (pending > 0 && !stop) {
+        long wait = nearestDeadline(out, deadlines) - System.nanoTime();
+        Future<Done> f = wait > 0 ? ecs.poll(wait, TimeUnit.NANOSECONDS) : ecs.poll();
+
+        if (f != null) {
+          if (f.isCancelled()) continue; // уже учтена как TIMED_OUT
+          Done d;
+          try {
+            d = f.get();
+          } catch (ExecutionException e) {
+            // runOne ловит только Exception: сюда доходят Error из проверки — это ERROR, не SKIPPED
+            int i = futures.indexOf(f);
+            log.warn("KYC check {} failed with error", checks.get(i).name(), e.getCause());
+            if (out[i] != null) continue;
+            out[i] = errorOf(checks.get(i), System.nanoTime() - t0);
+            pending--;
+            stop = isHardFailure(i, out[i]);
+            continue;
+          }
+          if (out[d.index()] != null) continue;
+          out[d.index()] = d.timing();
+          pending--;
+          stop = isHardFailure(d.index(), d.timing());
+          continue;
+        }
+
+        // никто не завершился до ближайшего дедлайна — снимаем просроченные
+        long now = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+          if (out[i] == null && deadlines[i] <= now) {
+            futures.get(i).cancel(true);
+            out[i] = new CheckTiming(checks.get(i).name(), CheckStatus.TIMED_OUT, now - t0,
+                List.of("Проверка " + checks.get(i).name() + " не уложилась в "
+                    + timeoutOf(checks.get(i)).toMillis() + " мс"));
+            pending--;
+            stop |= isHardFailure(i, out[i]);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    // досрочная остановка / прерывание: незавершённые отменяем
+    for (int i = 0; i < n; i++) {
+      if (out[i] == null) {
+        if (futures.get(i) != null) futures.get(i).cancel(true);
+        out[i] = new CheckTiming(checks.get(i).name(), CheckStatus.SKIPPED, 0L, List.of());
+      }
+    }
+
+    long total = System.nanoTime() - t0;
+    List<String> issues = new ArrayList<>();
+    boolean ok = true;
+    for (CheckTiming t : out) {
+      issues.addAll(t.issues());
+      if (t.status() != CheckStatus.PASSED && t.status() != CheckStatus.SKIPPED) ok = false;
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      ok = false;
+      issues.add("KYC-проверка прервана");
+    }
+
+    if (ok) {
+      for (KycCheck c : checks) {
+        try {
+          c.onPassed(applicant);
+        } catch (RuntimeException e) {
+          log.warn("KYC check {} onPassed failed", c.name(), e);
+        }
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("KYC {} in {} ms: {}", ok ? "passed" : "failed", total / 1_000_000.0, Arrays.toString(out));
+    }
+    return new KycResult(ok, List.copyOf(issues), List.of(out), total);
+  }
+
+  private CheckTiming runOne(KycCheck c, Applicant applicant, long deadline) {
+    long s = System.nanoTime();
+    try {
+      List<String> issues = c.run(applicant);
+      long end = System.nanoTime();
+      if (end > deadline) {
+        // отработала в потоке заявки (пул переполнен) и не уложилась — результат не засчитываем
+        return new CheckTiming(c.name(), CheckStatus.TIMED_OUT, end - s,
+            List.of("Проверка " + c.name() + " не уложилась в " + timeoutOf(c).toMillis() + " мс"));
+      }
+      List<String> safe = issues == null ? List.of() : List.copyOf(issues);
+      return new CheckTiming(c.name(), safe.isEmpty() ? CheckStatus.PASSED : CheckStatus.FAILED,
+          end - s, safe);
+    } catch (InterruptedException e) {
+      // снятую по таймауту уже учли как TIMED_OUT; любое другое прерывание — не «пропуск», а ошибка
+      Thread.currentThread().interrupt();
+      return errorOf(c, System.nanoTime() - s);
+    } catch (Exception e) {
+      log.warn("KYC check {} failed with exception", c.name(), e);
+      return errorOf(c, System.nanoTime() - s);
+    }
+  }
+
+  private static CheckTiming errorOf(KycCheck c, long nanos) {
+    return new CheckTiming(c.name(), CheckStatus.ERROR, nanos,
+        List.of("Проверка " + c.name() + " завершилась с ошибкой"));
+  }
+
+  private boolean isHardFailure(int index, CheckTiming t) {
+    return props.isShortCircuit()
+        && checks.get(index).hard()
+        && t.status() != CheckStatus.PASSED;
+  }
+
+  private Duration timeoutOf(KycCheck c) {
+    Duration d = c.timeout();
+    return d != null ? d : props.getCheckTimeout();
+  }
+
+  private static long nearestDeadline(CheckTiming[] out, long[] deadlines) {
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < out.length; i++) {
+      if (out[i] == null && deadlines[i] < min) min = deadlines[i];
+    }
+    return min;
+  }
+}
@@ -0,0 +1,168 @@
+package com.mvp.kyc;
+
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Настройки KYC-пайплайна, префикс "kyc" в application.yml.
+ */
+public class KycProperties {
+
+  /** Потоков в пуле проверок; 0 — по числу ядер. */
+  private int threads = 0;
+
+  /** Очередь пула; переполнение — проверка выполнится в вызывающем потоке. */
+  private int queueCapacity = 256;
+
+  /** Таймаут одной проверки по умолчанию (считается от старта пайплайна). */
+  private Duration checkTimeout = Duration.ofSeconds(3);
+
+  /** Прекращать пайплайн на первом провале «жёсткой» проверки. */
+  private boolean shortCircuit = true;
+
+  /** Локальный санкционный/PEP-список (kyc.sanctions.*). */
+  private final Sanctions sanctions = new Sanctions();
+
+  /** Приём сканов и селфи (kyc.documents.*). */
+  private final Documents documents = new Documents();
+
+  /** Реестр уже виденных документов (kyc.duplicates.*). */
+  private final Duplicates duplicates = new Duplicates();
+
+  /** Кэш вердиктов для повторных отправок (kyc.cache.*). */
+  private final Cache cache = new Cache();
+
+  public int getThreads() { return threads; }
+  public void setThreads(int threads) { this.threads = threads; }
+
+  public int getQueueCapacity() { return queueCapacity; }
+  public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+
+  public Duration getCheckTimeout() { return checkTimeout; }
+  public void setCheckTimeout(Duration checkTimeout) { this.checkTimeout = checkTimeout; }
+
+  public boolean isShortCircuit() { return shortCircuit; }
+  public void setShortCircuit(boolean shortCircuit) { this.shortCircuit = shortCircuit; }
+
+  public Sanctions getSanctions() { return sanctions; }
+
+  public Documents getDocuments() { return documents; }
+
+  public Duplicates getDuplicates() { return duplicates; }
+
+  public Cache getCache() { return cache; }
+
+  public static class Sanctions {
+
+    /**
+     * Файл списка: текст UTF-8 «id|имя|список» по строке (алиасы — строками с тем же id, # — комментарий)
+     * или готовый бинарный индекс *.idx. Пусто — скрининг выключен.
+     */
+    private String file;
+
+    /** Без списка не стартовать: файл не задан или не читается при старте — ошибка запуска, а не warn. */
+    private boolean required = false;
+
+    /** Как часто проверять, не поменялся ли файл. */
+    private Duration reloadInterval = Duration.ofSeconds(30);
+
+    /** Держать индекс в отображённом в память файле (рядом с исходным, *.idx), а не в heap. */
+    private boolean mmap = false;
+
+    /** Порог похожести 0..1, с которого имя считается совпадением. */
+    private double minScore = 0.85;
+
+    public String getFile() { return file; }
+    public void setFile(String file) { this.file = file; }
+
+    public boolean isRequired() { return required; }
+    public void setRequired(boolean required) { this.required = required; }
+
+    public Duration getReloadInterval() { return reloadInterval; }
+    public void setReloadInterval(Duration reloadInterval) { this.reloadInterval = reloadInterval; }
+
+    public boolean isMmap() { return mmap; }
+    public void setMmap(boolean mmap) { this.mmap = mmap; }
+
+    public double getMinScore() { return minScore; }
+    public void setMinScore(double minScore) { this.minScore = minScore; }
+  }
+
+  public static class Documents {
+
+    /** Сколько первых байт загрузки держать в памяти; остальное — во временный файл. */
+    private DataSize memoryThreshold = DataSize.ofKilobytes(256);
+
+    /**
+     * Больше — отказ, не дочитывая поток. Multipart-файл формы контейнер принимает раньше,
+     * его жёсткий лимит — spring.servlet.multipart.max-file-size.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(15);
+
+    /** Минимум пикселей по короткой стороне изображения (проверяется по заголовку). */
+    private int minSide = 400;
+
+    /** Каталог временных файлов; пусто — java.io.tmpdir. */
+    private String tempDir;
+
+    public DataSize getMemoryThreshold() { return memoryThreshold; }
+    public void setMemoryThreshold(DataSize memoryThreshold) { this.memoryThreshold = memoryThreshold; }
+
+    public DataSize getMaxSize() { return maxSize; }
+    public void setMaxSize(DataSize maxSize) { this.maxSize = maxSize; }
+
+    public int getMinSide() { return minSide; }
+    public void setMinSide(int minSide) { this.minSide = minSide; }
+
+    public String getTempDir() { return tempDir; }
+    public void setTempDir(String tempDir) { this.tempDir = tempDir; }
+  }
+
+  public static class Duplicates {
+
+    /** Файл индекса; пусто — только в памяти, до перезапуска. */
+    private String file;
+
+    /** Сколько последних документов помнить. */
+    private int capacity = 200_000;
+
+    /** Максимальное расстояние Хэмминга между pHash, 0..3 (индекс ищет по 4 кускам по 16 бит); иначе — ошибка старта. */
+    private int maxDistance = 3;
+
+    /** Как часто сбрасывать изменения на диск. */
+    private Duration flushInterval = Duration.ofSeconds(30);
+
+    public String getFile() { return file; }
+    public void setFile(String file) { this.file = file; }
+
+    public int getCapacity() { return capacity; }
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+
+    public int getMaxDistance() { return maxDistance; }
+    public void setMaxDistance(int maxDistance) { this.maxDistance = maxDistance; }
+
+    public Duration getFlushInterval() { return flushInterval; }
+    public void setFlushInterval(Duration flushInterval) { this.flushInterval = flushInterval; }
+  }
+
+  public static class Cache {
+
+    private boolean enabled = true;
+
+    /** Сколько вердиктов помнить (LRU). */
+    private int maxSize = 10_000;
+
+    /** Сколько живёт вердикт. */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getMaxSize() { return maxSize; }
+    public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+
+    public Duration getTtl() { return ttl; }
+    public void setTtl(Duration ttl) { this.ttl = ttl; }
+  }
+}
@@ -1,60 +1,99 @@
 package com.mvp.kyc;
 
-import org.springframework.stereotype.Service;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 /**
  * Простая реализация KYC: синтаксические правила + здравый смысл.
+ * Каждое правило — отдельная {@link KycCheck}; гоняет их {@link KycEngine}.
+ * Правила тут дешёвые (regex, длина массива), поэтому все inline — в потоке заявки.
  * Позже сюда можно «подменить» на реальный AI или внешний провайдер.
  */
-@Service
-public class KycRules implements KycService {
+@Configuration
+public class KycRules {
 
   // Примерные шаблоны — подправь под свою страну
   private static final Pattern PASSPORT_RU = Pattern.compile("^[0-9]{2}\\s?[0-9]{2}\\s?[0-9]{6}$"); // 12 34 567890
   private static final Pattern PASSPORT_GENERIC = Pattern.compile("^[A-Z0-9\\-]{5,20}$");
 
-  // 50 КБ как минимальный порог — защититься от «пустых» файлов
+  // 50 КБ как минимальный порог — защититься от «пустых» файлов.
+  // Формат, разрешение и верхний предел проверяет KycDocuments ещё при приёме загрузки потоком
+  // (у byte[] из старого API — только этот порог, как и раньше).
   private static final int MIN_IMAGE_SIZE = 50 * 1024;
 
-  @Override
-  public KycResult checkApplicant(String fullName,
-                                  String passportNumber,
-                                  byte[] idFront,
-                                  byte[] idBack,
-                                  byte[] selfie) {
-
-    List<String> issues = new ArrayList<>();
-
-    // ФИО
-    if (fullName == null || fullName.trim().split("\\s+").length < 2) {
-      issues.add("Некорректное ФИО");
-    }
-
-    // Паспорт
-    if (passportNumber == null || passportNumber.isBlank()) {
-      issues.add("Не указан номер паспорта");
-    } else if (!(PASSPORT_RU.matcher(passportNumber.replaceAll("\\s+","")).matches()
-          || PASSPORT_GENERIC.matcher(passportNumber).matches())) {
-      issues.add("Номер паспорта не соответствует допустимому формату");
-    }
-
-    // Документы-изображения
-    if (!hasMinBytes(idFront)) issues.add("Плохое качество/размер фронт-скана документа");
-    // оборотная сторона может отсутствовать, но если передали — проверим
-    if (idBack != null && idBack.length > 0 && !hasMinBytes(idBack)) {
-      issues.add("Плохое качество/размер оборотной стороны документа");
-    }
-    // селфи опционально, но если есть — проверим
-    if (selfie != null && selfie.length > 0 && !hasMinBytes(selfie)) {
-      issues.add("Плохое качество/размер селфи");
-    }
-
-    // 🔒 тут можно добавить:
-    // - проверку MRZ/штрихкодов
-    // - сравнение селфи с фото в документе (FaceMatch)
-    // - проверку по санкционным/PEP спискам
-    // - проверку возраста и срока действия документа
+  // ФИО
+  @Bean
+  @Order(10)
+  public KycCheck fullNameCheck() {
+    return rule("full-name", false, a ->
+        a.fullName() == null || a.fullName().trim().split("\\s+").length < 2
+            ? List.of("Некорректное ФИО") : List.of());
+  }
+
+  // Паспорт: без валидного номера остальное проверять незачем
+  @Bean
+  @Order(20)
+  public KycCheck passportCheck() {
+    return rule("passport-format", true, a -> {
+      String p = a.passportNumber();
+      if (p == null || p.isBlank()) return List.of("Не указан номер паспорта");
+      if (!(PASSPORT_RU.matcher(p.replaceAll("\\s+", "")).matches()
+          || PASSPORT_GENERIC.matcher(p).matches())) {
+        return List.of("Номер паспорта не соответствует допустимому формату");
+      }
+      return List.of();
+    });
+  }
+
+  // Документы-изображения
+  @Bean
+  @Order(30)
+  public KycCheck idFrontCheck() {
+    return rule("id-front", true, a -> a.idFront() == null
+        ? List.of("Плохое качество/размер фронт-скана документа")
+        : document(a.idFront(), "Плохое качество/размер фронт-скана документа"));
+  }
+
+  // оборотная сторона может отсутствовать, но если передали — проверим
+  @Bean
+  @Order(40)
+  public KycCheck idBackCheck() {
+    return rule("id-back", false, a -> a.idBack() == null
+        ? List.of()
+        : document(a.idBack(), "Плохое качество/размер оборотной стороны документа"));
+  }
+
+  // селфи опционально, но если есть — проверим
+  @Bean
+  @Order(50)
+  public KycCheck selfieCheck() {
+    return rule("selfie", false, a -> a.selfie() == null
+        ? List.of()
+        : document(a.selfie(), "Плохое качество/размер селфи"));
+  }
+
+  // 🔒 тут можно добавить (отдельными бинами KycCheck):
+  // - проверку MRZ/штрихкодов
+  // - сравнение селфи с фото в документе (FaceMatch)
+  // - проверку возраста и срока действия документа
+  // (санкции/PEP — screening.SanctionsCheck, повторные документы — duplicates.DuplicateDocumentCheck)
+
+  private static List<String> document(KycDocument doc, String tooSmall) {
+    if (doc.isRejected()) return List.of(doc.rejection());
+    return doc.size() < MIN_IMAGE_SIZE ? List.of(tooSmall) : List.of();
+  }
+
+  private static KycCheck rule(String name, boolean hard, Function<KycCheck.Applicant, List<String>> body) {
+    return new KycCheck() {
+      @Override public String name() { return name; }
+      @Override public boolean hard() { return hard; }
+      @Override public boolean inline() { return true; }
+      @Override public List<String> run(Applicant applicant) { return body.apply(applicant); }
+    };
+  }
+}
@@ -4,20 +4,46 @@ import java.util.List;
 
 public interface KycService {
 
-  /** Результат проверки заявителя. */
-  record KycResult(boolean ok, List<String> issues) {
+  /** Чем закончилась отдельная проверка пайплайна. */
+  enum CheckStatus { PASSED, FAILED, TIMED_OUT, ERROR, SKIPPED }
+
+  /** Итог и время одной проверки (nanos — от старта проверки до её результата). */
+  record CheckTiming(String check, CheckStatus status, long nanos, List<String> issues) {
+    public double millis() { return nanos / 1_000_000.0; }
+  }
+
+  /**
+   * Результат проверки заявителя.
+   * checks — по строке на каждую проверку пайплайна, totalNanos — «стеночное» время всей проверки
+   * (при параллельном прогоне ≈ самая долгая проверка, а не сумма).
+   */
+  record KycResult(boolean ok, List<String> issues, List<CheckTiming> checks, long totalNanos) {
+    public KycResult(boolean ok, List<String> issues) { this(ok, issues, List.of(), 0L); }
+
     public static KycResult pass() { return new KycResult(true, List.of()); }
     public static KycResult fail(List<String> issues) { return new KycResult(false, List.copyOf(issues)); }
+
+    public double totalMillis() { return totalNanos / 1_000_000.0; }
   }
 
   /**
    * Базовая KYC-проверка документов.
    * @param fullName        ФИО
    * @param passportNumber  номер паспорта (или ID)
-   * @param idFront         изображение/скан лицевой стороны
-   * @param idBack          изображение/скан оборотной стороны (может быть null)
+   * @param idFront         скан лицевой стороны, принятый через {@link KycDocuments}
+   * @param idBack          скан оборотной стороны (может быть null)
    * @param selfie          селфи (может быть null)
    */
+  KycResult checkApplicant(String fullName,
+                           String passportNumber,
+                           KycDocument idFront,
+                           KycDocument idBack,
+                           KycDocument selfie);
+
+  /**
+   * То же для уже буферизованных байтов (старый API). Для новых загрузок —
+   * {@link KycDocuments#read(java.io.InputStream)}: файл не держится в heap целиком.
+   */
   KycResult checkApplicant(String fullName,
                            String passportNumber,
                            byte[] idFront,
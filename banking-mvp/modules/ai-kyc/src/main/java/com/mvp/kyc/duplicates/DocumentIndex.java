@@ -0,0 +1,176 @@
+package com.mvp.kyc.duplicates;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ограниченный индекс ранее виденных документов: SHA (первые 64 бита) + pHash + владелец.
+ *
+ * Кольцевой буфер на capacity записей — самые старые вытесняются. Поиск по pHash — multi-index hashing:
+ * 64 бита режутся на 4 куска по 16; если расстояние Хэмминга ≤ 3, хотя бы один кусок совпадает точно
+ * (принцип Дирихле), поэтому кандидаты — только записи из 4 корзин по 65536, а не весь индекс.
+ * Пятая таблица — корзины по SHA для точных копий.
+ *
+ * Корзины — односвязные списки в массивах (head/next), от новых к старым. Вытеснение ничего не отвязывает:
+ * у каждой записи номер вставки seq, ссылка на слот с seq не меньше текущего — значит, слот уже
+ * перезаписан, а всё дальше по списку ещё старше и тоже вытеснено; обход на этом останавливается.
+ *
+ * Не потокобезопасен — синхронизирует {@link DuplicateDocuments}.
+ */
+final class DocumentIndex {
+
+  /** Найденное совпадение; distance 0 при exact — точная копия. */
+  record Hit(boolean exact, int distance, long seenAtMillis) { }
+
+  static final int MAGIC = 0x4B445831; // "KDX1"
+  static final int MAX_DISTANCE = 3;   // гарантия 4 кусков по 16 бит
+  private static final int PARTS = 4;
+  private static final int EXACT = PARTS;
+  private static final int ENTRY_BYTES = 8 * 4 + 1;
+
+  private final int capacity;
+  private final long[] seq;    // 0 — слот пуст
+  private final long[] sha;
+  private final long[] phash;
+  private final boolean[] hasPhash;
+  private final long[] owner;
+  private final long[] seenAt;
+  private final int[][] head = new int[PARTS + 1][1 << 16]; // слот + 1; 0 — пусто
+  private final int[][] next;
+  private long counter;
+  private int size;
+
+  DocumentIndex(int capacity) {
+    this.capacity = Math.max(1, capacity);
+    this.seq = new long[this.capacity];
+    this.sha = new long[this.capacity];
+    this.phash = new long[this.capacity];
+    this.hasPhash = new boolean[this.capacity];
+    this.owner = new long[this.capacity];
+    this.seenAt = new long[this.capacity];
+    this.next = new int[PARTS + 1][this.capacity];
+  }
+
+  int size() { return size; }
+
+  int capacity() { return capacity; }
+
+  /** Документы чужих владельцев: с тем же SHA или pHash не дальше maxDistance. */
+  List<Hit> find(long shaKey, long ph, boolean withPhash, long ownerKey, int maxDistance, int limit) {
+    List<Hit> out = new ArrayList<>(1);
+    for (int s = first(EXACT, bucket(EXACT, shaKey)); s >= 0 && out.size() < limit; s = following(EXACT, s)) {
+      if (sha[s] == shaKey && owner[s] != ownerKey) out.add(new Hit(true, 0, seenAt[s]));
+    }
+    if (!withPhash || !out.isEmpty()) return out;
+
+    int d = Math.min(maxDistance, MAX_DISTANCE);
+    for (int t = 0; t < PARTS && out.size() < limit; t++) {
+      int b = bucket(t, ph);
+      for (int s = first(t, b); s >= 0 && out.size() < limit; s = following(t, s)) {
+        if (!hasPhash[s] || owner[s] == ownerKey) continue;
+        int dist = Long.bitCount(phash[s] ^ ph);
+        if (dist > d || seenInEarlierPart(t, s, ph)) continue;
+        out.add(new Hit(false, dist, seenAt[s]));
+      }
+    }
+    return out;
+  }
+
+  /** Запомнить документ; тот же SHA у того же владельца повторно не пишется. */
+  void add(long shaKey, long ph, boolean withPhash, long ownerKey, long atMillis) {
+    for (int s = first(EXACT, bucket(EXACT, shaKey)); s >= 0; s = following(EXACT, s)) {
+      if (sha[s] == shaKey && owner[s] == ownerKey) return;
+    }
+    int s = (int) (counter % capacity);
+    if (seq[s] == 0) size++;
+    seq[s] = ++counter;
+    sha[s] = shaKey;
+    phash[s] = ph;
+    hasPhash[s] = withPhash;
+    owner[s] = ownerKey;
+    seenAt[s] = atMillis;
+    link(EXACT, s, bucket(EXACT, shaKey));
+    if (withPhash) {
+      for (int t = 0; t < PARTS; t++) link(t, s, bucket(t, ph));
+    }
+  }
+
+  private void link(int table, int s, int b) {
+    next[table][s] = head[table][b];
+    head[table][b] = s + 1;
+  }
+
+  private int first(int table, int b) {
+    int s = head[table][b] - 1;
+    // голова могла быть вытеснена записью из другой корзины
+    return s >= 0 && seq[s] != 0 && bucketOf(table, s) == b ? s : -1;
+  }
+
+  private int following(int table, int s) {
+    int n = next[table][s] - 1;
+    return n >= 0 && seq[n] != 0 && seq[n] < seq[s] ? n : -1;
+  }
+
+  private int bucketOf(int table, int s) {
+    if (table == EXACT) return bucket(EXACT, sha[s]);
+    return hasPhash[s] ? bucket(table, phash[s]) : -1;
+  }
+
+  /** Запись уже нашлась по более раннему куску — не дублировать. */
+  private boolean seenInEarlierPart(int t, int s, long ph) {
+    for (int j = 0; j < t; j++) if (bucket(j, phash[s]) == bucket(j, ph)) return true;
+    return false;
+  }
+
+  private static int bucket(int table, long key) {
+    return table == EXACT ? (int) (key & 0xFFFF) : (int) (key >>> (16 * table) & 0xFFFF);
+  }
+
+  // ---------------- файл ----------------
+
+  /** Снимок в буфер: записи от старых к новым (вызывать под той же блокировкой, что и add). */
+  ByteBuffer snapshot() {
+    ByteBuffer b = ByteBuffer.allocate(8 + size * ENTRY_BYTES);
+    b.putInt(MAGIC).putInt(size);
+    long from = counter - size;
+    for (long q = from + 1; q <= counter; q++) {
+      int s = (int) ((q - 1) % capacity);
+      b.putLong(sha[s]).putLong(phash[s]).putLong(owner[s]).putLong(seenAt[s]).put((byte) (hasPhash[s] ? 1 : 0));
+    }
+    return b.flip();
+  }
+
+  /** Записать снимок атомарно (tmp + move). */
+  static void write(ByteBuffer snapshot, Path file) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (snapshot.hasRemaining()) ch.write(snapshot);
+      ch.force(true);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Поднять индекс из файла; записей больше capacity — остаются самые свежие. */
+  static DocumentIndex read(Path file, int capacity) throws IOException {
+    ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(file));
+    if (b.getInt() != MAGIC) throw new IOException("Not a document index (bad magic): " + file);
+    int n = b.getInt();
+    if ((long) n * ENTRY_BYTES > b.remaining()) throw new IOException("Truncated document index: " + file);
+    DocumentIndex idx = new DocumentIndex(capacity);
+    int skip = Math.max(0, n - idx.capacity);
+    b.position(b.position() + skip * ENTRY_BYTES);
+    for (int i = skip; i < n; i++) {
+      long s = b.getLong(), p = b.getLong(), o = b.getLong(), at = b.getLong();
+      idx.add(s, p, b.get() != 0, o, at);
+    }
+    return idx;
+  }
+}
@@ -0,0 +1,77 @@
+package com.mvp.kyc.duplicates;
+
+import com.mvp.kyc.KycCheck;
+import com.mvp.kyc.KycDocument;
+import com.mvp.kyc.duplicates.DuplicateDocuments.Reuse;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.WeakHashMap;
+
+/**
+ * KYC-проверка на повторное использование документов: тот же (или почти тот же) скан/селфи
+ * уже приходил в заявке с другим паспортом. Считает pHash (декодирование — миллисекунды),
+ * поэтому идёт в пуле, а не inline.
+ *
+ * Документы запоминаются только после того, как заявка прошла KYC ({@link #onPassed}):
+ * отклонённая заявка не помечает свои сканы, и исправленная повторная подача — не «повтор».
+ */
+@Component
+@Order(70)
+public class DuplicateDocumentCheck implements KycCheck {
+
+  private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("dd.MM.yyyy").withZone(ZoneId.systemDefault());
+
+  private final DuplicateDocuments duplicates;
+
+  /** pHash, посчитанный в run(), — чтобы не декодировать картинку второй раз в onPassed. Ключи слабые. */
+  private final Map<KycDocument, OptionalLong> hashes = Collections.synchronizedMap(new WeakHashMap<>());
+
+  public DuplicateDocumentCheck(DuplicateDocuments duplicates) {
+    this.duplicates = duplicates;
+  }
+
+  @Override public String name() { return "duplicate-documents"; }
+
+  @Override
+  public List<String> run(Applicant a) {
+    List<String> issues = new ArrayList<>();
+    check(a.passportNumber(), a.idFront(), "Фронт-скан документа", issues);
+    check(a.passportNumber(), a.idBack(), "Оборотная сторона документа", issues);
+    check(a.passportNumber(), a.selfie(), "Селфи", issues);
+    return issues;
+  }
+
+  @Override
+  public void onPassed(Applicant a) {
+    remember(a.passportNumber(), a.idFront());
+    remember(a.passportNumber(), a.idBack());
+    remember(a.passportNumber(), a.selfie());
+  }
+
+  private void check(String owner, KycDocument doc, String what, List<String> issues) {
+    if (doc == null || doc.isRejected() || Thread.currentThread().isInterrupted()) return;
+    OptionalLong ph = PerceptualHash.of(doc);
+    hashes.put(doc, ph);
+    List<Reuse> reuse = duplicates.find(owner, doc.sha256(), ph);
+    if (reuse.isEmpty()) return;
+    Reuse r = reuse.get(0);
+    issues.add(what + " уже использовался в заявке с другим паспортом ("
+        + (r.exact() ? "точная копия" : "почти совпадает, отличие " + r.distance() + " бит из 64")
+        + ", " + DAY.format(Instant.ofEpochMilli(r.seenAtMillis())) + ")");
+  }
+
+  private void remember(String owner, KycDocument doc) {
+    if (doc == null || doc.isRejected()) return;
+    OptionalLong ph = hashes.remove(doc);
+    duplicates.remember(owner, doc.sha256(), ph != null ? ph : PerceptualHash.of(doc));
+  }
+}
@@ -0,0 +1,150 @@
+package com.mvp.kyc.duplicates;
+
+import com.mvp.kyc.KycProperties;
+import com.mvp.kyc.duplicates.DocumentIndex.Hit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Локальный реестр уже виденных документов (kyc.duplicates.*): ловит один и тот же скан или селфи
+ * в заявках разных людей. Владелец — хэш нормализованного номера паспорта (сам номер не хранится).
+ *
+ * Поиск и запись — микросекунды под одной блокировкой. Если задан kyc.duplicates.file,
+ * индекс поднимается с диска при старте и сбрасывается туда фоном раз в flush-interval
+ * (только если были изменения) и при остановке.
+ */
+@Component
+public class DuplicateDocuments implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(DuplicateDocuments.class);
+
+  private final KycProperties.Duplicates cfg;
+  private DocumentIndex index;
+  private boolean dirty;
+  private ScheduledExecutorService flusher;
+
+  public DuplicateDocuments(KycProperties props) {
+    this.cfg = props.getDuplicates();
+  }
+
+  /** Ранее виденный документ: точная копия или похожий (distance бит из 64). */
+  public record Reuse(boolean exact, int distance, long seenAtMillis) { }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (cfg.getMaxDistance() < 0 || cfg.getMaxDistance() > DocumentIndex.MAX_DISTANCE) {
+      throw new IllegalStateException("kyc.duplicates.max-distance must be 0.." + DocumentIndex.MAX_DISTANCE
+          + ", got " + cfg.getMaxDistance());
+    }
+    index = load();
+    if (!isPersistent()) return;
+    long every = Math.max(1, cfg.getFlushInterval().toMillis());
+    flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "kyc-duplicates-flush");
+      t.setDaemon(true);
+      return t;
+    });
+    flusher.scheduleWithFixedDelay(this::flush, every, every, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void destroy() {
+    if (flusher != null) flusher.shutdownNow();
+    flush();
+  }
+
+  public boolean isPersistent() {
+    return cfg.getFile() != null && !cfg.getFile().isBlank();
+  }
+
+  /**
+   * Чужие совпадения для документа. Пустой номер паспорта — владелец неизвестен: такой документ
+   * не считается «своим» ни для кого, любое совпадение — чужое.
+   * @param owner   номер паспорта заявителя
+   * @param sha256  hex SHA-256 содержимого
+   * @param phash   перцептивный хэш (пусто — только точные копии)
+   */
+  public List<Reuse> find(String owner, String sha256, OptionalLong phash) {
+    long shaKey = HexFormat.fromHexDigitsToLong(sha256, 0, 16);
+    List<Hit> hits;
+    synchronized (this) {
+      hits = index.find(shaKey, phash.orElse(0L), phash.isPresent(), ownerKey(owner), cfg.getMaxDistance(), 3);
+    }
+    return hits.stream().map(h -> new Reuse(h.exact(), h.distance(), h.seenAtMillis())).toList();
+  }
+
+  /** Запомнить документ за владельцем — только для заявок, прошедших KYC. */
+  public void remember(String owner, String sha256, OptionalLong phash) {
+    long shaKey = HexFormat.fromHexDigitsToLong(sha256, 0, 16);
+    synchronized (this) {
+      index.add(shaKey, phash.orElse(0L), phash.isPresent(), ownerKey(owner), System.currentTimeMillis());
+      dirty = true;
+    }
+  }
+
+  public synchronized int size() {
+    return index.size();
+  }
+
+  /** Сбросить индекс на диск, если были изменения. */
+  public void flush() {
+    if (!isPersistent()) return;
+    ByteBuffer snapshot;
+    synchronized (this) {
+      if (!dirty) return;
+      snapshot = index.snapshot();
+      dirty = false;
+    }
+    try {
+      DocumentIndex.write(snapshot, Path.of(cfg.getFile()));
+    } catch (Exception e) {
+      synchronized (this) { dirty = true; }
+      log.warn("Document index flush to {} failed: {}", cfg.getFile(), e.toString());
+    }
+  }
+
+  private DocumentIndex load() {
+    if (isPersistent() && Files.exists(Path.of(cfg.getFile()))) {
+      long t0 = System.nanoTime();
+      try {
+        DocumentIndex idx = DocumentIndex.read(Path.of(cfg.getFile()), cfg.getCapacity());
+        log.info("Document index loaded: {} documents, {} ms", idx.size(), (System.nanoTime() - t0) / 1_000_000);
+        return idx;
+      } catch (Exception e) {
+        log.warn("Document index {} is unreadable, starting empty: {}", cfg.getFile(), e.toString());
+      }
+    }
+    return new DocumentIndex(cfg.getCapacity());
+  }
+
+  /** Хэш нормализованного номера; пустой номер — случайный ключ, не совпадающий ни с чьим. */
+  private static long ownerKey(String passportNumber) {
+    String norm = passportNumber == null ? ""
+        : passportNumber.toUpperCase(Locale.ROOT).replaceAll("[^0-9A-Z]", "");
+    if (norm.isEmpty()) return ThreadLocalRandom.current().nextLong();
+    try {
+      byte[] d = MessageDigest.getInstance("SHA-256").digest(norm.getBytes(StandardCharsets.UTF_8));
+      return ByteBuffer.wrap(d).getLong();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.mvp.kyc.duplicates;
+
+import com.mvp.kyc.KycDocument;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.OptionalLong;
+
+/**
+ * 64-битный перцептивный хэш (dHash): картинка сжимается до 9×8 яркостей, бит — «левый сосед ярче правого».
+ * Пересжатие, смена размера, лёгкая цветокоррекция меняют лишь несколько бит, поэтому
+ * «тот же скан» ищется по расстоянию Хэмминга, а не по точному SHA.
+ *
+ * Декодируется с прореживанием до ~64 px по короткой стороне (размеры уже известны из заголовка),
+ * так что полноразмерный растр в памяти не создаётся.
+ */
+public final class PerceptualHash {
+
+  private static final int SIDE = 64;
+
+  private PerceptualHash() { }
+
+  /** Хэш документа; пусто — формат не читается ImageIO (WebP), файл битый или картинка однотонная. */
+  public static OptionalLong of(KycDocument doc) {
+    if (doc == null || doc.isRejected() || doc.format() == KycDocument.Format.WEBP) return OptionalLong.empty();
+    try (InputStream in = doc.openStream(); ImageInputStream iis = new MemoryCacheImageInputStream(in)) {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+      if (!readers.hasNext()) return OptionalLong.empty();
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(iis, true, true);
+        ImageReadParam param = reader.getDefaultReadParam();
+        int step = Math.max(1, Math.min(doc.width(), doc.height()) / SIDE);
+        param.setSourceSubsampling(step, step, 0, 0);
+        long h = dHash(reader.read(0, param));
+        // однотонные/почти пустые картинки дают вырожденный хэш — совпадали бы со всеми такими же
+        int bits = Long.bitCount(h);
+        return bits < 6 || bits > 58 ? OptionalLong.empty() : OptionalLong.of(h);
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException | RuntimeException e) {
+      return OptionalLong.empty();
+    }
+  }
+
+  static long dHash(BufferedImage img) {
+    int w = img.getWidth();
+    int h = img.getHeight();
+    double[] g = new double[9 * 8];
+    for (int cy = 0; cy < 8; cy++) {
+      int y0 = cy * h / 8, y1 = Math.max(y0 + 1, (cy + 1) * h / 8);
+      for (int cx = 0; cx < 9; cx++) {
+        int x0 = cx * w / 9, x1 = Math.max(x0 + 1, (cx + 1) * w / 9);
+        double sum = 0;
+        int n = 0;
+        for (int y = y0; y < y1 && y < h; y++) {
+          for (int x = x0; x < x1 && x < w; x++) {
+            int rgb = img.getRGB(x, y);
+            sum += 0.299 * (rgb >> 16 & 0xFF) + 0.587 * (rgb >> 8 & 0xFF) + 0.114 * (rgb & 0xFF);
+            n++;
+          }
+        }
+        g[cy * 9 + cx] = n == 0 ? 0 : sum / n;
+      }
+    }
+    long hash = 0;
+    for (int cy = 0; cy < 8; cy++) {
+      for (int cx = 0; cx < 8; cx++) {
+        hash <<= 1;
+        if (g[cy * 9 + cx] > g[cy * 9 + cx + 1]) hash |= 1;
+      }
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,75 @@
+package com.mvp.kyc.screening;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Приведение ФИО к сравнимому ключу: нижний регистр, кириллица → латиница (ICAO 9303),
+ * без диакритики и пунктуации, токены отсортированы («Петров Иван» == «Ivan Petrov»).
+ * Плюс «свёртка» вариантов латинской записи: kh→h, ph→f, x→ks, w→v, q→k, j/y→i, двойные буквы → одна,
+ * чтобы Юрий / Yuriy / Yurii / Jurij давали один ключ.
+ */
+public final class NameNormalizer {
+
+  private static final String[] CYR = new String[0x4A0 - 0x400];
+
+  static {
+    String[][] map = {
+        {"а", "a"}, {"б", "b"}, {"в", "v"}, {"г", "g"}, {"д", "d"}, {"е", "e"}, {"ё", "e"}, {"ж", "zh"},
+        {"з", "z"}, {"и", "i"}, {"й", "i"}, {"к", "k"}, {"л", "l"}, {"м", "m"}, {"н", "n"}, {"о", "o"},
+        {"п", "p"}, {"р", "r"}, {"с", "s"}, {"т", "t"}, {"у", "u"}, {"ф", "f"}, {"х", "kh"}, {"ц", "ts"},
+        {"ч", "ch"}, {"ш", "sh"}, {"щ", "shch"}, {"ъ", ""}, {"ы", "y"}, {"ь", ""}, {"э", "e"}, {"ю", "iu"},
+        {"я", "ia"}, {"і", "i"}, {"ї", "i"}, {"є", "ie"}, {"ґ", "g"}, {"ў", "u"}
+    };
+    for (String[] m : map) CYR[m[0].charAt(0) - 0x400] = m[1];
+  }
+
+  private NameNormalizer() { }
+
+  public static String normalize(String name) {
+    if (name == null || name.isBlank()) return "";
+    // NFD: «й» → «и» + бреве, «ё» → «е» + диерезис; диакритику выкидываем ниже
+    String s = Normalizer.normalize(name.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+
+    StringBuilder sb = new StringBuilder(s.length() + 8);
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= 'a' && c <= 'z') {
+        sb.append(c);
+      } else if (c >= 0x400 && c < 0x4A0 && CYR[c - 0x400] != null) {
+        sb.append(CYR[c - 0x400]);
+      } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+        // диакритика
+      } else if (c == '\'' || c == '’' || c == '`') {
+        // O'Brien → obrien
+      } else {
+        sb.append(' ');
+      }
+    }
+
+    String[] tokens = sb.toString().trim().split("\\s+");
+    int n = 0;
+    for (String t : tokens) {
+      String f = fold(t);
+      if (!f.isEmpty()) tokens[n++] = f;
+    }
+    if (n == 0) return "";
+    String[] out = Arrays.copyOf(tokens, n);
+    Arrays.sort(out);
+    return String.join(" ", out);
+  }
+
+  private static String fold(String t) {
+    String s = t.replace("kh", "h").replace("ph", "f").replace("ck", "k").replace("tz", "ts")
+        .replace("x", "ks").replace("w", "v").replace("q", "k").replace("j", "i").replace("y", "i");
+    StringBuilder sb = new StringBuilder(s.length());
+    char prev = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c != prev) sb.append(c);
+      prev = c;
+    }
+    return sb.toString();
+  }
+}
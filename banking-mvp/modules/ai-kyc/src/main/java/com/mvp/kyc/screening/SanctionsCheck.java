@@ -0,0 +1,41 @@
+package com.mvp.kyc.screening;
+
+import com.mvp.kyc.KycCheck;
+import com.mvp.kyc.screening.SanctionsIndex.Match;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * KYC-проверка ФИО по санкционным/PEP-спискам. Совпадение — жёсткий отказ.
+ * Поиск по индексу занимает микросекунды, поэтому проверка идёт inline, без пула.
+ */
+@Component
+@Order(60)
+public class SanctionsCheck implements KycCheck {
+
+  private final SanctionsScreening screening;
+
+  public SanctionsCheck(SanctionsScreening screening) {
+    this.screening = screening;
+  }
+
+  @Override public String name() { return "sanctions-pep"; }
+  @Override public boolean hard() { return true; }
+  @Override public boolean inline() { return true; }
+
+  @Override
+  public List<String> run(Applicant applicant) {
+    List<Match> matches = screening.screen(applicant.fullName());
+    if (matches.isEmpty()) return List.of();
+    List<String> issues = new ArrayList<>(matches.size());
+    for (Match m : matches) {
+      issues.add(String.format(Locale.ROOT, "Совпадение со списком %s: %s (id=%s, %.0f%%)",
+          m.source().isEmpty() ? "санкций/PEP" : m.source(), m.name(), m.id(), m.score() * 100));
+    }
+    return issues;
+  }
+}
@@ -0,0 +1,402 @@
+package com.mvp.kyc.screening;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый индекс санкционного/PEP-списка.
+ *
+ * Имена разбиты на слова ({@link NameNormalizer}); слов в списке заметно меньше, чем записей
+ * (Иван, Петров, ... повторяются), поэтому нечёткий поиск идёт по словарю слов:
+ * триграммный индекс словаря → кандидаты → Левенштейн. Затем по спискам «слово → записи»
+ * считаем, сколько слов каждой записи нашлось у заявителя. Запись совпала, если нашлись все её слова
+ * (у заявителя может быть лишнее отчество); score — худшая похожесть среди её слов.
+ * Частое слово («ivan») стоит лишь инкремента счётчиков, а не Левенштейна на каждую запись.
+ *
+ * Всё лежит в одном ByteBuffer фиксированной раскладки — в куче после {@link #build}
+ * или отображённом в память файле после {@link #map} (формат файла = раскладка буфера,
+ * {@link #writeTo} просто сбрасывает буфер на диск). Большой список тогда живёт в page cache,
+ * а не в heap, и «загружается» без разбора.
+ *
+ * Раскладка (int — big-endian):
+ * <pre>
+ * MAGIC n T tokChars tokGramLen tokEntLen namesBytes 0
+ * nameOff[n+1] entTok[n]                 — записи: имя в names, число разных слов
+ * tokOff[T+1]                            — слова словаря в tok
+ * tokGramOff[GRAMS+1] tokGram[tokGramLen] — триграмма → слова
+ * tokEntOff[T+1] tokEnt[tokEntLen]       — слово → записи (по возрастанию)
+ * tok: char[tokChars]
+ * names: byte[namesBytes]                — UTF-8 "id\tимя\tсписок" подряд
+ * </pre>
+ * Триграмма — 3 символа из [ a-z] (27^3 = 19683 кода), поэтому tokGramOff — прямая таблица без поиска.
+ */
+public final class SanctionsIndex {
+
+  /** Строка исходного списка. */
+  public record Entry(String id, String name, String source) { }
+
+  /** Найденное совпадение; score — похожесть 0..1. */
+  public record Match(String id, String name, String source, double score) { }
+
+  static final int MAGIC = 0x534E5832; // "SNX2"
+  static final int GRAMS = 27 * 27 * 27;
+  private static final int HEADER_INTS = 8;
+
+  public static final SanctionsIndex EMPTY = build(List.of());
+
+  private final ByteBuffer buf;
+  private final int n;
+  private final int tokens;
+  private final IntBuffer nameOff;
+  private final IntBuffer entTok;
+  private final IntBuffer tokOff;
+  private final IntBuffer tokGramOff;
+  private final IntBuffer tokGram;
+  private final IntBuffer tokEntOff;
+  private final IntBuffer tokEnt;
+  private final CharBuffer tok;
+  private final ByteBuffer names;
+
+  private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+  /** Счётчики на поток: без аллокаций на запрос. Обнуляются по спискам touched. */
+  private static final class Scratch {
+    int[] gramHits = new int[0];      // по словам словаря
+    int[] tokTouched = new int[0];
+    int[] tokCand = new int[0];
+    double[] tokBest = new double[0];
+    int[] entHits = new int[0];       // по записям
+    double[] entWorst = new double[0];
+    int[] entTouched = new int[0];
+
+    void ensure(int tokens, int entries) {
+      if (gramHits.length < tokens) {
+        gramHits = new int[tokens];
+        tokTouched = new int[tokens];
+        tokCand = new int[tokens];
+        tokBest = new double[tokens];
+      }
+      if (entHits.length < entries) {
+        entHits = new int[entries];
+        entWorst = new double[entries];
+        entTouched = new int[entries];
+      }
+    }
+  }
+
+  private SanctionsIndex(ByteBuffer buf) {
+    this.buf = buf;
+    if (buf.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a sanctions index (bad magic)");
+    this.n = buf.getInt(4);
+    this.tokens = buf.getInt(8);
+    int tokChars = buf.getInt(12);
+    int tokGramLen = buf.getInt(16);
+    int tokEntLen = buf.getInt(20);
+    int namesBytes = buf.getInt(24);
+
+    int pos = HEADER_INTS * 4;
+    this.nameOff = ints(buf, pos, n + 1);           pos += (n + 1) * 4;
+    this.entTok = ints(buf, pos, n);                pos += n * 4;
+    this.tokOff = ints(buf, pos, tokens + 1);       pos += (tokens + 1) * 4;
+    this.tokGramOff = ints(buf, pos, GRAMS + 1);    pos += (GRAMS + 1) * 4;
+    this.tokGram = ints(buf, pos, tokGramLen);      pos += tokGramLen * 4;
+    this.tokEntOff = ints(buf, pos, tokens + 1);    pos += (tokens + 1) * 4;
+    this.tokEnt = ints(buf, pos, tokEntLen);        pos += tokEntLen * 4;
+    this.tok = buf.slice(pos, tokChars * 2).asCharBuffer(); pos += tokChars * 2;
+    this.names = buf.slice(pos, namesBytes);
+  }
+
+  private static IntBuffer ints(ByteBuffer b, int pos, int count) {
+    return b.slice(pos, count * 4).asIntBuffer();
+  }
+
+  public int size() { return n; }
+
+  /** Слов в словаре. */
+  public int vocabulary() { return tokens; }
+
+  /** Размер индекса в байтах (heap или mmap). */
+  public int bytes() { return buf.capacity(); }
+
+  public boolean isMapped() { return buf.isDirect(); }
+
+  // ---------------- поиск ----------------
+
+  /** Совпадения для ФИО заявителя со score >= minScore, лучшие первыми. */
+  public List<Match> search(String fullName, double minScore, int limit) {
+    String q = NameNormalizer.normalize(fullName);
+    if (q.isEmpty() || n == 0) return List.of();
+    String[] qt = new LinkedHashSet<>(Arrays.asList(q.split(" "))).toArray(new String[0]);
+
+    Scratch s = SCRATCH.get();
+    s.ensure(tokens, n);
+
+    // 1) слова словаря, похожие на слова заявителя (лучшая похожесть на слово)
+    int matchedTok = 0;
+    int[] tokTouched = s.tokTouched;
+    for (String word : qt) {
+      matchedTok = similarTokens(word, minScore, s, matchedTok);
+    }
+
+    // 2) записи: сколько их слов нашлось и худшая похожесть среди них
+    int[] entHits = s.entHits;
+    double[] entWorst = s.entWorst;
+    int[] entTouched = s.entTouched;
+    int et = 0;
+    for (int i = 0; i < matchedTok; i++) {
+      int v = tokTouched[i];
+      double r = s.tokBest[v];
+      s.tokBest[v] = 0;
+      for (int p = tokEntOff.get(v), end = tokEntOff.get(v + 1); p < end; p++) {
+        int e = tokEnt.get(p);
+        if (entHits[e]++ == 0) {
+          entTouched[et++] = e;
+          entWorst[e] = r;
+        } else if (r < entWorst[e]) {
+          entWorst[e] = r;
+        }
+      }
+    }
+
+    // 3) совпали все слова записи — сколько их у записи, столько и нужно: однословная запись
+    //    (мононим, алиас) совпадает и с многословным ФИО, где это слово есть
+    List<Match> out = new ArrayList<>(2);
+    for (int i = 0; i < et; i++) {
+      int e = entTouched[i];
+      int hits = entHits[e];
+      entHits[e] = 0;
+      if (hits == entTok.get(e)) out.add(match(e, entWorst[e]));
+    }
+    if (out.size() > 1) out.sort((a, b) -> Double.compare(b.score(), a.score()));
+    return out.size() > limit ? List.copyOf(out.subList(0, limit)) : out;
+  }
+
+  /**
+   * Слова словаря с ratio(word, v) >= minScore; дописывает их в s.tokTouched начиная с matched.
+   *
+   * Похожесть minScore допускает не больше d = ⌊(1 − minScore)·|word| / minScore⌋ правок, а каждая правка
+   * портит не больше 3 триграмм — значит, у кандидата не меньше need = |g| − 3d общих триграмм, и хотя бы
+   * одна из (|g| − need + 1) самых редких триграмм слова у него есть (prefix filtering). Кандидатов
+   * набираем только по редким спискам, остальные триграммы досчитываем бинарным поиском.
+   */
+  private int similarTokens(String word, double minScore, Scratch s, int matched) {
+    int[] g = byRarity(grams(word));
+    int maxEdits = (int) Math.floor((1 - minScore) * word.length() / minScore + 1e-9);
+    int need = Math.max(1, g.length - 3 * maxEdits);
+    int prefix = g.length - need + 1;
+
+    int[] hits = s.gramHits;
+    int[] cand = s.tokCand;
+    int c = 0;
+    for (int i = 0; i < prefix && i < g.length; i++) {
+      for (int p = tokGramOff.get(g[i]), end = tokGramOff.get(g[i] + 1); p < end; p++) {
+        int v = tokGram.get(p);
+        if (hits[v]++ == 0) cand[c++] = v;
+      }
+    }
+    for (int i = 0; i < c; i++) {
+      int v = cand[i];
+      int shared = hits[v];
+      hits[v] = 0;
+      for (int j = prefix; j < g.length && shared + (g.length - j) >= need; j++) {
+        if (contains(g[j], v)) shared++;
+      }
+      if (shared < need) continue;
+      double r = ratio(word, token(v));
+      if (r < minScore) continue;
+      if (s.tokBest[v] == 0) s.tokTouched[matched++] = v;
+      if (r > s.tokBest[v]) s.tokBest[v] = r;
+    }
+    return matched;
+  }
+
+  /** Триграммы от самых редких (по словарю) к самым частым. */
+  private int[] byRarity(int[] g) {
+    long[] packed = new long[g.length];
+    for (int i = 0; i < g.length; i++) {
+      packed[i] = ((long) (tokGramOff.get(g[i] + 1) - tokGramOff.get(g[i])) << 32) | g[i];
+    }
+    Arrays.sort(packed);
+    for (int i = 0; i < g.length; i++) g[i] = (int) packed[i];
+    return g;
+  }
+
+  /** Есть ли слово v в списке триграммы g (списки отсортированы по номеру слова). */
+  private boolean contains(int g, int v) {
+    int lo = tokGramOff.get(g);
+    int hi = tokGramOff.get(g + 1) - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int x = tokGram.get(mid);
+      if (x < v) lo = mid + 1;
+      else if (x > v) hi = mid - 1;
+      else return true;
+    }
+    return false;
+  }
+
+  private String token(int v) {
+    return tok.subSequence(tokOff.get(v), tokOff.get(v + 1)).toString();
+  }
+
+  private Match match(int e, double score) {
+    int from = nameOff.get(e);
+    byte[] b = new byte[nameOff.get(e + 1) - from];
+    names.get(from, b);
+    String[] p = new String(b, StandardCharsets.UTF_8).split("\t", 3);
+    return new Match(p[0], p.length > 1 ? p[1] : "", p.length > 2 ? p[2] : "", score);
+  }
+
+  static double ratio(String a, String b) {
+    int max = Math.max(a.length(), b.length());
+    return max == 0 ? 1.0 : 1.0 - (double) levenshtein(a, b) / max;
+  }
+
+  private static int levenshtein(String a, String b) {
+    int[] prev = new int[b.length() + 1];
+    int[] cur = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) prev[j] = j;
+    for (int i = 1; i <= a.length(); i++) {
+      cur[0] = i;
+      char ca = a.charAt(i - 1);
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = ca == b.charAt(j - 1) ? 0 : 1;
+        cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+      }
+      int[] tmp = prev; prev = cur; cur = tmp;
+    }
+    return prev[b.length()];
+  }
+
+  /** Уникальные триграммы слова, с пробелами по краям: " ivan " → " iv","iva","van","an ". */
+  static int[] grams(String word) {
+    String s = " " + word + " ";
+    int[] g = new int[Math.max(0, s.length() - 2)];
+    for (int i = 0; i + 2 < s.length(); i++) {
+      g[i] = (code(s.charAt(i)) * 27 + code(s.charAt(i + 1))) * 27 + code(s.charAt(i + 2));
+    }
+    Arrays.sort(g);
+    int u = 0;
+    for (int i = 0; i < g.length; i++) if (u == 0 || g[u - 1] != g[i]) g[u++] = g[i];
+    return Arrays.copyOf(g, u);
+  }
+
+  private static int code(char c) {
+    return c >= 'a' && c <= 'z' ? c - 'a' + 1 : 0;
+  }
+
+  // ---------------- сборка / файл ----------------
+
+  public static SanctionsIndex build(List<Entry> entries) {
+    List<byte[]> nameList = new ArrayList<>(entries.size());
+    List<int[]> entTokens = new ArrayList<>(entries.size());
+    Map<String, Integer> vocab = new HashMap<>();
+    List<String> tokList = new ArrayList<>();
+
+    for (Entry e : entries) {
+      String k = NameNormalizer.normalize(e.name());
+      if (k.isEmpty()) continue;
+      Set<String> words = new LinkedHashSet<>(Arrays.asList(k.split(" ")));
+      int[] ids = new int[words.size()];
+      int i = 0;
+      for (String w : words) {
+        Integer id = vocab.get(w);
+        if (id == null) {
+          id = tokList.size();
+          vocab.put(w, id);
+          tokList.add(w);
+        }
+        ids[i++] = id;
+      }
+      entTokens.add(ids);
+      nameList.add((nz(e.id()) + '\t' + nz(e.name()) + '\t' + nz(e.source())).getBytes(StandardCharsets.UTF_8));
+    }
+    int n = nameList.size();
+    int tokens = tokList.size();
+
+    // слово → записи
+    int[] tokEntStart = new int[tokens + 1];
+    for (int[] ids : entTokens) for (int v : ids) tokEntStart[v + 1]++;
+    for (int v = 0; v < tokens; v++) tokEntStart[v + 1] += tokEntStart[v];
+    int[] tokEnt = new int[tokEntStart[tokens]];
+    int[] fill = Arrays.copyOf(tokEntStart, tokens);
+    for (int e = 0; e < n; e++) for (int v : entTokens.get(e)) tokEnt[fill[v]++] = e;
+
+    // триграмма → слова
+    int[][] grams = new int[tokens][];
+    int[] gramStart = new int[GRAMS + 1];
+    int tokChars = 0;
+    for (int v = 0; v < tokens; v++) {
+      grams[v] = grams(tokList.get(v));
+      for (int g : grams[v]) gramStart[g + 1]++;
+      tokChars += tokList.get(v).length();
+    }
+    for (int g = 0; g < GRAMS; g++) gramStart[g + 1] += gramStart[g];
+    int[] tokGram = new int[gramStart[GRAMS]];
+    fill = Arrays.copyOf(gramStart, GRAMS);
+    for (int v = 0; v < tokens; v++) for (int g : grams[v]) tokGram[fill[g]++] = v;
+
+    int namesBytes = 0;
+    for (byte[] nm : nameList) namesBytes += nm.length;
+
+    long size = HEADER_INTS * 4L + (n + 1) * 4L + n * 4L + (tokens + 1) * 4L + (GRAMS + 1) * 4L
+        + tokGram.length * 4L + (tokens + 1) * 4L + tokEnt.length * 4L + tokChars * 2L + namesBytes;
+    ByteBuffer b = ByteBuffer.allocate(Math.toIntExact(size));
+    b.putInt(MAGIC).putInt(n).putInt(tokens).putInt(tokChars)
+        .putInt(tokGram.length).putInt(tokEnt.length).putInt(namesBytes).putInt(0);
+
+    int off = 0;
+    for (byte[] nm : nameList) { b.putInt(off); off += nm.length; }
+    b.putInt(off);
+    for (int[] ids : entTokens) b.putInt(ids.length);
+    off = 0;
+    for (String w : tokList) { b.putInt(off); off += w.length(); }
+    b.putInt(off);
+    for (int x : gramStart) b.putInt(x);
+    for (int x : tokGram) b.putInt(x);
+    for (int x : tokEntStart) b.putInt(x);
+    for (int x : tokEnt) b.putInt(x);
+    for (String w : tokList) for (int i = 0; i < w.length(); i++) b.putChar(w.charAt(i));
+    for (byte[] nm : nameList) b.put(nm);
+    b.flip();
+    return new SanctionsIndex(b);
+  }
+
+  /** Сбросить индекс в файл атомарно (tmp + move): уже отображённый старый файл не портится. */
+  public void writeTo(Path file) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer b = buf.duplicate().rewind();
+      while (b.hasRemaining()) ch.write(b);
+      ch.force(true);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Индекс поверх отображённого в память файла (READ_ONLY, вне heap). */
+  public static SanctionsIndex map(Path file) throws IOException {
+    try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new SanctionsIndex(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+    }
+  }
+
+  private static String nz(String s) {
+    return s == null ? "" : s.replace('\t', ' ');
+  }
+}
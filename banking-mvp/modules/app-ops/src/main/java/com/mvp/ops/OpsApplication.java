@@ -1,7 +1,10 @@
 package com.mvp.ops;
+import com.mvp.common.store.StoreAutoConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
 @SpringBootApplication
+@Import(StoreAutoConfiguration.class)
 public class OpsApplication {
   public static void main(String[] args) { SpringApplication.run(OpsApplication.class, args); }
 }
@@ -0,0 +1,81 @@
+package com.mvp.ops.controllers;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.util.Map;
+
+/**
+ * Страница оператора: живые метрики портала (латентность по эндпоинтам,
+ * fan-out в банки, кэш токенов) и JFR-запись по требованию.
+ * Все данные — из фида портала {portalBaseUrl}/debug/*; действия — с общим секретом в X-Ops-Token.
+ */
+@Controller
+public class ProfilerController {
+
+  private static final ParameterizedTypeReference<Map<String, Object>> MAP =
+      new ParameterizedTypeReference<>() {};
+
+  private final RestClient http = RestClient.builder().build();
+
+  @Value("${app.portalBaseUrl}")
+  private String portalBaseUrl;
+
+  @Value("${app.portalOpsToken:}")
+  private String portalOpsToken;
+
+  @GetMapping("/profiler")
+  public String index(@RequestParam(name = "refresh", defaultValue = "5") int refresh, Model model) {
+    model.addAttribute("portalBaseUrl", portalBaseUrl);
+    model.addAttribute("refresh", Math.max(0, refresh));
+    try {
+      Map<String, Object> feed = http.get()
+          .uri(portalBaseUrl + "/debug/metrics")
+          .accept(MediaType.APPLICATION_JSON)
+          .retrieve()
+          .body(MAP);
+      model.addAttribute("feed", feed);
+    } catch (Exception e) {
+      model.addAttribute("error", "Фид метрик портала недоступен: " + e.getMessage());
+    }
+    return "profiler/index";
+  }
+
+  @PostMapping("/profiler/jfr/start")
+  public String jfrStart(@RequestParam(name = "seconds", defaultValue = "60") int seconds,
+                         RedirectAttributes ra) {
+    call("/debug/jfr/start?seconds=" + seconds, ra);
+    return "redirect:/profiler?refresh=0";
+  }
+
+  @PostMapping("/profiler/jfr/stop")
+  public String jfrStop(RedirectAttributes ra) {
+    call("/debug/jfr/stop", ra);
+    return "redirect:/profiler?refresh=0";
+  }
+
+  @PostMapping("/profiler/reset")
+  public String reset(RedirectAttributes ra) {
+    call("/debug/metrics/reset", ra);
+    return "redirect:/profiler";
+  }
+
+  private void call(String path, RedirectAttributes ra) {
+    try {
+      http.post().uri(portalBaseUrl + path).header("X-Ops-Token", portalOpsToken).retrieve().toBodilessEntity();
+    } catch (RestClientResponseException e) {
+      ra.addFlashAttribute("error", "Портал ответил HTTP " + e.getStatusCode().value() + " " + e.getResponseBodyAsString());
+    } catch (Exception e) {
+      ra.addFlashAttribute("error", "Портал недоступен: " + e.getMessage());
+    }
+  }
+}
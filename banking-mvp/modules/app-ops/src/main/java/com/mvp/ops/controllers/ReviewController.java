@@ -1,7 +1,194 @@
 package com.mvp.ops.controllers;
+
+import com.mvp.ops.review.ReviewItem;
+import com.mvp.ops.review.ReviewQueue;
+import com.mvp.ops.review.ReviewSync;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Очередь ручной проверки ({@link ReviewQueue}): отложенные платежи, отказы KYC, зависшие заявки.
+ * Задачи приходят из фидов портала ({@link ReviewSync}); решение по платежу уходит в портал
+ * {portalBaseUrl}/payments/holds/{id}/release|reject|reconcile (с общим секретом в X-Ops-Token)
+ * и только после его ответа закрывает задачу.
+ */
 @Controller
 public class ReviewController {
-  @GetMapping("/review/queue") public String queue(){ return "review/queue"; }
+
+  private static final String OPS_TOKEN = "X-Ops-Token";
+
+  private static final ParameterizedTypeReference<Map<String, Object>> MAP =
+      new ParameterizedTypeReference<>() {};
+
+  private final ReviewQueue queue;
+  private final ReviewSync sync;
+  private final RestClient http = RestClient.builder().build();
+
+  @Value("${app.portalBaseUrl}")
+  private String portalBaseUrl;
+
+  /** Тот же секрет, что risk.ops-token портала: без него портал решения по платежам не принимает. */
+  @Value("${app.portalOpsToken:}")
+  private String portalOpsToken;
+
+  public ReviewController(ReviewQueue queue, ReviewSync sync) {
+    this.queue = queue;
+    this.sync = sync;
+  }
+
+  /** Пример: GET /review/queue?kind=PAYMENT&after=1760870000000.42&limit=50&reviewer=anna */
+  @GetMapping("/review/queue")
+  public String queue(@RequestParam(name = "kind", required = false) ReviewItem.Kind kind,
+                      @RequestParam(name = "after", required = false) String after,
+                      @RequestParam(name = "limit", defaultValue = "50") int limit,
+                      @RequestParam(name = "reviewer", required = false) String reviewer,
+                      Model model) {
+    model.addAttribute("kind", kind);
+    model.addAttribute("reviewer", reviewer);
+    model.addAttribute("page", queue.page(after, kind, Math.max(1, Math.min(limit, 500))));
+    model.addAttribute("metrics", queue.metrics());
+    model.addAttribute("sync", sync.status());
+    model.addAttribute("now", System.currentTimeMillis());
+    return "review/queue";
+  }
+
+  /** Глубина, занятые, возраст и просрочка по видам — для дашборда/алертов, как /debug/metrics портала. */
+  @GetMapping(value = "/review/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public Map<String, Object> metrics() {
+    Map<String, Object> m = new LinkedHashMap<>(queue.metrics());
+    m.put("sync", sync.status());
+    return m;
+  }
+
+  @PostMapping("/review/sync")
+  public String syncNow(@RequestParam(name = "reviewer", required = false) String reviewer,
+                        RedirectAttributes ra) {
+    sync.syncNow();
+    return redirect(reviewer, ra);
+  }
+
+  /** Взять следующую по приоритету свободную задачу (kind — только этого вида). */
+  @PostMapping("/review/next")
+  public String next(@RequestParam("reviewer") String reviewer,
+                     @RequestParam(name = "kind", required = false) ReviewItem.Kind kind,
+                     RedirectAttributes ra) {
+    Optional<ReviewQueue.Row> r = queue.claimNext(reviewer, kind);
+    if (r.isPresent()) ra.addFlashAttribute("info", "Взята задача " + r.get().item().id());
+    else ra.addFlashAttribute("info", "Свободных задач нет");
+    return redirect(reviewer, ra);
+  }
+
+  /** Взять конкретную задачу; своя — аренда продлевается. */
+  @PostMapping("/review/items/{id}/claim")
+  public String claim(@PathVariable("id") String id, @RequestParam("reviewer") String reviewer,
+                      RedirectAttributes ra) {
+    if (queue.claim(id, reviewer).isEmpty()) ra.addFlashAttribute("error", "Задача " + id + " занята или уже решена");
+    return redirect(reviewer, ra);
+  }
+
+  @PostMapping("/review/items/{id}/unclaim")
+  public String unclaim(@PathVariable("id") String id, @RequestParam("reviewer") String reviewer,
+                        RedirectAttributes ra) {
+    queue.unclaim(id, reviewer);
+    return redirect(reviewer, ra);
+  }
+
+  /** Закрыть задачу по заявке/KYC с комментарием (решение по самой заявке — в портале). */
+  @PostMapping("/review/items/{id}/resolve")
+  public String resolve(@PathVariable("id") String id, @RequestParam("reviewer") String reviewer,
+                        @RequestParam(name = "note", defaultValue = "") String note,
+                        RedirectAttributes ra) {
+    if (queue.resolve(id, reviewer, note.isBlank() ? "resolved" : note).isEmpty()) {
+      ra.addFlashAttribute("error", "Задача " + id + " занята другим оператором или уже решена");
+    }
+    return redirect(reviewer, ra);
+  }
+
+  @PostMapping("/review/payments/{id}/release")
+  public String release(@PathVariable("id") String id, @RequestParam("reviewer") String reviewer,
+                        RedirectAttributes ra) {
+    decidePayment(id, "release?reviewer={r}", Map.of("r", reviewer), "released", reviewer, ra);
+    return redirect(reviewer, ra);
+  }
+
+  @PostMapping("/review/payments/{id}/reject")
+  public String reject(@PathVariable("id") String id, @RequestParam("reviewer") String reviewer,
+                       RedirectAttributes ra) {
+    decidePayment(id, "reject?reviewer={r}", Map.of("r", reviewer), "rejected", reviewer, ra);
+    return redirect(reviewer, ra);
+  }
+
+  /**
+   * Сверка платежа с неизвестным исходом: paymentId — найденный оператором в банке платёж,
+   * absent — оператор убедился, что платежа в банке нет. Итог — SENT (задача закрывается)
+   * или FAILED (задача остаётся: платёж можно пропустить снова или отклонить).
+   */
+  @PostMapping("/review/payments/{id}/reconcile")
+  public String reconcile(@PathVariable("id") String id, @RequestParam("reviewer") String reviewer,
+                          @RequestParam(name = "paymentId", defaultValue = "") String paymentId,
+                          @RequestParam(name = "absent", defaultValue = "false") boolean absent,
+                          RedirectAttributes ra) {
+    decidePayment(id, "reconcile?reviewer={r}&paymentId={p}&absent={a}",
+        Map.of("r", reviewer, "p", paymentId.trim(), "a", absent), "reconciled: sent", reviewer, ra);
+    return redirect(reviewer, ra);
+  }
+
+  /**
+   * Решение по платежу: сначала аренда (чтобы двое не отправили один платёж), потом портал,
+   * потом задача закрывается. Портал ответил ошибкой, банк не принял платёж (FAILED) или исход
+   * отправки неизвестен (UNKNOWN) — задача остаётся открытой за оператором.
+   */
+  private void decidePayment(String holdId, String action, Map<String, ?> params, String resolution, String reviewer,
+                             RedirectAttributes ra) {
+    String id = ReviewItem.idOf(ReviewItem.Kind.PAYMENT, holdId);
+    if (queue.claim(id, reviewer).isEmpty()) {
+      ra.addFlashAttribute("error", "Задача " + id + " занята другим оператором или уже решена");
+      return;
+    }
+    try {
+      Map<String, Object> vars = new LinkedHashMap<>(params);
+      vars.put("id", holdId);
+      Map<String, Object> h = http.post()
+          .uri(portalBaseUrl + "/payments/holds/{id}/" + action, vars)
+          .header(OPS_TOKEN, portalOpsToken)
+          .retrieve().body(MAP);
+      // банк не принял платёж — задача остаётся за оператором, можно повторить или отклонить
+      if (h != null && "FAILED".equals(h.get("status"))) {
+        ra.addFlashAttribute("error", "Банк не принял платёж: " + h.get("error"));
+        return;
+      }
+      // платёж мог уйти — повторять нельзя, сначала сверка с банком
+      if (h != null && "UNKNOWN".equals(h.get("status"))) {
+        ra.addFlashAttribute("error", "Исход отправки неизвестен — сверьте платёж с банком: " + h.get("error"));
+        return;
+      }
+      queue.resolve(id, reviewer, resolution);
+    } catch (RestClientResponseException e) {
+      ra.addFlashAttribute("error", "Портал ответил HTTP " + e.getStatusCode().value() + " " + e.getResponseBodyAsString());
+    } catch (Exception e) {
+      ra.addFlashAttribute("error", "Портал недоступен: " + e.getMessage());
+    }
+  }
+
+  /** Назад к очереди, с именем оператора в адресе — чтобы не вводить его на каждое действие. */
+  private static String redirect(String reviewer, RedirectAttributes ra) {
+    if (reviewer != null && !reviewer.isBlank()) ra.addAttribute("reviewer", reviewer);
+    return "redirect:/review/queue";
+  }
 }
@@ -0,0 +1,18 @@
+package com.mvp.ops.review;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Свойства review.* очереди ручной проверки.
+ */
+@Configuration
+public class ReviewConfiguration {
+
+  @Bean
+  @ConfigurationProperties(prefix = "review")
+  public ReviewProperties reviewProperties() {
+    return new ReviewProperties();
+  }
+}
@@ -0,0 +1,51 @@
+package com.mvp.ops.review;
+
+import java.util.Map;
+
+/**
+ * Задача ручной проверки. Неизменяемая: каждое изменение — новая строка в журнале очереди.
+ *
+ * @param id        kind:sourceId — одна задача на объект портала
+ * @param risk      0..100, поднимает задачу в очереди (см. review.risk-weight)
+ * @param createdAt с какого момента объект ждёт оператора (по данным портала), epoch ms
+ * @param deadline  createdAt + SLA вида
+ * @param details   поля объекта из фида портала — для показа оператору
+ */
+public record ReviewItem(
+    String id,
+    Kind kind,
+    String sourceId,
+    String title,
+    int risk,
+    long createdAt,
+    long deadline,
+    Status status,
+    String resolution,
+    String resolvedBy,
+    long resolvedAt,
+    Map<String, Object> details
+) {
+
+  public enum Kind { PAYMENT, KYC, LOAN }
+
+  public enum Status { OPEN, RESOLVED }
+
+  public static String idOf(Kind kind, String sourceId) {
+    return kind.name().toLowerCase() + ":" + sourceId;
+  }
+
+  public boolean isOpen() {
+    return status == Status.OPEN;
+  }
+
+  public ReviewItem resolved(String resolution, String reviewer, long now) {
+    return new ReviewItem(id, kind, sourceId, title, risk, createdAt, deadline, Status.RESOLVED,
+        resolution, reviewer, now, details);
+  }
+
+  /** Те же id и сроки, поля — из свежего фида. */
+  public ReviewItem refreshed(ReviewItem fresh) {
+    return new ReviewItem(id, kind, sourceId, fresh.title, fresh.risk, createdAt, deadline, status,
+        resolution, resolvedBy, resolvedAt, fresh.details);
+  }
+}
@@ -0,0 +1,62 @@
+package com.mvp.ops.review;
+
+import java.time.Duration;
+
+/**
+ * Настройки очереди ручной проверки, префикс "review" в application.yml.
+ */
+public class ReviewProperties {
+
+  /** Как часто забирать новые задачи из фидов портала. */
+  private Duration syncInterval = Duration.ofSeconds(10);
+
+  /** Сколько задача закреплена за взявшим её оператором без продления. */
+  private Duration lease = Duration.ofMinutes(5);
+
+  /** Срок реакции по видам задач: платёж ждёт клиента, заявки — терпят дольше. */
+  private Duration paymentSla = Duration.ofMinutes(15);
+  private Duration kycSla = Duration.ofHours(4);
+  private Duration loanSla = Duration.ofHours(24);
+
+  /** Заявка, ждущая одобрения дольше этого, попадает в очередь. */
+  private Duration loanStuckAfter = Duration.ofHours(2);
+
+  /** Вес риска в приоритете: один балл риска поднимает задачу как срок на столько раньше. */
+  private Duration riskWeight = Duration.ofMinutes(1);
+
+  /** Сколько хранить решённые задачи (по ним же не создаются повторные из фида). */
+  private Duration retention = Duration.ofDays(45);
+
+
+  public Duration getSyncInterval() { return syncInterval; }
+  public void setSyncInterval(Duration syncInterval) { this.syncInterval = syncInterval; }
+
+  public Duration getLease() { return lease; }
+  public void setLease(Duration lease) { this.lease = lease; }
+
+  public Duration getPaymentSla() { return paymentSla; }
+  public void setPaymentSla(Duration paymentSla) { this.paymentSla = paymentSla; }
+
+  public Duration getKycSla() { return kycSla; }
+  public void setKycSla(Duration kycSla) { this.kycSla = kycSla; }
+
+  public Duration getLoanSla() { return loanSla; }
+  public void setLoanSla(Duration loanSla) { this.loanSla = loanSla; }
+
+  public Duration getLoanStuckAfter() { return loanStuckAfter; }
+  public void setLoanStuckAfter(Duration loanStuckAfter) { this.loanStuckAfter = loanStuckAfter; }
+
+  public Duration getRiskWeight() { return riskWeight; }
+  public void setRiskWeight(Duration riskWeight) { this.riskWeight = riskWeight; }
+
+  public Duration getRetention() { return retention; }
+  public void setRetention(Duration retention) { this.retention = retention; }
+
+  public Duration slaFor(ReviewItem.Kind kind) {
+    return switch (kind) {
+      case PAYMENT -> paymentSla;
+      case KYC -> kycSla;
+      case LOAN -> loanSla;
+    };
+  }
+}
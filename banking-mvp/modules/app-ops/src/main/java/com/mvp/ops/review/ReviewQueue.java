@@ -0,0 +1,432 @@
+package com.mvp.ops.review;
+
+import com.mvp.common.store.KvStore;
+import com.mvp.common.store.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Очередь ручной проверки: отложенные платежи, отказы KYC и зависшие заявки на кредит.
+ *
+ * Порядок — по приоритету deadline − risk·review.risk-weight (раньше срок и выше риск — ближе
+ * к началу), при равенстве — по порядку появления. Открытые задачи лежат в ConcurrentSkipListSet
+ * по видам; без фильтра по виду индексы сливаются на лету. Выборка и постраничный просмотр идут
+ * по индексу без блокировок, страница — tailSet от курсора, а не пропуск offset строк.
+ *
+ * Взятие в работу тоже без блокировок: оператор CAS-ом ставит аренду на первую свободную задачу
+ * (занятые с живой арендой пропускаются — их в голове очереди не больше, чем задач в работе).
+ * Не продлил аренду за review.lease — задачу забирает следующий тем же CAS (кража просроченной
+ * аренды). Аренды живут только в памяти: после рестарта все задачи снова свободны.
+ *
+ * Изменения (задачи из фидов, решения) — под монитором очереди и сразу в хранилище ({@link KvStore},
+ * репозиторий "review"): пачка из фида — одна запись с одним fsync, решение — своя запись.
+ * Сверка с фидом идёт пачками по {@value #SYNC_CHUNK} задач и отпускает монитор между ними —
+ * большой первый импорт не держит решения операторов. При старте решённые задачи старше
+ * review.retention удаляются из хранилища.
+ */
+@Component
+public class ReviewQueue implements InitializingBean {
+
+  private static final Logger log = LoggerFactory.getLogger(ReviewQueue.class);
+
+  /** Решение, которым закрываются задачи, пропавшие из фида портала. */
+  public static final String CLOSED_IN_PORTAL = "closed in portal";
+
+  static final int SYNC_CHUNK = 1024;
+
+  /** Строка очереди для показа: задача, её приоритет, текущая аренда и курсор страницы. */
+  public record Row(ReviewItem item, long priority, String claimedBy, long leaseUntil, String cursor) {}
+
+  /** Страница очереди; next — курсор следующей страницы, null — дальше пусто. */
+  public record Page(List<Row> rows, String next) {}
+
+  private record Lease(String owner, long until) {}
+
+  /**
+   * Запись индекса. Ключ (priority, seq) неизменен: обновление из фида с тем же приоритетом
+   * подменяет item на месте, иначе заводится новая запись с новым seq. Аренда — общая ссылка,
+   * переезжает в новую запись, так что CAS оператора не теряется при обновлении из фида.
+   */
+  private static final class Entry {
+    volatile ReviewItem item;
+    final long priority;
+    final long seq;
+    final AtomicReference<Lease> lease;
+
+    Entry(ReviewItem item, long priority, long seq, AtomicReference<Lease> lease) {
+      this.item = item;
+      this.priority = priority;
+      this.seq = seq;
+      this.lease = lease;
+    }
+
+    String cursor() {
+      return priority + "." + seq;
+    }
+  }
+
+  // явные компараторы, не comparingLong(...).thenComparingLong(...): общий вызов внутри лямбд
+  // Comparator становится мегаморфным и не инлайнится — на вставке 300k задач это в разы медленнее
+  private static final Comparator<Entry> BY_PRIORITY = (a, b) -> {
+    int c = Long.compare(a.priority, b.priority);
+    return c != 0 ? c : Long.compare(a.seq, b.seq);
+  };
+  private static final Comparator<Entry> BY_DEADLINE = (a, b) -> {
+    int c = Long.compare(a.item.deadline(), b.item.deadline());
+    return c != 0 ? c : Long.compare(a.seq, b.seq);
+  };
+
+  private final ReviewProperties cfg;
+  private final Repository<ReviewItem> store;
+
+  private final Map<String, Entry> all = new ConcurrentHashMap<>();
+  private final Map<ReviewItem.Kind, ConcurrentSkipListSet<Entry>> open = new EnumMap<>(ReviewItem.Kind.class);
+  private final Map<ReviewItem.Kind, ConcurrentSkipListSet<Entry>> openByDeadline = new EnumMap<>(ReviewItem.Kind.class);
+  private final Map<ReviewItem.Kind, AtomicInteger> depth = new EnumMap<>(ReviewItem.Kind.class);
+  /** Задачи, на которые когда-либо ставилась аренда; просроченные вычищаются при подсчёте метрик. */
+  private final Map<String, Entry> claimed = new ConcurrentHashMap<>();
+  private final AtomicLong seq = new AtomicLong();
+  /** Одна сверка за раз (фоновая и по кнопке), монитор очереди при этом берётся пачками. */
+  private final Object syncLock = new Object();
+
+  public ReviewQueue(ReviewProperties cfg, KvStore store) {
+    this.cfg = cfg;
+    this.store = store.repository("review", ReviewItem.class);
+    for (ReviewItem.Kind k : ReviewItem.Kind.values()) {
+      open.put(k, new ConcurrentSkipListSet<>(BY_PRIORITY));
+      openByDeadline.put(k, new ConcurrentSkipListSet<>(BY_DEADLINE));
+      depth.put(k, new AtomicInteger());
+    }
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    long cutoff = System.currentTimeMillis() - cfg.getRetention().toMillis();
+    Map<String, ReviewItem> expired = new LinkedHashMap<>();
+    for (ReviewItem i : store.findAll()) {
+      if (!i.isOpen() && i.resolvedAt() < cutoff) expired.put(i.id(), null);
+      else put(i);
+    }
+    if (!expired.isEmpty()) store.putAll(expired);
+    log.info("Review queue: {} items in store, {} expired dropped", all.size(), expired.size());
+  }
+
+  // ——————————————————————————— фиды ———————————————————————————
+
+  /**
+   * Сверка с полным фидом портала по виду kind: новые задачи добавляются, открытые обновляются,
+   * открытые, которых в фиде больше нет, закрываются как {@link #CLOSED_IN_PORTAL}. Решённая задача
+   * открывается заново, только если объект снова ждёт оператора с момента позже решения
+   * (например, пропущенный платёж не ушёл в банк).
+   *
+   * @return сколько задач изменилось
+   */
+  public int sync(ReviewItem.Kind kind, List<ReviewItem> feed) {
+    synchronized (syncLock) {
+      Set<String> seen = new HashSet<>(feed.size() * 2);
+      for (ReviewItem fresh : feed) seen.add(fresh.id());
+      int changed = 0;
+      for (int from = 0; from < feed.size(); from += SYNC_CHUNK) {
+        changed += merge(feed.subList(from, Math.min(feed.size(), from + SYNC_CHUNK)));
+      }
+      List<String> gone = new ArrayList<>();
+      for (Entry e : openByDeadline.get(kind)) if (!seen.contains(e.item.id())) gone.add(e.item.id());
+      for (int from = 0; from < gone.size(); from += SYNC_CHUNK) {
+        changed += close(gone.subList(from, Math.min(gone.size(), from + SYNC_CHUNK)));
+      }
+      return changed;
+    }
+  }
+
+  private synchronized int merge(List<ReviewItem> chunk) {
+    List<ReviewItem> changed = new ArrayList<>();
+    for (ReviewItem fresh : chunk) {
+      Entry cur = all.get(fresh.id());
+      ReviewItem next;
+      if (cur == null) {
+        next = fresh;
+      } else if (cur.item.isOpen()) {
+        if (cur.item.risk() == fresh.risk() && Objects.equals(cur.item.title(), fresh.title())
+            && Objects.equals(cur.item.details(), fresh.details())) continue;
+        next = cur.item.refreshed(fresh);
+      } else if (fresh.createdAt() > cur.item.resolvedAt()) {
+        next = fresh;
+      } else {
+        continue;
+      }
+      put(next);
+      changed.add(next);
+    }
+    write(changed);
+    return changed.size();
+  }
+
+  private synchronized int close(List<String> ids) {
+    long now = System.currentTimeMillis();
+    List<ReviewItem> changed = new ArrayList<>();
+    for (String id : ids) {
+      Entry e = all.get(id);
+      if (e == null || !e.item.isOpen()) continue;
+      ReviewItem done = e.item.resolved(CLOSED_IN_PORTAL, "portal", now);
+      put(done);
+      changed.add(done);
+    }
+    write(changed);
+    return changed.size();
+  }
+
+  // ——————————————————————————— операторы ———————————————————————————
+
+  /**
+   * Первая по приоритету задача, которую никто не держит (или чья аренда истекла), —
+   * за reviewer на review.lease. Без блокировок: проигравший CAS просто идёт к следующей.
+   */
+  public Optional<Row> claimNext(String reviewer, ReviewItem.Kind kind) {
+    long now = System.currentTimeMillis();
+    for (Iterator<Entry> it = byPriority(kind, null); it.hasNext(); ) {
+      Entry e = it.next();
+      Lease l = e.lease.get();
+      if (l != null && l.until > now) continue;
+      if (tryLease(e, l, reviewer, now)) return Optional.of(row(e, now));
+    }
+    return Optional.empty();
+  }
+
+  /** Взять конкретную задачу; пусто — её нет, она решена или её держит другой. */
+  public Optional<Row> claim(String id, String reviewer) {
+    long now = System.currentTimeMillis();
+    Entry e = all.get(id);
+    while (e != null && e.item.isOpen()) {
+      Lease l = e.lease.get();
+      if (l != null && l.until > now && !l.owner.equals(reviewer)) return Optional.empty();
+      if (tryLease(e, l, reviewer, now)) return Optional.of(row(e, now));
+      e = all.get(id);
+    }
+    return Optional.empty();
+  }
+
+  /** Вернуть задачу в очередь, не решая. */
+  public boolean unclaim(String id, String reviewer) {
+    Entry e = all.get(id);
+    if (e == null) return false;
+    Lease l = e.lease.get();
+    if (l == null || !l.owner.equals(reviewer) || !e.lease.compareAndSet(l, null)) return false;
+    claimed.remove(id, e);
+    return true;
+  }
+
+  /**
+   * Закрыть задачу решением resolution. Нельзя, если её держит другой оператор с живой арендой.
+   * @return решённая задача; пусто — задачи нет, она уже решена или занята
+   */
+  public synchronized Optional<ReviewItem> resolve(String id, String reviewer, String resolution) {
+    Entry e = all.get(id);
+    if (e == null || !e.item.isOpen()) return Optional.empty();
+    Lease l = e.lease.get();
+    if (l != null && l.until > System.currentTimeMillis() && !l.owner.equals(reviewer)) return Optional.empty();
+    ReviewItem done = e.item.resolved(resolution, reviewer, System.currentTimeMillis());
+    put(done);
+    write(List.of(done));
+    return Optional.of(done);
+  }
+
+  public Optional<Row> get(String id) {
+    Entry e = all.get(id);
+    return e == null ? Optional.empty() : Optional.of(row(e, System.currentTimeMillis()));
+  }
+
+  /**
+   * Открытые задачи по приоритету, начиная после курсора after (null — с начала).
+   * Курсор — "priority.seq" из {@link Row#cursor()}; seq не переживает рестарт, но порядок
+   * по priority сохраняется, так что страница после рестарта лишь может повторить пару строк.
+   * Курсор не разобрался (правленый руками адрес) — страница с начала.
+   */
+  public Page page(String after, ReviewItem.Kind kind, int limit) {
+    long now = System.currentTimeMillis();
+    Entry from = cursor(after);
+    List<Row> rows = new ArrayList<>(Math.min(limit, 256));
+    for (Iterator<Entry> it = byPriority(kind, from); it.hasNext(); ) {
+      Entry e = it.next();
+      if (rows.size() == limit) return new Page(rows, rows.get(rows.size() - 1).cursor());
+      rows.add(row(e, now));
+    }
+    return new Page(rows, null);
+  }
+
+  /** Позиция после курсора "priority.seq" (или "priority"); пусто или не число — null. */
+  private static Entry cursor(String after) {
+    if (after == null || after.isBlank()) return null;
+    int dot = after.indexOf('.');
+    try {
+      long p = Long.parseLong(dot < 0 ? after.trim() : after.substring(0, dot).trim());
+      long s = dot < 0 ? Long.MAX_VALUE : Long.parseLong(after.substring(dot + 1).trim());
+      return new Entry(null, p, s, null);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Глубина, занятые, возраст самой старой и число просроченных задач по видам. Просроченные
+   * считаются обходом индекса по сроку до первой непросроченной — O(просроченных), не O(очереди).
+   */
+  public Map<String, Object> metrics() {
+    long now = System.currentTimeMillis();
+    Map<ReviewItem.Kind, Integer> busy = new EnumMap<>(ReviewItem.Kind.class);
+    for (Entry e : claimed.values()) {
+      Lease l = e.lease.get();
+      Entry cur = all.get(e.item.id());
+      if (l == null || l.until <= now || cur == null || !cur.item.isOpen()) {
+        claimed.remove(e.item.id(), e);
+        continue;
+      }
+      busy.merge(e.item.kind(), 1, Integer::sum);
+    }
+    Map<String, Object> root = new LinkedHashMap<>();
+    Map<String, Object> kinds = new LinkedHashMap<>();
+    int total = 0;
+    int overdueTotal = 0;
+    for (ReviewItem.Kind k : ReviewItem.Kind.values()) {
+      ConcurrentSkipListSet<Entry> idx = openByDeadline.get(k);
+      int overdue = 0;
+      long oldest = 0;
+      for (Entry e : idx) {
+        if (e.item.deadline() >= now) break;
+        overdue++;
+      }
+      Entry first = idx.isEmpty() ? null : idx.first();
+      if (first != null) oldest = Math.max(0, now - first.item.createdAt());
+      int d = depth.get(k).get();
+      Map<String, Object> m = new LinkedHashMap<>();
+      m.put("depth", d);
+      m.put("claimed", busy.getOrDefault(k, 0));
+      m.put("overdue", overdue);
+      m.put("oldestAgeMs", oldest);
+      m.put("slaMs", cfg.slaFor(k).toMillis());
+      kinds.put(k.name(), m);
+      total += d;
+      overdueTotal += overdue;
+    }
+    root.put("depth", total);
+    root.put("claimed", busy.values().stream().mapToInt(Integer::intValue).sum());
+    root.put("overdue", overdueTotal);
+    root.put("kinds", kinds);
+    return root;
+  }
+
+  // ——————————————————————————— внутреннее ———————————————————————————
+
+  /**
+   * Открытые задачи вида kind (null — всех) по приоритету, строго после from (null — с начала).
+   * Без фильтра — слияние голов индексов по видам: на шаг одно сравнение на вид.
+   */
+  private Iterator<Entry> byPriority(ReviewItem.Kind kind, Entry from) {
+    if (kind != null) {
+      ConcurrentSkipListSet<Entry> idx = open.get(kind);
+      return (from == null ? idx : idx.tailSet(from, false)).iterator();
+    }
+    List<Iterator<Entry>> its = new ArrayList<>();
+    for (ConcurrentSkipListSet<Entry> idx : open.values()) {
+      its.add((from == null ? idx : idx.tailSet(from, false)).iterator());
+    }
+    Entry[] heads = new Entry[its.size()];
+    for (int i = 0; i < heads.length; i++) heads[i] = its.get(i).hasNext() ? its.get(i).next() : null;
+    return new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        for (Entry h : heads) if (h != null) return true;
+        return false;
+      }
+
+      @Override
+      public Entry next() {
+        int min = -1;
+        for (int i = 0; i < heads.length; i++) {
+          if (heads[i] != null && (min < 0 || BY_PRIORITY.compare(heads[i], heads[min]) < 0)) min = i;
+        }
+        if (min < 0) throw new NoSuchElementException();
+        Entry e = heads[min];
+        heads[min] = its.get(min).hasNext() ? its.get(min).next() : null;
+        return e;
+      }
+    };
+  }
+
+  private boolean tryLease(Entry e, Lease expected, String reviewer, long now) {
+    if (!e.lease.compareAndSet(expected, new Lease(reviewer, now + cfg.getLease().toMillis()))) return false;
+    if (expected != null && expected.until <= now && !expected.owner.equals(reviewer)) {
+      log.info("Review item {}: lease of {} expired, taken over by {}", e.item.id(), expected.owner, reviewer);
+    }
+    claimed.put(e.item.id(), e);
+    return true;
+  }
+
+  private Row row(Entry e, long now) {
+    Lease l = e.lease.get();
+    boolean held = l != null && l.until > now && e.item.isOpen();
+    return new Row(e.item, e.priority, held ? l.owner : null, held ? l.until : 0, e.cursor());
+  }
+
+  private long priorityOf(ReviewItem item) {
+    return item.deadline() - item.risk() * cfg.getRiskWeight().toMillis();
+  }
+
+  /** Заменить задачу и поправить индексы. Вызывается под монитором (или при загрузке). */
+  private void put(ReviewItem item) {
+    Entry prev = all.get(item.id());
+    boolean wasOpen = prev != null && prev.item.isOpen();
+    long priority = priorityOf(item);
+    if (wasOpen && item.isOpen() && prev.priority == priority) {
+      prev.item = item;
+      return;
+    }
+    // открыта заново — прежняя аренда к ней не относится
+    AtomicReference<Lease> lease = wasOpen ? prev.lease : new AtomicReference<>();
+    Entry next = new Entry(item, priority, seq.incrementAndGet(), lease);
+    // сначала новая запись в индексах, потом снятие старой: читатель без блокировок может увидеть
+    // задачу дважды, но не потеряет её
+    if (item.isOpen()) {
+      open.get(item.kind()).add(next);
+      openByDeadline.get(item.kind()).add(next);
+    }
+    all.put(item.id(), next);
+    if (wasOpen) {
+      open.get(prev.item.kind()).remove(prev);
+      openByDeadline.get(prev.item.kind()).remove(prev);
+    }
+    if (item.isOpen() && !wasOpen) depth.get(item.kind()).incrementAndGet();
+    if (!item.isOpen() && wasOpen) {
+      depth.get(item.kind()).decrementAndGet();
+      claimed.remove(item.id());
+    } else if (wasOpen) {
+      claimed.computeIfPresent(item.id(), (k, v) -> next);
+    }
+  }
+
+  private void write(List<ReviewItem> items) {
+    if (items.isEmpty()) return;
+    Map<String, ReviewItem> batch = new LinkedHashMap<>();
+    for (ReviewItem i : items) batch.put(i.id(), i);
+    store.putAll(batch);
+  }
+}
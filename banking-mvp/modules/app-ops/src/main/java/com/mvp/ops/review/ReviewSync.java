@@ -0,0 +1,183 @@
+package com.mvp.ops.review;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Фоновая сверка очереди с порталом (поток review-sync-1) раз в review.sync-interval:
+ * {portalBaseUrl}/payments/holds — отложенные платежи, {portalBaseUrl}/loan/review — отказы KYC
+ * и зависшие заявки. Фид недоступен — очередь по этому виду не трогается до следующего раза.
+ * Фиды портал отдаёт только с общим секретом app.portalOpsToken в X-Ops-Token.
+ */
+@Component
+public class ReviewSync implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(ReviewSync.class);
+
+  private static final ParameterizedTypeReference<Map<String, Object>> MAP =
+      new ParameterizedTypeReference<>() {};
+
+  private final ReviewQueue queue;
+  private final ReviewProperties cfg;
+  private final RestClient http = RestClient.builder().build();
+  private final Map<String, Long> lastSync = new LinkedHashMap<>();
+
+  @Value("${app.portalBaseUrl}")
+  private String portalBaseUrl;
+
+  @Value("${app.portalOpsToken:}")
+  private String portalOpsToken;
+
+  private volatile Thread worker;
+  private volatile String lastError;
+
+  public ReviewSync(ReviewQueue queue, ReviewProperties cfg) {
+    this.queue = queue;
+    this.cfg = cfg;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    Thread t = new Thread(this::loop, "review-sync-1");
+    t.setDaemon(true);
+    worker = t;
+    t.start();
+  }
+
+  @Override
+  public void destroy() {
+    Thread t = worker;
+    worker = null;
+    if (t != null) t.interrupt();
+  }
+
+  /** Когда каждый фид последний раз успешно сверен (epoch ms) и последняя ошибка. */
+  public synchronized Map<String, Object> status() {
+    Map<String, Object> m = new LinkedHashMap<>(lastSync);
+    if (lastError != null) m.put("lastError", lastError);
+    return m;
+  }
+
+  /** Сверить оба фида сейчас (кнопка «обновить» оператора и фоновый цикл). */
+  public void syncNow() {
+    try {
+      int n = queue.sync(ReviewItem.Kind.PAYMENT, payments());
+      synced("payments", n);
+    } catch (Exception e) {
+      failed("payments", e);
+    }
+    try {
+      Map<ReviewItem.Kind, List<ReviewItem>> byKind = loans();
+      int n = 0;
+      for (Map.Entry<ReviewItem.Kind, List<ReviewItem>> e : byKind.entrySet()) n += queue.sync(e.getKey(), e.getValue());
+      synced("loans", n);
+    } catch (Exception e) {
+      failed("loans", e);
+    }
+  }
+
+  private void loop() {
+    while (worker == Thread.currentThread()) {
+      syncNow();
+      try {
+        Thread.sleep(Math.max(1000, cfg.getSyncInterval().toMillis()));
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private List<ReviewItem> payments() {
+    List<ReviewItem> out = new ArrayList<>();
+    for (Map<String, Object> h : items(portalBaseUrl + "/payments/holds?status=HELD,FAILED,UNKNOWN,RELEASING")) {
+      @SuppressWarnings("unchecked")
+      Map<String, Object> p = (Map<String, Object>) h.getOrDefault("payment", Map.of());
+      Map<String, Object> d = new LinkedHashMap<>();
+      d.put("status", h.get("status"));
+      d.put("reasons", h.get("reasons"));
+      d.put("login", p.get("login"));
+      d.put("bank", p.get("bank"));
+      d.put("debtorAccountId", p.get("debtorAccountId"));
+      d.put("creditorAccount", p.get("creditorAccount"));
+      d.put("amount", String.valueOf(p.get("amount")));
+      d.put("currency", p.get("currency"));
+      if (h.get("error") != null) d.put("error", h.get("error"));
+      // RELEASING — отправка ещё идёт (или зависла): задача открыта, пока портал не скажет, чем кончилось
+      if ("RELEASING".equals(h.get("status"))) d.put("attention", "отправка в банк не завершена — проверьте, если висит долго");
+      if (h.get("decidedBy") != null) d.put("decidedBy", h.get("decidedBy"));
+      String title = p.get("amount") + " " + p.get("currency") + " " + p.get("login") + " → " + p.get("creditorAccount");
+      // FAILED/UNKNOWN ждут оператора с момента неудачной отправки, HELD — с момента задержки
+      out.add(item(ReviewItem.Kind.PAYMENT, str(h.get("id")), title, num(h.get("score")), num(h.get("updatedAt")), d));
+    }
+    return out;
+  }
+
+  private Map<ReviewItem.Kind, List<ReviewItem>> loans() {
+    Map<ReviewItem.Kind, List<ReviewItem>> out = new EnumMap<>(ReviewItem.Kind.class);
+    out.put(ReviewItem.Kind.KYC, new ArrayList<>());
+    out.put(ReviewItem.Kind.LOAN, new ArrayList<>());
+    String url = portalBaseUrl + "/loan/review?stuckAfter=" + cfg.getLoanStuckAfter();
+    for (Map<String, Object> a : items(url)) {
+      ReviewItem.Kind kind = "KYC".equals(a.get("kind")) ? ReviewItem.Kind.KYC : ReviewItem.Kind.LOAN;
+      Map<String, Object> d = new LinkedHashMap<>();
+      d.put("state", a.get("state"));
+      d.put("login", a.get("login"));
+      d.put("productId", a.get("productId"));
+      d.put("amount", a.get("amount"));
+      d.put("termMonths", a.get("termMonths"));
+      d.put("message", a.get("message"));
+      String title = a.get("amount") + " · " + a.get("productId") + " · " + a.get("login");
+      out.get(kind).add(item(kind, str(a.get("id")), title, 0, num(a.get("stateSince")), d));
+    }
+    return out;
+  }
+
+  private ReviewItem item(ReviewItem.Kind kind, String sourceId, String title, long risk, long since,
+                          Map<String, Object> details) {
+    long createdAt = since > 0 ? since : System.currentTimeMillis();
+    return new ReviewItem(ReviewItem.idOf(kind, sourceId), kind, sourceId, title,
+        (int) Math.max(0, Math.min(100, risk)), createdAt, createdAt + cfg.slaFor(kind).toMillis(),
+        ReviewItem.Status.OPEN, null, null, 0, details);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Map<String, Object>> items(String url) {
+    Map<String, Object> feed = http.get().uri(url).accept(MediaType.APPLICATION_JSON)
+        .header("X-Ops-Token", portalOpsToken)
+        .retrieve().body(MAP);
+    Object items = feed == null ? null : feed.get("items");
+    return items instanceof List<?> l ? (List<Map<String, Object>>) l : List.of();
+  }
+
+  private synchronized void synced(String feed, int changed) {
+    lastSync.put(feed, System.currentTimeMillis());
+    if (lastError != null && lastError.startsWith(feed + ":")) lastError = null;
+    if (changed > 0) log.info("Review queue: {} items changed from {} feed", changed, feed);
+  }
+
+  private synchronized void failed(String feed, Exception e) {
+    lastError = feed + ": " + e.getMessage();
+    log.warn("Review {} feed sync failed: {}", feed, e.getMessage());
+  }
+
+  private static String str(Object o) {
+    return o == null ? null : o.toString();
+  }
+
+  private static long num(Object o) {
+    return o instanceof Number n ? n.longValue() : 0;
+  }
+}
@@ -1,11 +1,11 @@
 package com.mvp.portal;
 
-import com.mvp.ob.ObClientAutoConfiguration;
+import com.mvp.core.CoreAutoConfiguration;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Import;
 
-@Import(ObClientAutoConfiguration.class)
+@Import(CoreAutoConfiguration.class)
 @SpringBootApplication
 public class PortalApplication {
     public static void main(String[] args) {
@@ -2,17 +2,34 @@ package com.mvp.portal.controllers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mvp.core.analytics.Flow;
+import com.mvp.core.analytics.SpendingAnalytics;
+import com.mvp.core.analytics.SpendingReport;
+import com.mvp.core.balances.AccountBalance;
+import com.mvp.core.balances.BalanceSnapshots;
+import com.mvp.core.networth.NetWorth;
+import com.mvp.core.networth.NetWorthService;
 import com.mvp.ob.ConsentCreateResult;
 import com.mvp.ob.ObAccountsClient;
 import com.mvp.ob.ObAuthClient;
 import com.mvp.ob.ObClientProperties;
+import com.mvp.ob.trace.ObTrace;
+import com.mvp.portal.web.HttpCaching;
+import com.mvp.portal.web.JsonRows;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -23,14 +40,23 @@ public class AccountsController {
   private final ObAuthClient authClient;
   private final ObAccountsClient accountsClient;
   private final ObClientProperties props;
+  private final BalanceSnapshots balances;
+  private final NetWorthService netWorth;
+  private final SpendingAnalytics analytics;
   private final ObjectMapper mapper = new ObjectMapper();
 
   public AccountsController(ObAuthClient authClient,
                             ObAccountsClient accountsClient,
-                            ObClientProperties props) {
+                            ObClientProperties props,
+                            BalanceSnapshots balances,
+                            NetWorthService netWorth,
+                            SpendingAnalytics analytics) {
     this.authClient = authClient;
     this.accountsClient = accountsClient;
     this.props = props;
+    this.balances = balances;
+    this.netWorth = netWorth;
+    this.analytics = analytics;
   }
 
   @GetMapping("/accounts")
@@ -82,6 +108,8 @@ public class AccountsController {
         List<Map<String, Object>> accounts = extractAccounts(accountsJson);
         if (!accounts.isEmpty()) {
           model.addAttribute("accounts", accounts);
+          // балансы этих счетов дальше держит фон — дашборды читают их из снимка
+          balances.track(bank, clientId, consentId, accountIds(accounts));
         }
       } catch (ObAccountsClient.ObApiException apiEx) {
         model.addAttribute("error", "Accounts fetch failed: HTTP " + apiEx.getStatus().value());
@@ -95,12 +123,16 @@ public class AccountsController {
     return "accounts/index";
   }
 
-  /** Детали счёта + балансы по известным accountId и consentId. */
+  /**
+   * Детали счёта + балансы по известным accountId и consentId.
+   * ETag — хэш JSON счёта и балансов: пока они не изменились, браузер получает 304.
+   */
   @GetMapping("/accounts/{accountId}")
   public String details(@PathVariable("accountId") String accountId,
                         @RequestParam(name = "bank", defaultValue = "v") String bank,
                         @RequestParam(name = "consentId") String consentId,
                         @RequestParam(name = "login", required = false) String login,
+                        ServletWebRequest webRequest,
                         Model model) {
 
     String baseUrl = resolveBaseUrl(bank);
@@ -117,7 +149,11 @@ public class AccountsController {
 
       String accJson = accountsClient.getAccountById(baseUrl, token, accountId, consentId, requestingBank);
       String balJson = accountsClient.getAccountBalances(baseUrl, token, accountId, consentId, requestingBank);
+      if (HttpCaching.notModified(webRequest, HttpCaching.ACCOUNT, accJson, balJson)) {
+        return null;
+      }
 
+      balances.accept(bank, accountId, balJson);
       model.addAttribute("account", safeToMap(accJson));
       model.addAttribute("balances", safeToMap(balJson));
     } catch (ObAccountsClient.ObApiException apiEx) {
@@ -130,7 +166,109 @@ public class AccountsController {
     return "accounts/details";
   }
 
-  /** История транзакций по счёту. Даты from/to опциональны (YYYY-MM-DD). */
+  /**
+   * Балансы всех счетов клиента во всех банках — из снимка в памяти, без походов в банк.
+   * fetchedAt/ageMs — когда баланс получен (0/-1 — ещё не загружен); live=true — перечитать сейчас.
+   * Счета попадают в снимок после открытия /accounts?login=... в каждом банке.
+   * Пример: GET /accounts/balances?login=team101-1[&live=true]
+   */
+  @GetMapping(value = "/accounts/balances", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public String balancesSnapshot(@RequestParam(name = "login") String login,
+                                 @RequestParam(name = "live", defaultValue = "false") boolean live) {
+    List<AccountBalance> list = live ? balances.refreshNow(login) : balances.forLogin(login);
+    long now = System.currentTimeMillis();
+    long oldest = Long.MAX_VALUE;
+    ObjectNode root = mapper.createObjectNode();
+    root.put("login", login);
+    ArrayNode items = root.putArray("accounts");
+    for (AccountBalance b : list) {
+      ObjectNode n = items.addObject();
+      n.put("bank", b.bank());
+      n.put("accountId", b.accountId());
+      if (b.isLoaded()) {
+        n.put("amount", b.amount());
+        n.put("currency", b.currency());
+        n.put("type", b.type());
+        oldest = Math.min(oldest, b.fetchedAt());
+      }
+      n.put("fetchedAt", b.fetchedAt());
+      n.put("ageMs", b.ageMillis(now));
+    }
+    // свежесть ответа в целом — по самому старому из загруженных балансов
+    root.put("asOf", oldest == Long.MAX_VALUE ? 0 : oldest);
+    return root.toString();
+  }
+
+  /**
+   * Чистые активы клиента: сумма балансов из снимка по всем банкам в валюте currency (по умолчанию fx.base).
+   * complete=false — часть счетов ещё не загружена (pending) или в валюте без курса (unconverted).
+   * Пример: GET /accounts/networth?login=team101-1[&currency=USD]
+   */
+  @GetMapping(value = "/accounts/networth", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<String> netWorth(@RequestParam(name = "login") String login,
+                                         @RequestParam(name = "currency", required = false) String currency) {
+    ObjectNode root = mapper.createObjectNode();
+    root.put("login", login);
+    NetWorth nw;
+    try {
+      nw = netWorth.of(login, currency);
+    } catch (IllegalArgumentException e) {
+      root.put("error", e.getMessage());
+      return ResponseEntity.badRequest().body(root.toString());
+    }
+    root.put("currency", nw.currency());
+    root.put("total", nw.total());
+    root.put("complete", nw.isComplete());
+    root.put("accounts", nw.accounts());
+    root.put("pending", nw.pending());
+    ArrayNode unconverted = root.putArray("unconverted");
+    nw.unconverted().forEach(unconverted::add);
+    ObjectNode byCurrency = root.putObject("byCurrency");
+    nw.byCurrency().forEach((cur, minor) -> byCurrency.put(cur, BigDecimal.valueOf(minor, 2)));
+    root.put("asOf", nw.asOf());
+    return ResponseEntity.ok(root.toString());
+  }
+
+  /**
+   * Траты клиента по всем счетам: помесячно за months месяцев, по категориям и топ-top контрагентов,
+   * days > 0 — ещё и по дням. Считается по свёрткам в памяти; операции в них попадают при просмотре
+   * истории счёта (/accounts/{id}/transactions).
+   * Пример: GET /accounts/spending?login=team101-1&months=24[&currency=USD&top=10&days=30]
+   */
+  @GetMapping(value = "/accounts/spending", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<String> spending(@RequestParam(name = "login") String login,
+                                         @RequestParam(name = "months", defaultValue = "24") int months,
+                                         @RequestParam(name = "currency", required = false) String currency,
+                                         @RequestParam(name = "top", defaultValue = "10") int top,
+                                         @RequestParam(name = "days", defaultValue = "0") int days) {
+    ObjectNode root = mapper.createObjectNode();
+    root.put("login", login);
+    SpendingReport r;
+    try {
+      r = analytics.report(login, Math.min(months, 120), currency, Math.min(top, 100), Math.min(days, 366));
+    } catch (IllegalArgumentException e) {
+      root.put("error", e.getMessage());
+      return ResponseEntity.badRequest().body(root.toString());
+    }
+    root.put("currency", r.currency());
+    root.put("from", r.from().toString());
+    root.put("to", r.to().toString());
+    flows(root.putArray("months"), r.months());
+    flows(root.putArray("categories"), r.categories());
+    flows(root.putArray("counterparties"), r.counterparties());
+    if (!r.days().isEmpty()) flows(root.putArray("days"), r.days());
+    ArrayNode unconverted = root.putArray("unconverted");
+    r.unconverted().forEach(unconverted::add);
+    return ResponseEntity.ok(root.toString());
+  }
+
+  /**
+   * История транзакций по счёту. Даты from/to опциональны (YYYY-MM-DD).
+   * Как и детали: ETag от JSON согласия и транзакций, 304 без рендера таблицы.
+   */
   @GetMapping("/accounts/{accountId}/transactions")
   public String transactions(@PathVariable("accountId") String accountId,
                              @RequestParam(name = "bank", defaultValue = "v") String bank,
@@ -138,6 +276,7 @@ public class AccountsController {
                              @RequestParam(name = "login", required = false) String login,
                              @RequestParam(name = "from", required = false) String from,
                              @RequestParam(name = "to", required = false) String to,
+                             ServletWebRequest webRequest,
                              Model model) {
 
     String baseUrl = resolveBaseUrl(bank);
@@ -197,9 +336,16 @@ public class AccountsController {
       String txJson = accountsClient.getAccountTransactions(
           baseUrl, token, accountId, consentId, requestingBank, clientId, from, to
       );
+      if (HttpCaching.notModified(webRequest, HttpCaching.ACCOUNT,
+          (String) model.getAttribute("consentJson"), txJson)) {
+        return null;
+      }
       model.addAttribute("transactionsJson", txJson);
+      // в свёртки (в фоне) уходят только новые операции, повторы из прошлых выписок пропускаются
+      if (StringUtils.hasText(clientId)) analytics.submit(clientId, bank.toLowerCase(), accountId, txJson);
 
-      List<Map<String, Object>> tx = extractTx(txJson);
+      // строки разбираются лениво, прямо во время рендера таблицы
+      JsonRows<Map<String, Object>> tx = JsonRows.of(mapper, txJson, this::toMap, "transactions", "transaction");
       if (!tx.isEmpty()) {
         model.addAttribute("transactions", tx);
       }
@@ -247,6 +393,7 @@ public class AccountsController {
   }
 
   private List<Map<String, Object>> extractAccounts(String json) {
+    long t0 = System.nanoTime();
     try {
       JsonNode root = mapper.readTree(json);
       JsonNode arr = root.path("data").path("accounts");
@@ -262,6 +409,29 @@ public class AccountsController {
       return out;
     } catch (Exception e) {
       return List.of();
+    } finally {
+      ObTrace.recordDecode(t0); // разбор относится к последнему вызову банка
+    }
+  }
+
+  private static List<String> accountIds(List<Map<String, Object>> accounts) {
+    List<String> ids = new ArrayList<>(accounts.size());
+    for (Map<String, Object> a : accounts) {
+      Object id = a.get("accountId");
+      if (id == null) id = a.get("account_id");
+      if (id == null) id = a.get("id");
+      if (id != null) ids.add(String.valueOf(id));
+    }
+    return ids;
+  }
+
+  private static void flows(ArrayNode arr, List<Flow> rows) {
+    for (Flow f : rows) {
+      ObjectNode n = arr.addObject();
+      n.put("label", f.label());
+      n.put("in", f.in());
+      n.put("out", f.out());
+      n.put("count", f.count());
     }
   }
 
@@ -275,22 +445,8 @@ public class AccountsController {
     }
   }
 
-  private List<Map<String, Object>> extractTx(String json) {
-    try {
-      JsonNode root = mapper.readTree(json);
-      JsonNode arr = root.path("data").path("transactions");
-      if (!arr.isArray()) arr = root.path("data").path("transaction");
-      if (!arr.isArray()) return List.of();
-
-      List<Map<String, Object>> out = new ArrayList<>();
-      for (JsonNode n : arr) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> m = mapper.convertValue(n, Map.class);
-        out.add(m);
-      }
-      return out;
-    } catch (Exception e) {
-      return List.of();
-    }
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> toMap(JsonNode n) {
+    return mapper.convertValue(n, Map.class);
   }
 }
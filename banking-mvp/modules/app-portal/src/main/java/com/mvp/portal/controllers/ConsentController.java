@@ -5,12 +5,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mvp.ob.BankTokenProvider;
 import com.mvp.ob.ObAccountsClient;
 import com.mvp.ob.ObClientProperties;
+import com.mvp.portal.web.PassThrough;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.Locale;
 import java.util.Map;
@@ -24,6 +28,11 @@ public class ConsentController {
   private final ObClientProperties props;
   private final ObjectMapper mapper = new ObjectMapper();
 
+  private static final CacheControl NO_STORE = CacheControl.noStore()
+      .mustRevalidate()
+      .cachePrivate()
+      .sMaxAge(Duration.ZERO);
+
   public ConsentController(ObAccountsClient accountsClient,
                            BankTokenProvider tokenProvider,
                            ObClientProperties props) {
@@ -64,21 +73,24 @@ public class ConsentController {
 
   /**
    * Отладочный endpoint: вернуть «сырой» JSON, который вернул банк-клиент.
+   * Ответ банка проксируется потоком, со статусом и Content-Type банка.
    * Пример: GET /consents/v/{id}/status/raw
    */
   @GetMapping("/consents/{bank}/{id}/status/raw")
-  public ResponseEntity<String> statusRaw(@PathVariable("bank") String bank,
-                                          @PathVariable("id") String id) {
+  public void statusRaw(@PathVariable("bank") String bank,
+                        @PathVariable("id") String id,
+                        HttpServletResponse response) throws IOException {
+    response.setHeader(HttpHeaders.CACHE_CONTROL, NO_STORE.getHeaderValue());
     if (!StringUtils.hasText(id)) {
-      return okJson("{}");
+      PassThrough.json(response, 200, "{}");
+      return;
     }
     String baseUrl = resolveBaseUrl(bank);
     try {
       String token = safeToken(baseUrl);
-      String json  = accountsClient.getConsentStatus(baseUrl, token, id, props.getClientId());
-      return okJson(json != null ? json : "{}");
+      accountsClient.streamConsentStatus(baseUrl, token, id, props.getClientId(), PassThrough.to(response));
     } catch (Exception ignored) {
-      return okJson("{}");
+      PassThrough.json(response, 200, "{}");
     }
   }
 
@@ -150,10 +162,7 @@ public class ConsentController {
 
   private ResponseEntity<String> okJson(String body) {
     return ResponseEntity.ok()
-        .cacheControl(CacheControl.noStore()
-            .mustRevalidate()
-            .cachePrivate()
-            .sMaxAge(Duration.ZERO))
+        .cacheControl(NO_STORE)
         .contentType(MediaType.APPLICATION_JSON)
         .body(body);
   }
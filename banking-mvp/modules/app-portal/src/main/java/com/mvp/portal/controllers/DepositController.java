@@ -3,21 +3,36 @@ package com.mvp.portal.controllers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mvp.core.DepositFlowService;
+import com.mvp.core.products.CatalogProduct;
+import com.mvp.ob.ObAccountsClient.ObApiException;
 import com.mvp.ob.ObAuthClient;
 import com.mvp.ob.ObClientProperties;
 import com.mvp.ob.ObProductsClient;
+import com.mvp.portal.web.HttpCaching;
+import com.mvp.portal.web.JsonRows;
+import com.mvp.portal.web.PassThrough;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @Controller
 public class DepositController {
@@ -25,29 +40,34 @@ public class DepositController {
   private final ObAuthClient authClient;
   private final ObProductsClient productsClient;
   private final ObClientProperties props;
+  private final DepositFlowService deposits;
   private final ObjectMapper mapper = new ObjectMapper();
 
   public DepositController(ObAuthClient authClient,
                            ObProductsClient productsClient,
-                           ObClientProperties props) {
+                           ObClientProperties props,
+                           DepositFlowService deposits) {
     this.authClient = authClient;
     this.productsClient = productsClient;
     this.props = props;
+    this.deposits = deposits;
   }
 
   /**
    * HTML-страница со списком продуктов.
    * Пример: GET /deposit/products?bank=v|a|s   (по умолчанию v)
+   * Повторный просмотр с тем же каталогом — 304 без рендера (ETag от JSON банка).
    */
   @GetMapping("/deposit/products")
   public String products(@RequestParam(name = "bank", defaultValue = "v") String bank,
+                         ServletWebRequest webRequest,
                          Model model) {
     String baseUrl = resolveBaseUrl(bank);
     model.addAttribute("bank", bank.toLowerCase());
     model.addAttribute("baseUrl", baseUrl);
 
     String productsJson = null;
-    List<ProductView> products = new ArrayList<>();
+    Iterable<ProductView> products = List.of();
 
     try {
       // 1) получаем bank-token
@@ -59,14 +79,16 @@ public class DepositController {
 
       // 2) тянем продукты
       productsJson = productsClient.getProducts(baseUrl, token);
+      if (HttpCaching.notModified(webRequest, HttpCaching.PRODUCTS, productsJson)) {
+        return null;
+      }
       model.addAttribute("productsJson", productsJson);
 
-      // 3) гибко разбираем ответ
-      for (JsonNode n : extractProductsArray(productsJson)) {
-        products.add(ProductView.from(n));
-      }
+      // 3) гибко разбираем ответ — лениво, карточки строятся во время рендера
+      JsonRows<ProductView> rows = JsonRows.of(mapper, productsJson, ProductView::from, "product", "products");
+      products = rows;
 
-      if (products.isEmpty()) {
+      if (rows.isEmpty()) {
         model.addAttribute("info", "Нет продуктов для отображения.");
       }
     } catch (RestClientResponseException httpEx) {
@@ -83,27 +105,109 @@ public class DepositController {
 
   /**
    * JSON-эндпоинт для быстрой проверки интеграции без шаблонов.
+   * Ответ банка проксируется потоком (статус, Content-Type, байты — как есть).
+   * If-None-Match уходит в банк: его ETag и 304 доходят до браузера без участия портала.
+   * Если банк валидаторов не даёт — хотя бы max-age, чтобы повторы не доходили до нас
+   * (только на 2xx/304: ошибку банка браузер не кэширует).
    * Пример: GET /deposit/products.json?bank=v|a|s   (по умолчанию v)
    */
   @GetMapping(value = "/deposit/products.json", produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<String> productsJson(@RequestParam(name = "bank", defaultValue = "v") String bank) {
+  public void productsJson(@RequestParam(name = "bank", defaultValue = "v") String bank,
+                           @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                           HttpServletResponse response) throws IOException {
     try {
       String baseUrl = resolveBaseUrl(bank);
       String token = authClient.obtainBankToken(baseUrl, props.getClientId(), props.getClientSecret());
       if (!StringUtils.hasText(token)) {
-        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
-            .body("{\"error\":\"failed_to_obtain_bank_token\"}");
+        PassThrough.json(response, HttpStatus.BAD_GATEWAY.value(), "{\"error\":\"failed_to_obtain_bank_token\"}");
+        return;
       }
-      String productsJson = productsClient.getProducts(baseUrl, token);
-      return ResponseEntity.ok(productsJson);
+      productsClient.streamProducts(baseUrl, token, null, ifNoneMatch,
+          PassThrough.to(response, HttpCaching.PRODUCTS));
     } catch (RestClientResponseException httpEx) {
-      return ResponseEntity.status(httpEx.getRawStatusCode())
-          .contentType(MediaType.APPLICATION_JSON)
-          .body(httpBodyOrFallback(httpEx));
+      // сюда попадают только ошибки получения токена
+      PassThrough.json(response, httpEx.getRawStatusCode(), httpBodyOrFallback(httpEx));
     } catch (Exception e) {
-      return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
-          .contentType(MediaType.APPLICATION_JSON)
-          .body("{\"error\":\"products_upstream_io\",\"message\":\"" + escape(e.getMessage()) + "\"}");
+      PassThrough.json(response, HttpStatus.BAD_GATEWAY.value(),
+          "{\"error\":\"products_upstream_io\",\"message\":\"" + escape(e.getMessage()) + "\"}");
+    }
+  }
+
+  /**
+   * Форма открытия вклада. Вклады банка и подбор по всем банкам берутся из каталога в памяти.
+   * Пример: GET /deposit/new?bank=v&login=team101-1[&amount=100000&termMonths=12]
+   */
+  @GetMapping("/deposit/new")
+  public String openForm(@RequestParam(name = "bank", defaultValue = "v") String bank,
+                         @RequestParam(name = "login", required = false) String login,
+                         @RequestParam(name = "consentId", required = false) String consentId,
+                         @RequestParam(name = "amount", required = false) BigDecimal amount,
+                         @RequestParam(name = "termMonths", required = false) Integer termMonths,
+                         Model model) {
+    fillOpenForm(bank, login, consentId, amount, termMonths, model);
+    return "deposit/open";
+  }
+
+  /** Открыть вклад: POST формы /deposit/new. */
+  @PostMapping("/deposit/open")
+  public String open(@RequestParam(name = "bank", defaultValue = "v") String bank,
+                     @RequestParam(name = "login") String login,
+                     @RequestParam(name = "consentId", required = false) String consentId,
+                     @RequestParam(name = "productId") String productId,
+                     @RequestParam(name = "amount") BigDecimal amount,
+                     @RequestParam(name = "termMonths") int termMonths,
+                     @RequestParam(name = "sourceAccountId", required = false) String sourceAccountId,
+                     Model model) {
+    fillOpenForm(bank, login, consentId, amount, termMonths, model);
+    try {
+      String agreementId = deposits.open(bank, login, consentId, productId, amount, termMonths, sourceAccountId);
+      model.addAttribute("deposit", Map.of("id", agreementId, "status", "opened"));
+      model.addAttribute("info", "Вклад открыт, договор " + agreementId);
+    } catch (IllegalArgumentException e) {
+      model.addAttribute("error", e.getMessage());
+    } catch (ObApiException e) {
+      model.addAttribute("error", "Банк не открыл вклад: HTTP " + e.getStatus().value());
+      model.addAttribute("responseJson", e.getResponseBody());
+    } catch (Exception e) {
+      model.addAttribute("error", "Failed to open deposit: " + e.getMessage());
+    }
+    return "deposit/open";
+  }
+
+  /**
+   * Лучшие вклады всех банков на сумму и срок — из индекса в памяти, без запросов в банки.
+   * Пример: GET /deposit/offers.json?amount=100000&termMonths=12&limit=5
+   */
+  @GetMapping(value = "/deposit/offers.json", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public String offersJson(@RequestParam(name = "amount") BigDecimal amount,
+                           @RequestParam(name = "termMonths") int termMonths,
+                           @RequestParam(name = "limit", defaultValue = "5") int limit) {
+    ArrayNode arr = mapper.createArrayNode();
+    for (CatalogProduct p : deposits.offers(amount, termMonths, Math.min(limit, 50))) {
+      ObjectNode n = arr.addObject();
+      n.put("bank", p.bank());
+      n.put("productId", p.productId());
+      n.put("productName", p.name());
+      n.put("interestRate", p.rate());
+      n.put("minAmount", p.minAmount());
+      n.put("maxAmount", p.maxAmount());
+      if (p.termMonths() > 0) n.put("termMonths", p.termMonths());
+    }
+    return arr.toString();
+  }
+
+  private void fillOpenForm(String bank, String login, String consentId,
+                            BigDecimal amount, Integer termMonths, Model model) {
+    model.addAttribute("bank", bank.toLowerCase());
+    model.addAttribute("login", login);
+    model.addAttribute("consentId", consentId);
+    model.addAttribute("baseUrl", resolveBaseUrl(bank));
+    model.addAttribute("products", deposits.products(bank));
+    if (amount != null && termMonths != null) {
+      model.addAttribute("amount", amount);
+      model.addAttribute("termMonths", termMonths);
+      model.addAttribute("offers", deposits.offers(amount, termMonths, 5));
     }
   }
 
@@ -117,31 +221,6 @@ public class DepositController {
     };
   }
 
-  /** Унифицированное извлечение массива продуктов из разных форм ответа. */
-  private List<JsonNode> extractProductsArray(String json) {
-    List<JsonNode> out = new ArrayList<>();
-    try {
-      JsonNode root = mapper.readTree(json);
-
-      // 1) классика: {"data":{"product":[...]}}
-      JsonNode arr = root.path("data").path("product");
-      if (!arr.isArray()) {
-        // 2) иногда: {"data":{"products":[...]}}
-        arr = root.path("data").path("products");
-      }
-      if (!arr.isArray()) {
-        // 3) иногда возвращают сразу массив верхнего уровня
-        if (root.isArray()) arr = root;
-      }
-      if (arr.isArray()) {
-        for (JsonNode n : arr) out.add(n);
-      }
-    } catch (Exception ignore) {
-      // вернём пустой список — наверху уже есть вывод сырого JSON/ошибки
-    }
-    return out;
-  }
-
   private static String httpBodyOrFallback(RestClientResponseException ex) {
     String body = ex.getResponseBodyAsString();
     if (body == null || body.isBlank()) {
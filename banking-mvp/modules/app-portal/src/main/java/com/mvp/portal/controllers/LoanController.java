@@ -1,7 +1,123 @@
 package com.mvp.portal.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mvp.core.LoanFlowService;
+import com.mvp.core.loan.LoanApplication;
+import com.mvp.core.loan.LoanWorkflow;
+import com.mvp.kyc.KycDocument;
+import com.mvp.kyc.KycDocuments;
+import com.mvp.ob.ObClientProperties;
+import com.mvp.portal.web.OpsAccess;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+
 @Controller
 public class LoanController {
+
+  private final LoanFlowService loans;
+  private final KycDocuments documents;
+  private final ObClientProperties props;
+  private final OpsAccess ops;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  public LoanController(LoanFlowService loans, KycDocuments documents, ObClientProperties props, OpsAccess ops) {
+    this.loans = loans;
+    this.documents = documents;
+    this.props = props;
+    this.ops = ops;
+  }
+
   @GetMapping("/loan/new") public String newLoan(){ return "loan/new"; }
+
+  /**
+   * Подать заявку: POST формы /loan/new. Номер заявки — сразу, KYC и дальше — асинхронно.
+   * Сканы читаются {@link KycDocuments} потоком: в heap — только первые kyc.documents.memory-threshold
+   * байт, остальное — во временный файл (multipart-файл контейнера живёт только до конца запроса,
+   * а KYC идёт после). Файл к этому моменту контейнер уже принял целиком: размер на входе режет
+   * spring.servlet.multipart.max-file-size, здесь — только kyc.documents.max-size при копировании.
+   * Неподходящий файл не роняет запрос — причину покажет KYC.
+   */
+  @PostMapping("/loan/new")
+  public String submit(@RequestParam(name = "bank", defaultValue = "v") String bank,
+                       @RequestParam(name = "login") String login,
+                       @RequestParam(name = "productId") String productId,
+                       @RequestParam(name = "amount") BigDecimal amount,
+                       @RequestParam(name = "termMonths") int termMonths,
+                       @RequestParam(name = "fullName") String fullName,
+                       @RequestParam(name = "passportNumber") String passportNumber,
+                       @RequestParam(name = "docPassport", required = false) MultipartFile docPassport,
+                       @RequestParam(name = "docSelfie", required = false) MultipartFile docSelfie,
+                       Model model) {
+    String baseUrl = props.baseUrlFor(bank);
+    model.addAttribute("bank", bank.toLowerCase());
+    model.addAttribute("login", login);
+    model.addAttribute("baseUrl", baseUrl);
+
+    KycDocument front = null;
+    KycDocument selfie = null;
+    try {
+      front = upload(docPassport);
+      selfie = upload(docSelfie);
+      String id = loans.startApplication(baseUrl, login, productId, amount, termMonths,
+          fullName, passportNumber, front, null, selfie);
+      model.addAttribute("info", "Заявка принята, номер " + id);
+    } catch (IOException | RuntimeException e) {
+      // до submit документы ещё наши; после — их закроет движок
+      if (front != null) front.close();
+      if (selfie != null) selfie.close();
+      model.addAttribute("error", "Не удалось подать заявку: " + e.getMessage());
+    }
+    return "loan/new";
+  }
+
+  private KycDocument upload(MultipartFile file) throws IOException {
+    if (file == null || file.isEmpty()) return null;
+    try (InputStream in = file.getInputStream()) {
+      return documents.read(in);
+    }
+  }
+
+  /**
+   * Фид для очереди проверки app-ops: заявки с отказом KYC (kind=KYC), сбоем или ожиданием
+   * одобрения дольше stuckAfter (kind=LOAN). Документов и паспортных данных в фиде нет.
+   * Только для app-ops, с X-Ops-Token: в фиде логины и причины отказов всех заявителей.
+   * Пример: GET /loan/review?stuckAfter=PT2H
+   */
+  @GetMapping(value = "/loan/review", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public ResponseEntity<String> reviewFeed(@RequestParam(name = "stuckAfter", defaultValue = "PT2H") Duration stuckAfter,
+                                           @RequestHeader(name = OpsAccess.HEADER, required = false) String token) {
+    if (!ops.allowed(token)) return OpsAccess.forbidden();
+    ObjectNode root = mapper.createObjectNode();
+    ArrayNode items = root.putArray("items");
+    for (LoanApplication a : loans.reviewCandidates(stuckAfter)) {
+      ObjectNode n = items.addObject();
+      n.put("id", a.id());
+      n.put("kind", LoanWorkflow.isKycFailure(a) ? "KYC" : "LOAN");
+      n.put("state", a.state().name());
+      n.put("login", a.request().customerLogin());
+      n.put("productId", a.request().productId());
+      n.put("amount", a.request().amount().toPlainString());
+      n.put("termMonths", a.request().termMonths());
+      n.put("message", a.message());
+      n.put("createdAt", a.createdAt());
+      n.put("stateSince", a.stateSince());
+    }
+    return ResponseEntity.ok(root.toString());
+  }
 }
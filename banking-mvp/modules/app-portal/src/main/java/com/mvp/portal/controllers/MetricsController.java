@@ -0,0 +1,103 @@
+package com.mvp.portal.controllers;
+
+import com.mvp.ob.TokenCacheStats;
+import com.mvp.ob.audit.AuditLog;
+import com.mvp.ob.coalesce.RequestCoalescer;
+import com.mvp.ob.limit.RateLimiter;
+import com.mvp.portal.metrics.EndpointMetrics;
+import com.mvp.portal.metrics.JfrProfiler;
+import com.mvp.portal.web.OpsAccess;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Лёгкий фид метрик для app-ops: латентность по эндпоинтам, fan-out в банки,
+ * кэш токенов, очереди лимита к банкам, сэкономленные одинаковые GET, очередь аудита, JFR по требованию.
+ * Пример: GET /debug/metrics, POST /debug/jfr/start?seconds=60, POST /debug/jfr/stop
+ * Действия (сброс метрик, JFR) — только для app-ops, с X-Ops-Token ({@link OpsAccess}).
+ */
+@RestController
+@RequestMapping(value = "/debug", produces = MediaType.APPLICATION_JSON_VALUE)
+public class MetricsController {
+
+  private final EndpointMetrics metrics;
+  private final TokenCacheStats tokenStats;
+  private final JfrProfiler jfr;
+  private final AuditLog audit;
+  private final RateLimiter limiter;
+  private final RequestCoalescer coalescer;
+  private final OpsAccess ops;
+
+  public MetricsController(EndpointMetrics metrics, TokenCacheStats tokenStats, JfrProfiler jfr, AuditLog audit,
+                           RateLimiter limiter, RequestCoalescer coalescer, OpsAccess ops) {
+    this.metrics = metrics;
+    this.tokenStats = tokenStats;
+    this.jfr = jfr;
+    this.audit = audit;
+    this.limiter = limiter;
+    this.coalescer = coalescer;
+    this.ops = ops;
+  }
+
+  @GetMapping("/metrics")
+  public Map<String, Object> metrics() {
+    Map<String, Object> token = new LinkedHashMap<>();
+    token.put("hits", tokenStats.getHits());
+    token.put("misses", tokenStats.getMisses());
+    token.put("hitRate", Math.round(tokenStats.getHitRate() * 10_000) / 10_000.0);
+
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("endpoints", metrics.snapshot());
+    out.put("tokenCache", token);
+    out.put("rateLimits", limiter.stats());
+    out.put("singleFlight", coalescer.stats());
+    out.put("audit", audit.stats());
+    out.put("jfr", jfr.status());
+    return out;
+  }
+
+  @PostMapping("/metrics/reset")
+  public ResponseEntity<Map<String, Object>> reset(@RequestHeader(name = OpsAccess.HEADER, required = false) String token) {
+    if (!ops.allowed(token)) return forbidden();
+    metrics.reset();
+    return ResponseEntity.ok(Map.of("reset", true));
+  }
+
+  @GetMapping("/jfr")
+  public Map<String, Object> jfrStatus() {
+    return jfr.status();
+  }
+
+  @PostMapping("/jfr/start")
+  public ResponseEntity<Map<String, Object>> jfrStart(@RequestParam(name = "seconds", defaultValue = "60") int seconds,
+                                                      @RequestHeader(name = OpsAccess.HEADER, required = false) String token) {
+    if (!ops.allowed(token)) return forbidden();
+    try {
+      return ResponseEntity.ok(jfr.start(seconds));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    }
+  }
+
+  @PostMapping("/jfr/stop")
+  public ResponseEntity<Map<String, Object>> jfrStop(@RequestHeader(name = OpsAccess.HEADER, required = false) String token) {
+    if (!ops.allowed(token)) return forbidden();
+    try {
+      return ResponseEntity.ok(jfr.stop());
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+    } catch (Exception e) {
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body(Map.of("error", "JFR summary failed: " + e.getMessage()));
+    }
+  }
+
+  private static ResponseEntity<Map<String, Object>> forbidden() {
+    return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Ops token required"));
+  }
+}
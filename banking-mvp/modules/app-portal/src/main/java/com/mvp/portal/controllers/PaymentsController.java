@@ -1,7 +1,19 @@
 package com.mvp.portal.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mvp.core.risk.HeldPayment;
+import com.mvp.core.risk.HoldQueue;
+import com.mvp.core.risk.PaymentAttempt;
+import com.mvp.core.risk.PaymentRiskEngine;
+import com.mvp.core.risk.RiskAssessment;
+import com.mvp.ob.ObAuthClient;
+import com.mvp.ob.ObFailures;
+import com.mvp.ob.ObRequestHeaders;
+import com.mvp.ob.trace.ObTrace;
+import com.mvp.portal.web.OpsAccess;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,13 +23,15 @@ import org.springframework.ui.Model;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClient;
 
 import java.math.BigDecimal;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.Set;
 
 @Controller
 @RequestMapping("/payments")
@@ -25,8 +39,25 @@ public class PaymentsController {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentsController.class);
 
-    private final RestTemplate http = new RestTemplate();
+    /** Статусы платежа в банке, при которых он точно не исполнен. */
+    private static final Set<String> BANK_REJECTED = Set.of("rejected", "cancelled", "canceled", "failed");
+
+    private final RestClient http;
+    private final ObAuthClient authClient;
     private final ObjectMapper om = new ObjectMapper();
+    private final PaymentRiskEngine risk;
+    private final HoldQueue holds;
+    private final OpsAccess ops;
+
+    /** Вызовы банков — через общий obRestClient: лимит, трасса и аудит (секреты маскируются). */
+    public PaymentsController(RestClient obRestClient, ObAuthClient authClient,
+                              PaymentRiskEngine risk, HoldQueue holds, OpsAccess ops) {
+        this.http = obRestClient;
+        this.authClient = authClient;
+        this.risk = risk;
+        this.holds = holds;
+        this.ops = ops;
+    }
 
     // === БАЗОВЫЕ URL (совпадает с application.yml) ===
     @Value("${app.vbank-base-url}")
@@ -88,56 +119,23 @@ public class PaymentsController {
         model.addAttribute("login", login);
         model.addAttribute("baseUrl", baseUrlOf(bank));
 
-        try {
-            // — тело запроса по методичке —
-            Map<String, Object> initiation = new HashMap<>();
-
-            Map<String, Object> instructedAmount = Map.of(
-                    "amount", amount.toPlainString(),
-                    "currency", StringUtils.hasText(currency) ? currency.trim().toUpperCase() : "RUB"
-            );
-            Map<String, Object> debtorAccount = Map.of(
-                    "schemeName", "RU.CBR.PAN",
-                    "identification", debtorAccountId
-            );
-
-            Map<String, Object> creditorAccount = new HashMap<>();
-            creditorAccount.put("schemeName", "RU.CBR.PAN");
-
-            // Короткий синтаксис межбанка: "abank:4081..."
-            if (StringUtils.hasText(creditorIban) && creditorIban.contains(":")) {
-                String[] parts = creditorIban.split(":", 2);
-                creditorAccount.put("identification", parts[1]);
-                creditorAccount.put("bank_code", parts[0].trim().toLowerCase()); // vbank|abank|sbank
-            } else {
-                creditorAccount.put("identification", creditorIban);
-            }
-
-            initiation.put("instructedAmount", instructedAmount);
-            initiation.put("debtorAccount", debtorAccount);
-            initiation.put("creditorAccount", creditorAccount);
-            if (StringUtils.hasText(description)) {
-                initiation.put("remittanceInformation", description);
-            }
-
-            Map<String, Object> data = Map.of("initiation", initiation);
-            Map<String, Object> body = Map.of("data", data);
-
-            // HTTP
-            String url = baseUrlOf(bank) + "/payments";
-            HttpHeaders h = defaultHeaders(bank);
+        PaymentAttempt attempt = new PaymentAttempt(login, bank, debtorAccountId, creditorIban, amount,
+                StringUtils.hasText(currency) ? currency.trim().toUpperCase() : "RUB", description, paymentConsentId);
 
-            // Если согласие на платеж передано — добавим заголовок
-            if (StringUtils.hasText(paymentConsentId)) {
-                h.set("x-payment-consent-id", paymentConsentId);
+        try {
+            // оценка риска до банка: подозрительный платёж ждёт решения оператора в app-ops
+            RiskAssessment assessment = risk.assess(attempt);
+            if (assessment.hold()) {
+                HeldPayment held = holds.hold(attempt, assessment);
+                log.info("Payment held for review: id={} score={} reasons={}", held.id(), held.score(), held.reasons());
+                model.addAttribute("paymentId", held.id());
+                model.addAttribute("paymentStatus", "HELD_FOR_REVIEW");
+                model.addAttribute("info", "Платёж отложен до проверки оператором (оценка риска "
+                        + assessment.score() + "): " + String.join(", ", assessment.reasons()));
+                return "payments/status";
             }
-            // Межбанковские кейсы могут ожидать "кто инициатор"
-            h.set("x-requesting-bank", clientId);
 
-            HttpEntity<Map<String, Object>> req = new HttpEntity<>(body, h);
-
-            ResponseEntity<String> resp = http.exchange(url, HttpMethod.POST, req, String.class);
-            JsonNode root = om.readTree(resp.getBody());
+            JsonNode root = createPayment(attempt, null);
             JsonNode d = root.path("data");
 
             String paymentId = d.path("paymentId").asText(null);
@@ -161,6 +159,109 @@ public class PaymentsController {
         }
     }
 
+    // ——————————————————————————— Отложенные платежи (фид для app-ops) ———————————————————————————
+
+    /**
+     * Пример: GET /payments/holds?status=HELD,FAILED (без status — все). В фиде счета, суммы и причины
+     * риска всех клиентов — только для app-ops, с X-Ops-Token.
+     */
+    @GetMapping(value = "/holds", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<String> heldPayments(@RequestParam(name = "status", required = false) List<HeldPayment.Status> status,
+                                               @RequestHeader(name = OpsAccess.HEADER, required = false) String token)
+            throws JsonProcessingException {
+        if (!ops.allowed(token)) return OpsAccess.forbidden();
+        Set<HeldPayment.Status> filter = status == null || status.isEmpty()
+                ? EnumSet.noneOf(HeldPayment.Status.class) : EnumSet.copyOf(status);
+        // writeValueAsString, не valueToTree: дерево нормализует BigDecimal (250000 → 2.5E+5)
+        return ResponseEntity.ok(om.writeValueAsString(Map.of("items", holds.list(filter))));
+    }
+
+    /**
+     * Оператор пропускает платёж: отправка в банк с id отложенного платежа как ключом идемпотентности.
+     * FAILED (можно пропустить снова) — только если банк точно не исполнил платёж: ответил 4xx или
+     * запрос до него не дошёл. Таймаут, обрыв, 5xx — UNKNOWN: до сверки ({@link #reconcileHeld})
+     * повторная отправка запрещена, иначе деньги могут уйти дважды.
+     */
+    @PostMapping(value = "/holds/{id}/release", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<String> releaseHeld(@PathVariable("id") String id,
+                                              @RequestParam(name = "reviewer", required = false) String reviewer,
+                                              @RequestHeader(name = OpsAccess.HEADER, required = false) String token)
+            throws JsonProcessingException {
+        if (!ops.allowed(token)) return OpsAccess.forbidden();
+        Optional<HeldPayment> claimed = holds.update(id, HoldQueue.releasable(),
+                h -> h.withStatus(HeldPayment.Status.RELEASING, reviewer));
+        if (claimed.isEmpty()) return conflict(id);
+        HeldPayment h = claimed.get();
+        HeldPayment done;
+        try {
+            JsonNode root = createPayment(h.payment(), h.id());
+            done = h.sent(root.path("data").path("paymentId").asText(null));
+            risk.approved(h.payment());
+        } catch (Exception e) {
+            done = releaseFailure(h, e);
+        }
+        HeldPayment last = done;
+        holds.update(id, EnumSet.of(HeldPayment.Status.RELEASING), cur -> last);
+        return ResponseEntity.ok(om.writeValueAsString(done));
+    }
+
+    @PostMapping(value = "/holds/{id}/reject", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<String> rejectHeld(@PathVariable("id") String id,
+                                             @RequestParam(name = "reviewer", required = false) String reviewer,
+                                             @RequestHeader(name = OpsAccess.HEADER, required = false) String token)
+            throws JsonProcessingException {
+        if (!ops.allowed(token)) return OpsAccess.forbidden();
+        Optional<HeldPayment> h = holds.update(id, HoldQueue.releasable(),
+                cur -> cur.withStatus(HeldPayment.Status.REJECTED, reviewer));
+        return h.isPresent() ? ResponseEntity.ok(om.writeValueAsString(h.get())) : conflict(id);
+    }
+
+    /**
+     * Сверка платежа с неизвестным исходом (UNKNOWN). С paymentId (из параметра — оператор нашёл платёж
+     * в банке — или полученным при отправке) статус запрашивается у банка: отклонён — FAILED, иначе SENT.
+     * absent=true — оператор убедился, что платежа в банке нет: FAILED, его можно пропустить снова.
+     */
+    @PostMapping(value = "/holds/{id}/reconcile", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<String> reconcileHeld(@PathVariable("id") String id,
+                                                @RequestParam(name = "reviewer", required = false) String reviewer,
+                                                @RequestParam(name = "paymentId", required = false) String paymentId,
+                                                @RequestParam(name = "absent", defaultValue = "false") boolean absent,
+                                                @RequestHeader(name = OpsAccess.HEADER, required = false) String token)
+            throws JsonProcessingException {
+        if (!ops.allowed(token)) return OpsAccess.forbidden();
+        HeldPayment h = holds.get(id).filter(cur -> cur.status() == HeldPayment.Status.UNKNOWN).orElse(null);
+        if (h == null) return conflict(id);
+        String pid = StringUtils.hasText(paymentId) ? paymentId.trim() : h.paymentId();
+
+        HeldPayment by = h.withStatus(h.status(), reviewer);
+        HeldPayment next;
+        if (StringUtils.hasText(pid)) {
+            String bankStatus;
+            try {
+                bankStatus = fetchPayment(h.payment().bank(), pid).path("data").path("status").asText("");
+            } catch (Exception e) {
+                log.warn("Held payment {} reconcile: bank status of {} unavailable: {}", id, pid, e.getMessage());
+                return error(HttpStatus.BAD_GATEWAY, "Bank status unavailable: " + e.getMessage());
+            }
+            next = BANK_REJECTED.contains(bankStatus.toLowerCase())
+                    ? by.failed("Bank payment " + pid + " is " + bankStatus)
+                    : by.sent(pid);
+        } else if (absent) {
+            next = by.failed("Not found in the bank (checked by reviewer)");
+        } else {
+            return error(HttpStatus.BAD_REQUEST, "Bank paymentId or absent=true is required");
+        }
+        Optional<HeldPayment> done = holds.update(id, EnumSet.of(HeldPayment.Status.UNKNOWN), cur -> next);
+        if (done.isEmpty()) return conflict(id);
+        if (done.get().status() == HeldPayment.Status.SENT) risk.approved(h.payment());
+        log.info("Held payment {} reconciled by {}: {}", id, reviewer, done.get().status());
+        return ResponseEntity.ok(om.writeValueAsString(done.get()));
+    }
+
     // ——————————————————————————— Статус платежа ———————————————————————————
     @GetMapping("/status")
     public String paymentStatus(
@@ -175,11 +276,7 @@ public class PaymentsController {
         model.addAttribute("baseUrl", baseUrlOf(bank));
 
         try {
-            String url = baseUrlOf(bank) + "/payments/" + paymentId;
-            HttpEntity<Void> req = new HttpEntity<>(defaultHeaders(bank));
-            ResponseEntity<String> resp = http.exchange(url, HttpMethod.GET, req, String.class);
-
-            JsonNode root = om.readTree(resp.getBody());
+            JsonNode root = fetchPayment(bank, paymentId);
             String status = root.path("data").path("status").asText(null);
 
             model.addAttribute("paymentStatus", status);
@@ -201,6 +298,104 @@ public class PaymentsController {
 
     // ——————————————————————————— helpers ———————————————————————————
 
+    /**
+     * Исход неудачной отправки отложенного платежа: FAILED — банк его точно не исполнил
+     * (ответил 4xx, кроме 408/409, или запрос не дошёл), иначе UNKNOWN.
+     */
+    private HeldPayment releaseFailure(HeldPayment h, Exception e) {
+        int status = ObFailures.status(e);
+        String error = e instanceof HttpStatusCodeException http
+                ? http.getStatusCode() + " " + http.getResponseBodyAsString() : String.valueOf(e.getMessage());
+        boolean rejected = status >= 400 && status < 500 && status != 408 && status != 409;
+        if (rejected || ObFailures.notDelivered(e)) {
+            log.warn("Held payment {} release failed: {}", h.id(), error);
+            return h.failed(error);
+        }
+        log.error("Held payment {} release outcome unknown, reconcile before resending: {}", h.id(), error, e);
+        return h.unknown(null, error);
+    }
+
+    /** GET {bank}/payments/{paymentId}; ответ банка целиком. */
+    private JsonNode fetchPayment(String bank, String paymentId) throws Exception {
+        HttpHeaders h = defaultHeaders(bank);
+        String resp = http.get()
+                .uri(baseUrlOf(bank) + "/payments/{id}", paymentId)
+                .headers(x -> x.addAll(h))
+                .retrieve()
+                .body(String.class);
+        return om.readTree(resp);
+    }
+
+    /** POST {bank}/payments по методичке; ответ банка целиком. idempotencyKey — для повторов того же платежа. */
+    private JsonNode createPayment(PaymentAttempt p, String idempotencyKey) throws Exception {
+        Map<String, Object> initiation = new HashMap<>();
+
+        Map<String, Object> instructedAmount = Map.of(
+                "amount", p.amount().toPlainString(),
+                "currency", p.currency()
+        );
+        Map<String, Object> debtorAccount = Map.of(
+                "schemeName", "RU.CBR.PAN",
+                "identification", p.debtorAccountId()
+        );
+
+        Map<String, Object> creditorAccount = new HashMap<>();
+        creditorAccount.put("schemeName", "RU.CBR.PAN");
+
+        // Короткий синтаксис межбанка: "abank:4081..."
+        String creditorIban = p.creditorAccount();
+        if (StringUtils.hasText(creditorIban) && creditorIban.contains(":")) {
+            String[] parts = creditorIban.split(":", 2);
+            creditorAccount.put("identification", parts[1]);
+            creditorAccount.put("bank_code", parts[0].trim().toLowerCase()); // vbank|abank|sbank
+        } else {
+            creditorAccount.put("identification", creditorIban);
+        }
+
+        initiation.put("instructedAmount", instructedAmount);
+        initiation.put("debtorAccount", debtorAccount);
+        initiation.put("creditorAccount", creditorAccount);
+        if (StringUtils.hasText(p.description())) {
+            initiation.put("remittanceInformation", p.description());
+        }
+
+        Map<String, Object> data = Map.of("initiation", initiation);
+        Map<String, Object> body = Map.of("data", data);
+
+        // HTTP
+        String url = baseUrlOf(p.bank()) + "/payments";
+        HttpHeaders h = defaultHeaders(p.bank());
+
+        // Если согласие на платеж передано — добавим заголовок
+        if (StringUtils.hasText(p.paymentConsentId())) {
+            h.set("x-payment-consent-id", p.paymentConsentId());
+        }
+        // Межбанковские кейсы могут ожидать "кто инициатор"
+        h.set("x-requesting-bank", clientId);
+        if (idempotencyKey != null) {
+            h.set(ObRequestHeaders.HDR_IDEMPOTENCY_KEY, idempotencyKey);
+        }
+
+        String resp = http.post()
+                .uri(url)
+                .headers(x -> x.addAll(h))
+                .body(body)
+                .retrieve()
+                .body(String.class);
+        return om.readTree(resp);
+    }
+
+    private ResponseEntity<String> conflict(String id) {
+        return error(holds.get(id).isPresent() ? HttpStatus.CONFLICT : HttpStatus.NOT_FOUND,
+                holds.get(id).map(h -> "Payment is " + h.status()).orElse("No such held payment"));
+    }
+
+    private ResponseEntity<String> error(HttpStatus status, String message) {
+        ObjectNode err = om.createObjectNode();
+        err.put("error", message);
+        return ResponseEntity.status(status).body(err.toString());
+    }
+
     private String baseUrlOf(String bank) {
         return switch (bank == null ? "v" : bank) {
             case "a" -> aBase;
@@ -218,26 +413,20 @@ public class PaymentsController {
 
         if (sendFapiHeaders) {
             h.set("x-fapi-customer-ip-address", defaultIp);
-            h.set("x-fapi-interaction-id", UUID.randomUUID().toString());
+            h.set("x-fapi-interaction-id", ObTrace.interactionId());
         }
         return h;
     }
 
-    /** Получение bank-token согласно методичке: POST /auth/bank-token?client_id&client_secret */
+    /**
+     * bank-token (POST /auth/bank-token?client_id&client_secret, кэш — в ObAuthClient). Не получили —
+     * пустой токен: банк ответит 401, и платёж считается точно не отправленным.
+     */
     private String obtainBankToken(String bank) {
         try {
-            String url = baseUrlOf(bank) + "/auth/bank-token"
-                    + "?client_id=" + clientId
-                    + "&client_secret=" + clientSecret;
-            ResponseEntity<Map> resp = http.postForEntity(url, null, Map.class);
-            Object token = resp.getBody() != null ? resp.getBody().get("access_token") : null;
-            String t = token != null ? token.toString() : "";
-            if (!StringUtils.hasText(t)) {
-                log.warn("Empty access_token from {}", url);
-            }
-            return t;
+            return authClient.obtainBankToken(baseUrlOf(bank), clientId, clientSecret);
         } catch (Exception e) {
-            log.error("obtainBankToken failed", e);
+            log.error("obtainBankToken failed for {}: {}", baseUrlOf(bank), e.getMessage());
             return "";
         }
     }
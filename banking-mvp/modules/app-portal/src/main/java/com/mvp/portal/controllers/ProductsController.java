@@ -0,0 +1,65 @@
+package com.mvp.portal.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mvp.core.products.CatalogProduct;
+import com.mvp.core.products.ProductCatalog;
+import com.mvp.core.products.ProductComparison;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.math.BigDecimal;
+
+/**
+ * Сравнение продуктов между банками. Отвечает из рейтингов в памяти ({@link ProductComparison}) —
+ * каталоги банков обновляются в фоне, на запросе upstream-вызовов нет.
+ */
+@Controller
+public class ProductsController {
+
+  private final ProductComparison comparison;
+  private final ProductCatalog catalog;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  public ProductsController(ProductComparison comparison, ProductCatalog catalog) {
+    this.comparison = comparison;
+    this.catalog = catalog;
+  }
+
+  /**
+   * Пример: GET /products/compare?type=deposit&amount=100000&termMonths=12&limit=20
+   * amount/termMonths необязательны — без них рейтинг по всем продуктам типа.
+   * catalogs — когда каталог каждого банка последний раз обновлялся (0 — ещё не загружен).
+   */
+  @GetMapping(value = "/products/compare", produces = MediaType.APPLICATION_JSON_VALUE)
+  @ResponseBody
+  public String compare(@RequestParam(name = "type", defaultValue = "deposit") String type,
+                        @RequestParam(name = "amount", required = false) BigDecimal amount,
+                        @RequestParam(name = "termMonths", defaultValue = "0") int termMonths,
+                        @RequestParam(name = "limit", defaultValue = "20") int limit) {
+    ObjectNode root = mapper.createObjectNode();
+    root.put("type", type);
+    ObjectNode catalogs = root.putObject("catalogs");
+    for (String bank : catalog.banks()) catalogs.put(bank, catalog.loadedAt(bank));
+
+    long minor = amount == null ? -1 : CatalogProduct.toMinor(amount);
+    ArrayNode items = root.putArray("items");
+    for (ProductComparison.Row r : comparison.compare(type, minor, termMonths, Math.min(limit, 200))) {
+      CatalogProduct p = r.product();
+      ObjectNode n = items.addObject();
+      n.put("rank", r.rank());
+      n.put("bank", p.bank());
+      n.put("productId", p.productId());
+      n.put("productName", p.name());
+      n.put("interestRate", p.rate());
+      n.put("minAmount", p.minAmount());
+      n.put("maxAmount", p.maxAmount());
+      if (p.termMonths() > 0) n.put("termMonths", p.termMonths());
+    }
+    return root.toString();
+  }
+}
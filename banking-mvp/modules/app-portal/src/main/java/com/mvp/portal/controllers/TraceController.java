@@ -0,0 +1,27 @@
+package com.mvp.portal.controllers;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mvp.ob.trace.ObTraceCollector;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Отладка: последние трассы запросов портала с вызовами банков (OTLP/JSON).
+ * Пример: GET /debug/traces?limit=5
+ */
+@RestController
+public class TraceController {
+
+  private final ObTraceCollector collector;
+
+  public TraceController(ObTraceCollector collector) {
+    this.collector = collector;
+  }
+
+  @GetMapping(value = "/debug/traces", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ObjectNode traces(@RequestParam(name = "limit", defaultValue = "20") int limit) {
+    return collector.toOtlp(collector.recent(Math.max(1, Math.min(limit, 500))));
+  }
+}
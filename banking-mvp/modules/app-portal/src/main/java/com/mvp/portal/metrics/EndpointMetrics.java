@@ -0,0 +1,77 @@
+package com.mvp.portal.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Латентность и fan-out вызовов банков по эндпоинтам портала.
+ * Ключ — "GET /accounts/{accountId}" (шаблон маппинга, не сырой URI),
+ * чтобы число гистограмм не росло от ID в пути.
+ *
+ * Запись — lock-free (ConcurrentHistogram), снимок — копия гистограммы.
+ */
+@Component
+public class EndpointMetrics {
+
+  /** Всё, что дольше минуты, пишем как минуту. */
+  private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+  private static final long MAX_FANOUT = 1_000;
+
+  private final Map<String, Entry> byEndpoint = new ConcurrentHashMap<>();
+
+  public void record(String endpoint, long latencyNanos, int upstreamCalls, long upstreamNanos) {
+    Entry e = byEndpoint.computeIfAbsent(endpoint, k -> new Entry());
+    e.latencyUs.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_US));
+    e.upstreamUs.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(upstreamNanos), MAX_LATENCY_US));
+    e.fanout.recordValue(Math.min(upstreamCalls, MAX_FANOUT));
+  }
+
+  public void reset() {
+    byEndpoint.clear();
+  }
+
+  /** Снимок для фида: перцентили в миллисекундах, fan-out — в вызовах на запрос. */
+  public List<Map<String, Object>> snapshot() {
+    List<Map<String, Object>> out = new ArrayList<>();
+    byEndpoint.forEach((endpoint, e) -> {
+      Histogram lat = e.latencyUs.copy();
+      Histogram up = e.upstreamUs.copy();
+      Histogram fan = e.fanout.copy();
+
+      Map<String, Object> m = new LinkedHashMap<>();
+      m.put("endpoint", endpoint);
+      m.put("count", lat.getTotalCount());
+      m.put("p50Ms", ms(lat.getValueAtPercentile(50)));
+      m.put("p90Ms", ms(lat.getValueAtPercentile(90)));
+      m.put("p99Ms", ms(lat.getValueAtPercentile(99)));
+      m.put("p999Ms", ms(lat.getValueAtPercentile(99.9)));
+      m.put("maxMs", ms(lat.getMaxValue()));
+      m.put("meanMs", ms((long) lat.getMean()));
+      m.put("upstreamP50Ms", ms(up.getValueAtPercentile(50)));
+      m.put("upstreamP99Ms", ms(up.getValueAtPercentile(99)));
+      m.put("fanoutMean", Math.round(fan.getMean() * 100) / 100.0);
+      m.put("fanoutMax", fan.getMaxValue());
+      out.add(m);
+    });
+    out.sort((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")));
+    return out;
+  }
+
+  private static double ms(long micros) {
+    return Math.round(micros / 10.0) / 100.0;
+  }
+
+  private static final class Entry {
+    final ConcurrentHistogram latencyUs = new ConcurrentHistogram(MAX_LATENCY_US, 2);
+    final ConcurrentHistogram upstreamUs = new ConcurrentHistogram(MAX_LATENCY_US, 2);
+    final ConcurrentHistogram fanout = new ConcurrentHistogram(MAX_FANOUT, 2);
+  }
+}
@@ -0,0 +1,161 @@
+package com.mvp.portal.metrics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JFR-запись по требованию оператора (из app-ops) с жёсткими рамками:
+ * не дольше {@link #MAX_DURATION}, не больше {@link #MAX_SIZE_BYTES} на диске,
+ * одна запись одновременно. После остановки файл разбирается в сводку
+ * (горячие точки аллокаций и CPU-сэмплы) и удаляется.
+ */
+@Component
+public class JfrProfiler {
+
+  private static final Duration MAX_DURATION = Duration.ofMinutes(5);
+  private static final long MAX_SIZE_BYTES = 64L * 1024 * 1024;
+  private static final int TOP_N = 20;
+
+  private Recording recording;
+  private Instant startedAt;
+  private Map<String, Object> lastSummary;
+
+  public synchronized Map<String, Object> start(int seconds) {
+    if (recording != null && recording.getState() == RecordingState.RUNNING) {
+      throw new IllegalStateException("JFR recording already running since " + startedAt);
+    }
+    closeQuietly();
+
+    Duration d = Duration.ofSeconds(Math.max(1, seconds));
+    if (d.compareTo(MAX_DURATION) > 0) d = MAX_DURATION;
+
+    Recording r = new Recording();
+    r.setName("portal-on-demand");
+    r.setToDisk(true);
+    r.setMaxSize(MAX_SIZE_BYTES);
+    r.setDuration(d); // JFR сам остановит запись, если оператор забудет
+    r.enable("jdk.ObjectAllocationSample").with("throttle", "300/s").withStackTrace();
+    r.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(20));
+    r.start();
+
+    recording = r;
+    startedAt = Instant.now();
+    return status();
+  }
+
+  /** Остановить (если ещё идёт), разобрать и вернуть сводку. */
+  public synchronized Map<String, Object> stop() throws IOException {
+    if (recording == null) {
+      throw new IllegalStateException("No JFR recording to stop");
+    }
+    Recording r = recording;
+    if (r.getState() == RecordingState.RUNNING) r.stop();
+
+    Path file = Files.createTempFile("portal-", ".jfr");
+    try {
+      r.dump(file);
+      lastSummary = summarize(file, Duration.between(startedAt, Instant.now()));
+    } finally {
+      Files.deleteIfExists(file);
+      closeQuietly();
+    }
+    return lastSummary;
+  }
+
+  public synchronized Map<String, Object> status() {
+    Map<String, Object> m = new LinkedHashMap<>();
+    boolean running = recording != null && recording.getState() == RecordingState.RUNNING;
+    m.put("state", recording == null ? "idle" : recording.getState().name().toLowerCase());
+    m.put("running", running);
+    if (recording != null) {
+      m.put("startedAt", startedAt.toString());
+      m.put("durationLimitSec", recording.getDuration() == null ? null : recording.getDuration().toSeconds());
+    }
+    m.put("lastSummary", lastSummary);
+    return m;
+  }
+
+  private static Map<String, Object> summarize(Path file, Duration took) throws IOException {
+    Map<String, Long> allocByFrame = new HashMap<>();
+    Map<String, Long> allocByClass = new HashMap<>();
+    Map<String, Long> cpuByFrame = new HashMap<>();
+    long allocTotal = 0, cpuSamples = 0;
+
+    try (RecordingFile rf = new RecordingFile(file)) {
+      while (rf.hasMoreEvents()) {
+        RecordedEvent e = rf.readEvent();
+        String type = e.getEventType().getName();
+        if ("jdk.ObjectAllocationSample".equals(type)) {
+          long w = e.getLong("weight");
+          allocTotal += w;
+          allocByFrame.merge(topFrame(e.getStackTrace()), w, Long::sum);
+          allocByClass.merge(e.getClass("objectClass").getName(), w, Long::sum);
+        } else if ("jdk.ExecutionSample".equals(type)) {
+          cpuSamples++;
+          cpuByFrame.merge(topFrame(e.getStackTrace()), 1L, Long::sum);
+        }
+      }
+    }
+
+    Map<String, Object> s = new LinkedHashMap<>();
+    s.put("recordedSec", took.toSeconds());
+    s.put("allocatedBytesSampled", allocTotal);
+    s.put("allocationHotSpots", top(allocByFrame, "bytes"));
+    s.put("allocatedClasses", top(allocByClass, "bytes"));
+    s.put("cpuSamples", cpuSamples);
+    s.put("cpuHotSpots", top(cpuByFrame, "samples"));
+    return s;
+  }
+
+  /** Первый кадр вне JDK — то, что реально можно поправить у нас. */
+  private static String topFrame(RecordedStackTrace st) {
+    if (st == null || st.getFrames().isEmpty()) return "(no stack)";
+    RecordedFrame first = null;
+    for (RecordedFrame f : st.getFrames()) {
+      if (!f.isJavaFrame()) continue;
+      if (first == null) first = f;
+      String cls = f.getMethod().getType().getName();
+      if (!cls.startsWith("java.") && !cls.startsWith("jdk.") && !cls.startsWith("sun.")) {
+        return frameName(f);
+      }
+    }
+    return first == null ? "(native)" : frameName(first);
+  }
+
+  private static String frameName(RecordedFrame f) {
+    return f.getMethod().getType().getName() + "." + f.getMethod().getName() + ":" + f.getLineNumber();
+  }
+
+  private static List<Map<String, Object>> top(Map<String, Long> counts, String unit) {
+    List<Map.Entry<String, Long>> entries = new ArrayList<>(counts.entrySet());
+    entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+    List<Map<String, Object>> out = new ArrayList<>();
+    for (Map.Entry<String, Long> en : entries.subList(0, Math.min(TOP_N, entries.size()))) {
+      out.add(Map.of("frame", en.getKey(), unit, en.getValue()));
+    }
+    return out;
+  }
+
+  private void closeQuietly() {
+    if (recording != null) {
+      try { recording.close(); } catch (Exception ignored) { }
+      recording = null;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.mvp.portal.web;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Условные GET для страниц, собранных из ответов банка.
+ * ETag = SHA-256 от JSON банка + query-строки запроса (+ соль запуска,
+ * чтобы после деплоя с новыми шаблонами старые ETag не совпадали).
+ * Совпал If-None-Match — отдаём 304 до рендера шаблона: ни тела, ни Thymeleaf.
+ *
+ * Валидатор слабый (W/"..."): на ответ со strong ETag Tomcat не включает gzip
+ * (байты gzip и identity разные, а strong ETag обещал бы побайтовое совпадение).
+ * Для If-None-Match сравнение и так слабое, поэтому 304 работает одинаково.
+ */
+public final class HttpCaching {
+
+  /** Каталог продуктов меняется редко: минуту браузер не спрашивает вовсе. */
+  public static final CacheControl PRODUCTS = CacheControl.maxAge(java.time.Duration.ofSeconds(60)).cachePrivate();
+
+  /** Данные счёта: хранить можно, но перед показом — всегда ревалидация. */
+  public static final CacheControl ACCOUNT = CacheControl.noCache().cachePrivate();
+
+  private static final String DEPLOY_SALT =
+      String.valueOf(ManagementFactory.getRuntimeMXBean().getStartTime());
+
+  private HttpCaching() { }
+
+  /**
+   * Выставить Cache-Control и ETag; true — клиент уже имеет актуальную версию
+   * (ответ 304 подготовлен, контроллер должен вернуть null).
+   */
+  public static boolean notModified(ServletWebRequest req, CacheControl cc, String... upstreamPayloads) {
+    if (req.getResponse() != null) {
+      req.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, cc.getHeaderValue());
+    }
+    String[] parts = new String[upstreamPayloads.length + 2];
+    parts[0] = DEPLOY_SALT;
+    parts[1] = req.getRequest().getQueryString();
+    System.arraycopy(upstreamPayloads, 0, parts, 2, upstreamPayloads.length);
+    return req.checkNotModified(etag(parts));
+  }
+
+  /** ETag вида W/"9f86d081884c7d65…" (первые 16 байт SHA-256). */
+  public static String etag(String... parts) {
+    MessageDigest md = sha256();
+    for (String p : parts) {
+      if (p != null) md.update(p.getBytes(StandardCharsets.UTF_8));
+      md.update((byte) 0); // разделитель, чтобы ("ab","c") != ("a","bc")
+    }
+    byte[] d = md.digest();
+    return "W/\"" + HexFormat.of().formatHex(d, 0, 16) + "\"";
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
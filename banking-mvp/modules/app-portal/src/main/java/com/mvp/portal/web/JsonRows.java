@@ -0,0 +1,133 @@
+package com.mvp.portal.web;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvp.ob.trace.ObTrace;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Ленивые строки таблицы из JSON банка: массив {@code data.<name>} читается потоковым
+ * парсером по одному элементу прямо во время th:each. Весь список в модели не собирается —
+ * строка разобрана, отрендерена и ушла в ответ (Thymeleaf пишет в response по ходу рендера,
+ * Tomcat отдаёт тело chunked по мере заполнения буфера).
+ *
+ * Каждый проход (iterator()) разбирает JSON заново; {@link #isEmpty()} смотрит только первый элемент.
+ * Битый JSON — просто пустая таблица, как раньше.
+ */
+public final class JsonRows<T> implements Iterable<T> {
+
+  private final ObjectMapper mapper;
+  private final String json;
+  private final String[] arrayNames;
+  private final Function<JsonNode, T> rowMapper;
+
+  private JsonRows(ObjectMapper mapper, String json, String[] arrayNames, Function<JsonNode, T> rowMapper) {
+    this.mapper = mapper;
+    this.json = json;
+    this.arrayNames = arrayNames;
+    this.rowMapper = rowMapper;
+  }
+
+  /**
+   * Строки из {@code data.<первое найденное из arrayNames>} (или из массива верхнего уровня).
+   * Пример: {@code JsonRows.of(mapper, txJson, n -> ..., "transactions", "transaction")}.
+   */
+  public static <T> JsonRows<T> of(ObjectMapper mapper, String json, Function<JsonNode, T> rowMapper,
+                                   String... arrayNames) {
+    return new JsonRows<>(mapper, json, arrayNames, rowMapper);
+  }
+
+  public boolean isEmpty() {
+    return !iterator().hasNext();
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    JsonParser p = openArray();
+    return new Iterator<>() {
+      private JsonParser parser = p;
+      private T next;
+
+      @Override
+      public boolean hasNext() {
+        if (next != null) return true;
+        if (parser == null) return false;
+        long t0 = System.nanoTime();
+        try {
+          if (parser.nextToken() != JsonToken.START_OBJECT) {
+            close();
+            return false;
+          }
+          JsonNode n = mapper.readTree(parser);
+          next = rowMapper.apply(n);
+          return true;
+        } catch (IOException e) {
+          close();
+          return false;
+        } finally {
+          ObTrace.recordDecode(t0); // разбор по-прежнему учитывается в спане вызова банка
+        }
+      }
+
+      @Override
+      public T next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        T v = next;
+        next = null;
+        return v;
+      }
+
+      private void close() {
+        try { parser.close(); } catch (IOException ignore) { }
+        parser = null;
+      }
+    };
+  }
+
+  /** Парсер, стоящий на START_ARRAY нужного массива, или null. */
+  private JsonParser openArray() {
+    if (json == null || json.isBlank()) return null;
+    try {
+      JsonParser p = mapper.getFactory().createParser(json);
+      JsonToken t = p.nextToken();
+      if (t == JsonToken.START_ARRAY) return p;
+      if (t != JsonToken.START_OBJECT) return closed(p);
+      // ищем "data" на верхнем уровне
+      if (!seekField(p, "data") || p.nextToken() != JsonToken.START_OBJECT) return closed(p);
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String name = p.currentName();
+        JsonToken v = p.nextToken();
+        if (v == JsonToken.START_ARRAY && matches(name)) return p;
+        p.skipChildren();
+      }
+      return closed(p);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private boolean matches(String name) {
+    for (String a : arrayNames) if (a.equals(name)) return true;
+    return false;
+  }
+
+  private static boolean seekField(JsonParser p, String field) throws IOException {
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      if (field.equals(p.currentName())) return true;
+      p.nextToken();
+      p.skipChildren();
+    }
+    return false;
+  }
+
+  private static JsonParser closed(JsonParser p) throws IOException {
+    p.close();
+    return null;
+  }
+}
@@ -0,0 +1,84 @@
+package com.mvp.portal.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Кэш отрендеренного {@code fragments/nav :: nav(bank, login, consentId, baseUrl)}.
+ * Навигация есть на каждой странице и зависит только от четырёх параметров,
+ * поэтому готовый HTML кладём в LRU и вставляем через
+ * {@code <th:block th:utext="${@navFragments.render(bank, login, consentId, baseUrl)}"/>}.
+ * Экранирование делает сам Thymeleaf при первом рендере — в кэше уже безопасный HTML.
+ *
+ * При spring.thymeleaf.cache=false (dev) кэш выключен, чтобы правки nav.html были видны сразу.
+ */
+@Component("navFragments")
+public class NavFragments {
+
+  static final int MAX_ENTRIES = 1024;
+
+  private final ITemplateEngine engine;
+  private final boolean enabled;
+  private final Map<String, String> cache = Collections.synchronizedMap(
+      new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      });
+
+  private volatile JakartaServletWebApplication webApp;
+
+  public NavFragments(ITemplateEngine templateEngine,
+                      @Value("${spring.thymeleaf.cache:true}") boolean enabled) {
+    this.engine = templateEngine;
+    this.enabled = enabled;
+  }
+
+  public String render(String bank, String login, String consentId, String baseUrl) {
+    ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+    HttpServletRequest req = attrs.getRequest();
+    if (!enabled) return renderNow(req, attrs.getResponse(), bank, login, consentId, baseUrl);
+
+    String key = req.getContextPath() + '\0' + bank + '\0' + login + '\0' + consentId + '\0' + baseUrl;
+    String html = cache.get(key);
+    if (html == null) {
+      html = renderNow(req, attrs.getResponse(), bank, login, consentId, baseUrl);
+      cache.put(key, html);
+    }
+    return html;
+  }
+
+  private String renderNow(HttpServletRequest req, HttpServletResponse res,
+                           String bank, String login, String consentId, String baseUrl) {
+    Map<String, Object> vars = new HashMap<>();
+    vars.put("bank", bank);
+    vars.put("login", login);
+    vars.put("consentId", consentId);
+    vars.put("baseUrl", baseUrl);
+    WebContext ctx = new WebContext(webApp(req).buildExchange(req, res), req.getLocale(), vars);
+    return engine.process("fragments/nav", Set.of("nav"), ctx);
+  }
+
+  private JakartaServletWebApplication webApp(HttpServletRequest req) {
+    JakartaServletWebApplication app = webApp;
+    if (app == null) {
+      app = JakartaServletWebApplication.buildApplication(req.getServletContext());
+      webApp = app;
+    }
+    return app;
+  }
+}
@@ -0,0 +1,46 @@
+package com.mvp.portal.web;
+
+import com.mvp.core.risk.RiskProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Доступ app-ops к служебным эндпоинтам портала (фиды очереди проверки, решения по отложенным
+ * платежам, /debug/*): заголовок {@link #HEADER} должен совпасть с risk.ops-token.
+ * Токен не настроен — нельзя никому.
+ */
+@Component
+public class OpsAccess {
+
+  private static final Logger log = LoggerFactory.getLogger(OpsAccess.class);
+
+  public static final String HEADER = "X-Ops-Token";
+
+  private final byte[] token;
+
+  public OpsAccess(RiskProperties cfg) {
+    String t = cfg.getOpsToken();
+    this.token = StringUtils.hasText(t) ? t.getBytes(StandardCharsets.UTF_8) : null;
+    if (token == null) log.warn("risk.ops-token is not set: ops feeds, held payment decisions and /debug actions are disabled");
+  }
+
+  /** Вызов от app-ops: заголовок совпадает с токеном (сравнение за постоянное время). */
+  public boolean allowed(String header) {
+    return token != null && header != null
+        && MessageDigest.isEqual(token, header.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** 403 с телом {"error": ...}. */
+  public static ResponseEntity<String> forbidden() {
+    return ResponseEntity.status(HttpStatus.FORBIDDEN).contentType(MediaType.APPLICATION_JSON)
+        .body("{\"error\":\"Ops token required\"}");
+  }
+}
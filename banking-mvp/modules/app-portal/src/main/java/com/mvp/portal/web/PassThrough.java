@@ -0,0 +1,78 @@
+package com.mvp.portal.web;
+
+import com.mvp.ob.ObResponseSink;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pass-through ответа банка прямо в servlet-ответ:
+ * статус и Content-Type — как у банка, тело копируется кусками по {@link #BUFFER_SIZE}
+ * без сборки в String и без UTF-8 decode/encode. Память — константа, сколько бы ни весил ответ.
+ * Валидаторы банка (ETag, Last-Modified) тоже пробрасываются — чтобы браузер мог прийти
+ * условным GET, а банк ответить 304. Cache-Control банка не копируется: политику кэширования
+ * задаёт эндпоинт портала, и банк не должен её перетирать.
+ */
+public final class PassThrough {
+
+  static final int BUFFER_SIZE = 8 * 1024;
+
+  private static final String[] VALIDATORS = { HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED };
+
+  private PassThrough() { }
+
+  /** Sink для Ob*Client.stream*(): пишет ответ банка в res как есть. */
+  public static ObResponseSink to(HttpServletResponse res) {
+    return (status, headers, body) -> {
+      res.setStatus(status.value());
+      MediaType ct = headers.getContentType();
+      res.setContentType(ct != null ? ct.toString() : MediaType.APPLICATION_JSON_VALUE);
+      String enc = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+      if (enc != null) res.setHeader(HttpHeaders.CONTENT_ENCODING, enc);
+      for (String h : VALIDATORS) {
+        String v = headers.getFirst(h);
+        if (v != null) res.setHeader(h, v);
+      }
+      copy(body, res.getOutputStream());
+    };
+  }
+
+  /**
+   * То же, но с Cache-Control портала — только если банк ответил 2xx или 304:
+   * ошибку банка браузер кэшировать не должен.
+   */
+  public static ObResponseSink to(HttpServletResponse res, CacheControl onSuccess) {
+    ObResponseSink sink = to(res);
+    return (status, headers, body) -> {
+      if (status.is2xxSuccessful() || status.value() == 304) {
+        res.setHeader(HttpHeaders.CACHE_CONTROL, onSuccess.getHeaderValue());
+      }
+      sink.write(status, headers, body);
+    };
+  }
+
+  /** Ответ-заглушка, когда до банка не дошли (нет токена, I/O и т.п.). */
+  public static void json(HttpServletResponse res, int status, String json) throws IOException {
+    if (res.isCommitted()) return; // часть тела банка уже ушла — дописывать поверх нельзя
+    res.resetBuffer();
+    res.setStatus(status);
+    res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    res.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void copy(InputStream in, OutputStream out) throws IOException {
+    if (in == null) return;
+    byte[] buf = new byte[BUFFER_SIZE];
+    int n;
+    while ((n = in.read(buf)) >= 0) {
+      out.write(buf, 0, n);
+    }
+    out.flush();
+  }
+}
@@ -0,0 +1,76 @@
+package com.mvp.portal.web;
+
+import com.mvp.ob.trace.ObSpan;
+import com.mvp.ob.trace.ObTrace;
+import com.mvp.ob.trace.ObTraceCollector;
+import com.mvp.portal.metrics.EndpointMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Открывает трассу на каждый входящий запрос портала.
+ * X-Request-Id берём из входящего заголовка (если он «приличный») или генерируем;
+ * он же возвращается клиенту и уходит в банки как x-fapi-interaction-id.
+ * По закрытой трассе пишутся метрики эндпоинта (латентность, fan-out).
+ */
+@Component
+public class RequestTraceFilter extends OncePerRequestFilter {
+
+  private static final String HDR_REQUEST_ID = "X-Request-Id";
+  private static final Pattern SAFE_ID = Pattern.compile("^[A-Za-z0-9._-]{8,64}$");
+
+  private final ObTraceCollector collector;
+  private final EndpointMetrics metrics;
+
+  public RequestTraceFilter(ObTraceCollector collector, EndpointMetrics metrics) {
+    this.collector = collector;
+    this.metrics = metrics;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    // сами трассы и метрики не трассируем
+    return request.getRequestURI().startsWith("/debug/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  FilterChain chain) throws ServletException, IOException {
+    String inbound = request.getHeader(HDR_REQUEST_ID);
+    String requestId = inbound != null && SAFE_ID.matcher(inbound).matches() ? inbound : null;
+
+    ObTrace trace = ObTrace.begin(request.getMethod() + " " + request.getRequestURI(), requestId);
+    trace.getRoot()
+        .attr("http.request.method", request.getMethod())
+        .attr("url.path", request.getRequestURI());
+    response.setHeader(HDR_REQUEST_ID, trace.getRequestId());
+
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      trace.getRoot()
+          .attr("http.response.status_code", response.getStatus())
+          .attr("upstream.calls", trace.getSpans().size());
+      if (response.getStatus() >= 500) trace.getRoot().markError();
+      collector.export(ObTrace.end());
+      record(request, trace);
+    }
+  }
+
+  private void record(HttpServletRequest request, ObTrace trace) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    String endpoint = request.getMethod() + " " + (pattern != null ? pattern : "(unmapped)");
+    long upstreamNanos = 0;
+    for (ObSpan s : trace.getSpans()) upstreamNanos += s.getDurationNanos();
+    metrics.record(endpoint, trace.getRoot().getDurationNanos(), trace.getSpans().size(), upstreamNanos);
+  }
+}
@@ -0,0 +1,64 @@
+package com.mvp.bench;
+
+import com.mvp.core.analytics.CategoriesProperties;
+import com.mvp.core.analytics.TransactionCategorizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Категоризация выписки: автомат {@link TransactionCategorizer} (с проверкой границ слов) против
+ * эталона {@link ReferenceCategorizer} — правила по порядку, по регулярному выражению на слово.
+ * Одна операция бенчмарка — 1 000 описаний (70% торговцы, остальное переводы, зарплата, трудные
+ * случаи), у части — MCC. Перед замером результаты сверяются: расхождение — ошибка запуска.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategorizerBenchmark {
+
+  private static final int BATCH = 1_000;
+
+  private TransactionCategorizer automaton;
+  private ReferenceCategorizer reference;
+  private String[] descriptions;
+  private String[] mccs;
+
+  @Setup
+  public void setup() throws Exception {
+    automaton = new TransactionCategorizer(new CategoriesProperties());
+    automaton.afterPropertiesSet();
+    reference = ReferenceCategorizer.builtIn();
+    List<String> sample = Descriptions.sample(BATCH, 42);
+    descriptions = sample.toArray(new String[0]);
+    mccs = new String[BATCH];
+    for (int i = 0; i < BATCH; i++) mccs[i] = Descriptions.mcc(i);
+
+    List<String> diffs = CategorizerEquivalence.diff(automaton, reference, 10_000);
+    if (!diffs.isEmpty()) throw new IllegalStateException("Categorizer differs from the reference: " + diffs.get(0));
+  }
+
+  @Benchmark
+  public void automaton(Blackhole bh) {
+    for (int i = 0; i < BATCH; i++) bh.consume(automaton.categorize(descriptions[i], mccs[i]));
+  }
+
+  @Benchmark
+  public void reference(Blackhole bh) {
+    for (int i = 0; i < BATCH; i++) bh.consume(reference.categorize(descriptions[i], mccs[i]));
+  }
+}
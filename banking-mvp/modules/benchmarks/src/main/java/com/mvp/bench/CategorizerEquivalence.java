@@ -0,0 +1,47 @@
+package com.mvp.bench;
+
+import com.mvp.core.analytics.CategoriesProperties;
+import com.mvp.core.analytics.TransactionCategorizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Сверка автомата {@link TransactionCategorizer} с {@link ReferenceCategorizer} на встроенных
+ * правилах: трудные случаи плюс 100 000 сгенерированных описаний, с MCC и без.
+ * Расхождения печатаются, код выхода 1; совпало всё — 0.
+ *
+ * java -cp modules/benchmarks/target/benchmarks.jar com.mvp.bench.CategorizerEquivalence
+ */
+public final class CategorizerEquivalence {
+
+  private CategorizerEquivalence() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    TransactionCategorizer fast = new TransactionCategorizer(new CategoriesProperties());
+    fast.afterPropertiesSet();
+    List<String> diffs = diff(fast, ReferenceCategorizer.builtIn(),
+        args.length > 0 ? Integer.parseInt(args[0]) : 100_000);
+    diffs.stream().limit(50).forEach(System.out::println);
+    System.out.println(diffs.isEmpty() ? "OK: categorizer matches the reference" : diffs.size() + " mismatches");
+    System.exit(diffs.isEmpty() ? 0 : 1);
+  }
+
+  /** Описания, на которых автомат и эталон расходятся, в виде строк для отчёта. */
+  static List<String> diff(TransactionCategorizer fast, ReferenceCategorizer reference, int generated) {
+    List<String> cases = new ArrayList<>(List.of(Descriptions.TRICKY));
+    cases.addAll(Descriptions.sample(generated, 7));
+    List<String> diffs = new ArrayList<>();
+    for (int i = 0; i < cases.size(); i++) {
+      String d = cases.get(i);
+      for (String mcc : new String[]{null, Descriptions.mcc(i)}) {
+        String a = fast.categorize(d, mcc);
+        String b = reference.categorize(d, mcc);
+        if (!Objects.equals(a, b)) diffs.add("'" + d + "' mcc=" + mcc + ": automaton=" + a + ", reference=" + b);
+      }
+    }
+    return diffs;
+  }
+}
@@ -0,0 +1,80 @@
+package com.mvp.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Описания операций, похожие на банковские выписки: торговец с номером точки и городом,
+ * переводы, зарплата, карточные шаблоны, плюс слова, внутри которых прячутся ключевые
+ * (PAYMENTS, TREATMENT, METROPOLIS). Генерация детерминирована — одинаковая от запуска к запуску.
+ */
+final class Descriptions {
+
+  /** Случаи, на которых подстрока и целое слово расходятся. */
+  static final String[] TRICKY = {
+      "CARD PAYMENTS AUTOPAY", "TREATMENT CENTER MOSCOW", "METROPOLIS MALL", "МЕТРОПОЛЬ ОТЕЛЬ",
+      "MTS", "MTS*MOBILE 79161234567", "ATM 00123 MOSCOW", "BATMAN STORE", "PYATEROCHKA1234",
+      "Оплата в АПТЕКА №12", "YANDEX*TAXI", "YANDEX*TAXIPARK", "GOOGLE *YouTube", "COFFEEMANIA",
+      "КОФЕЙНЯ НА УГЛУ", "ОЗОН", "OZONE BEAUTY", "36,6 АПТЕКА", "136,60 RUB", "ЛЕНТА", "ЛЕНТАЙМ",
+      "Пятёрочка", "ВКУСНО И ТОЧКА", "RZD.RU BILET", "TELE2", "TELE22", "MEGAFON-PAYMENTS",
+      "Перевод по номеру телефона", "ЗАРПЛАТА ЗА ОКТЯБРЬ", "P2P TRANSFER", "", "   ",
+  };
+
+  private static final String[] MERCHANTS = {
+      "PYATEROCHKA", "ПЯТЕРОЧКА", "MAGNIT MM", "PEREKRESTOK", "VKUSVILL", "AUCHAN", "LENTA",
+      "MCDONALDS", "BURGER KING", "KFC", "STARBUCKS", "COFFEE LIKE", "SHOKOLADNITSA",
+      "YANDEX*TAXI", "YANDEX GO", "UBER", "METRO", "МЕТРО", "TROIKA", "RZD", "AEROFLOT",
+      "LUKOIL AZS", "GAZPROMNEFT", "OZON.RU", "WILDBERRIES", "YANDEX*MARKET", "ALIEXPRESS",
+      "AVITO", "LAMODA", "MTS", "BEELINE", "MEGAFON", "TELE2", "ROSTELECOM", "ЖКХ", "МОСЭНЕРГОСБЫТ",
+      "APTEKA", "GORZDRAV", "INVITRO", "KINOPOISK", "IVI.RU", "OKKO", "SPOTIFY", "APPLE.COM/BILL",
+      "GOOGLE *GOOGLE STORAGE", "ATM", "БАНКОМАТ", "ZOOMAGAZIN CHETYRE LAPY", "IP IVANOV A.A.",
+      "OOO ROGA I KOPYTA", "PARKING MOSCOW", "SPORTMASTER", "LEROY MERLIN", "DNS SHOP",
+  };
+
+  private static final String[] TAILS = {
+      " MOSCOW RUS", " SANKT-PETERBU RUS", " KAZAN RU", "", " 7812", " G. MOSKVA", " ONLINE",
+  };
+
+  private static final String[] PREFIXES = {
+      "", "", "", "Оплата ", "Покупка ", "CARD ", "Списание ", "RETAIL ",
+  };
+
+  private static final String[] OTHER = {
+      "Перевод по номеру телефона +7916***4567", "Перевод между своими счетами",
+      "СБП Перевод Иван И.", "ЗАРПЛАТА ЗА СЕНТЯБРЬ 2026", "Аванс за октябрь", "SALARY ACME LLC",
+      "Снятие наличных ATM 001234", "Погашение кредита по договору 12-345", "Комиссия за обслуживание",
+      "Проценты на остаток", "Возврат покупки OZON.RU", "CARD PAYMENTS AUTOPAY MTS",
+  };
+
+  private Descriptions() {
+  }
+
+  static List<String> sample(int n, long seed) {
+    Random r = new Random(seed);
+    List<String> out = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      int kind = r.nextInt(10);
+      if (kind < 7) {
+        String m = MERCHANTS[r.nextInt(MERCHANTS.length)];
+        String point = r.nextBoolean() ? " " + (1000 + r.nextInt(9000)) : (r.nextInt(4) == 0 ? String.valueOf(r.nextInt(100)) : "");
+        out.add(PREFIXES[r.nextInt(PREFIXES.length)] + m + point + TAILS[r.nextInt(TAILS.length)]);
+      } else if (kind < 9) {
+        out.add(OTHER[r.nextInt(OTHER.length)]);
+      } else {
+        out.add(TRICKY[r.nextInt(TRICKY.length)]);
+      }
+    }
+    return out;
+  }
+
+  /** MCC к описанию i: у части операций банк его присылает, у части нет. */
+  static String mcc(int i) {
+    return switch (i % 7) {
+      case 0 -> "5411";
+      case 1 -> "5812";
+      case 2 -> "4121";
+      default -> null;
+    };
+  }
+}
@@ -0,0 +1,77 @@
+package com.mvp.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Эталон для категоризатора: то же описание правил (categories/default.rules), но в лоб —
+ * правила по порядку, каждое ключевое слово — своё регулярное выражение с границами слова.
+ * Медленно, зато очевидно; {@link CategorizerEquivalence} сверяет с ним автомат.
+ */
+final class ReferenceCategorizer {
+
+  private record Rule(String category, String mcc, Pattern pattern, boolean folded) { }
+
+  private final List<Rule> rules = new ArrayList<>();
+
+  ReferenceCategorizer(List<String> lines) {
+    for (String raw : lines) {
+      String line = raw.strip();
+      if (line.isEmpty() || line.startsWith("#")) continue;
+      String[] p = line.split("\\s+", 3);
+      switch (p[1].toLowerCase(Locale.ROOT)) {
+        case "kw" -> rules.add(new Rule(p[0], null, keyword(fold(p[2])), true));
+        case "re" -> rules.add(new Rule(p[0], null,
+            Pattern.compile(p[2], Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE), false));
+        case "mcc" -> rules.add(new Rule(p[0], p[2], null, false));
+        default -> throw new IllegalArgumentException("unknown rule kind: " + line);
+      }
+    }
+  }
+
+  static ReferenceCategorizer builtIn() {
+    try (InputStream in = ReferenceCategorizer.class.getClassLoader().getResourceAsStream("categories/default.rules")) {
+      if (in == null) throw new IllegalStateException("categories/default.rules is not on the classpath");
+      return new ReferenceCategorizer(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Категория первого подошедшего правила или null. */
+  String categorize(String description, String mcc) {
+    String folded = description == null ? null : fold(description);
+    String code = mcc == null ? "" : mcc.trim();
+    for (Rule r : rules) {
+      if (r.mcc() != null) {
+        if (r.mcc().equals(code)) return r.category();
+      } else if (description != null && r.pattern().matcher(r.folded() ? folded : description).find()) {
+        return r.category();
+      }
+    }
+    return null;
+  }
+
+  /** Слово с границами: край-буква не склеен с буквой, край-цифра — с цифрой. */
+  private static Pattern keyword(String kw) {
+    StringBuilder re = new StringBuilder();
+    char first = kw.charAt(0);
+    char last = kw.charAt(kw.length() - 1);
+    if (Character.isLetter(first)) re.append("(?<!\\p{L})");
+    else if (Character.isDigit(first)) re.append("(?<!\\p{Nd})");
+    re.append(Pattern.quote(kw));
+    if (Character.isLetter(last)) re.append("(?!\\p{L})");
+    else if (Character.isDigit(last)) re.append("(?!\\p{Nd})");
+    return Pattern.compile(re.toString());
+  }
+
+  private static String fold(String s) {
+    return s.toUpperCase(Locale.ROOT).replace('Ё', 'Е');
+  }
+}
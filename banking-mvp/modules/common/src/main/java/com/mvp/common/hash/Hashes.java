@@ -0,0 +1,42 @@
+package com.mvp.common.hash;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Хэши для открытой адресации и ключей-отпечатков: FNV-1a по байтам (64 бита) и перемешивание
+ * ключа перед взятием маски (финал murmur3), чтобы близкие ключи не ложились в соседние слоты.
+ */
+public final class Hashes {
+
+  /** Начальное значение FNV-1a. */
+  public static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private Hashes() {
+  }
+
+  /** FNV-1a строки в UTF-8. */
+  public static long fnv1a(String s) {
+    return fnv1a(FNV_OFFSET, s);
+  }
+
+  /** Продолжить хэш h байтами строки в UTF-8. */
+  public static long fnv1a(long h, String s) {
+    for (byte b : s.getBytes(StandardCharsets.UTF_8)) h = (h ^ (b & 0xFF)) * FNV_PRIME;
+    return h;
+  }
+
+  /** Продолжить хэш h одним значением (байт или код символа). */
+  public static long fnv1a(long h, int v) {
+    return (h ^ v) * FNV_PRIME;
+  }
+
+  /** Слот ключа k в таблице размером mask + 1 (степень двойки). */
+  public static int index(long k, int mask) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    return (int) k & mask;
+  }
+}
@@ -0,0 +1,105 @@
+package com.mvp.common.store;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Журнал по строке на запись (обычно JSON) для того, что не ложится в {@link KvStore}:
+ * потоки событий, которые прогоняются целиком при старте, и журналы прежних версий.
+ *
+ * append дописывает строку в конец (с fsync, если журнал открыт с sync); не дописал — обрезает
+ * файл до прежней длины, чтобы следующая строка не склеилась с оборванной. Пустые строки при
+ * чтении пропускаются, разбор и пропуск нечитаемых — на вызывающем. rewrite заменяет журнал
+ * целиком: tmp + atomic move.
+ */
+public final class JsonLines implements Closeable {
+
+  private final Path file;
+  private final boolean sync;
+  private FileChannel channel;
+
+  private JsonLines(Path file, boolean sync) throws IOException {
+    this.file = file;
+    this.sync = sync;
+    this.channel = open(file);
+  }
+
+  /** Открыть (создать) журнал на дозапись; sync — fsync после каждой строки. */
+  public static JsonLines open(Path file, boolean sync) throws IOException {
+    Path abs = file.toAbsolutePath();
+    Files.createDirectories(abs.getParent());
+    return new JsonLines(abs, sync);
+  }
+
+  /** Прочитать непустые строки файла по порядку; each получает строку и её номер (с 1). Файла нет — 0. */
+  public static int read(Path file, ObjIntConsumer<String> each) throws IOException {
+    if (!Files.exists(file)) return 0;
+    int lines = 0;
+    try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = r.readLine()) != null) {
+        if (line.isBlank()) continue;
+        each.accept(line, ++lines);
+      }
+    }
+    return lines;
+  }
+
+  public Path file() {
+    return file;
+  }
+
+  /** Дописать строку (перевод строки добавляется). */
+  public synchronized void append(String line) throws IOException {
+    long good = channel.size();
+    try {
+      ByteBuffer b = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+      while (b.hasRemaining()) channel.write(b);
+      if (sync) channel.force(false);
+    } catch (IOException e) {
+      try {
+        channel.truncate(good);
+      } catch (IOException cut) {
+        e.addSuppressed(cut);
+      }
+      throw e;
+    }
+  }
+
+  /** Заменить содержимое журнала этими строками. Не вышло — остаётся прежний журнал. */
+  public synchronized void rewrite(Iterable<String> lines) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (String line : lines) {
+        ByteBuffer b = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+        while (b.hasRemaining()) ch.write(b);
+      }
+      ch.force(true);
+    }
+    channel.close();
+    try {
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      channel = open(file);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private static FileChannel open(Path file) throws IOException {
+    return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+}
@@ -0,0 +1,647 @@
+package com.mvp.common.store;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Встроенное хранилище ключ → байты, журнально-структурированное (как Bitcask): каждая запись
+ * дописывается в конец текущего сегмента NNNNNNNN.log, в памяти — индекс ключ → место значения.
+ * Журнал и есть WAL: запись сделана, когда прошёл fsync; индекс обновляется только после него,
+ * так что прочитать можно лишь то, что переживёт падение.
+ *
+ * Групповой коммит: все записи идут через поток store-writer-1. Он забирает из очереди всё, что
+ * накопилось, пишет одним write и делает один fsync на пачку — параллельные put() платят за
+ * один fsync на всех, а не каждый за свой.
+ *
+ * Формат записи: crc32c(4) | keyLen(4) | valLen(4, -1 — удаление) | key UTF-8 | value; CRC — по
+ * всему после себя. При открытии сегменты читаются по порядку; недописанный или битый хвост
+ * последнего сегмента (оборванная запись при падении) отрезается.
+ *
+ * Чтение без блокировок: индекс — ConcurrentSkipListMap (ключи упорядочены, отсюда выборка по
+ * префиксу), значение — позиционным чтением из канала сегмента, перед этим — небольшой LRU-кэш
+ * последних значений (store.cache-entries).
+ *
+ * Уплотнение: когда мусора (перезаписанные и удалённые значения) больше store.compact-garbage-ratio
+ * от журнала, поток записи переносит живые значения в новые сегменты и удаляет старые. Записи
+ * на это время ждут в очереди.
+ */
+public final class KvStore implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(KvStore.class);
+
+  private static final int HEADER = 12;
+  private static final int MAX_KEY = 64 * 1024;
+
+  /** Место записи: сегмент, смещение значения, его длина и размер всей записи (для учёта мусора). */
+  private record Loc(int segment, long offset, int length, int size) {}
+
+  private enum OpKind { WRITE, COMPACT, STOP }
+
+  /** Задание потоку записи; для WRITE — ключи и значения (null — удаление), пишутся одной пачкой. */
+  private static final class Op {
+    final OpKind kind;
+    final List<String> keys;
+    final List<byte[]> values;
+    final int bytes;
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    Op(OpKind kind, List<String> keys, List<byte[]> values) {
+      this.kind = kind;
+      this.keys = keys;
+      this.values = values;
+      int b = 0;
+      for (int i = 0; i < keys.size(); i++) {
+        b += HEADER + keys.get(i).length() * 3 + (values.get(i) == null ? 0 : values.get(i).length);
+      }
+      this.bytes = b;
+    }
+  }
+
+  private final Path dir;
+  private final StoreProperties cfg;
+  private final ObjectMapper mapper = new ObjectMapper()
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private final ConcurrentSkipListMap<String, Loc> index = new ConcurrentSkipListMap<>();
+  /** Каналы чтения по сегментам; писатель пишет через свой канал {@link #active}. */
+  private final Map<Integer, FileChannel> segments = new ConcurrentHashMap<>();
+  private final Map<String, byte[]> cache;
+  private final LinkedBlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+
+  // только поток записи (и open до его старта)
+  private int activeId;
+  private FileChannel active;
+  private long activeSize;
+
+  private volatile long liveBytes;
+  private volatile long garbageBytes;
+  private volatile boolean closed;
+
+  private final LongAdder gets = new LongAdder();
+  private final LongAdder cacheHits = new LongAdder();
+  private final AtomicLong writes = new AtomicLong();
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong compactions = new AtomicLong();
+
+  private final FileChannel lockFile;
+  private final FileLock lock;
+  private final Thread writer;
+
+  private KvStore(Path dir, StoreProperties cfg) throws IOException {
+    this.dir = dir;
+    this.cfg = cfg;
+    int cap = Math.max(0, cfg.getCacheEntries());
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+        return size() > cap;
+      }
+    };
+    Files.createDirectories(dir);
+    lockFile = FileChannel.open(dir.resolve("LOCK"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock l;
+    try {
+      l = lockFile.tryLock();
+    } catch (OverlappingFileLockException e) {
+      l = null;
+    }
+    lock = l;
+    if (lock == null) {
+      lockFile.close();
+      throw new IllegalStateException("Store " + dir + " is already open (another process or another KvStore here)");
+    }
+    recover();
+    writer = new Thread(this::writeLoop, "store-writer-1");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  public static KvStore open(Path dir, StoreProperties cfg) throws IOException {
+    KvStore s = new KvStore(dir.toAbsolutePath(), cfg);
+    log.info("Store {}: {} keys, {} segments, live {} KB, garbage {} KB", s.dir, s.index.size(),
+        s.segments.size(), s.liveBytes / 1024, s.garbageBytes / 1024);
+    return s;
+  }
+
+  /** Типизированный доступ к пространству ключей name/… (значения — JSON). */
+  public <T> Repository<T> repository(String name, Class<T> type) {
+    return new Repository<>(this, name, type, mapper);
+  }
+
+  // ——————————————————————————— чтение ———————————————————————————
+
+  /** Значение ключа; нет — null. Массив общий с кэшем — не менять. */
+  public byte[] get(String key) {
+    gets.increment();
+    for (int attempt = 0; ; attempt++) {
+      synchronized (cache) {
+        byte[] v = cache.get(key);
+        if (v != null) {
+          cacheHits.increment();
+          return v;
+        }
+      }
+      Loc loc = index.get(key);
+      if (loc == null) return null;
+      byte[] v;
+      try {
+        v = read(loc);
+      } catch (ClosedChannelException e) {
+        // сегмент только что убрало уплотнение — индекс уже указывает на новое место
+        if (attempt < 3) continue;
+        throw new UncheckedIOException(e);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Store read failed for " + key + ": " + e.getMessage(), e);
+      }
+      // кэшируем, только если за время чтения ключ не перезаписали (писатель обновляет индекс,
+      // потом кэш — под тем же монитором)
+      synchronized (cache) {
+        if (index.get(key) == loc) cache.put(key, v);
+      }
+      return v;
+    }
+  }
+
+  public boolean contains(String key) {
+    return index.containsKey(key);
+  }
+
+  /** Ключи с префиксом prefix по возрастанию (снимок на момент вызова). */
+  public List<String> keys(String prefix) {
+    return new ArrayList<>(index.subMap(prefix, prefix + Character.MAX_VALUE).keySet());
+  }
+
+  public int count(String prefix) {
+    return index.subMap(prefix, prefix + Character.MAX_VALUE).size();
+  }
+
+  // ——————————————————————————— запись ———————————————————————————
+
+  /** Записать и дождаться fsync. */
+  public void put(String key, byte[] value) {
+    await(putAsync(key, value));
+  }
+
+  public CompletableFuture<Void> putAsync(String key, byte[] value) {
+    if (value == null) throw new IllegalArgumentException("null value for " + key + ", use delete()");
+    return submit(new Op(OpKind.WRITE, List.of(key), Collections.singletonList(value)));
+  }
+
+  public void delete(String key) {
+    await(submit(new Op(OpKind.WRITE, List.of(key), Collections.singletonList(null))));
+  }
+
+  /**
+   * Несколько ключей одной пачкой, один fsync; null — удаление. Пачка пишется одним write, но не
+   * транзакция: при падении посреди записи переживёт её начало.
+   */
+  public void write(Map<String, byte[]> batch) {
+    if (batch.isEmpty()) return;
+    await(submit(new Op(OpKind.WRITE, new ArrayList<>(batch.keySet()), new ArrayList<>(batch.values()))));
+  }
+
+  /** Уплотнить журнал сейчас, не дожидаясь порога мусора. */
+  public void compact() {
+    await(submit(new Op(OpKind.COMPACT, List.of(), List.of())));
+  }
+
+  /** Ключи, объём живых данных и мусора, пачки группового коммита, попадания в кэш. */
+  public Map<String, Object> stats() {
+    Map<String, Object> m = new LinkedHashMap<>();
+    long b = batches.get(), w = writes.get(), g = gets.sum(), h = cacheHits.sum();
+    m.put("keys", index.size());
+    m.put("segments", segments.size());
+    m.put("liveBytes", liveBytes);
+    m.put("garbageBytes", garbageBytes);
+    m.put("writes", w);
+    m.put("fsyncs", b);
+    m.put("writesPerFsync", b == 0 ? 0.0 : Math.round(10.0 * w / b) / 10.0);
+    m.put("gets", g);
+    m.put("cacheHitRate", g == 0 ? 0.0 : Math.round(1000.0 * h / g) / 1000.0);
+    m.put("compactions", compactions.get());
+    m.put("queued", queue.size());
+    return m;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) return;
+    closed = true;
+    queue.add(new Op(OpKind.STOP, List.of(), List.of()));
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (FileChannel ch : segments.values()) ch.close();
+    if (active != null) active.close();
+    lock.release();
+    lockFile.close();
+  }
+
+  private CompletableFuture<Void> submit(Op op) {
+    if (closed) throw new IllegalStateException("Store " + dir + " is closed");
+    if (op.kind == OpKind.WRITE) checkSizes(op);
+    queue.add(op);
+    return op.done;
+  }
+
+  /**
+   * Ключ и значение должны уместиться в одну запись сегмента: больше store.segment-bytes при
+   * открытии не отличить от битого хвоста. Проверка здесь, в потоке вызывающего, — чтобы
+   * негодная запись не провалила всю пачку группового коммита.
+   */
+  private void checkSizes(Op op) {
+    for (int i = 0; i < op.keys.size(); i++) {
+      int keyLen = op.keys.get(i).getBytes(StandardCharsets.UTF_8).length;
+      if (keyLen > MAX_KEY) throw new IllegalArgumentException("Key too long: " + op.keys.get(i));
+      byte[] v = op.values.get(i);
+      if (v != null && (long) HEADER + keyLen + v.length > cfg.getSegmentBytes()) {
+        throw new IllegalArgumentException("Value of " + op.keys.get(i) + " is " + v.length
+            + " bytes, a record must fit in store.segment-bytes=" + cfg.getSegmentBytes());
+      }
+    }
+  }
+
+  private static void await(CompletableFuture<Void> f) {
+    try {
+      f.join();
+    } catch (CompletionException e) {
+      Throwable c = e.getCause();
+      if (c instanceof IOException io) throw new UncheckedIOException("Store write failed: " + io.getMessage(), io);
+      if (c instanceof RuntimeException re) throw re;
+      throw e;
+    }
+  }
+
+  // ——————————————————————————— поток записи ———————————————————————————
+
+  private void writeLoop() {
+    List<Op> batch = new ArrayList<>();
+    Op carry = null;
+    long windowNanos = cfg.getGroupCommitWindow().toNanos();
+    while (true) {
+      Op first;
+      try {
+        first = carry != null ? carry : queue.take();
+      } catch (InterruptedException e) {
+        continue;
+      }
+      carry = null;
+      if (first.kind == OpKind.STOP) {
+        failPending();
+        return;
+      }
+      if (first.kind == OpKind.COMPACT) {
+        runCompaction(first);
+        continue;
+      }
+      batch.clear();
+      batch.add(first);
+      int bytes = first.bytes;
+      long deadline = System.nanoTime() + windowNanos;
+      while (bytes < cfg.getMaxBatchBytes()) {
+        Op o = queue.poll();
+        if (o == null && windowNanos > 0) {
+          long left = deadline - System.nanoTime();
+          if (left <= 0) break;
+          try {
+            o = queue.poll(left, TimeUnit.NANOSECONDS);
+          } catch (InterruptedException e) {
+            break;
+          }
+        }
+        if (o == null) break;
+        if (o.kind != OpKind.WRITE) {
+          carry = o;
+          break;
+        }
+        batch.add(o);
+        bytes += o.bytes;
+      }
+      commit(batch);
+      if (carry == null && shouldCompact()) runCompaction(null);
+    }
+  }
+
+  private void commit(List<Op> batch) {
+    List<String> keys = new ArrayList<>();
+    List<byte[]> values = new ArrayList<>();
+    for (Op op : batch) {
+      keys.addAll(op.keys);
+      values.addAll(op.values);
+    }
+    try {
+      Loc[] locs = append(keys, values);
+      active.force(false);
+      for (int i = 0; i < keys.size(); i++) apply(keys.get(i), locs[i], values.get(i), true);
+      writes.addAndGet(keys.size());
+      batches.incrementAndGet();
+      for (Op op : batch) op.done.complete(null);
+    } catch (IOException | RuntimeException e) {
+      log.error("Store {} write failed: {}", dir, e.toString());
+      for (Op op : batch) op.done.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Дописать записи в активный сегмент одним write (без fsync); места значений — по индексам
+   * keys, для удалений — место надгробия с length -1. Не влезает — сначала новый сегмент.
+   */
+  private Loc[] append(List<String> keys, List<byte[]> values) throws IOException {
+    byte[][] kb = new byte[keys.size()][];
+    int total = 0;
+    for (int i = 0; i < kb.length; i++) {
+      kb[i] = keys.get(i).getBytes(StandardCharsets.UTF_8);
+      total += HEADER + kb[i].length + (values.get(i) == null ? 0 : values.get(i).length);
+    }
+    if (activeSize > 0 && activeSize + total > cfg.getSegmentBytes()) roll();
+    ByteBuffer buf = ByteBuffer.allocate(total);
+    Loc[] locs = new Loc[kb.length];
+    CRC32C crc = new CRC32C();
+    for (int i = 0; i < kb.length; i++) {
+      byte[] v = values.get(i);
+      int start = buf.position();
+      buf.position(start + 4);
+      buf.putInt(kb[i].length).putInt(v == null ? -1 : v.length).put(kb[i]);
+      if (v != null) buf.put(v);
+      crc.reset();
+      crc.update(buf.array(), start + 4, buf.position() - start - 4);
+      buf.putInt(start, (int) crc.getValue());
+      int size = buf.position() - start;
+      locs[i] = new Loc(activeId, activeSize + start + HEADER + kb[i].length, v == null ? -1 : v.length, size);
+    }
+    buf.flip();
+    long pos = activeSize;
+    try {
+      while (buf.hasRemaining()) pos += active.write(buf, pos);
+    } catch (IOException e) {
+      // недописанный хвост не оставляем — иначе следующая пачка ляжет после мусора
+      active.truncate(activeSize);
+      throw e;
+    }
+    activeSize = pos;
+    return locs;
+  }
+
+  /** Обновить индекс, учёт живого/мусора и (после записи) кэш. loc.length -1 — удаление. */
+  private void apply(String key, Loc loc, byte[] value, boolean updateCache) {
+    Loc old = loc.length < 0 ? index.remove(key) : index.put(key, loc);
+    long live = liveBytes, garbage = garbageBytes;
+    if (old != null) {
+      live -= old.size;
+      garbage += old.size;
+    }
+    if (loc.length < 0) garbage += loc.size;
+    else live += loc.size;
+    liveBytes = live;
+    garbageBytes = garbage;
+    if (updateCache) {
+      synchronized (cache) {
+        if (loc.length < 0) cache.remove(key);
+        else cache.put(key, value);
+      }
+    }
+  }
+
+  private void roll() throws IOException {
+    if (active != null) {
+      active.force(false);
+      active.close();
+    }
+    openSegment(activeId + 1);
+  }
+
+  private void openSegment(int id) throws IOException {
+    active = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    segments.put(id, FileChannel.open(segmentPath(id), StandardOpenOption.READ));
+    activeId = id;
+    activeSize = active.size();
+  }
+
+  private boolean shouldCompact() {
+    long garbage = garbageBytes;
+    return garbage >= cfg.getCompactMinBytes()
+        && garbage >= cfg.getCompactGarbageRatio() * (garbage + liveBytes);
+  }
+
+  private void runCompaction(Op op) {
+    long t0 = System.nanoTime();
+    long before = garbageBytes + liveBytes;
+    try {
+      compactNow();
+      compactions.incrementAndGet();
+      log.info("Store {} compacted: {} KB -> {} KB in {} ms", dir, before / 1024, liveBytes / 1024,
+          (System.nanoTime() - t0) / 1_000_000);
+      if (op != null) op.done.complete(null);
+    } catch (IOException | RuntimeException e) {
+      log.error("Store {} compaction failed: {}", dir, e.toString());
+      if (op != null) op.done.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Живые значения из всех сегментов, кроме нового активного, переписываются пачками в новые
+   * сегменты; после fsync индекс переключается, старые сегменты закрываются и удаляются.
+   * Надгробия не переносятся: удалённых ключей в старых сегментах после этого не остаётся.
+   * Удаляются строго от старых к новым: при падении посреди удаления надгробие в уцелевшем
+   * более новом сегменте по-прежнему перекрывает значение, и удалённый ключ не воскреснет.
+   */
+  private void compactNow() throws IOException {
+    roll();
+    int firstNew = activeId;
+    List<String> keys = new ArrayList<>();
+    List<byte[]> values = new ArrayList<>();
+    List<Loc> olds = new ArrayList<>();
+    int bytes = 0;
+    for (Map.Entry<String, Loc> e : index.entrySet()) {
+      Loc old = e.getValue();
+      if (old.segment >= firstNew) continue;
+      keys.add(e.getKey());
+      values.add(read(old));
+      olds.add(old);
+      bytes += old.size;
+      if (bytes >= cfg.getMaxBatchBytes()) {
+        moveBatch(keys, values, olds);
+        bytes = 0;
+      }
+    }
+    moveBatch(keys, values, olds);
+    long live = 0;
+    for (Loc l : index.values()) live += l.size;
+    liveBytes = live;
+    garbageBytes = 0;
+    List<Integer> oldIds = new ArrayList<>(segments.keySet());
+    oldIds.sort(null);
+    for (Integer id : oldIds) {
+      if (id >= firstNew) break;
+      FileChannel ch;
+      synchronized (segments) {
+        ch = segments.remove(id);
+      }
+      ch.close();
+      Files.deleteIfExists(segmentPath(id));
+    }
+  }
+
+  private void moveBatch(List<String> keys, List<byte[]> values, List<Loc> olds) throws IOException {
+    if (keys.isEmpty()) return;
+    Loc[] locs = append(keys, values);
+    active.force(false);
+    // писатель один, так что ключи за это время не менялись; replace — на всякий случай
+    for (int i = 0; i < locs.length; i++) index.replace(keys.get(i), olds.get(i), locs[i]);
+    keys.clear();
+    values.clear();
+    olds.clear();
+  }
+
+  private void failPending() {
+    Op o;
+    while ((o = queue.poll()) != null) o.done.completeExceptionally(new IllegalStateException("Store " + dir + " is closed"));
+  }
+
+  // ——————————————————————————— сегменты ———————————————————————————
+
+  private byte[] read(Loc loc) throws IOException {
+    for (int attempt = 0; ; attempt++) {
+      FileChannel ch = segments.get(loc.segment);
+      if (ch == null) throw new ClosedChannelException();
+      try {
+        ByteBuffer buf = ByteBuffer.allocate(loc.length);
+        long pos = loc.offset;
+        while (buf.hasRemaining()) {
+          int n = ch.read(buf, pos);
+          if (n < 0) throw new EOFException("Segment " + loc.segment + " ends before " + pos);
+          pos += n;
+        }
+        return buf.array();
+      } catch (ClosedChannelException e) {
+        // прерванный поток закрывает канал для всех (ClosedByInterruptException) — переоткрываем
+        if (attempt >= 2 || !reopen(loc.segment, ch)) throw e;
+      }
+    }
+  }
+
+  /** Переоткрыть закрытый канал чтения; false — сегмент убран уплотнением. */
+  private boolean reopen(int id, FileChannel closed) throws IOException {
+    synchronized (segments) {
+      FileChannel cur = segments.get(id);
+      if (cur == null) return false;
+      if (cur != closed && cur.isOpen()) return true;
+      segments.put(id, FileChannel.open(segmentPath(id), StandardOpenOption.READ));
+      return true;
+    }
+  }
+
+  private Path segmentPath(int id) {
+    return dir.resolve(String.format("%08d.log", id));
+  }
+
+  /** Прочитать сегменты по порядку и собрать индекс; последний становится активным. */
+  private void recover() throws IOException {
+    List<Integer> ids = new ArrayList<>();
+    try (Stream<Path> files = Files.list(dir)) {
+      files.map(p -> p.getFileName().toString())
+          .filter(n -> n.matches("\\d{8}\\.log"))
+          .forEach(n -> ids.add(Integer.parseInt(n.substring(0, 8))));
+    }
+    ids.sort(null);
+    for (int i = 0; i < ids.size(); i++) {
+      int id = ids.get(i);
+      long good;
+      long size;
+      try (FileChannel ch = FileChannel.open(segmentPath(id), StandardOpenOption.READ)) {
+        good = scan(id, ch);
+        size = ch.size();
+      }
+      if (good < size) {
+        if (i == ids.size() - 1) {
+          log.warn("Store {}: segment {} has a torn tail at {} of {} bytes, truncating", dir, id, good, size);
+          try (FileChannel ch = FileChannel.open(segmentPath(id), StandardOpenOption.WRITE)) {
+            ch.truncate(good);
+            ch.force(true);
+          }
+        } else {
+          log.warn("Store {}: segment {} is damaged at {} of {} bytes, the rest is ignored", dir, id, good, size);
+        }
+      }
+      if (i < ids.size() - 1) segments.put(id, FileChannel.open(segmentPath(id), StandardOpenOption.READ));
+    }
+    openSegment(ids.isEmpty() ? 1 : ids.get(ids.size() - 1));
+  }
+
+  /** Применить записи сегмента к индексу; вернуть смещение конца последней целой записи. */
+  private long scan(int id, FileChannel ch) throws IOException {
+    InputStream raw = Channels.newInputStream(ch.position(0));
+    DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16));
+    CRC32C crc = new CRC32C();
+    long end = ch.size();
+    long pos = 0;
+    byte[] head = new byte[HEADER - 4];
+    while (true) {
+      int stored;
+      try {
+        stored = in.readInt();
+        in.readFully(head);
+      } catch (EOFException e) {
+        return pos;
+      }
+      ByteBuffer h = ByteBuffer.wrap(head);
+      int keyLen = h.getInt();
+      int valLen = h.getInt();
+      // длины за концом файла — оборванная или битая запись (store.segment-bytes мог с тех пор уменьшиться)
+      if (keyLen <= 0 || keyLen > MAX_KEY || valLen < -1 || pos + HEADER + keyLen + Math.max(0, valLen) > end) return pos;
+      byte[] key = new byte[keyLen];
+      byte[] val = valLen < 0 ? null : new byte[valLen];
+      try {
+        in.readFully(key);
+        if (val != null) in.readFully(val);
+      } catch (EOFException e) {
+        return pos;
+      }
+      crc.reset();
+      crc.update(head);
+      crc.update(key);
+      if (val != null) crc.update(val);
+      if ((int) crc.getValue() != stored) return pos;
+      int size = HEADER + keyLen + Math.max(0, valLen);
+      apply(new String(key, StandardCharsets.UTF_8), new Loc(id, pos + HEADER + keyLen, valLen, size), null, false);
+      pos += size;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.mvp.common.store;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Типизированное пространство ключей {@link KvStore}: объекты T по строковому id, значения — JSON
+ * (BigDecimal пишется как есть, без нормализации). Ключ в хранилище — "name/id".
+ *
+ * put/delete возвращаются после fsync; putAll — одной пачкой группового коммита.
+ */
+public final class Repository<T> {
+
+  private final KvStore store;
+  private final String prefix;
+  private final Class<T> type;
+  private final ObjectMapper mapper;
+
+  Repository(KvStore store, String name, Class<T> type, ObjectMapper mapper) {
+    if (name.isEmpty() || name.indexOf('/') >= 0) throw new IllegalArgumentException("Bad repository name: " + name);
+    this.store = store;
+    this.prefix = name + "/";
+    this.type = type;
+    this.mapper = mapper;
+  }
+
+  public Optional<T> get(String id) {
+    byte[] v = store.get(prefix + id);
+    return v == null ? Optional.empty() : Optional.of(decode(id, v));
+  }
+
+  public boolean contains(String id) {
+    return store.contains(prefix + id);
+  }
+
+  public void put(String id, T value) {
+    store.put(prefix + id, encode(value));
+  }
+
+  /** Не ждать fsync: future завершится, когда запись станет долговечной. */
+  public CompletableFuture<Void> putAsync(String id, T value) {
+    return store.putAsync(prefix + id, encode(value));
+  }
+
+  /** Несколько объектов одним fsync; null в значении — удаление. */
+  public void putAll(Map<String, T> values) {
+    Map<String, byte[]> batch = new LinkedHashMap<>();
+    for (Map.Entry<String, T> e : values.entrySet()) {
+      batch.put(prefix + e.getKey(), e.getValue() == null ? null : encode(e.getValue()));
+    }
+    store.write(batch);
+  }
+
+  public void delete(String id) {
+    store.delete(prefix + id);
+  }
+
+  /** Все id по возрастанию. */
+  public List<String> ids() {
+    List<String> keys = store.keys(prefix);
+    List<String> out = new ArrayList<>(keys.size());
+    for (String k : keys) out.add(k.substring(prefix.length()));
+    return out;
+  }
+
+  /** Все объекты в порядке id (ключ мог быть удалён между выборкой id и чтением — тогда пропущен). */
+  public List<T> findAll() {
+    List<T> out = new ArrayList<>();
+    for (String k : store.keys(prefix)) {
+      byte[] v = store.get(k);
+      if (v != null) out.add(decode(k.substring(prefix.length()), v));
+    }
+    return out;
+  }
+
+  public int count() {
+    return store.count(prefix);
+  }
+
+  private byte[] encode(T value) {
+    try {
+      return mapper.writeValueAsBytes(value);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot encode " + type.getSimpleName() + ": " + e.getMessage(), e);
+    }
+  }
+
+  private T decode(String id, byte[] v) {
+    try {
+      return mapper.readValue(v, type);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot decode " + type.getSimpleName() + " " + prefix + id + ": " + e.getMessage(), e);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.mvp.common.store;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Встроенное хранилище приложения: свойства store.* и один {@link KvStore} на процесс.
+ * Подключается через @Import(StoreAutoConfiguration.class); типизированный доступ —
+ * {@link KvStore#repository(String, Class)}.
+ */
+@Configuration
+public class StoreAutoConfiguration {
+
+  @Bean
+  @ConfigurationProperties(prefix = "store")
+  public StoreProperties storeProperties() {
+    return new StoreProperties();
+  }
+
+  @Bean(destroyMethod = "close")
+  public KvStore kvStore(StoreProperties storeProperties) throws IOException {
+    return KvStore.open(Path.of(storeProperties.getDir()), storeProperties);
+  }
+}
@@ -0,0 +1,54 @@
+package com.mvp.common.store;
+
+import java.time.Duration;
+
+/**
+ * Настройки встроенного хранилища, префикс "store" в application.yml.
+ */
+public class StoreProperties {
+
+  /** Каталог сегментов; у каждого приложения свой (каталог берётся под файловую блокировку). */
+  private String dir = "data/store";
+
+  /** Сегмент журнала закрывается и начинается новый, когда вырос до этого размера. */
+  private long segmentBytes = 64L * 1024 * 1024;
+
+  /**
+   * Сколько писатель ждёт попутчиков к первой записи пачки. 0 — не ждать: пачку и так
+   * составляют записи, пришедшие, пока шёл предыдущий fsync.
+   */
+  private Duration groupCommitWindow = Duration.ZERO;
+
+  /** Потолок пачки в байтах: больше — уходит следующей пачкой. */
+  private int maxBatchBytes = 4 * 1024 * 1024;
+
+  /** Сколько последних прочитанных значений держать в памяти. */
+  private int cacheEntries = 1024;
+
+  /** Журнал переписывается только из живых записей, когда мусора больше этой доли... */
+  private double compactGarbageRatio = 0.5;
+
+  /** ...и больше этого объёма. */
+  private long compactMinBytes = 16L * 1024 * 1024;
+
+  public String getDir() { return dir; }
+  public void setDir(String dir) { this.dir = dir; }
+
+  public long getSegmentBytes() { return segmentBytes; }
+  public void setSegmentBytes(long segmentBytes) { this.segmentBytes = segmentBytes; }
+
+  public Duration getGroupCommitWindow() { return groupCommitWindow; }
+  public void setGroupCommitWindow(Duration groupCommitWindow) { this.groupCommitWindow = groupCommitWindow; }
+
+  public int getMaxBatchBytes() { return maxBatchBytes; }
+  public void setMaxBatchBytes(int maxBatchBytes) { this.maxBatchBytes = maxBatchBytes; }
+
+  public int getCacheEntries() { return cacheEntries; }
+  public void setCacheEntries(int cacheEntries) { this.cacheEntries = cacheEntries; }
+
+  public double getCompactGarbageRatio() { return compactGarbageRatio; }
+  public void setCompactGarbageRatio(double compactGarbageRatio) { this.compactGarbageRatio = compactGarbageRatio; }
+
+  public long getCompactMinBytes() { return compactMinBytes; }
+  public void setCompactMinBytes(long compactMinBytes) { this.compactMinBytes = compactMinBytes; }
+}
@@ -0,0 +1,69 @@
+package com.mvp.core;
+
+import com.mvp.common.store.StoreAutoConfiguration;
+import com.mvp.core.analytics.AnalyticsProperties;
+import com.mvp.core.analytics.CategoriesProperties;
+import com.mvp.core.balances.BalancesProperties;
+import com.mvp.core.loan.LoanProperties;
+import com.mvp.core.networth.FxProperties;
+import com.mvp.core.products.ProductsProperties;
+import com.mvp.core.risk.RiskProperties;
+import com.mvp.kyc.KycAutoConfiguration;
+import com.mvp.ob.ObClientAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Автоконфигурация доменных сценариев: свойства loan.*, products.*, balances.*, fx.*, categories.*, analytics.*, risk.* и скан пакета com.mvp.core.
+ * Тянет за собой клиентов банков, KYC и встроенное хранилище (store.*) — приложению достаточно @Import(CoreAutoConfiguration.class).
+ */
+@Configuration
+@ComponentScan("com.mvp.core")
+@Import({ObClientAutoConfiguration.class, KycAutoConfiguration.class, StoreAutoConfiguration.class})
+public class CoreAutoConfiguration {
+
+  @Bean
+  @ConfigurationProperties(prefix = "loan")
+  public LoanProperties loanProperties() {
+    return new LoanProperties();
+  }
+
+  @Bean
+  @ConfigurationProperties(prefix = "products")
+  public ProductsProperties productsProperties() {
+    return new ProductsProperties();
+  }
+
+  @Bean
+  @ConfigurationProperties(prefix = "balances")
+  public BalancesProperties balancesProperties() {
+    return new BalancesProperties();
+  }
+
+  @Bean
+  @ConfigurationProperties(prefix = "fx")
+  public FxProperties fxProperties() {
+    return new FxProperties();
+  }
+
+  @Bean
+  @ConfigurationProperties(prefix = "categories")
+  public CategoriesProperties categoriesProperties() {
+    return new CategoriesProperties();
+  }
+
+  @Bean
+  @ConfigurationProperties(prefix = "analytics")
+  public AnalyticsProperties analyticsProperties() {
+    return new AnalyticsProperties();
+  }
+
+  @Bean
+  @ConfigurationProperties(prefix = "risk")
+  public RiskProperties riskProperties() {
+    return new RiskProperties();
+  }
+}
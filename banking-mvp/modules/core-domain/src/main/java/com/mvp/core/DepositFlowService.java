@@ -0,0 +1,91 @@
+package com.mvp.core;
+
+import com.mvp.core.products.CatalogProduct;
+import com.mvp.core.products.OfferEngine;
+import com.mvp.core.products.ProductCatalog;
+import com.mvp.ob.BankTokenProvider;
+import com.mvp.ob.ObAgreementsClient;
+import com.mvp.ob.ObClientProperties;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Вклады: каталог, подбор лучшей ставки по всем банкам и открытие договора.
+ * Каталог и предложения — из памяти ({@link ProductCatalog}, {@link OfferEngine}); в банк идёт только открытие.
+ */
+@Service
+public class DepositFlowService {
+
+  public static final String DEPOSIT = "deposit";
+
+  private final ProductCatalog catalog;
+  private final OfferEngine offers;
+  private final BankTokenProvider tokens;
+  private final ObAgreementsClient agreements;
+  private final ObClientProperties ob;
+
+  public DepositFlowService(ProductCatalog catalog,
+                            OfferEngine offers,
+                            BankTokenProvider tokens,
+                            ObAgreementsClient agreements,
+                            ObClientProperties ob) {
+    this.catalog = catalog;
+    this.offers = offers;
+    this.tokens = tokens;
+    this.agreements = agreements;
+    this.ob = ob;
+  }
+
+  /** Вклады банка (код v/a/s). */
+  public List<CatalogProduct> products(String bank) {
+    return catalog.products(bank).stream().filter(p -> DEPOSIT.equals(p.type())).toList();
+  }
+
+  /** Лучшие вклады всех банков на сумму и срок, от высокой ставки к низкой. */
+  public List<CatalogProduct> offers(BigDecimal amount, int termMonths, int limit) {
+    return offers.top(DEPOSIT, CatalogProduct.toMinor(amount), termMonths, limit);
+  }
+
+  public Optional<CatalogProduct> bestOffer(BigDecimal amount, int termMonths) {
+    return offers.best(DEPOSIT, CatalogProduct.toMinor(amount), termMonths);
+  }
+
+  /**
+   * Открыть вклад по продукту из каталога. Сумма и срок сверяются с условиями продукта
+   * до похода в банк — неподходящие параметры дают IllegalArgumentException с понятным текстом.
+   * @return agreementId
+   */
+  public String open(String bank,
+                     String customerLogin,
+                     String consentId,
+                     String productId,
+                     BigDecimal amount,
+                     int termMonths,
+                     String sourceAccountId) {
+    if (!StringUtils.hasText(customerLogin)) throw new IllegalArgumentException("Не указан логин клиента");
+    if (amount == null || amount.signum() <= 0) throw new IllegalArgumentException("Сумма должна быть больше нуля");
+
+    CatalogProduct p = products(bank).stream()
+        .filter(x -> x.productId() != null && x.productId().equals(productId))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Вклад " + productId + " не найден в каталоге банка"));
+    long minor = CatalogProduct.toMinor(amount);
+    if (!p.fitsAmount(minor)) {
+      throw new IllegalArgumentException("Сумма вне условий вклада «" + p.name() + "»: "
+          + (p.minAmount() != null ? "от " + p.minAmount().toPlainString() + " " : "")
+          + (p.maxAmount() != null ? "до " + p.maxAmount().toPlainString() : ""));
+    }
+    if (!p.fitsTerm(termMonths)) {
+      throw new IllegalArgumentException("Вклад «" + p.name() + "» открывается на " + p.termMonths() + " мес.");
+    }
+
+    String baseUrl = ob.baseUrlFor(bank);
+    return agreements.openDepositAgreement(baseUrl, tokens.get(baseUrl), customerLogin.trim(),
+        StringUtils.hasText(consentId) ? consentId : null, ob.getClientId(),
+        p.productId(), amount, termMonths, StringUtils.hasText(sourceAccountId) ? sourceAccountId : null);
+  }
+}
@@ -1,67 +1,76 @@
 package com.mvp.core;
 
-import com.mvp.kyc.KycService;
-import com.mvp.kyc.KycService.KycResult;
-import com.mvp.ob.ConsentCreateResult;
-import com.mvp.ob.ObAccountsClient;
-import com.mvp.ob.ObAgreementsClient;
-import com.mvp.ob.ObClientProperties;
-import com.mvp.ob.BankTokenProvider;
+import com.mvp.core.loan.LoanApplication;
+import com.mvp.core.loan.LoanRequest;
+import com.mvp.core.loan.LoanWorkflow;
+import com.mvp.kyc.KycDocument;
+import com.mvp.kyc.KycDocuments;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Заявки на кредит для веб-слоя: подать и узнать статус.
+ * Вся оркестрация (KYC → согласие → одобрение → договор) — асинхронно в {@link LoanWorkflow}.
+ */
 @Service
 public class LoanFlowService {
 
-  private final BankTokenProvider tokenProvider;
-  private final ObAccountsClient accountsClient;
-  private final ObAgreementsClient agreementsClient;
-  private final ObClientProperties props;
-  private final KycService kyc;
-
-  public record LoanDecision(String status, String message, String agreementId) {}
+  private final LoanWorkflow workflow;
+  private final KycDocuments documents;
 
-  public LoanFlowService(BankTokenProvider tokenProvider,
-                         ObAccountsClient accountsClient,
-                         ObAgreementsClient agreementsClient,
-                         ObClientProperties props,
-                         KycService kyc) {
-    this.tokenProvider = tokenProvider;
-    this.accountsClient = accountsClient;
-    this.agreementsClient = agreementsClient;
-    this.props = props;
-    this.kyc = kyc; // ← внедряется @Service KycRules
+  public LoanFlowService(LoanWorkflow workflow, KycDocuments documents) {
+    this.workflow = workflow;
+    this.documents = documents;
   }
 
-  /** Пример оркестрации заявки на кредит. */
-  public LoanDecision startApplication(String baseUrl,
-                                       String customerLogin,
-                                       String fullName,
-                                       String passportNumber,
-                                       byte[] idFront,
-                                       byte[] idBack,
-                                       byte[] selfie) {
-
-    // 1) AI-KYC перед созданием согласия
-    KycResult k = kyc.checkApplicant(fullName, passportNumber, idFront, idBack, selfie);
-    if (!k.ok()) {
-      return new LoanDecision("REJECTED", "AI-KYC failed: " + String.join("; ", k.issues()), null);
-    }
+  /**
+   * Подать заявку; номер возвращается сразу, статус — {@link #status}.
+   * Документы, принятые через KycDocuments, закроет движок после KYC.
+   */
+  public String startApplication(String baseUrl,
+                                 String customerLogin,
+                                 String productId,
+                                 BigDecimal amount,
+                                 int termMonths,
+                                 String fullName,
+                                 String passportNumber,
+                                 KycDocument idFront,
+                                 KycDocument idBack,
+                                 KycDocument selfie) {
+    return workflow.submit(new LoanRequest(baseUrl, customerLogin, productId, amount, termMonths),
+        fullName, passportNumber, idFront, idBack, selfie);
+  }
 
-    // 2) Получаем токен банка
-    String bankToken = tokenProvider.get(baseUrl);
-    String teamId = props.getClientId();
+  /** То же для документов, уже лежащих в памяти. */
+  public String startApplication(String baseUrl,
+                                 String customerLogin,
+                                 String productId,
+                                 BigDecimal amount,
+                                 int termMonths,
+                                 String fullName,
+                                 String passportNumber,
+                                 byte[] idFront,
+                                 byte[] idBack,
+                                 byte[] selfie) {
+    return startApplication(baseUrl, customerLogin, productId, amount, termMonths, fullName, passportNumber,
+        documents.of(idFront), documents.of(idBack), documents.of(selfie));
+  }
 
-    // 3) Создаём согласие на доступ к счетам
-    ConsentCreateResult consent = accountsClient.createConsent(baseUrl, bankToken, customerLogin, teamId);
-    if (!"approved".equalsIgnoreCase(consent.getStatus())) {
-      return new LoanDecision("PENDING", "Consent status: " + consent.getStatus(), null);
-    }
+  public Optional<LoanApplication> status(String applicationId) {
+    return workflow.get(applicationId);
+  }
 
-    // 4) Открываем кредитное соглашение/карту (эндпоинт в ObAgreementsClient)
-    String agreementId = agreementsClient.openLoanAgreement(
-        baseUrl, bankToken, customerLogin, consent.getConsentId(), teamId
-    );
+  /** Заявки для ручной проверки (отказ KYC, сбой, долгое ожидание одобрения), старые первыми. */
+  public List<LoanApplication> reviewCandidates(Duration stuckAfter) {
+    return workflow.needingReview(stuckAfter.toMillis());
+  }
 
-    return new LoanDecision("APPROVED", "Loan agreement opened", agreementId);
+  /** Банк сообщил, что согласие одобрено: заявка продолжится сразу. */
+  public boolean consentApproved(String consentId) {
+    return workflow.consentApproved(consentId);
   }
 }
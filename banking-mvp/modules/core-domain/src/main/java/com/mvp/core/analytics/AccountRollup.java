@@ -0,0 +1,58 @@
+package com.mvp.core.analytics;
+
+/**
+ * Свёртки операций одного счёта в одной валюте: по дням, по месяцам, категория×месяц и
+ * контрагент×месяц. Новая операция — четыре прибавления в ячейки; уже учтённые (по id) пропускаются.
+ *
+ * Месяц — индекс year*12 + (month-1); в составных ключах id категории/контрагента — старшие 32 бита.
+ * {@link #prune} выбрасывает ячейки и id операций старше окна хранения.
+ */
+final class AccountRollup {
+
+  final String bank;
+  final String accountId;
+  final String currency;
+
+  private final LongSet seen = new LongSet();
+  final RollupCells days = new RollupCells(64);
+  final RollupCells months = new RollupCells(16);
+  final RollupCells categoryMonths = new RollupCells(64);
+  final RollupCells counterpartyMonths = new RollupCells(128);
+  /** День последней чистки; чистим не чаще раза в день. */
+  int prunedDay = Integer.MIN_VALUE;
+
+  AccountRollup(String bank, String accountId, String currency) {
+    this.bank = bank;
+    this.accountId = accountId;
+    this.currency = currency;
+  }
+
+  /** @return false — операция txId уже учтена */
+  boolean add(long txId, int epochDay, int month, long inMinor, long outMinor, int category, int counterparty) {
+    if (!seen.add(txId, epochDay)) return false;
+    days.add(epochDay, inMinor, outMinor, 1);
+    months.add(month, inMinor, outMinor, 1);
+    categoryMonths.add(pair(category, month), inMinor, outMinor, 1);
+    counterpartyMonths.add(pair(counterparty, month), inMinor, outMinor, 1);
+    return true;
+  }
+
+  int transactions() { return seen.size(); }
+
+  /** Выбросить дни раньше firstDay, месяцы раньше firstMonth и id операций, что были до firstMonthDay. */
+  void prune(int firstDay, int firstMonth, int firstMonthDay) {
+    days.retain(d -> d >= firstDay);
+    months.retain(m -> m >= firstMonth);
+    categoryMonths.retain(k -> monthOf(k) >= firstMonth);
+    counterpartyMonths.retain(k -> monthOf(k) >= firstMonth);
+    seen.retainFrom(firstMonthDay);
+  }
+
+  static long pair(int id, int month) {
+    return ((long) id << 32) | (month & 0xFFFFFFFFL);
+  }
+
+  static int idOf(long pair) { return (int) (pair >>> 32); }
+
+  static int monthOf(long pair) { return (int) pair; }
+}
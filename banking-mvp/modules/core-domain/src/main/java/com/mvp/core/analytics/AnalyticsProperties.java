@@ -0,0 +1,27 @@
+package com.mvp.core.analytics;
+
+import java.time.Duration;
+
+/**
+ * Настройки аналитики трат, префикс "analytics" в application.yml.
+ */
+public class AnalyticsProperties {
+
+  /** Сколько месяцев истории держать в свёртках (включая текущий); операции старше не учитываются. */
+  private int retentionMonths = 36;
+
+  /** Свёртки клиента, к которому столько не обращались (выписка, отчёт), выбрасываются. */
+  private Duration idleTtl = Duration.ofHours(24);
+
+  /** Очередь выписок на разбор; переполнена — выписка пропускается (её операции учтутся со следующей). */
+  private int queueSize = 256;
+
+  public int getRetentionMonths() { return retentionMonths; }
+  public void setRetentionMonths(int retentionMonths) { this.retentionMonths = retentionMonths; }
+
+  public Duration getIdleTtl() { return idleTtl; }
+  public void setIdleTtl(Duration idleTtl) { this.idleTtl = idleTtl; }
+
+  public int getQueueSize() { return queueSize; }
+  public void setQueueSize(int queueSize) { this.queueSize = queueSize; }
+}
@@ -0,0 +1,21 @@
+package com.mvp.core.analytics;
+
+import java.time.Duration;
+
+/**
+ * Настройки категоризатора операций, префикс "categories" в application.yml.
+ */
+public class CategoriesProperties {
+
+  /** Файл правил; пусто — встроенные categories/default.rules. */
+  private String rulesFile = "";
+
+  /** Как часто проверять, не изменился ли файл правил. */
+  private Duration reloadInterval = Duration.ofSeconds(10);
+
+  public String getRulesFile() { return rulesFile; }
+  public void setRulesFile(String rulesFile) { this.rulesFile = rulesFile; }
+
+  public Duration getReloadInterval() { return reloadInterval; }
+  public void setReloadInterval(Duration reloadInterval) { this.reloadInterval = reloadInterval; }
+}
@@ -0,0 +1,278 @@
+package com.mvp.core.analytics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Скомпилированный набор правил категорий (формат — см. categories/default.rules).
+ *
+ * Ключевые слова собраны в один автомат Ахо–Корасик, развёрнутый в полный ДКА: символ описания →
+ * класс символа (таблица на все char, регистр и ё/е свёрнуты при сборке) → переход по плоскому
+ * int[]. В каждом состоянии — номер самого приоритетного правила, оканчивающегося здесь (с учётом
+ * суффиксных ссылок), так что описание проходится один раз, без аллокаций. MCC — поиск в карте,
+ * регулярные выражения проверяются только те, что приоритетнее уже найденного.
+ *
+ * Ключевое слово — целое слово: если оно начинается (кончается) буквой, перед ним (после него) в
+ * описании не должно быть буквы, если цифрой — цифры. MTS не находится в PAYMENTS, ATM — в
+ * TREATMENT, а PYATEROCHKA1234 и YANDEX*TAXI подходят. Границы проверяются только в состояниях,
+ * где оканчивается приоритетное правило: по списку его выходов (правило, длина, какие края проверять).
+ *
+ * Неизменяемый, потокобезопасный.
+ */
+final class CategoryRules {
+
+  private static final int NONE = Integer.MAX_VALUE;
+
+  /** Категория правила по его номеру (номер = порядок в файле = приоритет). */
+  private final String[] categories;
+
+  private final char[] charClass;
+  private final int classes;
+  private final int[] delta;
+  private final int[] best;
+  /** Выходы состояния s — out*[outStart[s] .. outStart[s+1]), по возрастанию номера правила. */
+  private final int[] outStart;
+  private final int[] outRule;
+  private final int[] outLen;
+  private final byte[] outEdges;
+
+  private final Map<String, Integer> mcc;
+  private final int[] regexRule;
+  private final Pattern[] regex;
+
+  // края ключевого слова, у которых проверяется соседний символ описания
+  private static final byte LETTER_BEFORE = 1, DIGIT_BEFORE = 2, LETTER_AFTER = 4, DIGIT_AFTER = 8;
+
+  private CategoryRules(String[] categories, char[] charClass, int classes, int[] delta, int[] best,
+                        int[] outStart, int[] outRule, int[] outLen, byte[] outEdges,
+                        Map<String, Integer> mcc, int[] regexRule, Pattern[] regex) {
+    this.categories = categories;
+    this.charClass = charClass;
+    this.classes = classes;
+    this.delta = delta;
+    this.best = best;
+    this.outStart = outStart;
+    this.outRule = outRule;
+    this.outLen = outLen;
+    this.outEdges = outEdges;
+    this.mcc = mcc;
+    this.regexRule = regexRule;
+    this.regex = regex;
+  }
+
+  int size() { return categories.length; }
+
+  /** Категория операции по описанию и MCC (оба могут быть null); ни одно правило не подошло — null. */
+  String categorize(String description, String mccCode) {
+    int rule = NONE;
+    if (mccCode != null && !mccCode.isEmpty()) {
+      Integer r = mcc.get(mccCode.trim());
+      if (r != null) rule = r;
+    }
+    if (description != null) {
+      int state = 0;
+      for (int i = 0, n = description.length(); i < n; i++) {
+        state = delta[state * classes + charClass[description.charAt(i)]];
+        if (best[state] >= rule) continue;
+        for (int o = outStart[state], end = outStart[state + 1]; o < end && outRule[o] < rule; o++) {
+          if (wholeWord(description, i - outLen[o] + 1, i, outEdges[o])) {
+            rule = outRule[o];
+            break;
+          }
+        }
+      }
+      for (int i = 0; i < regex.length && regexRule[i] < rule; i++) {
+        if (regex[i].matcher(description).find()) {
+          rule = regexRule[i];
+          break;
+        }
+      }
+    }
+    return rule == NONE ? null : categories[rule];
+  }
+
+  /** Слово description[from..to] не склеено с соседями по краям, отмеченным в edges. */
+  private static boolean wholeWord(String description, int from, int to, byte edges) {
+    if (edges == 0) return true;
+    if (from > 0) {
+      char c = description.charAt(from - 1);
+      if ((edges & LETTER_BEFORE) != 0 && Character.isLetter(c)) return false;
+      if ((edges & DIGIT_BEFORE) != 0 && Character.isDigit(c)) return false;
+    }
+    if (to + 1 < description.length()) {
+      char c = description.charAt(to + 1);
+      if ((edges & LETTER_AFTER) != 0 && Character.isLetter(c)) return false;
+      if ((edges & DIGIT_AFTER) != 0 && Character.isDigit(c)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Разобрать и собрать правила. Пустые строки и # — комментарии.
+   * @throws IllegalArgumentException с номером строки, если правило не разобралось
+   */
+  static CategoryRules compile(List<String> lines) {
+    List<String> categories = new ArrayList<>();
+    List<String> keywords = new ArrayList<>();
+    List<Integer> keywordRule = new ArrayList<>();
+    Map<String, Integer> mcc = new HashMap<>();
+    List<Integer> regexRule = new ArrayList<>();
+    List<Pattern> regex = new ArrayList<>();
+
+    for (int ln = 0; ln < lines.size(); ln++) {
+      String line = lines.get(ln).strip();
+      if (line.isEmpty() || line.startsWith("#")) continue;
+      String[] p = line.split("\\s+", 3);
+      if (p.length < 3) throw new IllegalArgumentException("line " + (ln + 1) + ": expected '<category> <kw|re|mcc> <pattern>'");
+      int rule = categories.size();
+      switch (p[1].toLowerCase(Locale.ROOT)) {
+        case "kw" -> {
+          keywords.add(fold(p[2]));
+          keywordRule.add(rule);
+        }
+        case "re" -> {
+          try {
+            regex.add(Pattern.compile(p[2], Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+          } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("line " + (ln + 1) + ": " + e.getDescription());
+          }
+          regexRule.add(rule);
+        }
+        case "mcc" -> mcc.putIfAbsent(p[2], rule);
+        default -> throw new IllegalArgumentException("line " + (ln + 1) + ": unknown rule kind '" + p[1] + "'");
+      }
+      categories.add(p[0]);
+    }
+
+    // классы символов: 0 — символ не встречается ни в одном ключевом слове
+    char[] cls = new char[Character.MAX_VALUE + 1];
+    int classes = 1;
+    int totalChars = 0;
+    for (String kw : keywords) {
+      totalChars += kw.length();
+      for (int i = 0; i < kw.length(); i++) {
+        char c = kw.charAt(i);
+        if (cls[c] != 0) continue;
+        if (classes == Character.MAX_VALUE) throw new IllegalArgumentException("too many distinct characters");
+        char id = (char) classes++;
+        cls[c] = id;
+        cls[Character.toLowerCase(c)] = id;
+        if (c == 'Е') cls['Ё'] = cls['ё'] = id;
+      }
+    }
+
+    // бор: переходы -1 — нет
+    int maxStates = totalChars + 1;
+    int[] delta = new int[maxStates * classes];
+    Arrays.fill(delta, -1);
+    int[] best = new int[maxStates];
+    Arrays.fill(best, NONE);
+    // собственные выходы состояния: номера ключевых слов, оканчивающихся в нём
+    List<List<Integer>> own = new ArrayList<>();
+    own.add(new ArrayList<>());
+    int states = 1;
+    for (int k = 0; k < keywords.size(); k++) {
+      String kw = keywords.get(k);
+      if (kw.isEmpty()) continue;
+      int s = 0;
+      for (int i = 0; i < kw.length(); i++) {
+        int t = s * classes + cls[kw.charAt(i)];
+        if (delta[t] < 0) {
+          delta[t] = states++;
+          own.add(new ArrayList<>());
+        }
+        s = delta[t];
+      }
+      best[s] = Math.min(best[s], keywordRule.get(k));
+      own.get(s).add(k);
+    }
+
+    // суффиксные ссылки обходом в ширину и достройка до полного ДКА
+    int[] fail = new int[states];
+    List<Integer> order = new ArrayList<>(states); // порядок обхода: суффиксная ссылка — раньше состояния
+    ArrayDeque<Integer> queue = new ArrayDeque<>();
+    for (int c = 0; c < classes; c++) {
+      int t = delta[c];
+      if (t < 0) {
+        delta[c] = 0;
+      } else {
+        fail[t] = 0;
+        queue.add(t);
+      }
+    }
+    while (!queue.isEmpty()) {
+      int s = queue.poll();
+      order.add(s);
+      best[s] = Math.min(best[s], best[fail[s]]);
+      for (int c = 0; c < classes; c++) {
+        int i = s * classes + c;
+        int t = delta[i];
+        if (t < 0) {
+          delta[i] = delta[fail[s] * classes + c];
+        } else {
+          fail[t] = delta[fail[s] * classes + c];
+          queue.add(t);
+        }
+      }
+    }
+
+    // выходы состояния = свои + выходы суффиксной ссылки, по приоритету правила
+    List<List<Integer>> outs = new ArrayList<>(states);
+    for (int s = 0; s < states; s++) outs.add(own.get(s));
+    for (int s : order) {
+      if (outs.get(fail[s]).isEmpty()) continue;
+      List<Integer> all = new ArrayList<>(own.get(s));
+      all.addAll(outs.get(fail[s]));
+      outs.set(s, all);
+    }
+    int total = 0;
+    for (List<Integer> o : outs) total += o.size();
+    int[] outStart = new int[states + 1];
+    int[] outRule = new int[total];
+    int[] outLen = new int[total];
+    byte[] outEdges = new byte[total];
+    int o = 0;
+    for (int s = 0; s < states; s++) {
+      outStart[s] = o;
+      List<Integer> ks = new ArrayList<>(outs.get(s));
+      ks.sort((x, y) -> Integer.compare(keywordRule.get(x), keywordRule.get(y)));
+      for (int k : ks) {
+        String kw = keywords.get(k);
+        outRule[o] = keywordRule.get(k);
+        outLen[o] = kw.length();
+        outEdges[o] = edges(kw);
+        o++;
+      }
+    }
+    outStart[states] = o;
+
+    return new CategoryRules(categories.toArray(new String[0]), cls, classes,
+        Arrays.copyOf(delta, states * classes), Arrays.copyOf(best, states),
+        outStart, outRule, outLen, outEdges,
+        Map.copyOf(mcc), regexRule.stream().mapToInt(Integer::intValue).toArray(), regex.toArray(new Pattern[0]));
+  }
+
+  /** Какие края ключевого слова проверять: начинается/кончается буквой или цифрой. */
+  private static byte edges(String kw) {
+    char first = kw.charAt(0);
+    char last = kw.charAt(kw.length() - 1);
+    int e = 0;
+    if (Character.isLetter(first)) e |= LETTER_BEFORE;
+    else if (Character.isDigit(first)) e |= DIGIT_BEFORE;
+    if (Character.isLetter(last)) e |= LETTER_AFTER;
+    else if (Character.isDigit(last)) e |= DIGIT_AFTER;
+    return (byte) e;
+  }
+
+  /** Ключевое слово к виду автомата: верхний регистр, ё → е. */
+  private static String fold(String s) {
+    return s.toUpperCase(Locale.ROOT).replace('Ё', 'Е');
+  }
+}
@@ -0,0 +1,16 @@
+package com.mvp.core.analytics;
+
+import java.math.BigDecimal;
+
+/**
+ * Строка отчёта о тратах: период ("2026-03", "2026-03-14"), категория или контрагент —
+ * приход, расход (оба положительные, в минорных единицах) и число операций.
+ */
+public record Flow(String label, long inMinor, long outMinor, int count) {
+
+  public BigDecimal in() { return BigDecimal.valueOf(inMinor, 2); }
+
+  public BigDecimal out() { return BigDecimal.valueOf(outMinor, 2); }
+
+  public BigDecimal net() { return BigDecimal.valueOf(inMinor - outMinor, 2); }
+}
@@ -0,0 +1,61 @@
+package com.mvp.core.analytics;
+
+import com.mvp.common.hash.Hashes;
+
+/**
+ * Множество long (0 не хранится) с открытой адресацией — уже учтённые операции счёта.
+ * У каждого значения — день операции: {@link #retainFrom} выбрасывает операции старше окна хранения.
+ * Не потокобезопасно.
+ */
+final class LongSet {
+
+  private long[] keys = new long[64];
+  private int[] days = new int[64];
+  private int size;
+
+  int size() { return size; }
+
+  /** @return true — значения не было, добавлено */
+  boolean add(long v, int day) {
+    if (v == 0) v = 1;
+    if (size * 2 >= keys.length) rebuild(keys.length * 2, Integer.MIN_VALUE);
+    int mask = keys.length - 1;
+    for (int i = Hashes.index(v, mask); ; i = (i + 1) & mask) {
+      if (keys[i] == v) return false;
+      if (keys[i] == 0) {
+        keys[i] = v;
+        days[i] = day;
+        size++;
+        return true;
+      }
+    }
+  }
+
+  /** Оставить только значения с днём не раньше firstDay; таблица ужимается под оставшихся. */
+  void retainFrom(int firstDay) {
+    int left = 0;
+    for (int i = 0; i < keys.length; i++) if (keys[i] != 0 && days[i] >= firstDay) left++;
+    if (left == size) return;
+    int cap = 64;
+    while (left * 2 >= cap) cap <<= 1;
+    rebuild(cap, firstDay);
+  }
+
+  private void rebuild(int cap, int firstDay) {
+    long[] oldKeys = keys;
+    int[] oldDays = days;
+    keys = new long[cap];
+    days = new int[cap];
+    size = 0;
+    int mask = cap - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      long v = oldKeys[j];
+      if (v == 0 || oldDays[j] < firstDay) continue;
+      int i = Hashes.index(v, mask);
+      while (keys[i] != 0) i = (i + 1) & mask;
+      keys[i] = v;
+      days[i] = oldDays[j];
+      size++;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.mvp.core.analytics;
+
+import com.mvp.common.hash.Hashes;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Ячейки свёртки на примитивах: ключ long → приход, расход и число операций.
+ * Хэш с открытой адресацией указывает на слот в параллельных массивах; слоты плотные
+ * (удаление — {@link #retain} с уплотнением), поэтому обход — просто слоты 0..size-1.
+ *
+ * Не потокобезопасна — синхронизирует {@link AccountRollup}.
+ */
+final class RollupCells {
+
+  // хэш: ключ → слот + 1 (0 — пусто)
+  private long[] hkeys;
+  private int[] hslot;
+  private int mask;
+
+  long[] key;
+  long[] in;
+  long[] out;
+  int[] count;
+  private int size;
+
+  RollupCells(int initial) {
+    int slots = Math.max(8, initial);
+    key = new long[slots];
+    in = new long[slots];
+    out = new long[slots];
+    count = new int[slots];
+    rehash(slots);
+  }
+
+  int size() { return size; }
+
+  void add(long k, long inMinor, long outMinor, int n) {
+    int s = slot(k);
+    in[s] += inMinor;
+    out[s] += outMinor;
+    count[s] += n;
+  }
+
+  /** Слот ключа; нет — -1. */
+  int find(long k) {
+    for (int i = index(k); ; i = (i + 1) & mask) {
+      if (hslot[i] == 0) return -1;
+      if (hkeys[i] == k) return hslot[i] - 1;
+    }
+  }
+
+  /** Оставить только ячейки, чей ключ проходит keep; слоты уплотняются, хэш строится заново. */
+  void retain(LongPredicate keep) {
+    int n = 0;
+    for (int s = 0; s < size; s++) {
+      if (!keep.test(key[s])) continue;
+      key[n] = key[s];
+      in[n] = in[s];
+      out[n] = out[s];
+      count[n] = count[s];
+      n++;
+    }
+    if (n == size) return;
+    Arrays.fill(key, n, size, 0);
+    Arrays.fill(in, n, size, 0);
+    Arrays.fill(out, n, size, 0);
+    Arrays.fill(count, n, size, 0);
+    size = n;
+    rehash(key.length);
+  }
+
+  private int slot(long k) {
+    int i = index(k);
+    for (; hslot[i] != 0; i = (i + 1) & mask) {
+      if (hkeys[i] == k) return hslot[i] - 1;
+    }
+    if (size == key.length) {
+      int slots = size * 2;
+      key = Arrays.copyOf(key, slots);
+      in = Arrays.copyOf(in, slots);
+      out = Arrays.copyOf(out, slots);
+      count = Arrays.copyOf(count, slots);
+      rehash(slots);
+      i = index(k);
+      while (hslot[i] != 0) i = (i + 1) & mask;
+    }
+    int s = size++;
+    key[s] = k;
+    hkeys[i] = k;
+    hslot[i] = s + 1;
+    return s;
+  }
+
+  private int index(long k) {
+    return Hashes.index(k, mask);
+  }
+
+  /** Хэш вдвое больше слотов (заполнение ≤ 50%). */
+  private void rehash(int slots) {
+    int cap = Integer.highestOneBit(Math.max(2, slots * 2 - 1)) << 1;
+    hkeys = new long[cap];
+    hslot = new int[cap];
+    mask = cap - 1;
+    for (int s = 0; s < size; s++) {
+      int i = index(key[s]);
+      while (hslot[i] != 0) i = (i + 1) & mask;
+      hkeys[i] = key[s];
+      hslot[i] = s + 1;
+    }
+  }
+}
@@ -0,0 +1,444 @@
+package com.mvp.core.analytics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvp.common.hash.Hashes;
+import com.mvp.core.networth.FxRates;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Аналитика трат по истории операций клиента.
+ *
+ * Ответы банка со списком операций (страница истории счёта) разбираются один раз и раскладываются
+ * в свёртки счёта ({@link AccountRollup}): дни, месяцы, категория×месяц, контрагент×месяц — приход,
+ * расход и число операций в примитивных массивах. Повторно пришедшие операции (по id) пропускаются,
+ * так что новая выписка стоит O(новых операций), а не O(всей истории).
+ *
+ * Отчёты ({@link #report}) считаются только по свёрткам: за 24 месяца по всем счетам — это
+ * проход по нескольким сотням ячеек, без операций и без походов в банк. Суммы складываются по
+ * исходным валютам в long и пересчитываются в валюту отчёта через {@link FxRates} один раз на валюту.
+ *
+ * Выписки со страниц разбираются в фоне ({@link #submit}) одним потоком "analytics-ingest", не
+ * задерживая ответ. Память ограничена: операции старше analytics.retention-months не учитываются,
+ * а старые ячейки и id операций раз в день выбрасываются; по дням — только последние
+ * {@value #DAY_CELLS} дней (потолок отчёта). Свёртки клиента, к которому не обращались
+ * analytics.idle-ttl, выбрасываются целиком вместе с его словарями категорий и контрагентов —
+ * следующая выписка начнёт их заново.
+ */
+@Service
+public class SpendingAnalytics implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(SpendingAnalytics.class);
+
+  /** Валюта операции не указана (ISO 4217 "no currency") — в отчёт попадёт как непересчитанная. */
+  private static final String NO_CURRENCY = "XXX";
+
+  /** Сколько последних дней держать в свёртке по дням (отчёт по дням — не больше года). */
+  static final int DAY_CELLS = 366;
+
+  /** Как часто искать свёртки, к которым давно не обращались. */
+  private static final long SWEEP_MILLIS = 60_000;
+
+  private final FxRates fx;
+  private final TransactionCategorizer categorizer;
+  private final AnalyticsProperties cfg;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  /** login → свёртки его счетов */
+  private final Map<String, Client> byLogin = new ConcurrentHashMap<>();
+  private ThreadPoolExecutor ingester;
+  private volatile long sweptAt = System.currentTimeMillis();
+
+  /**
+   * Свёртки клиента (bank:accountId:currency → свёртка), его словари категорий и контрагентов
+   * и время последнего обращения. Словари живут и выбрасываются вместе со свёртками.
+   */
+  private static final class Client {
+    final Map<String, AccountRollup> rollups = new ConcurrentHashMap<>();
+    final Dictionary categories = new Dictionary();
+    final Dictionary counterparties = new Dictionary();
+    volatile long touchedAt = System.currentTimeMillis();
+  }
+
+  public SpendingAnalytics(FxRates fx, TransactionCategorizer categorizer, AnalyticsProperties cfg) {
+    this.fx = fx;
+    this.categorizer = categorizer;
+    this.cfg = cfg;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    ingester = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, cfg.getQueueSize())),
+        r -> {
+          Thread t = new Thread(r, "analytics-ingest");
+          t.setDaemon(true);
+          return t;
+        },
+        (r, pool) -> log.debug("Analytics queue is full, statement skipped"));
+  }
+
+  @Override
+  public void destroy() {
+    ingester.shutdownNow();
+  }
+
+  /**
+   * Учесть выписку в фоне: вызывающий (страница истории счёта) не ждёт разбора.
+   * Очередь полна — выписка пропускается: новые операции из неё придут со следующей.
+   */
+  public void submit(String login, String bank, String accountId, String transactionsJson) {
+    ingester.execute(() -> {
+      try {
+        ingest(login, bank, accountId, transactionsJson);
+      } catch (RuntimeException e) {
+        log.warn("Analytics ingest failed for {}:{}", bank, accountId, e);
+      }
+    });
+  }
+
+  /**
+   * Учесть операции из ответа банка (data.transaction[]) по счёту клиента.
+   * @return сколько операций новых (остальные уже были учтены или не разобрались)
+   */
+  public int ingest(String login, String bank, String accountId, String transactionsJson) {
+    JsonNode arr;
+    try {
+      JsonNode root = mapper.readTree(transactionsJson);
+      arr = root.isArray() ? root : root.path("data").path("transaction");
+      if (!arr.isArray()) arr = root.path("data").path("transactions");
+    } catch (Exception e) {
+      log.debug("Unparseable transactions for {}:{}: {}", bank, accountId, e.toString());
+      return 0;
+    }
+    if (!arr.isArray() || arr.isEmpty()) return 0;
+
+    long now = System.currentTimeMillis();
+    if (now - sweptAt > SWEEP_MILLIS) sweep(now);
+    Client client = byLogin.computeIfAbsent(key(login), k -> new Client());
+    client.touchedAt = now;
+    Map<String, AccountRollup> rollups = client.rollups;
+    int today = (int) LocalDate.now().toEpochDay();
+    int firstMonth = currentMonth() - Math.max(1, cfg.getRetentionMonths()) + 1;
+    int added = 0;
+    for (JsonNode tx : arr) {
+      String status = tx.path("status").asText("");
+      if (status.equalsIgnoreCase("rejected") || status.equalsIgnoreCase("cancelled")) continue;
+      int day = epochDay(tx);
+      if (day == Integer.MIN_VALUE) continue;
+      JsonNode amt = tx.path("amount");
+      String value = amt.isObject() ? amt.path("amount").asText(null) : amt.asText(null);
+      long minor = minorOf(value);
+      if (minor == Long.MIN_VALUE) continue;
+      String cur = amt.isObject() ? amt.path("currency").asText(null) : tx.path("currency").asText(null);
+      cur = StringUtils.hasText(cur) ? cur.trim().toUpperCase(Locale.ROOT) : NO_CURRENCY;
+
+      String cdi = tx.path("creditDebitIndicator").asText("");
+      boolean credit = cdi.isEmpty() ? minor > 0 : cdi.equalsIgnoreCase("credit");
+      long abs = Math.abs(minor);
+
+      LocalDate date = LocalDate.ofEpochDay(day);
+      int month = date.getYear() * 12 + date.getMonthValue() - 1;
+      if (month < firstMonth) continue; // за окном хранения
+      int category = client.categories.id(categoryOf(tx));
+      int counterparty = client.counterparties.id(counterpartyOf(tx, credit));
+
+      String cur0 = cur;
+      AccountRollup r = rollups.computeIfAbsent(bank + ":" + accountId + ":" + cur,
+          k -> new AccountRollup(bank, accountId, cur0));
+      synchronized (r) {
+        if (r.prunedDay != today) {
+          r.prune(today - DAY_CELLS + 1, firstMonth, firstDayOf(firstMonth));
+          r.prunedDay = today;
+        }
+        if (r.add(idOf(tx), day, month, credit ? abs : 0, credit ? 0 : abs, category, counterparty)) added++;
+      }
+    }
+    return added;
+  }
+
+  /** Выбросить свёртки клиентов, к которым не обращались analytics.idle-ttl. */
+  private void sweep(long now) {
+    sweptAt = now;
+    long idleBefore = now - cfg.getIdleTtl().toMillis();
+    byLogin.values().removeIf(c -> c.touchedAt < idleBefore);
+  }
+
+  private static int currentMonth() {
+    LocalDate today = LocalDate.now();
+    return today.getYear() * 12 + today.getMonthValue() - 1;
+  }
+
+  private static int firstDayOf(int month) {
+    return (int) LocalDate.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1, 1).toEpochDay();
+  }
+
+  /**
+   * Траты клиента по всем счетам за последние months месяцев (включая текущий) в валюте currency
+   * (пусто — fx.base): помесячно, по категориям, топ-top контрагентов; days > 0 — ещё и по дням
+   * за последние days дней.
+   * @throws IllegalArgumentException для валюты отчёта нет курса
+   */
+  public SpendingReport report(String login, int months, String currency, int top, int days) {
+    String target = StringUtils.hasText(currency) ? currency.trim().toUpperCase(Locale.ROOT) : fx.base();
+    if (!fx.supports(target)) throw new IllegalArgumentException("No FX rate for " + target);
+    int n = Math.max(1, months);
+    LocalDate today = LocalDate.now();
+    YearMonth to = YearMonth.from(today);
+    YearMonth from = to.minusMonths(n - 1);
+    int toIdx = to.getYear() * 12 + to.getMonthValue() - 1;
+    int fromIdx = toIdx - n + 1;
+    int nd = Math.max(0, days);
+    int lastDay = (int) today.toEpochDay();
+    int firstDay = lastDay - nd + 1;
+
+    // 1) ячейки свёрток → суммы по исходным валютам
+    Map<String, Acc> perCurrency = new HashMap<>();
+    Client client = byLogin.get(key(login));
+    if (client != null) client.touchedAt = System.currentTimeMillis();
+    for (AccountRollup r : client == null ? List.<AccountRollup>of() : client.rollups.values()) {
+      Acc a = perCurrency.computeIfAbsent(r.currency, c -> new Acc(n, nd));
+      synchronized (r) {
+        RollupCells c = r.months;
+        for (int s = 0; s < c.size(); s++) {
+          int m = (int) c.key[s];
+          if (m < fromIdx || m > toIdx) continue;
+          a.mIn[m - fromIdx] += c.in[s];
+          a.mOut[m - fromIdx] += c.out[s];
+          a.mCount[m - fromIdx] += c.count[s];
+        }
+        c = r.categoryMonths;
+        for (int s = 0; s < c.size(); s++) {
+          int m = AccountRollup.monthOf(c.key[s]);
+          if (m >= fromIdx && m <= toIdx) a.categories.add(AccountRollup.idOf(c.key[s]), c.in[s], c.out[s], c.count[s]);
+        }
+        c = r.counterpartyMonths;
+        for (int s = 0; s < c.size(); s++) {
+          int m = AccountRollup.monthOf(c.key[s]);
+          if (m >= fromIdx && m <= toIdx) a.counterparties.add(AccountRollup.idOf(c.key[s]), c.in[s], c.out[s], c.count[s]);
+        }
+        if (nd > 0) {
+          c = r.days;
+          for (int s = 0; s < c.size(); s++) {
+            int d = (int) c.key[s];
+            if (d < firstDay || d > lastDay) continue;
+            a.dIn[d - firstDay] += c.in[s];
+            a.dOut[d - firstDay] += c.out[s];
+            a.dCount[d - firstDay] += c.count[s];
+          }
+        }
+      }
+    }
+
+    // 2) пересчёт в валюту отчёта — раз на валюту и ячейку
+    Acc total = new Acc(n, nd);
+    List<String> unconverted = new ArrayList<>();
+    for (Map.Entry<String, Acc> e : perCurrency.entrySet()) {
+      String cur = e.getKey();
+      if (!fx.supports(cur)) {
+        unconverted.add(cur);
+        continue;
+      }
+      Acc a = e.getValue();
+      for (int i = 0; i < n; i++) {
+        total.mIn[i] += fx.convert(a.mIn[i], cur, target);
+        total.mOut[i] += fx.convert(a.mOut[i], cur, target);
+        total.mCount[i] += a.mCount[i];
+      }
+      for (int i = 0; i < nd; i++) {
+        total.dIn[i] += fx.convert(a.dIn[i], cur, target);
+        total.dOut[i] += fx.convert(a.dOut[i], cur, target);
+        total.dCount[i] += a.dCount[i];
+      }
+      mergeConverted(a.categories, total.categories, cur, target);
+      mergeConverted(a.counterparties, total.counterparties, cur, target);
+    }
+
+    List<Flow> monthRows = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      monthRows.add(new Flow(from.plusMonths(i).toString(), total.mIn[i], total.mOut[i], total.mCount[i]));
+    }
+    List<Flow> dayRows = new ArrayList<>(nd);
+    for (int i = 0; i < nd; i++) {
+      dayRows.add(new Flow(LocalDate.ofEpochDay(firstDay + i).toString(), total.dIn[i], total.dOut[i], total.dCount[i]));
+    }
+    return new SpendingReport(key(login), target, from, to, monthRows,
+        ranked(total.categories, client == null ? null : client.categories, Integer.MAX_VALUE),
+        ranked(total.counterparties, client == null ? null : client.counterparties, Math.max(0, top)),
+        dayRows, List.copyOf(unconverted));
+  }
+
+  // ---------------- служебное ----------------
+
+  /** Суммы периода по одной валюте (или итог в валюте отчёта). */
+  private static final class Acc {
+    final long[] mIn, mOut, dIn, dOut;
+    final int[] mCount, dCount;
+    final RollupCells categories = new RollupCells(16);
+    final RollupCells counterparties = new RollupCells(64);
+
+    Acc(int months, int days) {
+      mIn = new long[months];
+      mOut = new long[months];
+      mCount = new int[months];
+      dIn = new long[days];
+      dOut = new long[days];
+      dCount = new int[days];
+    }
+  }
+
+  private void mergeConverted(RollupCells src, RollupCells dst, String from, String to) {
+    for (int s = 0; s < src.size(); s++) {
+      dst.add(src.key[s], fx.convert(src.in[s], from, to), fx.convert(src.out[s], from, to), src.count[s]);
+    }
+  }
+
+  /** Ячейки по убыванию расхода (при равенстве — прихода), не больше limit. */
+  private static List<Flow> ranked(RollupCells c, Dictionary names, int limit) {
+    Integer[] order = new Integer[c.size()];
+    for (int i = 0; i < order.length; i++) order[i] = i;
+    Arrays.sort(order, (x, y) -> c.out[x] != c.out[y] ? Long.compare(c.out[y], c.out[x]) : Long.compare(c.in[y], c.in[x]));
+    List<Flow> out = new ArrayList<>(Math.min(limit, order.length));
+    for (int i = 0; i < order.length && out.size() < limit; i++) {
+      int s = order[i];
+      out.add(new Flow(names.name((int) c.key[s]), c.in[s], c.out[s], c.count[s]));
+    }
+    return out;
+  }
+
+  /** Строки ↔ номера (категории, контрагенты); номера в свёртках вместо строк. */
+  private static final class Dictionary {
+    private final Map<String, Integer> ids = new LinkedHashMap<>();
+    private String[] names = new String[64];
+
+    synchronized int id(String name) {
+      Integer id = ids.get(name);
+      if (id != null) return id;
+      int next = ids.size();
+      if (next == names.length) names = Arrays.copyOf(names, next * 2);
+      names[next] = name;
+      ids.put(name, next);
+      return next;
+    }
+
+    synchronized String name(int id) {
+      return names[id];
+    }
+  }
+
+  /** Категория от банка, иначе по правилам {@link TransactionCategorizer}, иначе "other". */
+  private String categoryOf(JsonNode tx) {
+    String c = tx.path("category").asText("");
+    if (!c.isBlank()) return c.trim().toLowerCase(Locale.ROOT);
+    String mcc = tx.path("merchantCategoryCode").asText(tx.path("merchant").path("categoryCode").asText(""));
+    String info = tx.path("transactionInformation").asText(tx.path("description").asText(""));
+    String byRules = categorizer.categorize(info + " " + tx.path("merchantName").asText(""), mcc);
+    return byRules != null ? byRules : "other";
+  }
+
+  /** Контрагент: имя торговца/получателя/плательщика, иначе назначение платежа без цифр и знаков. */
+  private static String counterpartyOf(JsonNode tx, boolean credit) {
+    String[] fields = credit
+        ? new String[]{"debtorName", "merchantName"}
+        : new String[]{"merchantName", "creditorName"};
+    for (String f : fields) {
+      String v = tx.path(f).asText("");
+      if (!v.isBlank()) return normalize(v);
+    }
+    JsonNode party = credit ? tx.path("debtorAccount") : tx.path("creditorAccount");
+    if (!party.path("name").asText("").isBlank()) return normalize(party.path("name").asText());
+    if (!tx.path("merchant").path("name").asText("").isBlank()) return normalize(tx.path("merchant").path("name").asText());
+    String info = tx.path("transactionInformation").asText(tx.path("description").asText(""));
+    String n = normalize(info);
+    return n.isEmpty() ? "—" : n;
+  }
+
+  private static String normalize(String s) {
+    StringBuilder b = new StringBuilder(Math.min(s.length(), 64));
+    boolean space = false;
+    for (int i = 0; i < s.length() && b.length() < 64; i++) {
+      char ch = s.charAt(i);
+      if (Character.isLetter(ch)) {
+        if (space && b.length() > 0) b.append(' ');
+        b.append(Character.toUpperCase(ch));
+        space = false;
+      } else {
+        space = true;
+      }
+    }
+    return b.toString();
+  }
+
+  /** Поля операции, которые банк не меняет между выписками (в отличие от статуса, остатка, ссылок). */
+  private static final String[] STABLE_FIELDS = {
+      "bookingDateTime", "bookingDate", "valueDateTime", "valueDate", "creditDebitIndicator",
+      "transactionInformation", "description", "merchantName", "creditorName", "debtorName", "currency"};
+
+  /**
+   * transactionId банка; нет — хэш устойчивых полей: даты, суммы, направления, назначения и сторон.
+   * Статус (pending → booked), остаток после операции и прочее меняющееся в хэш не входят —
+   * та же операция в следующей выписке даст тот же хэш.
+   */
+  private static long idOf(JsonNode tx) {
+    String id = tx.path("transactionId").asText(tx.path("transaction_id").asText(tx.path("id").asText("")));
+    StringBuilder src = new StringBuilder(128);
+    if (!id.isEmpty()) {
+      src.append("id:").append(id);
+    } else {
+      for (String f : STABLE_FIELDS) src.append(tx.path(f).asText("")).append('\u0001');
+      JsonNode amt = tx.path("amount");
+      src.append(amt.isObject() ? amt.path("amount").asText("") + '\u0001' + amt.path("currency").asText("") : amt.asText(""));
+    }
+    return Hashes.fnv1a(src.toString());
+  }
+
+  /** Дата операции (YYYY-MM-DD из начала строки) в днях от эпохи; не разобрали — Integer.MIN_VALUE. */
+  private static int epochDay(JsonNode tx) {
+    for (String f : new String[]{"bookingDateTime", "bookingDate", "valueDateTime", "valueDate"}) {
+      String v = tx.path(f).asText("");
+      if (v.length() < 10) continue;
+      try {
+        return (int) LocalDate.parse(v.substring(0, 10)).toEpochDay();
+      } catch (RuntimeException ignore) {
+        // следующее поле
+      }
+    }
+    return Integer.MIN_VALUE;
+  }
+
+  /** Сумма в минорных единицах со знаком; не разобрали — Long.MIN_VALUE. */
+  private static long minorOf(String value) {
+    if (value == null || value.isBlank()) return Long.MIN_VALUE;
+    try {
+      return new BigDecimal(value.trim().replace(" ", "").replace(',', '.'))
+          .movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    } catch (RuntimeException e) {
+      return Long.MIN_VALUE;
+    }
+  }
+
+  private static String key(String login) {
+    return login == null ? "" : login.trim();
+  }
+}
@@ -0,0 +1,22 @@
+package com.mvp.core.analytics;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Траты клиента по всем счетам за месяцы from..to (включительно) в валюте currency.
+ * months — каждый месяц периода, в том числе пустые; categories — по убыванию расхода;
+ * counterparties — топ по расходу; days — по дням, если запрошены.
+ * unconverted — валюты счетов без курса, их операции в отчёт не вошли.
+ */
+public record SpendingReport(
+    String login,
+    String currency,
+    YearMonth from,
+    YearMonth to,
+    List<Flow> months,
+    List<Flow> categories,
+    List<Flow> counterparties,
+    List<Flow> days,
+    List<String> unconverted
+) { }
@@ -0,0 +1,108 @@
+package com.mvp.core.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Категория операции по описанию и MCC — по правилам из файла categories.rules-file
+ * (или встроенным categories/default.rules), скомпилированным в {@link CategoryRules}.
+ *
+ * Файл правил перечитывается на лету: поток "categories-reload-1" раз в categories.reload-interval
+ * смотрит время изменения файла, новые правила компилируются в стороне и подменяют старые одной
+ * записью volatile-ссылки. Ошибка в файле — предупреждение в лог, работают прежние правила.
+ * Уже учтённые в аналитике операции сохраняют категорию, с которой были учтены.
+ */
+@Component
+public class TransactionCategorizer implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(TransactionCategorizer.class);
+
+  private static final String BUILT_IN = "categories/default.rules";
+
+  private final CategoriesProperties cfg;
+
+  private volatile CategoryRules rules;
+  private volatile long loadedModified = -1;
+  private ScheduledExecutorService watcher;
+
+  public TransactionCategorizer(CategoriesProperties cfg) {
+    this.cfg = cfg;
+  }
+
+  @Override
+  public void afterPropertiesSet() throws IOException {
+    if (!StringUtils.hasText(cfg.getRulesFile())) {
+      try (InputStream in = new ClassPathResource(BUILT_IN).getInputStream()) {
+        rules = CategoryRules.compile(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList());
+      }
+      log.info("Loaded {} built-in category rules", rules.size());
+      return;
+    }
+    // файл задан, но битый на старте — ошибка конфигурации, приложение не поднимается
+    if (!reload()) throw new IllegalStateException("Cannot load category rules from " + cfg.getRulesFile());
+    watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "categories-reload-1");
+      t.setDaemon(true);
+      return t;
+    });
+    long every = Math.max(1000, cfg.getReloadInterval().toMillis());
+    watcher.scheduleWithFixedDelay(this::reloadIfChanged, every, every, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void destroy() {
+    if (watcher != null) watcher.shutdownNow();
+  }
+
+  /** Категория (как в правилах) или null, если ни одно правило не подошло. */
+  public String categorize(String description, String mcc) {
+    return rules.categorize(description, mcc);
+  }
+
+  /**
+   * Перечитать файл правил сейчас. Для встроенных правил ничего не делает.
+   * @return true — новые правила в работе
+   */
+  public boolean reload() {
+    if (!StringUtils.hasText(cfg.getRulesFile())) return false;
+    Path file = Path.of(cfg.getRulesFile());
+    try {
+      long modified = Files.getLastModifiedTime(file).toMillis();
+      CategoryRules fresh = CategoryRules.compile(Files.readAllLines(file, StandardCharsets.UTF_8));
+      rules = fresh;
+      loadedModified = modified;
+      log.info("Loaded {} category rules from {}", fresh.size(), file);
+      return true;
+    } catch (IOException | IllegalArgumentException e) {
+      log.warn("Category rules {} not loaded, keeping previous: {}", file, e.getMessage());
+      return false;
+    }
+  }
+
+  private void reloadIfChanged() {
+    try {
+      long modified = Files.getLastModifiedTime(Path.of(cfg.getRulesFile())).toMillis();
+      if (modified != loadedModified) {
+        // не перечитывать битый файл каждый тик: ждём следующего изменения
+        if (!reload()) loadedModified = modified;
+      }
+    } catch (IOException e) {
+      log.debug("Category rules file check failed: {}", e.toString());
+    }
+  }
+}
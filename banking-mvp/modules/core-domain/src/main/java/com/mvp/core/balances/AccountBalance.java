@@ -0,0 +1,29 @@
+package com.mvp.core.balances;
+
+import java.math.BigDecimal;
+
+/**
+ * Снимок баланса счёта. amountMinor — в копейках (центах); fetchedAt 0 — ещё не загружен.
+ * type — тип баланса банка (InterimAvailable и т.п.), raw — ответ банка целиком.
+ */
+public record AccountBalance(
+    String bank,
+    String accountId,
+    long amountMinor,
+    String currency,
+    String type,
+    long fetchedAt,
+    String raw
+) {
+
+  public boolean isLoaded() { return fetchedAt > 0; }
+
+  public BigDecimal amount() {
+    return BigDecimal.valueOf(amountMinor, 2);
+  }
+
+  /** Возраст снимка в мс на момент now; не загружен — -1. */
+  public long ageMillis(long now) {
+    return isLoaded() ? Math.max(0, now - fetchedAt) : -1;
+  }
+}
@@ -0,0 +1,377 @@
+package com.mvp.core.balances;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvp.ob.BankTokenProvider;
+import com.mvp.ob.ObAccountsClient;
+import com.mvp.ob.ObClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Последние балансы счетов активных клиентов, по всем банкам.
+ *
+ * Счёт попадает сюда, когда клиент открыл список счетов ({@link #track}), и остаётся активным
+ * balances.active-ttl после последнего просмотра. Фон (по потоку на банк) перечитывает балансы
+ * старше balances.refresh-interval — самые старые первыми и не чаще balances.requests-per-second
+ * к одному банку; новые счета (ещё без баланса) идут в начало очереди. Страницы и дашборды читают
+ * снимок из памяти с временем загрузки; {@link #refreshNow} — принудительно из банка.
+ *
+ * Данные — в {@link BalanceTable} на примитивах; доступ к ней — под монитором таблицы,
+ * походы в банк — вне его. Подписчики ({@link #onChange}) узнают о каждом новом балансе счёта
+ * и о смене набора счетов клиента.
+ */
+@Service
+public class BalanceSnapshots implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(BalanceSnapshots.class);
+
+  /** Какой баланс показывать, если банк прислал несколько типов: первый найденный по списку. */
+  private static final List<String> PREFERRED_TYPES =
+      List.of("InterimAvailable", "ClosingAvailable", "InterimBooked", "ClosingBooked", "Expected");
+
+  private static final String BANKS = "vas";
+
+  private final BankTokenProvider tokens;
+  private final ObAccountsClient accounts;
+  private final ObClientProperties ob;
+  private final BalancesProperties cfg;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private final BalanceTable table;
+  /** login → ссылки ({@link BalanceTable#ref}) на его счета (все банки); под монитором table. */
+  private final Map<String, long[]> byLogin = new HashMap<>();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private ScheduledExecutorService refresher;
+
+  public BalanceSnapshots(BankTokenProvider tokens, ObAccountsClient accounts,
+                          ObClientProperties ob, BalancesProperties cfg) {
+    this.tokens = tokens;
+    this.accounts = accounts;
+    this.ob = ob;
+    this.cfg = cfg;
+    this.table = new BalanceTable(1024, cfg.getMaxAccounts());
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    AtomicInteger n = new AtomicInteger();
+    refresher = Executors.newScheduledThreadPool(BANKS.length(), r -> {
+      Thread t = new Thread(r, "balances-refresh-" + n.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    for (int i = 0; i < BANKS.length(); i++) {
+      char bank = BANKS.charAt(i);
+      refresher.scheduleWithFixedDelay(() -> refreshDue(bank), 1, 1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    refresher.shutdownNow();
+  }
+
+  /**
+   * Подписчик на изменения снимка. Вызывается под монитором таблицы, в том порядке, в котором
+   * менялись данные, — поэтому должен быть быстрым и не звать BalanceSnapshots обратно.
+   */
+  public interface Listener {
+
+    /** Для счёта клиента login записан баланс (в том числе тот же, что был, — обновилось время). */
+    void balanceChanged(String login, AccountBalance balance);
+
+    /** У клиента появились или пропали отслеживаемые счета. */
+    default void accountsChanged(String login) { }
+  }
+
+  public void onChange(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /** Клиент смотрит свои счета: отслеживать их балансы (новые загрузятся фоном в ближайшую секунду). */
+  public void track(String bank, String login, String consentId, Collection<String> accountIds) {
+    char b = code(bank);
+    String who = loginKey(login);
+    long until = System.currentTimeMillis() + cfg.getActiveTtl().toMillis();
+    synchronized (table) {
+      for (String id : accountIds) {
+        if (!StringUtils.hasText(id)) continue;
+        int s = table.put(b, id);
+        if (s < 0) {
+          log.warn("Balance snapshot table is full ({} accounts), not tracking {}", table.size(), id);
+          break;
+        }
+        long k = table.ref(s);
+        String prev = table.login[s];
+        if (prev != null && !prev.equals(who)) {
+          drop(prev, k);
+          fireAccounts(prev);
+        }
+        table.login[s] = who;
+        if (StringUtils.hasText(consentId)) table.consentId[s] = consentId;
+        table.activeUntil[s] = until;
+        if (remember(who, k)) fireAccounts(who);
+      }
+    }
+  }
+
+  /** Балансы всех отслеживаемых счетов клиента по всем банкам (не загруженные — с fetchedAt 0). */
+  public List<AccountBalance> forLogin(String login) {
+    String who = loginKey(login);
+    List<AccountBalance> out = new ArrayList<>();
+    synchronized (table) {
+      long[] keys = byLogin.get(who);
+      if (keys == null) return out;
+      for (long k : keys) {
+        int s = table.slot(k);
+        if (s >= 0) out.add(view(s));
+      }
+    }
+    return out;
+  }
+
+  public Optional<AccountBalance> get(String bank, String accountId) {
+    synchronized (table) {
+      int s = table.find(code(bank), accountId);
+      return s < 0 ? Optional.empty() : Optional.of(view(s));
+    }
+  }
+
+  /**
+   * Перечитать баланс из банка сейчас, мимо расписания и лимита фона.
+   * Счёт должен быть отслеживаемым (нужен consentId); нет — пусто.
+   */
+  public Optional<AccountBalance> refreshNow(String bank, String accountId) {
+    long k = ref(bank, accountId);
+    return k >= 0 && fetch(k) ? get(bank, accountId) : Optional.empty();
+  }
+
+  /** Принудительно перечитать все счета клиента (по очереди); вернуть свежий снимок. */
+  public List<AccountBalance> refreshNow(String login) {
+    long[] keys;
+    synchronized (table) {
+      keys = byLogin.getOrDefault(loginKey(login), new long[0]).clone();
+    }
+    for (long k : keys) fetch(k);
+    return forLogin(login);
+  }
+
+  /** Баланс, уже полученный вживую (страница счёта), — сразу в снимок, если счёт отслеживается. */
+  public void accept(String bank, String accountId, String balancesJson) {
+    long k = ref(bank, accountId);
+    if (k >= 0) store(k, balancesJson, System.currentTimeMillis());
+  }
+
+  // ---------------- фон ----------------
+
+  /** Один проход по банку: забыть неактивные, перечитать просроченные от самых старых, в темпе лимита. */
+  private void refreshDue(char bank) {
+    long now = System.currentTimeMillis();
+    long staleBefore = now - cfg.getRefreshInterval().toMillis();
+    long[] due;
+    synchronized (table) {
+      int n = 0;
+      long[] buf = new long[16];
+      long[] order = new long[16];
+      for (int s = 0; s < table.highWater(); s++) {
+        if (table.key[s] == 0 || table.bank[s] != bank) continue;
+        if (table.activeUntil[s] < now) {
+          forget(s);
+          continue;
+        }
+        if (table.fetchedAt[s] > staleBefore || table.retryAt[s] > now) continue;
+        if (n == buf.length) {
+          buf = Arrays.copyOf(buf, n * 2);
+          order = Arrays.copyOf(order, n * 2);
+        }
+        buf[n] = table.ref(s);
+        order[n] = table.fetchedAt[s];
+        n++;
+      }
+      due = oldestFirst(buf, order, n);
+    }
+    if (due.length == 0) return;
+
+    long gapNanos = 1_000_000_000L / Math.max(1, cfg.getRequestsPerSecond());
+    long next = System.nanoTime();
+    for (long k : due) {
+      if (Thread.currentThread().isInterrupted()) return;
+      long wait = next - System.nanoTime();
+      if (wait > 0) LockSupport.parkNanos(wait);
+      next = Math.max(next, System.nanoTime()) + gapNanos;
+      fetch(k);
+    }
+  }
+
+  /** Сходить в банк за балансом счёта k; false — счёт не отслеживается или банк ответил ошибкой. */
+  private boolean fetch(long k) {
+    char bank;
+    String accountId, consentId;
+    synchronized (table) {
+      int s = table.slot(k);
+      if (s < 0) return false;
+      bank = (char) table.bank[s];
+      accountId = table.accountId[s];
+      consentId = table.consentId[s];
+    }
+    String baseUrl = ob.baseUrlFor(String.valueOf(bank));
+    try {
+      String json = accounts.getAccountBalances(baseUrl, tokens.get(baseUrl), accountId, consentId, ob.getClientId());
+      store(k, json, System.currentTimeMillis());
+      return true;
+    } catch (RuntimeException e) {
+      log.debug("Balance refresh failed for {}:{}: {}", bank, accountId, e.toString());
+      synchronized (table) {
+        int s = table.slot(k);
+        if (s >= 0) table.retryAt[s] = System.currentTimeMillis() + cfg.getRefreshInterval().toMillis();
+      }
+      return false;
+    }
+  }
+
+  private void store(long k, String json, long at) {
+    Parsed p = parse(json);
+    synchronized (table) {
+      int s = table.slot(k);
+      if (s < 0) return;
+      if (p != null) {
+        table.amount[s] = p.amountMinor;
+        table.currency[s] = p.currency;
+        table.type[s] = p.type;
+      }
+      table.raw[s] = json;
+      table.fetchedAt[s] = at;
+      table.retryAt[s] = 0;
+      if (table.login[s] != null && !listeners.isEmpty()) {
+        AccountBalance b = view(s);
+        for (Listener l : listeners) l.balanceChanged(table.login[s], b);
+      }
+    }
+  }
+
+  // ---------------- служебное ----------------
+
+  private AccountBalance view(int s) {
+    return new AccountBalance(String.valueOf((char) table.bank[s]), table.accountId[s], table.amount[s],
+        table.currency[s], table.type[s], table.fetchedAt[s], table.raw[s]);
+  }
+
+  /** @return true — счёт у клиента новый */
+  private boolean remember(String who, long k) {
+    long[] keys = byLogin.get(who);
+    if (keys == null) {
+      byLogin.put(who, new long[]{k});
+      return true;
+    }
+    for (long x : keys) if (x == k) return false;
+    long[] grown = Arrays.copyOf(keys, keys.length + 1);
+    grown[keys.length] = k;
+    byLogin.put(who, grown);
+    return true;
+  }
+
+  /** Ссылка на отслеживаемый счёт; не отслеживается — -1. */
+  private long ref(String bank, String accountId) {
+    synchronized (table) {
+      int s = table.find(code(bank), accountId);
+      return s < 0 ? -1 : table.ref(s);
+    }
+  }
+
+  private void forget(int s) {
+    long k = table.ref(s);
+    String who = table.login[s];
+    table.remove(s);
+    if (who != null && drop(who, k)) fireAccounts(who);
+  }
+
+  private boolean drop(String who, long k) {
+    long[] keys = byLogin.get(who);
+    if (keys == null) return false;
+    long[] left = Arrays.stream(keys).filter(x -> x != k).toArray();
+    if (left.length == keys.length) return false;
+    if (left.length == 0) byLogin.remove(who);
+    else byLogin.put(who, left);
+    return true;
+  }
+
+  private void fireAccounts(String who) {
+    for (Listener l : listeners) l.accountsChanged(who);
+  }
+
+  /** Ключи по возрастанию времени загрузки (0 — никогда — первыми). */
+  private static long[] oldestFirst(long[] keys, long[] at, int n) {
+    Integer[] idx = new Integer[n];
+    for (int i = 0; i < n; i++) idx[i] = i;
+    Arrays.sort(idx, (x, y) -> Long.compare(at[x], at[y]));
+    long[] out = new long[n];
+    for (int i = 0; i < n; i++) out[i] = keys[idx[i]];
+    return out;
+  }
+
+  private record Parsed(long amountMinor, String currency, String type) { }
+
+  /** data.balance[] → один баланс по PREFERRED_TYPES; не разобрали — null (сырой ответ всё равно сохраняется). */
+  private Parsed parse(String json) {
+    try {
+      JsonNode root = mapper.readTree(json);
+      JsonNode arr = root.path("data").path("balance");
+      if (!arr.isArray()) arr = root.path("data").path("balances");
+      if (!arr.isArray() || arr.isEmpty()) return null;
+      JsonNode pick = arr.get(0);
+      int rank = Integer.MAX_VALUE;
+      for (JsonNode b : arr) {
+        String t = b.path("type").asText(b.path("balanceType").asText(""));
+        int r = PREFERRED_TYPES.indexOf(t);
+        if (r >= 0 && r < rank) {
+          rank = r;
+          pick = b;
+        }
+      }
+      JsonNode amt = pick.path("amount");
+      String value = amt.isObject() ? amt.path("amount").asText(null) : amt.asText(null);
+      if (value == null) return null;
+      long minor = new BigDecimal(value.trim()).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+      String cur = amt.isObject() ? amt.path("currency").asText(null) : pick.path("currency").asText(null);
+      String type = pick.path("type").asText(pick.path("balanceType").asText(null));
+      return new Parsed(minor, cur == null ? null : cur.intern(), type == null ? null : type.intern());
+    } catch (Exception e) {
+      log.debug("Unparseable balances response: {}", e.toString());
+      return null;
+    }
+  }
+
+  private static String loginKey(String login) {
+    return login == null ? "" : login.trim();
+  }
+
+  private static char code(String bank) {
+    String b = ObClientProperties.normalizeBankCode(bank);
+    return switch (b) {
+      case "a", "abank" -> 'a';
+      case "s", "sbank" -> 's';
+      default -> 'v';
+    };
+  }
+}
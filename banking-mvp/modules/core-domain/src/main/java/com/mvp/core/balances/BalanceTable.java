@@ -0,0 +1,194 @@
+package com.mvp.core.balances;
+
+import com.mvp.common.hash.Hashes;
+
+import java.util.Arrays;
+
+/**
+ * Таблица балансов на примитивах: хэш счёта — long (FNV банк+accountId), значение — номер слота
+ * в параллельных массивах. Открытая адресация с линейным пробированием, удаление сдвигом назад
+ * (без «надгробий»); освободившиеся слоты переиспользуются через стек свободных.
+ *
+ * Хэш только ведёт к кандидатам: совпадение подтверждается сравнением банка и accountId слота,
+ * так что два счёта с одинаковым 64-битным хэшем — просто два слота в одной цепочке.
+ * Снаружи на счёт ссылаются через {@link #ref}: номер слота плюс его поколение — ссылка на
+ * удалённый и переиспользованный слот не найдёт чужой счёт.
+ *
+ * Строки (accountId, consentId, login, сырой ответ) лежат в параллельных String[] — они нужны для
+ * похода в банк и показа, а суммы, время и поиск — без объектов на счёт.
+ *
+ * Не потокобезопасна — синхронизирует {@link BalanceSnapshots}.
+ */
+final class BalanceTable {
+
+  private final int maxSlots;
+
+  // хэш: хэш счёта → слот + 1 (0 — пусто)
+  private long[] hkeys;
+  private int[] hslot;
+  private int mask;
+
+  // слоты
+  long[] key;
+  byte[] bank;
+  String[] accountId;
+  String[] consentId;
+  String[] login;
+  String[] currency;
+  String[] type;
+  String[] raw;
+  long[] amount;
+  long[] fetchedAt;
+  long[] retryAt;
+  long[] activeUntil;
+  /** Поколение слота: растёт при каждом удалении, входит в {@link #ref}. */
+  private int[] stamp;
+
+  private int[] free;
+  private int freeTop;
+  private int highWater;
+  private int size;
+
+  BalanceTable(int initialSlots, int maxSlots) {
+    this.maxSlots = Math.max(1, maxSlots);
+    allocate(Math.max(16, Math.min(initialSlots, this.maxSlots)));
+  }
+
+  int size() { return size; }
+
+  /** Граница перебора слотов: всё, что когда-либо выдавалось (пустые — key 0). */
+  int highWater() { return highWater; }
+
+  private static long keyOf(char bankCode, String accountId) {
+    long h = Hashes.fnv1a(Hashes.fnv1a(Hashes.FNV_OFFSET, bankCode), accountId);
+    return h == 0 ? 1 : h;
+  }
+
+  /** Слот счёта; нет — -1. */
+  int find(char bankCode, String id) {
+    return find(keyOf(bankCode, id), bankCode, id);
+  }
+
+  private int find(long k, char bankCode, String id) {
+    for (int i = index(k); ; i = (i + 1) & mask) {
+      if (hkeys[i] == 0) return -1;
+      if (hkeys[i] == k) {
+        int s = hslot[i] - 1;
+        if (bank[s] == (byte) bankCode && id.equals(accountId[s])) return s;
+      }
+    }
+  }
+
+  /** Слот счёта, при необходимости новый (с банком и accountId, остальное пусто); таблица полна — -1. */
+  int put(char bankCode, String id) {
+    long k = keyOf(bankCode, id);
+    int s = find(k, bankCode, id);
+    if (s >= 0) return s;
+    if (freeTop == 0 && highWater == key.length) {
+      if (key.length >= maxSlots) return -1;
+      grow(Math.min(maxSlots, key.length * 2));
+    }
+    s = freeTop > 0 ? free[--freeTop] : highWater++;
+    key[s] = k;
+    bank[s] = (byte) bankCode;
+    accountId[s] = id;
+    int i = index(k);
+    while (hkeys[i] != 0) i = (i + 1) & mask;
+    hkeys[i] = k;
+    hslot[i] = s + 1;
+    size++;
+    return s;
+  }
+
+  /** Ссылка на занятый слот s: действует, пока слот не удалён. */
+  long ref(int s) {
+    return (long) stamp[s] << 32 | s;
+  }
+
+  /** Слот по ссылке {@link #ref}; слот с тех пор удалён (или занят другим счётом) — -1. */
+  int slot(long ref) {
+    int s = (int) ref;
+    return s >= 0 && s < highWater && key[s] != 0 && stamp[s] == (int) (ref >>> 32) ? s : -1;
+  }
+
+  void remove(int s) {
+    long k = key[s];
+    if (k == 0) return;
+    int i = index(k);
+    while (hslot[i] != s + 1) i = (i + 1) & mask;
+    // сдвиг назад: ключи, чья цепочка проходила через i, подтягиваются на освободившееся место
+    for (int j = (i + 1) & mask; hkeys[j] != 0; j = (j + 1) & mask) {
+      int ideal = index(hkeys[j]);
+      if (((j - ideal) & mask) >= ((j - i) & mask)) {
+        hkeys[i] = hkeys[j];
+        hslot[i] = hslot[j];
+        i = j;
+      }
+    }
+    hkeys[i] = 0;
+    hslot[i] = 0;
+
+    key[s] = 0;
+    accountId[s] = consentId[s] = login[s] = currency[s] = type[s] = raw[s] = null;
+    amount[s] = fetchedAt[s] = retryAt[s] = activeUntil[s] = 0;
+    bank[s] = 0;
+    stamp[s]++;
+    free[freeTop++] = s;
+    size--;
+  }
+
+  private int index(long k) {
+    return Hashes.index(k, mask);
+  }
+
+  private void allocate(int slots) {
+    key = new long[slots];
+    bank = new byte[slots];
+    accountId = new String[slots];
+    consentId = new String[slots];
+    login = new String[slots];
+    currency = new String[slots];
+    type = new String[slots];
+    raw = new String[slots];
+    amount = new long[slots];
+    fetchedAt = new long[slots];
+    retryAt = new long[slots];
+    activeUntil = new long[slots];
+    stamp = new int[slots];
+    free = new int[slots];
+    rehash(slots);
+  }
+
+  private void grow(int slots) {
+    key = Arrays.copyOf(key, slots);
+    bank = Arrays.copyOf(bank, slots);
+    accountId = Arrays.copyOf(accountId, slots);
+    consentId = Arrays.copyOf(consentId, slots);
+    login = Arrays.copyOf(login, slots);
+    currency = Arrays.copyOf(currency, slots);
+    type = Arrays.copyOf(type, slots);
+    raw = Arrays.copyOf(raw, slots);
+    amount = Arrays.copyOf(amount, slots);
+    fetchedAt = Arrays.copyOf(fetchedAt, slots);
+    retryAt = Arrays.copyOf(retryAt, slots);
+    activeUntil = Arrays.copyOf(activeUntil, slots);
+    stamp = Arrays.copyOf(stamp, slots);
+    free = Arrays.copyOf(free, slots);
+    rehash(slots);
+  }
+
+  /** Хэш вдвое больше слотов (заполнение ≤ 50%), ключи перекладываются из слотов. */
+  private void rehash(int slots) {
+    int cap = Integer.highestOneBit(Math.max(2, slots * 2 - 1)) << 1;
+    hkeys = new long[cap];
+    hslot = new int[cap];
+    mask = cap - 1;
+    for (int s = 0; s < highWater; s++) {
+      if (key[s] == 0) continue;
+      int i = index(key[s]);
+      while (hkeys[i] != 0) i = (i + 1) & mask;
+      hkeys[i] = key[s];
+      hslot[i] = s + 1;
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package com.mvp.core.balances;
+
+import java.time.Duration;
+
+/**
+ * Настройки снимков балансов, префикс "balances" в application.yml.
+ */
+public class BalancesProperties {
+
+  /** Баланс старше этого перечитывается фоном. */
+  private Duration refreshInterval = Duration.ofMinutes(1);
+
+  /** Счёт считается активным столько после последнего просмотра; дальше фон его не обновляет и забывает. */
+  private Duration activeTtl = Duration.ofMinutes(30);
+
+  /** Не больше стольких запросов балансов в секунду к одному банку от фонового обновления. */
+  private int requestsPerSecond = 5;
+
+  /** Потолок числа отслеживаемых счетов (по всем банкам). */
+  private int maxAccounts = 100_000;
+
+  public Duration getRefreshInterval() { return refreshInterval; }
+  public void setRefreshInterval(Duration refreshInterval) { this.refreshInterval = refreshInterval; }
+
+  public Duration getActiveTtl() { return activeTtl; }
+  public void setActiveTtl(Duration activeTtl) { this.activeTtl = activeTtl; }
+
+  public int getRequestsPerSecond() { return requestsPerSecond; }
+  public void setRequestsPerSecond(int requestsPerSecond) { this.requestsPerSecond = requestsPerSecond; }
+
+  public int getMaxAccounts() { return maxAccounts; }
+  public void setMaxAccounts(int maxAccounts) { this.maxAccounts = maxAccounts; }
+}
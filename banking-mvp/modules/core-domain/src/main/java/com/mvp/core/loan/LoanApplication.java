@@ -0,0 +1,48 @@
+package com.mvp.core.loan;
+
+/**
+ * Снимок заявки на кредит. Неизменяемый: каждый переход — новая запись в {@link LoanStore}.
+ *
+ * @param attempts       неудачных попыток текущей стадии (сбрасывается при переходе)
+ * @param nextAttemptAt  когда повторить/перепроверить текущую стадию, epoch ms (0 — сразу)
+ * @param stateSince     когда заявка вошла в текущую стадию, epoch ms
+ */
+public record LoanApplication(String id,
+                              LoanState state,
+                              LoanRequest request,
+                              String consentId,
+                              String consentRequestId,
+                              String agreementId,
+                              String message,
+                              int attempts,
+                              long nextAttemptAt,
+                              long createdAt,
+                              long stateSince,
+                              long updatedAt) {
+
+  static LoanApplication submitted(String id, LoanRequest request, long now) {
+    return new LoanApplication(id, LoanState.SUBMITTED, request, null, null, null, null, 0, 0, now, now, now);
+  }
+
+  /** Переход в новую стадию: счётчик попыток сбрасывается. */
+  LoanApplication to(LoanState next, String msg, long now) {
+    return new LoanApplication(id, next, request, consentId, consentRequestId, agreementId, msg,
+        0, 0, createdAt, now, now);
+  }
+
+  LoanApplication withConsent(String consentId, String consentRequestId) {
+    return new LoanApplication(id, state, request, consentId, consentRequestId, agreementId, message,
+        attempts, nextAttemptAt, createdAt, stateSince, updatedAt);
+  }
+
+  LoanApplication withAgreement(String agreementId) {
+    return new LoanApplication(id, state, request, consentId, consentRequestId, agreementId, message,
+        attempts, nextAttemptAt, createdAt, stateSince, updatedAt);
+  }
+
+  /** Ещё одна попытка текущей стадии — не раньше nextAt. */
+  LoanApplication retryAt(long nextAt, String msg, long now) {
+    return new LoanApplication(id, state, request, consentId, consentRequestId, agreementId, msg,
+        attempts + 1, nextAt, createdAt, stateSince, now);
+  }
+}
@@ -0,0 +1,61 @@
+package com.mvp.core.loan;
+
+import java.time.Duration;
+
+/**
+ * Настройки движка заявок, префикс "loan" в application.yml.
+ */
+public class LoanProperties {
+
+  /** Журнал заявок прежних версий: есть — при старте переносится в хранилище (store.*) и переименовывается в *.imported. */
+  private String storeFile = "data/loans.jsonl";
+
+  /** Потоков на KYC (CPU: хэши, декодирование картинок). */
+  private int kycThreads = 2;
+
+  /** Потоков на походы в банк (согласия, договоры). */
+  private int bankThreads = 4;
+
+  /** Первая перепроверка согласия; дальше интервал удваивается до approval-poll-max. */
+  private Duration approvalPoll = Duration.ofSeconds(5);
+
+  private Duration approvalPollMax = Duration.ofMinutes(2);
+
+  /** Сколько ждать одобрения согласия, прежде чем закрыть заявку как FAILED. */
+  private Duration approvalTimeout = Duration.ofHours(24);
+
+  /** Попыток на стадию при сбоях банка; пауза — retry-backoff × 2^попытка. */
+  private int maxAttempts = 5;
+
+  private Duration retryBackoff = Duration.ofSeconds(2);
+
+  /** Сколько хранить завершённые заявки. */
+  private Duration retention = Duration.ofDays(30);
+
+  public String getStoreFile() { return storeFile; }
+  public void setStoreFile(String storeFile) { this.storeFile = storeFile; }
+
+  public int getKycThreads() { return kycThreads; }
+  public void setKycThreads(int kycThreads) { this.kycThreads = kycThreads; }
+
+  public int getBankThreads() { return bankThreads; }
+  public void setBankThreads(int bankThreads) { this.bankThreads = bankThreads; }
+
+  public Duration getApprovalPoll() { return approvalPoll; }
+  public void setApprovalPoll(Duration approvalPoll) { this.approvalPoll = approvalPoll; }
+
+  public Duration getApprovalPollMax() { return approvalPollMax; }
+  public void setApprovalPollMax(Duration approvalPollMax) { this.approvalPollMax = approvalPollMax; }
+
+  public Duration getApprovalTimeout() { return approvalTimeout; }
+  public void setApprovalTimeout(Duration approvalTimeout) { this.approvalTimeout = approvalTimeout; }
+
+  public int getMaxAttempts() { return maxAttempts; }
+  public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+
+  public Duration getRetryBackoff() { return retryBackoff; }
+  public void setRetryBackoff(Duration retryBackoff) { this.retryBackoff = retryBackoff; }
+
+  public Duration getRetention() { return retention; }
+  public void setRetention(Duration retention) { this.retention = retention; }
+}
@@ -0,0 +1,13 @@
+package com.mvp.core.loan;
+
+import java.math.BigDecimal;
+
+/**
+ * Параметры заявки, которые нужны банку (и сохраняются в журнале).
+ * ФИО, паспорт и документы сюда не входят — они нужны только KYC и на диск не пишутся.
+ */
+public record LoanRequest(String baseUrl,
+                          String customerLogin,
+                          String productId,
+                          BigDecimal amount,
+                          int termMonths) { }
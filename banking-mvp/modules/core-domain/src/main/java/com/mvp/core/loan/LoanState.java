@@ -0,0 +1,24 @@
+package com.mvp.core.loan;
+
+/**
+ * Стадии заявки на кредит. Движок ({@link LoanWorkflow}) двигает заявку только вперёд:
+ * SUBMITTED → KYC_PASSED → (AWAITING_APPROVAL) → APPROVED → AGREEMENT_OPENED,
+ * с любой стадии — в REJECTED (отказ по существу) или FAILED (сбой, попытки исчерпаны).
+ */
+public enum LoanState {
+  /** Принята, идёт KYC. */
+  SUBMITTED,
+  /** KYC пройден, запрашиваем согласие в банке. */
+  KYC_PASSED,
+  /** Согласие создано, ждём одобрения клиентом/банком. */
+  AWAITING_APPROVAL,
+  /** Согласие одобрено, открываем договор. */
+  APPROVED,
+  AGREEMENT_OPENED,
+  REJECTED,
+  FAILED;
+
+  public boolean isTerminal() {
+    return this == AGREEMENT_OPENED || this == REJECTED || this == FAILED;
+  }
+}
@@ -0,0 +1,120 @@
+package com.mvp.core.loan;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvp.common.store.JsonLines;
+import com.mvp.common.store.KvStore;
+import com.mvp.common.store.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Долговечное хранилище заявок: каждый переход — запись в хранилище ({@link KvStore}, репозиторий
+ * "loans") с fsync до того, как движок пойдёт дальше, плюс актуальное состояние в памяти. После
+ * падения заявка продолжится с последней записанной стадии.
+ *
+ * При старте завершённые заявки старше loan.retention удаляются; прежний журнал loan.store-file,
+ * если он есть, один раз переносится в хранилище.
+ */
+@Component
+public class LoanStore implements InitializingBean {
+
+  private static final Logger log = LoggerFactory.getLogger(LoanStore.class);
+
+  private final LoanProperties cfg;
+  private final Repository<LoanApplication> store;
+  private final Map<String, LoanApplication> live = new ConcurrentHashMap<>();
+
+  public LoanStore(LoanProperties cfg, KvStore store) {
+    this.cfg = cfg;
+    this.store = store.repository("loans", LoanApplication.class);
+  }
+
+  @Override
+  public void afterPropertiesSet() throws IOException {
+    importJournal();
+    long cutoff = System.currentTimeMillis() - cfg.getRetention().toMillis();
+    int dropped = 0;
+    for (LoanApplication a : store.findAll()) {
+      if (a.state().isTerminal() && a.updatedAt() < cutoff) {
+        store.delete(a.id());
+        dropped++;
+      } else {
+        live.put(a.id(), a);
+      }
+    }
+    log.info("Loan applications: {} in store, {} expired dropped", live.size(), dropped);
+  }
+
+  public Optional<LoanApplication> get(String id) {
+    return Optional.ofNullable(live.get(id));
+  }
+
+  public Collection<LoanApplication> all() {
+    return List.copyOf(live.values());
+  }
+
+  /** Записать новую заявку. */
+  public synchronized void create(LoanApplication a) {
+    append(a);
+  }
+
+  /**
+   * Переход «сравнить и записать»: fn применяется, только если заявка сейчас в стадии expected.
+   * @return новый снимок; пусто — заявки нет или её уже сдвинул кто-то другой
+   */
+  public synchronized Optional<LoanApplication> update(String id, LoanState expected,
+                                                       UnaryOperator<LoanApplication> fn) {
+    LoanApplication cur = live.get(id);
+    if (cur == null || cur.state() != expected) return Optional.empty();
+    LoanApplication next = fn.apply(cur);
+    append(next);
+    return Optional.of(next);
+  }
+
+  private void append(LoanApplication a) {
+    try {
+      store.put(a.id(), a);
+    } catch (RuntimeException e) {
+      // не записали — не двигаем и в памяти: движок повторит стадию
+      throw new IllegalStateException("Loan store write failed: " + e.getMessage(), e);
+    }
+    live.put(a.id(), a);
+  }
+
+  /** Журнал JSON по строке от прежних версий: последняя строка по id побеждает; после переноса — *.imported. */
+  private void importJournal() throws IOException {
+    if (cfg.getStoreFile() == null || cfg.getStoreFile().isBlank()) return;
+    Path file = Path.of(cfg.getStoreFile()).toAbsolutePath();
+    if (!Files.exists(file)) return;
+    ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    Map<String, LoanApplication> last = new LinkedHashMap<>();
+    JsonLines.read(file, (line, n) -> {
+      try {
+        LoanApplication a = mapper.readValue(line, LoanApplication.class);
+        last.put(a.id(), a);
+      } catch (IOException e) {
+        log.warn("Skipping unreadable loan journal line {}: {}", n, e.getMessage());
+      }
+    });
+    // в хранилище уже может быть более свежая версия (импорт прервался после записи)
+    last.keySet().removeIf(store::contains);
+    store.putAll(last);
+    Files.move(file, file.resolveSibling(file.getFileName() + ".imported"), StandardCopyOption.REPLACE_EXISTING);
+    log.info("Loan journal {} imported into store: {} applications", file, last.size());
+  }
+}
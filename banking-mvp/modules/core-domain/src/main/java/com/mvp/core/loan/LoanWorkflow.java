@@ -0,0 +1,382 @@
+package com.mvp.core.loan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvp.kyc.KycDocument;
+import com.mvp.kyc.KycService;
+import com.mvp.kyc.KycService.KycResult;
+import com.mvp.ob.AgreementBatcher;
+import com.mvp.ob.AgreementOpenRequest;
+import com.mvp.ob.BankTokenProvider;
+import com.mvp.ob.ConsentCreateResult;
+import com.mvp.ob.ObAccountsClient;
+import com.mvp.ob.ObClientProperties;
+import com.mvp.ob.ObFailures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Движок заявок на кредит: KYC → согласие → ожидание одобрения → открытие договора.
+ *
+ * Каждая стадия — задача в своём пуле: KYC (CPU) в "loan-kyc-*", походы в банк в "loan-bank-*",
+ * таймеры (повторы, перепроверка согласия) — в "loan-timer". Переходы пишутся в {@link LoanStore}
+ * до запуска следующей стадии; после рестарта незавершённые заявки подхватываются с той же стадии.
+ *
+ * - сбой банка — повтор стадии с экспоненциальной паузой, после loan.max-attempts — FAILED;
+ *   повторяется только то, что до банка заведомо не дошло ({@link ObFailures#notDelivered}); при
+ *   неизвестном исходе (таймаут чтения, 5xx) заявка уходит в FAILED на ручную проверку, а не
+ *   открывает второе согласие или второй договор;
+ * - POST согласия и договора несут ключ идемпотентности, постоянный для заявки и стадии: повтор
+ *   после рестарта ({@link #resume}) банк узнаёт и не исполняет второй раз;
+ * - согласие не одобрено сразу — AWAITING_APPROVAL: опрос статуса с растущим интервалом,
+ *   либо {@link #consentApproved} (callback/вебхук) будит заявку сразу;
+ * - одна заявка не обрабатывается двумя потоками одновременно (in-flight), а переходы —
+ *   «сравнить и записать» по ожидаемой стадии, так что поздний дубль просто ничего не делает.
+ */
+@Service
+public class LoanWorkflow implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(LoanWorkflow.class);
+
+  /** Префикс сообщения отказа по KYC — по нему такие заявки попадают в ручную проверку. */
+  private static final String KYC_FAILED = "AI-KYC failed: ";
+
+  private final LoanStore store;
+  private final KycService kyc;
+  private final BankTokenProvider tokens;
+  private final ObAccountsClient accounts;
+  private final AgreementBatcher agreements;
+  private final ObClientProperties ob;
+  private final LoanProperties cfg;
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+  /** Заявки, чей договор сейчас в пачке на открытие: стадия уже отпустила поток, но не закончилась. */
+  private final Set<String> opening = ConcurrentHashMap.newKeySet();
+  private ExecutorService kycPool;
+  private ExecutorService bankPool;
+  private ScheduledExecutorService timer;
+
+  public LoanWorkflow(LoanStore store,
+                      KycService kyc,
+                      BankTokenProvider tokens,
+                      ObAccountsClient accounts,
+                      AgreementBatcher agreements,
+                      ObClientProperties ob,
+                      LoanProperties cfg) {
+    this.store = store;
+    this.kyc = kyc;
+    this.tokens = tokens;
+    this.accounts = accounts;
+    this.agreements = agreements;
+    this.ob = ob;
+    this.cfg = cfg;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    kycPool = Executors.newFixedThreadPool(Math.max(1, cfg.getKycThreads()), threads("loan-kyc-"));
+    bankPool = Executors.newFixedThreadPool(Math.max(1, cfg.getBankThreads()), threads("loan-bank-"));
+    timer = Executors.newSingleThreadScheduledExecutor(threads("loan-timer"));
+    resume();
+  }
+
+  @Override
+  public void destroy() {
+    timer.shutdownNow();
+    kycPool.shutdownNow();
+    bankPool.shutdownNow();
+  }
+
+  /**
+   * Принять заявку. Возвращает её номер сразу — KYC и всё остальное идут в фоне.
+   * Документы переходят во владение движка: он закроет их (удалит временные файлы) после KYC.
+   */
+  public String submit(LoanRequest request, String fullName, String passportNumber,
+                       KycDocument idFront, KycDocument idBack, KycDocument selfie) {
+    LoanApplication a = LoanApplication.submitted(UUID.randomUUID().toString(), request, now());
+    store.create(a);
+    kycPool.execute(() -> runKyc(a.id(), fullName, passportNumber, idFront, idBack, selfie));
+    return a.id();
+  }
+
+  public Optional<LoanApplication> get(String applicationId) {
+    return store.get(applicationId);
+  }
+
+  /**
+   * Заявки для ручной проверки: отказ KYC, сбой (попытки исчерпаны) и ожидание одобрения дольше stuckAfterMillis.
+   * Старые первыми.
+   */
+  public List<LoanApplication> needingReview(long stuckAfterMillis) {
+    long stuckBefore = now() - stuckAfterMillis;
+    List<LoanApplication> out = new ArrayList<>();
+    for (LoanApplication a : store.all()) {
+      boolean review = switch (a.state()) {
+        case FAILED -> true;
+        case REJECTED -> isKycFailure(a);
+        case AWAITING_APPROVAL -> a.stateSince() < stuckBefore;
+        default -> false;
+      };
+      if (review) out.add(a);
+    }
+    out.sort(Comparator.comparingLong(LoanApplication::createdAt));
+    return out;
+  }
+
+  public static boolean isKycFailure(LoanApplication a) {
+    return a.state() == LoanState.REJECTED && a.message() != null && a.message().startsWith(KYC_FAILED);
+  }
+
+  /**
+   * Согласие одобрено (callback банка или ручная отметка): ждущая его заявка идёт дальше сразу, не дожидаясь опроса.
+   * @return была ли такая ждущая заявка
+   */
+  public boolean consentApproved(String consentId) {
+    for (LoanApplication a : store.all()) {
+      if (a.state() == LoanState.AWAITING_APPROVAL
+          && (consentId.equals(a.consentId()) || consentId.equals(a.consentRequestId()))) {
+        approve(a.id(), consentId);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // ---------------- стадии ----------------
+
+  private void runKyc(String id, String fullName, String passportNumber,
+                      KycDocument idFront, KycDocument idBack, KycDocument selfie) {
+    try (idFront; idBack; selfie) {
+      KycResult r = kyc.checkApplicant(fullName, passportNumber, idFront, idBack, selfie);
+      if (!r.ok()) {
+        store.update(id, LoanState.SUBMITTED,
+            a -> a.to(LoanState.REJECTED, KYC_FAILED + String.join("; ", r.issues()), now()));
+        return;
+      }
+      store.update(id, LoanState.SUBMITTED, a -> a.to(LoanState.KYC_PASSED, null, now()))
+          .ifPresent(a -> dispatch(a, bankPool, this::requestConsent));
+    } catch (RuntimeException e) {
+      log.warn("Loan {}: KYC stage failed", id, e);
+      store.update(id, LoanState.SUBMITTED, a -> a.to(LoanState.FAILED, "KYC error: " + e.getMessage(), now()));
+    }
+  }
+
+  private void requestConsent(LoanApplication a) {
+    LoanRequest rq = a.request();
+    String token;
+    try {
+      token = tokens.get(rq.baseUrl());
+    } catch (RuntimeException e) {
+      backoff(a, e, this::requestConsent); // токен — не согласие: повторять можно всегда
+      return;
+    }
+    ConsentCreateResult c;
+    try {
+      c = accounts.createConsent(rq.baseUrl(), token, rq.customerLogin(), ob.getClientId(),
+          idempotencyKey(a, "consent"));
+    } catch (RuntimeException e) {
+      retry(a, e, this::requestConsent);
+      return;
+    }
+
+    String status = normalizeStatus(c.getStatus());
+    if ("approved".equals(status)) {
+      store.update(a.id(), LoanState.KYC_PASSED,
+              x -> x.withConsent(c.getConsentId(), c.getRequestId()).to(LoanState.APPROVED, null, now()))
+          .ifPresent(this::openAgreement);
+    } else if ("rejected".equals(status)) {
+      store.update(a.id(), LoanState.KYC_PASSED,
+          x -> x.to(LoanState.REJECTED, "Consent status: " + c.getStatus(), now()));
+    } else {
+      store.update(a.id(), LoanState.KYC_PASSED,
+              x -> x.withConsent(c.getConsentId(), c.getRequestId())
+                  .to(LoanState.AWAITING_APPROVAL, "Consent status: " + c.getStatus(), now()))
+          .ifPresent(x -> schedule(x, cfg.getApprovalPoll().toMillis(), this::pollApproval));
+    }
+  }
+
+  private void pollApproval(LoanApplication a) {
+    if (now() - a.stateSince() > cfg.getApprovalTimeout().toMillis()) {
+      store.update(a.id(), LoanState.AWAITING_APPROVAL,
+          x -> x.to(LoanState.FAILED, "Consent was not approved in " + cfg.getApprovalTimeout(), now()));
+      return;
+    }
+    String ref = StringUtils.hasText(a.consentId()) ? a.consentId() : a.consentRequestId();
+    String status;
+    String consentId = null;
+    try {
+      String token = tokens.get(a.request().baseUrl());
+      JsonNode root = mapper.readTree(accounts.getConsentStatus(a.request().baseUrl(), token, ref, ob.getClientId()));
+      JsonNode data = root.has("data") ? root.get("data") : root;
+      status = normalizeStatus(data.path("status").asText(""));
+      consentId = data.hasNonNull("consentId") ? data.get("consentId").asText() : null;
+    } catch (Exception e) {
+      // опрос — не стадия с лимитом попыток: недоступность банка просто откладывает следующую проверку
+      log.debug("Loan {}: consent status check failed: {}", a.id(), e.toString());
+      status = "pending";
+    }
+
+    if ("approved".equals(status)) {
+      approve(a.id(), consentId);
+    } else if ("rejected".equals(status)) {
+      store.update(a.id(), LoanState.AWAITING_APPROVAL, x -> x.to(LoanState.REJECTED, "Consent rejected", now()));
+    } else {
+      long delay = Math.min(cfg.getApprovalPollMax().toMillis(),
+          cfg.getApprovalPoll().toMillis() << Math.min(a.attempts() + 1, 20));
+      store.update(a.id(), LoanState.AWAITING_APPROVAL, x -> x.retryAt(now() + delay, x.message(), now()))
+          .ifPresent(x -> schedule(x, delay, this::pollApproval));
+    }
+  }
+
+  private void approve(String id, String consentId) {
+    store.update(id, LoanState.AWAITING_APPROVAL, x -> x
+            .withConsent(consentId != null ? consentId : x.consentId(), x.consentRequestId())
+            .to(LoanState.APPROVED, null, now()))
+        .ifPresent(x -> dispatch(x, bankPool, this::openAgreement));
+  }
+
+  /** Договор открывается пачкой с другими заявками в тот же банк (AgreementBatcher); поток не ждёт ответа. */
+  private void openAgreement(LoanApplication a) {
+    if (!opening.add(a.id())) return;
+    LoanRequest rq = a.request();
+    agreements.open(rq.baseUrl(), AgreementOpenRequest.loan(rq.customerLogin(), a.consentId(),
+            rq.productId(), rq.amount(), rq.termMonths()).withIdempotencyKey(idempotencyKey(a, "agreement")))
+        .whenComplete((agreementId, err) -> {
+          opening.remove(a.id());
+          if (err != null) {
+            retry(a, err instanceof RuntimeException re ? re : new IllegalStateException(err), this::openAgreement);
+            return;
+          }
+          store.update(a.id(), LoanState.APPROVED,
+              x -> x.withAgreement(agreementId).to(LoanState.AGREEMENT_OPENED, "Loan agreement opened", now()));
+        });
+  }
+
+  // ---------------- планирование ----------------
+
+  /**
+   * POST стадии упал: повторить, только если запрос до банка не дошёл; иначе банк мог его исполнить,
+   * и повтор открыл бы второе согласие/договор — заявка закрывается FAILED и ждёт проверки оператором.
+   */
+  private void retry(LoanApplication a, RuntimeException e, Stage stage) {
+    if (!ObFailures.notDelivered(e)) {
+      log.warn("Loan {}: {} outcome at the bank is unknown, not retrying: {}", a.id(), a.state(), e.toString());
+      store.update(a.id(), a.state(),
+          x -> x.to(LoanState.FAILED, "Bank outcome unknown, check the bank before resubmitting: " + e.getMessage(), now()));
+      return;
+    }
+    backoff(a, e, stage);
+  }
+
+  /** Стадия упала: повторить позже или закрыть заявку, если попытки кончились. */
+  private void backoff(LoanApplication a, RuntimeException e, Stage stage) {
+    log.debug("Loan {}: {} stage failure", a.id(), a.state(), e);
+    if (a.attempts() + 1 >= cfg.getMaxAttempts()) {
+      log.warn("Loan {}: {} failed {} times, giving up: {}", a.id(), a.state(), a.attempts() + 1, e.toString());
+      store.update(a.id(), a.state(), x -> x.to(LoanState.FAILED, e.getMessage(), now()));
+      return;
+    }
+    long delay = cfg.getRetryBackoff().toMillis() << Math.min(a.attempts(), 20);
+    log.info("Loan {}: {} failed (attempt {}), retry in {} ms: {}", a.id(), a.state(), a.attempts() + 1, delay, e.toString());
+    store.update(a.id(), a.state(), x -> x.retryAt(now() + delay, e.getMessage(), now()))
+        .ifPresent(x -> schedule(x, delay, stage));
+  }
+
+  private void schedule(LoanApplication a, long delayMillis, Stage stage) {
+    timer.schedule(() -> dispatch(a, bankPool, stage), Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+  }
+
+  /** Запустить стадию в пуле на свежем снимке; заявка уже в работе или сдвинулась — ничего не делать. */
+  private void dispatch(LoanApplication snapshot, ExecutorService pool, Stage stage) {
+    pool.execute(() -> {
+      if (!inFlight.add(snapshot.id())) {
+        // другой поток ещё работает с заявкой — заглянем чуть позже
+        schedule(snapshot, 200, stage);
+        return;
+      }
+      try {
+        store.get(snapshot.id())
+            .filter(cur -> cur.state() == snapshot.state())
+            .ifPresent(stage::run);
+      } catch (RuntimeException e) {
+        log.warn("Loan {}: stage {} crashed", snapshot.id(), snapshot.state(), e);
+      } finally {
+        inFlight.remove(snapshot.id());
+      }
+    });
+  }
+
+  /**
+   * Поднять незавершённые заявки после рестарта. POST, оборванный падением, повторяется с тем же
+   * ключом идемпотентности — исполненный до падения банк второй раз не исполнит.
+   */
+  private void resume() {
+    int resumed = 0;
+    for (LoanApplication a : store.all()) {
+      long wait = Math.max(0, a.nextAttemptAt() - now());
+      switch (a.state()) {
+        // документы KYC жили во временных файлах и после рестарта недоступны
+        case SUBMITTED -> store.update(a.id(), LoanState.SUBMITTED,
+            x -> x.to(LoanState.FAILED, "Service restarted during KYC, please resubmit", now()));
+        case KYC_PASSED -> schedule(a, wait, this::requestConsent);
+        case AWAITING_APPROVAL -> schedule(a, wait, this::pollApproval);
+        case APPROVED -> schedule(a, wait, this::openAgreement);
+        default -> { continue; }
+      }
+      resumed++;
+    }
+    if (resumed > 0) log.info("Resumed {} unfinished loan applications", resumed);
+  }
+
+  @FunctionalInterface
+  private interface Stage {
+    void run(LoanApplication a);
+  }
+
+  /** Ключ идемпотентности POST стадии: один и тот же для всех попыток заявки. */
+  private static String idempotencyKey(LoanApplication a, String stage) {
+    return "loan-" + a.id() + "-" + stage;
+  }
+
+  private static String normalizeStatus(String s) {
+    String v = s == null ? "" : s.toLowerCase(Locale.ROOT);
+    return switch (v) {
+      case "approved", "authorised", "authorized", "valid", "active" -> "approved";
+      case "rejected", "revoked", "expired", "canceled", "cancelled" -> "rejected";
+      default -> "pending";
+    };
+  }
+
+  private static long now() {
+    return System.currentTimeMillis();
+  }
+
+  private static ThreadFactory threads(String prefix) {
+    AtomicInteger n = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, prefix.endsWith("-") ? prefix + n.incrementAndGet() : prefix);
+      t.setDaemon(true);
+      return t;
+    };
+  }
+}
@@ -0,0 +1,23 @@
+package com.mvp.core.networth;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Локальная таблица курсов, префикс "fx" в application.yml.
+ * rates — сколько единиц base стоит одна единица валюты (USD: 92.50 при base RUB).
+ */
+public class FxProperties {
+
+  /** Валюта, к которой заданы курсы, и валюта отчётов по умолчанию. */
+  private String base = "RUB";
+
+  private Map<String, BigDecimal> rates = new LinkedHashMap<>();
+
+  public String getBase() { return base; }
+  public void setBase(String base) { this.base = base; }
+
+  public Map<String, BigDecimal> getRates() { return rates; }
+  public void setRates(Map<String, BigDecimal> rates) { this.rates = rates; }
+}
@@ -0,0 +1,148 @@
+package com.mvp.core.networth;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Курсы валют из fx.* с заранее посчитанными кросс-курсами.
+ *
+ * Каждый курс хранится точной дробью num/den (long), для всех пар валют — сразу при загрузке
+ * таблицы; пересчёт суммы — одно умножение и деление на long с округлением HALF_UP, без BigDecimal
+ * (BigInteger — только если произведение не влезло в long). Суммы — в минорных единицах,
+ * у всех валют два знака после запятой, как в {@link com.mvp.core.balances.AccountBalance}.
+ *
+ * Таблица неизменяемая и подменяется целиком ({@link #update}); {@link #version()} растёт при каждой
+ * подмене — по нему кэши понимают, что посчитанные суммы устарели.
+ */
+@Component
+public class FxRates {
+
+  private volatile Table table;
+
+  public FxRates(FxProperties cfg) {
+    this.table = Table.of(code(cfg.getBase()), cfg.getRates(), 1);
+  }
+
+  /** Заменить курсы (к той же базовой валюте). Ошибка в курсах — IllegalArgumentException, прежние остаются. */
+  public synchronized void update(Map<String, BigDecimal> rates) {
+    Table t = table;
+    table = Table.of(t.codes[0], rates, t.version + 1);
+  }
+
+  public String base() { return table.codes[0]; }
+
+  public long version() { return table.version; }
+
+  public List<String> currencies() { return List.of(table.codes); }
+
+  public boolean supports(String currency) {
+    return table.index.containsKey(code(currency));
+  }
+
+  /**
+   * Пересчитать minor единиц from в минорные единицы to.
+   * @throws IllegalArgumentException нет курса для одной из валют
+   */
+  public long convert(long minor, String from, String to) {
+    Table t = table;
+    return t.convert(minor, t.indexOf(code(from)), t.indexOf(code(to)));
+  }
+
+  /** Валюта как ключ таблицы: верхний регистр, RUR — это RUB. */
+  static String code(String currency) {
+    if (currency == null) return "";
+    String c = currency.trim().toUpperCase(Locale.ROOT);
+    return c.equals("RUR") ? "RUB" : c;
+  }
+
+  private static final class Table {
+    final String[] codes;
+    final Map<String, Integer> index;
+    final long[] num;
+    final long[] den;
+    final long version;
+
+    private Table(String[] codes, long[] num, long[] den, long version) {
+      this.codes = codes;
+      this.num = num;
+      this.den = den;
+      this.version = version;
+      Map<String, Integer> idx = new HashMap<>();
+      for (int i = 0; i < codes.length; i++) idx.put(codes[i], i);
+      this.index = idx;
+    }
+
+    static Table of(String base, Map<String, BigDecimal> rates, long version) {
+      if (base.isEmpty()) throw new IllegalArgumentException("fx.base is empty");
+      Map<String, BigInteger[]> frac = new LinkedHashMap<>();
+      frac.put(base, new BigInteger[]{BigInteger.ONE, BigInteger.ONE});
+      rates.forEach((cur, rate) -> {
+        String c = code(cur);
+        if (c.isEmpty() || c.equals(base)) return;
+        if (rate == null || rate.signum() <= 0) throw new IllegalArgumentException("Bad FX rate for " + c + ": " + rate);
+        BigDecimal r = rate.stripTrailingZeros();
+        BigInteger q = BigInteger.TEN.pow(Math.max(0, r.scale()));
+        BigInteger p = r.scale() >= 0 ? r.unscaledValue() : r.toBigIntegerExact();
+        frac.put(c, new BigInteger[]{p, q});
+      });
+
+      String[] codes = frac.keySet().toArray(new String[0]);
+      int n = codes.length;
+      long[] num = new long[n * n];
+      long[] den = new long[n * n];
+      for (int i = 0; i < n; i++) {
+        BigInteger[] a = frac.get(codes[i]);
+        for (int j = 0; j < n; j++) {
+          BigInteger[] b = frac.get(codes[j]);
+          // i → j: (pa/qa) / (pb/qb) = pa·qb / (qa·pb)
+          BigInteger nn = a[0].multiply(b[1]);
+          BigInteger dd = a[1].multiply(b[0]);
+          BigInteger g = nn.gcd(dd);
+          nn = nn.divide(g);
+          dd = dd.divide(g);
+          if (nn.bitLength() > 62 || dd.bitLength() > 62) {
+            throw new IllegalArgumentException("FX rates too precise for " + codes[i] + "/" + codes[j]);
+          }
+          num[i * n + j] = nn.longValue();
+          den[i * n + j] = dd.longValue();
+        }
+      }
+      return new Table(codes, num, den, version);
+    }
+
+    int indexOf(String code) {
+      Integer i = index.get(code);
+      if (i == null) throw new IllegalArgumentException("No FX rate for " + (code.isEmpty() ? "<none>" : code));
+      return i;
+    }
+
+    long convert(long minor, int from, int to) {
+      if (from == to || minor == 0) return minor;
+      int k = from * codes.length + to;
+      return mulDiv(minor, num[k], den[k]);
+    }
+  }
+
+  /** a·num/den с округлением HALF_UP (от нуля); den > 0. */
+  static long mulDiv(long a, long num, long den) {
+    long hi = Math.multiplyHigh(a, num);
+    long lo = a * num;
+    if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) {
+      long q = lo / den;
+      long r = Math.abs(lo % den);
+      if (r >= den - r) q += lo < 0 ? -1 : 1;
+      return q;
+    }
+    return new BigDecimal(BigInteger.valueOf(a).multiply(BigInteger.valueOf(num)))
+        .divide(BigDecimal.valueOf(den), 0, RoundingMode.HALF_UP)
+        .longValueExact();
+  }
+}
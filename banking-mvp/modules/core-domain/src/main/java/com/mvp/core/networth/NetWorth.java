@@ -0,0 +1,33 @@
+package com.mvp.core.networth;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сумма балансов всех отслеживаемых счетов клиента во всех банках в валюте currency.
+ *
+ * totalMinor — в минорных единицах; в неё не входят счета без загруженного или разобранного баланса (pending)
+ * и в валютах без курса (unconverted). byCurrency — суммы в исходных валютах до пересчёта.
+ * asOf — время самого старого из учтённых балансов (0 — ни одного).
+ */
+public record NetWorth(
+    String login,
+    String currency,
+    long totalMinor,
+    int accounts,
+    int pending,
+    List<String> unconverted,
+    Map<String, Long> byCurrency,
+    long asOf
+) {
+
+  public BigDecimal total() {
+    return BigDecimal.valueOf(totalMinor, 2);
+  }
+
+  /** Учтены все счета: всё загружено и всё пересчитано. */
+  public boolean isComplete() {
+    return pending == 0 && unconverted.isEmpty();
+  }
+}
@@ -0,0 +1,162 @@
+package com.mvp.core.networth;
+
+import com.mvp.core.balances.AccountBalance;
+import com.mvp.core.balances.BalanceSnapshots;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Чистые активы клиента: балансы всех его счетов во всех банках, пересчитанные в одну валюту.
+ *
+ * Балансы берутся из {@link BalanceSnapshots} (в банк отсюда не ходим). На клиента держится
+ * {@link Entry}: последний баланс каждого счёта и суммы по исходным валютам в long. Новый баланс
+ * одного счёта правит только его вклад в сумму своей валюты; итог в валюте отчёта — это пересчёт
+ * нескольких валютных сумм по готовым кросс-курсам {@link FxRates}, он кэшируется до следующего
+ * изменения балансов или курсов. Появился или пропал счёт — запись клиента собирается заново.
+ */
+@Service
+public class NetWorthService implements InitializingBean, BalanceSnapshots.Listener {
+
+  private final BalanceSnapshots balances;
+  private final FxRates fx;
+
+  private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+  public NetWorthService(BalanceSnapshots balances, FxRates fx) {
+    this.balances = balances;
+    this.fx = fx;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    balances.onChange(this);
+  }
+
+  /**
+   * Чистые активы клиента в валюте currency (пусто — fx.base).
+   * @throws IllegalArgumentException для валюты отчёта нет курса
+   */
+  public NetWorth of(String login, String currency) {
+    String who = login == null ? "" : login.trim();
+    String cur = FxRates.code(StringUtils.hasText(currency) ? currency : fx.base());
+    if (!fx.supports(cur)) throw new IllegalArgumentException("No FX rate for " + cur);
+
+    Entry e = cache.get(who);
+    if (e == null) {
+      Entry fresh = new Entry();
+      e = cache.putIfAbsent(who, fresh);
+      if (e == null) e = fresh;
+    }
+    if (!e.ready) {
+      // снимок читаем вне монитора записи: слушатель берёт монитор записи, уже держа монитор снимка
+      List<AccountBalance> list = balances.forLogin(who);
+      synchronized (e) {
+        for (AccountBalance b : list) e.fill(b);
+        e.ready = true;
+      }
+      if (list.isEmpty()) cache.remove(who, e);
+    }
+    synchronized (e) {
+      return e.total(who, cur, fx);
+    }
+  }
+
+  @Override
+  public void balanceChanged(String login, AccountBalance balance) {
+    Entry e = cache.get(login);
+    if (e == null) return;
+    synchronized (e) {
+      e.set(balance);
+    }
+  }
+
+  @Override
+  public void accountsChanged(String login) {
+    cache.remove(login);
+  }
+
+  /** Балансы счетов одного клиента и суммы по валютам; доступ — под монитором записи. */
+  private static final class Entry {
+
+    boolean ready;
+
+    /** bank:accountId → [minor, fetchedAt, currency index in curs (-1 — нет валюты)] */
+    private final Map<String, long[]> holdings = new HashMap<>();
+
+    private String[] curs = new String[2];
+    private long[] sums = new long[2];
+    private int ncur;
+
+    private NetWorth cached;
+    private long cachedFx = -1;
+
+    /** Баланс из снимка: только если событие об этом счёте ещё не пришло (оно новее). */
+    void fill(AccountBalance b) {
+      if (!holdings.containsKey(key(b))) set(b);
+    }
+
+    void set(AccountBalance b) {
+      long[] h = holdings.computeIfAbsent(key(b), k -> new long[]{0, 0, -1});
+      if (h[2] >= 0) sums[(int) h[2]] -= h[0];
+      int c = b.isLoaded() && StringUtils.hasText(b.currency()) ? slot(FxRates.code(b.currency())) : -1;
+      if (c >= 0) sums[c] += b.amountMinor();
+      h[0] = b.amountMinor();
+      h[1] = b.fetchedAt();
+      h[2] = c;
+      cached = null;
+    }
+
+    NetWorth total(String login, String currency, FxRates fx) {
+      if (cached != null && cachedFx == fx.version() && cached.currency().equals(currency)) return cached;
+
+      long total = 0;
+      List<String> unconverted = new ArrayList<>();
+      Map<String, Long> byCurrency = new LinkedHashMap<>();
+      boolean[] present = new boolean[ncur];
+      int pending = 0;
+      long asOf = Long.MAX_VALUE;
+      for (long[] h : holdings.values()) {
+        if (h[2] < 0) {
+          pending++;
+          continue;
+        }
+        present[(int) h[2]] = true;
+        asOf = Math.min(asOf, h[1]);
+      }
+      for (int i = 0; i < ncur; i++) {
+        if (!present[i]) continue;
+        byCurrency.put(curs[i], sums[i]);
+        if (fx.supports(curs[i])) total = Math.addExact(total, fx.convert(sums[i], curs[i], currency));
+        else unconverted.add(curs[i]);
+      }
+      cached = new NetWorth(login, currency, total, holdings.size(), pending,
+          List.copyOf(unconverted), Collections.unmodifiableMap(byCurrency), asOf == Long.MAX_VALUE ? 0 : asOf);
+      cachedFx = fx.version();
+      return cached;
+    }
+
+    private int slot(String code) {
+      for (int i = 0; i < ncur; i++) if (curs[i].equals(code)) return i;
+      if (ncur == curs.length) {
+        curs = Arrays.copyOf(curs, ncur * 2);
+        sums = Arrays.copyOf(sums, ncur * 2);
+      }
+      curs[ncur] = code;
+      return ncur++;
+    }
+
+    private static String key(AccountBalance b) {
+      return b.bank() + ":" + b.accountId();
+    }
+  }
+}
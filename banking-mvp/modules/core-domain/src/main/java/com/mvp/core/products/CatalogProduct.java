@@ -0,0 +1,63 @@
+package com.mvp.core.products;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Продукт банка, разобранный в числа один раз при загрузке каталога.
+ *
+ * rateBp — ставка в базисных пунктах (8.5% → 850), -1 — банк ставку не указал;
+ * суммы — в копейках; нет верхней границы — Long.MAX_VALUE; termMonths 0 — срок любой.
+ */
+public record CatalogProduct(
+    String bank,
+    String productId,
+    String type,
+    String name,
+    String description,
+    int rateBp,
+    long minMinor,
+    long maxMinor,
+    int termMonths
+) {
+
+  public boolean hasRate() { return rateBp >= 0; }
+
+  public boolean fitsAmount(long amountMinor) {
+    return amountMinor >= minMinor && amountMinor <= maxMinor;
+  }
+
+  /** Срок подходит: продукт без срока или ровно на termMonths. */
+  public boolean fitsTerm(int months) {
+    return termMonths == 0 || termMonths == months;
+  }
+
+  /** Ставка в процентах для показа. */
+  public BigDecimal rate() {
+    return hasRate() ? BigDecimal.valueOf(rateBp, 2) : null;
+  }
+
+  public BigDecimal minAmount() {
+    return minMinor > 0 ? BigDecimal.valueOf(minMinor, 2) : null;
+  }
+
+  public BigDecimal maxAmount() {
+    return maxMinor != Long.MAX_VALUE ? BigDecimal.valueOf(maxMinor, 2) : null;
+  }
+
+  /**
+   * Сумма в копейках; null — 0, копейки сверх двух знаков отбрасываются.
+   * Сумма за пределами long (сумма из запроса, граница из каталога) прижимается к Long.MAX_VALUE /
+   * Long.MIN_VALUE: такой суммы не вместит ни один продукт с верхней границей.
+   */
+  public static long toMinor(BigDecimal amount) {
+    if (amount == null) return 0;
+    BigDecimal minor = amount.movePointRight(2).setScale(0, RoundingMode.DOWN);
+    if (minor.compareTo(LONG_MAX) > 0) return Long.MAX_VALUE;
+    if (minor.compareTo(LONG_MIN) < 0) return Long.MIN_VALUE;
+    return minor.longValue();
+  }
+
+  private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+  private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+}
@@ -0,0 +1,124 @@
+package com.mvp.core.products;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Подбор предложений по всем банкам: «лучшая ставка на сумму X и срок Y».
+ *
+ * Индекс строится из {@link ProductCatalog} при каждой смене каталога и подменяется целиком
+ * (volatile-ссылка) — читатели не блокируются. Устройство: тип продукта → срок → полосы сумм.
+ * Границы полос — все min и max+1 продуктов, так что внутри полосы набор подходящих продуктов
+ * один и тот же; он заранее отсортирован по ставке. Запрос — два поиска в хэше и один двоичный
+ * поиск полосы, без разбора JSON и без походов в банк.
+ *
+ * Продукты без срока (termMonths 0) подходят под любой срок и входят в полосы каждого срока;
+ * для срока, которого нет ни у одного продукта, берутся только они. Продукты без ставки не предлагаются.
+ */
+@Component
+public class OfferEngine implements InitializingBean {
+
+  private static final Comparator<CatalogProduct> BY_RATE =
+      Comparator.comparingInt(CatalogProduct::rateBp).reversed()
+          .thenComparingLong(CatalogProduct::minMinor)
+          .thenComparing(CatalogProduct::bank);
+
+  private final ProductCatalog catalog;
+  private volatile Map<String, TypeIndex> index = Map.of();
+
+  public OfferEngine(ProductCatalog catalog) {
+    this.catalog = catalog;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    catalog.onChange(bank -> rebuild());
+    rebuild();
+  }
+
+  /** Лучшее предложение; пусто — ни один продукт не подходит по сумме/сроку. */
+  public Optional<CatalogProduct> best(String type, long amountMinor, int termMonths) {
+    CatalogProduct[] band = band(type, amountMinor, termMonths);
+    return band.length == 0 ? Optional.empty() : Optional.of(band[0]);
+  }
+
+  /** До limit предложений, от лучшей ставки к худшей. */
+  public List<CatalogProduct> top(String type, long amountMinor, int termMonths, int limit) {
+    CatalogProduct[] band = band(type, amountMinor, termMonths);
+    return List.of(Arrays.copyOf(band, Math.min(band.length, Math.max(0, limit))));
+  }
+
+  private CatalogProduct[] band(String type, long amountMinor, int termMonths) {
+    TypeIndex t = index.get(type == null ? "" : type.toLowerCase(Locale.ROOT));
+    if (t == null) return Bands.NONE;
+    Bands b = t.byTerm.getOrDefault(termMonths, t.anyTerm);
+    return b.at(amountMinor);
+  }
+
+  synchronized void rebuild() {
+    Map<String, List<CatalogProduct>> byType = new HashMap<>();
+    for (CatalogProduct p : catalog.all()) {
+      if (p.hasRate()) byType.computeIfAbsent(p.type(), k -> new ArrayList<>()).add(p);
+    }
+    Map<String, TypeIndex> next = new HashMap<>();
+    byType.forEach((type, list) -> next.put(type, TypeIndex.of(list)));
+    index = Map.copyOf(next);
+  }
+
+  // ---------------- индекс ----------------
+
+  private record TypeIndex(Map<Integer, Bands> byTerm, Bands anyTerm) {
+
+    static TypeIndex of(List<CatalogProduct> products) {
+      List<CatalogProduct> flexible = new ArrayList<>();
+      Map<Integer, List<CatalogProduct>> fixed = new HashMap<>();
+      for (CatalogProduct p : products) {
+        if (p.termMonths() == 0) flexible.add(p);
+        else fixed.computeIfAbsent(p.termMonths(), k -> new ArrayList<>()).add(p);
+      }
+      Map<Integer, Bands> byTerm = new HashMap<>();
+      fixed.forEach((term, list) -> {
+        list.addAll(flexible);
+        byTerm.put(term, Bands.of(list));
+      });
+      return new TypeIndex(Map.copyOf(byTerm), Bands.of(flexible));
+    }
+  }
+
+  /** Полосы сумм: starts[i] — начало i-й полосы, products[i] — подходящие в ней, лучшие первыми. */
+  private record Bands(long[] starts, CatalogProduct[][] products) {
+
+    static final CatalogProduct[] NONE = new CatalogProduct[0];
+
+    static Bands of(List<CatalogProduct> list) {
+      TreeSet<Long> bounds = new TreeSet<>();
+      for (CatalogProduct p : list) {
+        bounds.add(p.minMinor());
+        if (p.maxMinor() != Long.MAX_VALUE) bounds.add(p.maxMinor() + 1);
+      }
+      long[] starts = bounds.stream().mapToLong(Long::longValue).toArray();
+      CatalogProduct[][] products = new CatalogProduct[starts.length][];
+      for (int i = 0; i < starts.length; i++) {
+        long at = starts[i];
+        products[i] = list.stream().filter(p -> p.fitsAmount(at)).sorted(BY_RATE).toArray(CatalogProduct[]::new);
+      }
+      return new Bands(starts, products);
+    }
+
+    CatalogProduct[] at(long amountMinor) {
+      int i = Arrays.binarySearch(starts, amountMinor);
+      if (i < 0) i = -i - 2; // полоса, начавшаяся до суммы
+      return i < 0 ? NONE : products[i];
+    }
+  }
+}
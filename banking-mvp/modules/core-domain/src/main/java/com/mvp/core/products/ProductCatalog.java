@@ -0,0 +1,265 @@
+package com.mvp.core.products;
+
+import com.mvp.common.store.KvStore;
+import com.mvp.common.store.Repository;
+import com.mvp.ob.BankTokenProvider;
+import com.mvp.ob.ObClientProperties;
+import com.mvp.ob.ObProductsClient;
+import com.mvp.ob.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Каталоги продуктов всех банков в памяти, уже в числах ({@link CatalogProduct}).
+ *
+ * Каталоги грузятся в фоне, параллельно по банкам (потоки "products-refresh-N"), при старте и раз в products.refresh-interval;
+ * запросы пользователей читают готовый снимок и в банк не ходят. Не загрузилось — работает прежний
+ * каталог, повтор через products.retry-interval. Подписчики ({@link #onChange}) узнают только
+ * о каталогах, которые действительно изменились.
+ *
+ * Последний удачный каталог каждого банка лежит в хранилище (репозиторий "catalogs"): после рестарта
+ * он сразу отдаётся из памяти, а перечитывается по обычному расписанию от момента его загрузки.
+ */
+@Component
+public class ProductCatalog implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(ProductCatalog.class);
+
+  private final ObProductsClient products;
+  private final BankTokenProvider tokens;
+  private final ObClientProperties ob;
+  private final ProductsProperties cfg;
+  private final Repository<StoredCatalog> saved;
+
+  private final Map<String, List<CatalogProduct>> byBank = new ConcurrentHashMap<>();
+  private final Map<String, Long> loadedAt = new ConcurrentHashMap<>();
+  private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+  private ScheduledExecutorService timer;
+
+  public ProductCatalog(ObProductsClient products, BankTokenProvider tokens,
+                        ObClientProperties ob, ProductsProperties cfg, KvStore store) {
+    this.products = products;
+    this.tokens = tokens;
+    this.ob = ob;
+    this.cfg = cfg;
+    this.saved = store.repository("catalogs", StoredCatalog.class);
+  }
+
+  /** Снимок каталога банка в хранилище. */
+  record StoredCatalog(long loadedAt, List<CatalogProduct> products) {}
+
+  @Override
+  public void afterPropertiesSet() {
+    // по потоку на банк: каталоги грузятся параллельно, медленный банк не задерживает остальные
+    AtomicInteger n = new AtomicInteger();
+    timer = Executors.newScheduledThreadPool(Math.max(1, cfg.getBanks().size()), r -> {
+      Thread t = new Thread(r, "products-refresh-" + n.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    long now = System.currentTimeMillis();
+    for (String bank : banks()) {
+      long delay = 0;
+      long at = restore(bank);
+      if (at > 0) delay = Math.max(0, at + cfg.getRefreshInterval().toMillis() - now);
+      timer.schedule(() -> refreshAndReschedule(bank), delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    timer.shutdownNow();
+  }
+
+  /** Каталог банка (код v/a/s); ещё не загружен — пусто. */
+  public List<CatalogProduct> products(String bank) {
+    return byBank.getOrDefault(code(bank), List.of());
+  }
+
+  /** Все загруженные каталоги разом. */
+  public List<CatalogProduct> all() {
+    List<CatalogProduct> out = new ArrayList<>();
+    for (String bank : banks()) out.addAll(products(bank));
+    return out;
+  }
+
+  /** Коды банков (v/a/s) в порядке products.banks. */
+  public List<String> banks() {
+    return cfg.getBanks().stream().map(ProductCatalog::code).distinct().toList();
+  }
+
+  public boolean isLoaded(String bank) {
+    return byBank.containsKey(code(bank));
+  }
+
+  /** Когда каталог банка последний раз успешно перечитан (epoch ms); 0 — ещё ни разу. */
+  public long loadedAt(String bank) {
+    return loadedAt.getOrDefault(code(bank), 0L);
+  }
+
+  /**
+   * Подписаться на смену каталога; аргумент — код банка. Вызывается в потоке обновления этого банка,
+   * то есть для разных банков — из разных потоков одновременно.
+   */
+  public void onChange(Consumer<String> listener) {
+    listeners.add(listener);
+  }
+
+  /** Перечитать каталог банка сейчас. @return true — каталог изменился */
+  public boolean refresh(String bank) {
+    String b = code(bank);
+    String baseUrl = ob.baseUrlFor(b);
+    List<CatalogProduct> fresh = new ArrayList<>();
+    for (Product p : products.getProductsList(baseUrl, tokens.get(baseUrl))) fresh.add(parse(b, p));
+    List<CatalogProduct> prev = byBank.put(b, List.copyOf(fresh));
+    long now = System.currentTimeMillis();
+    loadedAt.put(b, now);
+    save(b, new StoredCatalog(now, List.copyOf(fresh)));
+    if (fresh.equals(prev)) return false;
+    log.info("Product catalog {}: {} products", b, fresh.size());
+    for (Consumer<String> l : listeners) {
+      try {
+        l.accept(b);
+      } catch (RuntimeException e) {
+        log.warn("Product catalog listener failed for {}", b, e);
+      }
+    }
+    return true;
+  }
+
+  private void refreshAndReschedule(String bank) {
+    long next = cfg.getRefreshInterval().toMillis();
+    try {
+      refresh(bank);
+    } catch (RuntimeException e) {
+      next = cfg.getRetryInterval().toMillis();
+      log.warn("Product catalog {} refresh failed, retry in {} ms: {}", bank, next, e.toString());
+    }
+    if (!timer.isShutdown()) timer.schedule(() -> refreshAndReschedule(bank), next, TimeUnit.MILLISECONDS);
+  }
+
+  /** Поднять сохранённый каталог банка. @return когда он был загружен; 0 — сохранённого нет */
+  private long restore(String bank) {
+    try {
+      StoredCatalog c = saved.get(bank).orElse(null);
+      if (c == null || c.products() == null) return 0;
+      byBank.put(bank, List.copyOf(c.products()));
+      loadedAt.put(bank, c.loadedAt());
+      log.info("Product catalog {}: {} products restored from store", bank, c.products().size());
+      return c.loadedAt();
+    } catch (RuntimeException e) {
+      log.warn("Product catalog {}: saved copy unreadable, loading from bank: {}", bank, e.toString());
+      return 0;
+    }
+  }
+
+  /** Хранилище недоступно — каталог всё равно работает из памяти. */
+  private void save(String bank, StoredCatalog c) {
+    try {
+      saved.put(bank, c);
+    } catch (RuntimeException e) {
+      log.warn("Product catalog {}: cannot save to store: {}", bank, e.toString());
+    }
+  }
+
+  // ---------------- разбор ----------------
+
+  static CatalogProduct parse(String bank, Product p) {
+    long min = amountMinor(p.minAmount());
+    long max = amountMinor(p.maxAmount());
+    return new CatalogProduct(
+        bank,
+        p.productId(),
+        p.productType() == null ? "" : p.productType().trim().toLowerCase(Locale.ROOT),
+        p.productName() != null ? p.productName() : p.productId(),
+        p.description(),
+        rateBp(p.interestRate()),
+        Math.max(0, min),
+        max < 0 ? Long.MAX_VALUE : max,
+        p.termMonths() == null || p.termMonths() < 0 ? 0 : p.termMonths());
+  }
+
+  /** "8.5", "8,50 %" → 850; не число — -1. */
+  static int rateBp(String s) {
+    BigDecimal v = number(s);
+    if (v == null || v.signum() < 0) return -1;
+    BigDecimal bp = v.movePointRight(2).setScale(0, RoundingMode.HALF_UP);
+    return bp.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) > 0 ? Integer.MAX_VALUE : bp.intValue();
+  }
+
+  /** "50 000.00" → 5000000 копеек; пусто/не число — -1. */
+  static long amountMinor(String s) {
+    BigDecimal v = number(s);
+    if (v == null || v.signum() < 0) return -1;
+    return CatalogProduct.toMinor(v);
+  }
+
+  /**
+   * Первое число в строке: "от 1 000 до 5 000" → 1000, "8,5 % годовых" → 8.5.
+   * Пробелы между цифрами — разделители разрядов, первая точка или запятая — дробная часть;
+   * всё после числа (вторая граница диапазона, срок) не берётся.
+   */
+  private static BigDecimal number(String s) {
+    if (s == null) return null;
+    int i = 0;
+    int n = s.length();
+    while (i < n && !isDigit(s.charAt(i))) i++;
+    if (i == n) return null;
+    StringBuilder b = new StringBuilder(n - i + 1);
+    if (i > 0 && s.charAt(i - 1) == '-') b.append('-');
+    boolean fraction = false;
+    for (; i < n; i++) {
+      char c = s.charAt(i);
+      if (isDigit(c)) {
+        b.append(c);
+      } else if (!fraction && isSpace(c) && i + 1 < n && isDigit(s.charAt(i + 1))) {
+        // разделитель разрядов
+      } else if (!fraction && (c == '.' || c == ',') && i + 1 < n && isDigit(s.charAt(i + 1))) {
+        b.append('.');
+        fraction = true;
+      } else {
+        break;
+      }
+    }
+    try {
+      return new BigDecimal(b.toString());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /** Обычный, неразрывный и узкий неразрывный пробел — так банки отбивают разряды. */
+  private static boolean isSpace(char c) {
+    return c == ' ' || c == '\u00A0' || c == '\u202F';
+  }
+
+  private static String code(String bank) {
+    String b = ObClientProperties.normalizeBankCode(bank);
+    return switch (b) {
+      case "a", "abank" -> "a";
+      case "s", "sbank" -> "s";
+      default -> "v";
+    };
+  }
+}
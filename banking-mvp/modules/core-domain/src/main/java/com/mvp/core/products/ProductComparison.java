@@ -0,0 +1,188 @@
+package com.mvp.core.products;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Сравнение продуктов одного типа по всем банкам с заранее посчитанными рейтингами.
+ *
+ * Каталог каждого банка раскладывается в сегмент из примитивных массивов (ставка в б.п., суммы
+ * в копейках, срок в месяцах) со своим порядком по каждому типу. Общий рейтинг типа — слияние уже
+ * отсортированных порядков сегментов (банков мало — линейное слияние), ссылка на продукт упакована
+ * в int: номер банка << 24 | номер в сегменте. Сменился каталог одного банка — пересобирается только
+ * его сегмент и слияние; сортировки остальных банков не повторяются.
+ *
+ * Снимок (сегменты + рейтинги) неизменяем и подменяется целиком — чтение без блокировок,
+ * запрос — проход по готовому рейтингу с фильтром суммы/срока по массивам. В банки на запросе не ходим.
+ *
+ * Порядок: вклады и прочее — по убыванию ставки; кредиты — по возрастанию (клиенту выгоднее ниже).
+ * Без ставки — в конце. Равные ставки — меньший порог входа выше.
+ */
+@Component
+public class ProductComparison implements InitializingBean {
+
+  /** Строка сравнения: rank — место с учётом равенства ставок (1, 2, 2, 4…). */
+  public record Row(int rank, CatalogProduct product) { }
+
+  private static final int LOCAL_BITS = 24;
+  private static final int LOCAL_MASK = (1 << LOCAL_BITS) - 1;
+
+  private final ProductCatalog catalog;
+  private final List<String> banks;
+  private volatile Snapshot snapshot;
+
+  public ProductComparison(ProductCatalog catalog) {
+    this.catalog = catalog;
+    this.banks = catalog.banks();
+    Segment[] empty = new Segment[banks.size()];
+    Arrays.fill(empty, Segment.EMPTY);
+    this.snapshot = new Snapshot(empty, Map.of());
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    catalog.onChange(this::update);
+    for (String bank : banks) update(bank);
+  }
+
+  /**
+   * Продукты типа по всем банкам, лучшие первыми.
+   * @param amountMinor сумма в копейках; меньше 0 — любая
+   * @param termMonths  срок; 0 — любой
+   */
+  public List<Row> compare(String type, long amountMinor, int termMonths, int limit) {
+    Snapshot s = snapshot;
+    int[] order = s.rankings.get(normalizeType(type));
+    if (order == null || limit <= 0) return List.of();
+    List<Row> out = new ArrayList<>(Math.min(limit, order.length));
+    int rank = 0, seen = 0, prevKey = 0;
+    for (int ref : order) {
+      Segment g = s.segments[ref >>> LOCAL_BITS];
+      int i = ref & LOCAL_MASK;
+      if (amountMinor >= 0 && (amountMinor < g.min[i] || amountMinor > g.max[i])) continue;
+      if (termMonths > 0 && g.term[i] != 0 && g.term[i] != termMonths) continue;
+      seen++;
+      if (seen == 1 || g.key[i] != prevKey) rank = seen;
+      prevKey = g.key[i];
+      out.add(new Row(rank, g.products[i]));
+      if (out.size() >= limit) break;
+    }
+    return out;
+  }
+
+  /** Типы продуктов, по которым есть рейтинг. */
+  public Set<String> types() {
+    return snapshot.rankings.keySet();
+  }
+
+  /** Пересобрать сегмент банка и рейтинги (слушатель каталога; банки обновляются из разных потоков). */
+  synchronized void update(String bank) {
+    int b = banks.indexOf(bank);
+    if (b < 0) return;
+    Segment[] segments = snapshot.segments.clone();
+    segments[b] = Segment.of(catalog.products(bank));
+
+    Set<String> types = new HashSet<>();
+    for (Segment g : segments) types.addAll(g.order.keySet());
+    Map<String, int[]> rankings = new HashMap<>();
+    for (String t : types) rankings.put(t, merge(segments, t));
+    snapshot = new Snapshot(segments, Map.copyOf(rankings));
+  }
+
+  /** Слияние отсортированных порядков сегментов в один рейтинг упакованных ссылок. */
+  private static int[] merge(Segment[] segments, String type) {
+    int[][] orders = new int[segments.length][];
+    int total = 0;
+    for (int b = 0; b < segments.length; b++) {
+      orders[b] = segments[b].order.getOrDefault(type, Segment.NONE);
+      total += orders[b].length;
+    }
+    int[] pos = new int[segments.length];
+    int[] out = new int[total];
+    for (int k = 0; k < total; k++) {
+      int best = -1;
+      for (int b = 0; b < segments.length; b++) {
+        if (pos[b] == orders[b].length) continue;
+        if (best < 0 || segments[b].before(orders[b][pos[b]], segments[best], orders[best][pos[best]])) best = b;
+      }
+      out[k] = best << LOCAL_BITS | orders[best][pos[best]++];
+    }
+    return out;
+  }
+
+  static String normalizeType(String type) {
+    return type == null ? "" : type.trim().toLowerCase(Locale.ROOT);
+  }
+
+  /** Меньше — лучше: ставка по убыванию (кредиты — по возрастанию), без ставки — в конце. */
+  static int sortKey(String type, int rateBp) {
+    if (rateBp < 0) return Integer.MAX_VALUE;
+    boolean lowerIsBetter = type.contains("loan") || type.contains("credit");
+    return lowerIsBetter ? rateBp : -rateBp;
+  }
+
+  private record Snapshot(Segment[] segments, Map<String, int[]> rankings) { }
+
+  /** Каталог одного банка в массивах; order — номера продуктов по типам, лучшие первыми. */
+  private static final class Segment {
+
+    static final int[] NONE = new int[0];
+    static final Segment EMPTY = of(List.of());
+
+    final CatalogProduct[] products;
+    final int[] key;
+    final long[] min;
+    final long[] max;
+    final int[] term;
+    final Map<String, int[]> order;
+
+    private Segment(CatalogProduct[] products, int[] key, long[] min, long[] max, int[] term,
+                    Map<String, int[]> order) {
+      this.products = products;
+      this.key = key;
+      this.min = min;
+      this.max = max;
+      this.term = term;
+      this.order = order;
+    }
+
+    static Segment of(List<CatalogProduct> list) {
+      int n = Math.min(list.size(), LOCAL_MASK);
+      CatalogProduct[] products = list.subList(0, n).toArray(CatalogProduct[]::new);
+      int[] key = new int[n];
+      long[] min = new long[n];
+      long[] max = new long[n];
+      int[] term = new int[n];
+      Map<String, List<Integer>> byType = new HashMap<>();
+      for (int i = 0; i < n; i++) {
+        CatalogProduct p = products[i];
+        key[i] = sortKey(p.type(), p.rateBp());
+        min[i] = p.minMinor();
+        max[i] = p.maxMinor();
+        term[i] = p.termMonths();
+        byType.computeIfAbsent(p.type(), k -> new ArrayList<>()).add(i);
+      }
+      Map<String, int[]> order = new HashMap<>();
+      byType.forEach((t, idx) -> order.put(t, idx.stream()
+          .sorted((x, y) -> key[x] != key[y] ? Integer.compare(key[x], key[y]) : Long.compare(min[x], min[y]))
+          .mapToInt(Integer::intValue)
+          .toArray()));
+      return new Segment(products, key, min, max, term, Map.copyOf(order));
+    }
+
+    /** Продукт i этого сегмента идёт раньше продукта j сегмента other (при равенстве — банк раньше по списку). */
+    boolean before(int i, Segment other, int j) {
+      if (key[i] != other.key[j]) return key[i] < other.key[j];
+      return min[i] < other.min[j];
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.mvp.core.products;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Настройки кэша каталогов продуктов, префикс "products" в application.yml.
+ */
+public class ProductsProperties {
+
+  /** Коды банков, чьи каталоги держим (адреса — из app.*-base-url). */
+  private List<String> banks = List.of("v", "a", "s");
+
+  /** Как часто перечитывать каталоги; запросы пользователей банк не трогают. */
+  private Duration refreshInterval = Duration.ofMinutes(5);
+
+  /** Повтор после неудачной загрузки (старый каталог при этом остаётся в работе). */
+  private Duration retryInterval = Duration.ofSeconds(30);
+
+  public List<String> getBanks() { return banks; }
+  public void setBanks(List<String> banks) { this.banks = banks; }
+
+  public Duration getRefreshInterval() { return refreshInterval; }
+  public void setRefreshInterval(Duration refreshInterval) { this.refreshInterval = refreshInterval; }
+
+  public Duration getRetryInterval() { return retryInterval; }
+  public void setRetryInterval(Duration retryInterval) { this.retryInterval = retryInterval; }
+}
@@ -0,0 +1,105 @@
+package com.mvp.core.risk;
+
+/**
+ * Скользящие признаки одного счёта плательщика: последние платежи (время, банк получателя),
+ * суммы для z-оценки (сумма и сумма квадратов по кольцу) и известные получатели.
+ * Всё — кольца фиксированного размера на примитивах, запись и оценка — O(размер кольца) без аллокаций.
+ *
+ * Не потокобезопасно — {@link PaymentRiskEngine} берёт монитор объекта (блокировка на счёт).
+ */
+final class DebtorFeatures {
+
+  private static final int RECENT = 64;
+  private static final int AMOUNTS = 32;
+  private static final int CREDITORS = 256;
+
+  // последние попытки, включая отложенные
+  private final long[] at = new long[RECENT];
+  private final byte[] bank = new byte[RECENT];
+  private int recentHead;
+  private int recentSize;
+
+  // суммы прошедших (не отложенных) платежей; sum/sumSq пересчитываются по кольцу при записи
+  private final long[] amount = new long[AMOUNTS];
+  private int amountHead;
+  private int amountSize;
+  private double sum;
+  private double sumSq;
+
+  // получатели, которым уже платили без задержки
+  private final long[] creditor = new long[CREDITORS];
+  private int creditorHead;
+  private int creditorSize;
+
+  /** Попыток не раньше since. */
+  int attemptsSince(long since) {
+    int n = 0;
+    for (int i = 0; i < recentSize; i++) if (at[i] >= since) n++;
+    return n;
+  }
+
+  /** Разных банков получателей среди попыток не раньше since и ещё одного (текущего). */
+  int banksSince(long since, char current) {
+    int mask = bit(current);
+    for (int i = 0; i < recentSize; i++) if (at[i] >= since) mask |= bit((char) bank[i]);
+    return Integer.bitCount(mask);
+  }
+
+  boolean hasHistory() {
+    return recentSize > 0;
+  }
+
+  int amounts() {
+    return amountSize;
+  }
+
+  /**
+   * Насколько сумма выбивается из прошлых, в стандартных отклонениях. Разброс снизу ограничен четвертью
+   * средней — иначе после серии одинаковых платежей любой другой выглядел бы аномальным.
+   */
+  double zScore(long minor) {
+    if (amountSize == 0) return 0;
+    double mean = sum / amountSize;
+    double var = Math.max(0, sumSq / amountSize - mean * mean);
+    double std = Math.max(Math.sqrt(var), Math.max(Math.abs(mean) / 4, 1));
+    return (minor - mean) / std;
+  }
+
+  boolean knowsCreditor(long h) {
+    for (int i = 0; i < creditorSize; i++) if (creditor[i] == h) return true;
+    return false;
+  }
+
+  /** Учесть попытку; held — отложена: в частоту идёт, в «нормальные» суммы и получателей — нет. */
+  void record(long when, long minor, long creditorHash, char creditorBank, boolean held) {
+    at[recentHead] = when;
+    bank[recentHead] = (byte) creditorBank;
+    recentHead = (recentHead + 1) % RECENT;
+    if (recentSize < RECENT) recentSize++;
+    if (!held) learn(minor, creditorHash);
+  }
+
+  /** Платёж признан нормальным (прошёл сразу или одобрен оператором). */
+  void learn(long minor, long creditorHash) {
+    amount[amountHead] = minor;
+    amountHead = (amountHead + 1) % AMOUNTS;
+    if (amountSize < AMOUNTS) amountSize++;
+    // без вычитания вытесненной суммы: у double на больших суммах накапливалась бы ошибка
+    double s = 0, sq = 0;
+    for (int i = 0; i < amountSize; i++) {
+      s += amount[i];
+      sq += (double) amount[i] * amount[i];
+    }
+    sum = s;
+    sumSq = sq;
+
+    if (knowsCreditor(creditorHash)) return;
+    creditor[creditorHead] = creditorHash;
+    creditorHead = (creditorHead + 1) % CREDITORS;
+    if (creditorSize < CREDITORS) creditorSize++;
+  }
+
+  private static int bit(char bankCode) {
+    return 1 << (bankCode & 31);
+  }
+}
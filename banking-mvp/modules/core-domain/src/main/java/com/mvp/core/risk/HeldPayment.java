@@ -0,0 +1,56 @@
+package com.mvp.core.risk;
+
+import java.util.List;
+
+/**
+ * Платёж, задержанный оценкой риска до решения оператора.
+ *
+ * HELD → RELEASING (оператор пропустил, идёт отправка в банк) → SENT | FAILED | UNKNOWN;
+ * HELD → REJECTED. FAILED — банк платёж точно не принял (4xx, запрос не дошёл), его можно пропустить
+ * повторно. UNKNOWN — исход неизвестен (таймаут, 5xx, рестарт посреди отправки): платёж мог уйти,
+ * поэтому ни повторно пропустить, ни отклонить его нельзя, пока сверка со статусом в банке не
+ * переведёт его в SENT или FAILED. paymentId — id платежа в банке после отправки,
+ * error — ответ банка, если отправка не удалась.
+ */
+public record HeldPayment(
+    String id,
+    PaymentAttempt payment,
+    int score,
+    List<String> reasons,
+    Status status,
+    long createdAt,
+    long updatedAt,
+    String decidedBy,
+    String paymentId,
+    String error
+) {
+
+  public enum Status {
+    HELD, RELEASING, SENT, FAILED, UNKNOWN, REJECTED;
+
+    public boolean isTerminal() {
+      return this == SENT || this == REJECTED;
+    }
+  }
+
+  public HeldPayment withStatus(Status next, String reviewer) {
+    return new HeldPayment(id, payment, score, reasons, next, createdAt, System.currentTimeMillis(),
+        reviewer != null ? reviewer : decidedBy, paymentId, error);
+  }
+
+  public HeldPayment sent(String bankPaymentId) {
+    return new HeldPayment(id, payment, score, reasons, Status.SENT, createdAt, System.currentTimeMillis(),
+        decidedBy, bankPaymentId, null);
+  }
+
+  public HeldPayment failed(String bankError) {
+    return new HeldPayment(id, payment, score, reasons, Status.FAILED, createdAt, System.currentTimeMillis(),
+        decidedBy, paymentId, bankError);
+  }
+
+  /** Отправка с неизвестным исходом; bankPaymentId — если банк его всё же успел назвать. */
+  public HeldPayment unknown(String bankPaymentId, String error) {
+    return new HeldPayment(id, payment, score, reasons, Status.UNKNOWN, createdAt, System.currentTimeMillis(),
+        decidedBy, bankPaymentId != null ? bankPaymentId : paymentId, error);
+  }
+}
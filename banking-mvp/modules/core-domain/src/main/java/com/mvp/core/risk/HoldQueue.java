@@ -0,0 +1,135 @@
+package com.mvp.core.risk;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvp.common.store.JsonLines;
+import com.mvp.common.store.KvStore;
+import com.mvp.common.store.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Отложенные платежи, ждущие оператора. Каждый переход — запись в хранилище ({@link KvStore},
+ * репозиторий "holds") с fsync до ответа, плюс состояние в памяти. При старте решённые платежи
+ * старше risk.retention удаляются; прежний журнал risk.hold-file, если он есть, один раз
+ * переносится в хранилище. Платёж, застрявший в RELEASING (процесс упал посреди отправки),
+ * при старте становится UNKNOWN: ушёл ли он в банк, выясняет сверка, а не повторная отправка.
+ */
+@Component
+public class HoldQueue implements InitializingBean {
+
+  private static final Logger log = LoggerFactory.getLogger(HoldQueue.class);
+
+  private final RiskProperties cfg;
+  private final Repository<HeldPayment> store;
+  private final Map<String, HeldPayment> live = new ConcurrentHashMap<>();
+
+  public HoldQueue(RiskProperties cfg, KvStore store) {
+    this.cfg = cfg;
+    this.store = store.repository("holds", HeldPayment.class);
+  }
+
+  @Override
+  public void afterPropertiesSet() throws IOException {
+    importJournal();
+    long cutoff = System.currentTimeMillis() - cfg.getRetention().toMillis();
+    int dropped = 0;
+    int interrupted = 0;
+    for (HeldPayment h : store.findAll()) {
+      if (h.status().isTerminal() && h.updatedAt() < cutoff) {
+        store.delete(h.id());
+        dropped++;
+      } else if (h.status() == HeldPayment.Status.RELEASING) {
+        append(h.unknown(null, "Service restarted while sending the payment to the bank"));
+        interrupted++;
+      } else {
+        live.put(h.id(), h);
+      }
+    }
+    log.info("Held payments: {} in store, {} expired dropped", live.size(), dropped);
+    if (interrupted > 0) log.warn("{} held payments were being sent at shutdown, marked UNKNOWN for reconciliation", interrupted);
+  }
+
+  public synchronized HeldPayment hold(PaymentAttempt p, RiskAssessment risk) {
+    long now = System.currentTimeMillis();
+    HeldPayment h = new HeldPayment(UUID.randomUUID().toString(), p, risk.score(), risk.reasons(),
+        HeldPayment.Status.HELD, now, now, null, null, null);
+    append(h);
+    return h;
+  }
+
+  public Optional<HeldPayment> get(String id) {
+    return Optional.ofNullable(live.get(id));
+  }
+
+  /** Платежи в статусах statuses (пусто — все), старые первыми. */
+  public List<HeldPayment> list(Set<HeldPayment.Status> statuses) {
+    List<HeldPayment> out = new ArrayList<>();
+    for (HeldPayment h : live.values()) if (statuses.isEmpty() || statuses.contains(h.status())) out.add(h);
+    out.sort(Comparator.comparingLong(HeldPayment::createdAt));
+    return out;
+  }
+
+  /**
+   * Переход «сравнить и записать»: fn применяется, только если платёж сейчас в одном из expected.
+   * @return новый снимок; пусто — платежа нет или его уже решил кто-то другой
+   */
+  public synchronized Optional<HeldPayment> update(String id, Set<HeldPayment.Status> expected,
+                                                   UnaryOperator<HeldPayment> fn) {
+    HeldPayment cur = live.get(id);
+    if (cur == null || !expected.contains(cur.status())) return Optional.empty();
+    HeldPayment next = fn.apply(cur);
+    append(next);
+    return Optional.of(next);
+  }
+
+  /** Из каких статусов можно пропустить или отклонить: UNKNOWN — только после сверки. */
+  public static Set<HeldPayment.Status> releasable() {
+    return EnumSet.of(HeldPayment.Status.HELD, HeldPayment.Status.FAILED);
+  }
+
+  private void append(HeldPayment h) {
+    store.put(h.id(), h);
+    live.put(h.id(), h);
+  }
+
+  /** Журнал JSON по строке от прежних версий: последняя строка по id побеждает; после переноса — *.imported. */
+  private void importJournal() throws IOException {
+    if (cfg.getHoldFile() == null || cfg.getHoldFile().isBlank()) return;
+    Path file = Path.of(cfg.getHoldFile()).toAbsolutePath();
+    if (!Files.exists(file)) return;
+    ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    Map<String, HeldPayment> last = new LinkedHashMap<>();
+    JsonLines.read(file, (line, n) -> {
+      try {
+        HeldPayment h = mapper.readValue(line, HeldPayment.class);
+        last.put(h.id(), h);
+      } catch (IOException e) {
+        log.warn("Skipping unreadable held payments journal line {}: {}", n, e.getMessage());
+      }
+    });
+    // в хранилище уже может быть более свежая версия (импорт прервался после записи)
+    last.keySet().removeIf(store::contains);
+    store.putAll(last);
+    Files.move(file, file.resolveSibling(file.getFileName() + ".imported"), StandardCopyOption.REPLACE_EXISTING);
+    log.info("Held payments journal {} imported into store: {} payments", file, last.size());
+  }
+}
@@ -0,0 +1,49 @@
+package com.mvp.core.risk;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+
+/**
+ * Платёж, как его ввёл клиент, до отправки в банк.
+ * creditorAccount — номер счёта получателя или межбанковый "abank:4081...".
+ */
+public record PaymentAttempt(
+    String login,
+    String bank,
+    String debtorAccountId,
+    String creditorAccount,
+    BigDecimal amount,
+    String currency,
+    String description,
+    String paymentConsentId
+) {
+
+  /** Код банка получателя (v/a/s): префикс "xbank:", без него — банк плательщика. */
+  public char creditorBank() {
+    int colon = creditorAccount == null ? -1 : creditorAccount.indexOf(':');
+    return colon < 0 ? bankCode(bank) : bankCode(creditorAccount.substring(0, colon));
+  }
+
+  public char debtorBank() {
+    return bankCode(bank);
+  }
+
+  public long amountMinor() {
+    return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+  }
+
+  /** Ключ признаков: счёт плательщика в своей валюте. */
+  String debtorKey() {
+    return debtorBank() + ":" + debtorAccountId + ":" + (currency == null ? "RUB" : currency.trim().toUpperCase(Locale.ROOT));
+  }
+
+  static char bankCode(String bank) {
+    String b = bank == null ? "v" : bank.trim().toLowerCase(Locale.ROOT);
+    return switch (b) {
+      case "a", "abank" -> 'a';
+      case "s", "sbank" -> 's';
+      default -> 'v';
+    };
+  }
+}
@@ -0,0 +1,204 @@
+package com.mvp.core.risk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mvp.common.hash.Hashes;
+import com.mvp.common.store.JsonLines;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Оценка риска исходящего платежа до отправки в банк.
+ *
+ * Признаки держатся по счёту плательщика ({@link DebtorFeatures}): частота попыток за
+ * risk.velocity-window, z-оценка суммы против прошлых платежей, новый получатель, перевод в другой
+ * банк и число разных банков получателей за risk.hop-window. Счета — в ConcurrentHashMap, у каждого
+ * свой монитор: оценки по разным счетам друг другу не мешают, оценка одного — микросекунды.
+ *
+ * Каждая попытка дописывается в журнал risk.history-file (без fsync — это признаки, а не деньги:
+ * потеря последних строк при падении только чуть «омолодит» историю). При старте признаки
+ * восстанавливаются прогоном журнала за risk.retention; более старые строки при этом вычищаются.
+ */
+@Service
+public class PaymentRiskEngine implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(PaymentRiskEngine.class);
+
+  private static final int COMPACT_MIN_DROPPED = 1_000;
+
+  private final RiskProperties cfg;
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Map<String, DebtorFeatures> features = new ConcurrentHashMap<>();
+
+  private JsonLines journal;
+
+  public PaymentRiskEngine(RiskProperties cfg) {
+    this.cfg = cfg;
+  }
+
+  @Override
+  public void afterPropertiesSet() throws IOException {
+    if (cfg.getHistoryFile() == null || cfg.getHistoryFile().isBlank()) {
+      log.warn("risk.history-file is not set: payment risk features start empty on every restart");
+      return;
+    }
+    Path file = Path.of(cfg.getHistoryFile()).toAbsolutePath();
+    List<String> kept = replay(file);
+    journal = JsonLines.open(file, false);
+    if (kept != null) {
+      journal.rewrite(kept);
+      log.info("Payment risk journal compacted: {} lines kept", kept.size());
+    }
+    log.info("Payment risk history {}: {} debtor accounts", file, features.size());
+  }
+
+  @Override
+  public void destroy() throws IOException {
+    if (journal != null) journal.close();
+  }
+
+  /** Оценить платёж и учесть его в признаках счёта (отложенный — только в частоте). */
+  public RiskAssessment assess(PaymentAttempt a) {
+    long t0 = System.nanoTime();
+    long now = System.currentTimeMillis();
+    String key = a.debtorKey();
+    long minor = a.amountMinor();
+    long creditor = creditorHash(a.creditorAccount());
+    char creditorBank = a.creditorBank();
+    List<String> reasons = new ArrayList<>(4);
+    int score;
+    boolean hold;
+
+    DebtorFeatures f = features.computeIfAbsent(key, k -> new DebtorFeatures());
+    synchronized (f) {
+      score = Math.min(100, score(f, now, minor, creditor, creditorBank, a.debtorBank(), reasons));
+      hold = score >= cfg.getHoldScore();
+      f.record(now, minor, creditor, creditorBank, hold);
+    }
+    long took = System.nanoTime() - t0;
+    append("attempt", now, key, creditor, creditorBank, minor, score, hold);
+    return new RiskAssessment(score, List.copyOf(reasons), hold, took);
+  }
+
+  /** Оператор пропустил отложенный платёж: сумма и получатель становятся для счёта «нормальными». */
+  public void approved(PaymentAttempt a) {
+    long now = System.currentTimeMillis();
+    String key = a.debtorKey();
+    long minor = a.amountMinor();
+    long creditor = creditorHash(a.creditorAccount());
+    DebtorFeatures f = features.computeIfAbsent(key, k -> new DebtorFeatures());
+    synchronized (f) {
+      f.learn(minor, creditor);
+    }
+    append("approved", now, key, creditor, a.creditorBank(), minor, 0, false);
+  }
+
+  private int score(DebtorFeatures f, long now, long minor, long creditor, char creditorBank,
+                    char debtorBank, List<String> reasons) {
+    int score = 0;
+
+    int attempts = f.attemptsSince(now - cfg.getVelocityWindow().toMillis()) + 1;
+    if (attempts >= 10) score += 40;
+    else if (attempts >= 5) score += 25;
+    if (attempts >= 5) reasons.add("velocity=" + attempts);
+
+    double z = f.amounts() >= 3 ? f.zScore(minor) : 0;
+    if (z >= 6) score += 40;
+    else if (z >= 3) score += 25;
+    if (z >= 3) reasons.add(String.format(Locale.ROOT, "amount_z=%.1f", z));
+
+    if (!f.hasHistory() && minor >= cfg.getFirstPaymentLimit().movePointRight(2).longValue()) {
+      score += 35;
+      reasons.add("first_payment_large");
+    }
+
+    if (f.hasHistory() && !f.knowsCreditor(creditor)) {
+      score += 15;
+      reasons.add("new_creditor");
+      if (z >= 3) score += 15;
+    }
+
+    if (creditorBank != debtorBank) {
+      score += 5;
+      reasons.add("cross_bank");
+    }
+    int banks = f.banksSince(now - cfg.getHopWindow().toMillis(), creditorBank);
+    if (banks >= 3) {
+      score += 15;
+      reasons.add("bank_hops=" + banks);
+    }
+    return score;
+  }
+
+  private static long creditorHash(String creditorAccount) {
+    return Hashes.fnv1a(creditorAccount == null ? "" : creditorAccount.trim().toLowerCase(Locale.ROOT));
+  }
+
+  // ---------------- журнал ----------------
+
+  private void append(String kind, long at, String key, long creditor, char creditorBank,
+                      long minor, int score, boolean held) {
+    if (journal == null) return;
+    ObjectNode n = mapper.createObjectNode();
+    n.put("kind", kind);
+    n.put("at", at);
+    n.put("debtor", key);
+    n.put("creditor", creditor);
+    n.put("creditorBank", String.valueOf(creditorBank));
+    n.put("amount", minor);
+    n.put("score", score);
+    n.put("held", held);
+    try {
+      journal.append(n.toString());
+    } catch (IOException e) {
+      // оценка уже выдана; без строки журнала признаки просто не переживут перезапуск
+      log.warn("Payment risk journal write failed: {}", e.toString());
+    }
+  }
+
+  /** Прогнать журнал в признаки; строки за risk.retention — если журнал пора уплотнить, иначе null. */
+  private List<String> replay(Path file) throws IOException {
+    long cutoff = System.currentTimeMillis() - cfg.getRetention().toMillis();
+    List<String> kept = new ArrayList<>();
+    int lines = JsonLines.read(file, (line, no) -> {
+      JsonNode n;
+      try {
+        n = mapper.readTree(line);
+      } catch (IOException e) {
+        log.warn("Skipping unreadable payment risk journal line {}: {}", no, e.getMessage());
+        return;
+      }
+      long at = n.path("at").asLong();
+      if (at < cutoff) return;
+      String debtor = n.path("debtor").asText("");
+      String creditorBank = n.path("creditorBank").asText("");
+      if (debtor.isEmpty() || creditorBank.isEmpty()) {
+        log.warn("Skipping payment risk journal line {}: no debtor or creditorBank", no);
+        return;
+      }
+      kept.add(line);
+      DebtorFeatures f = features.computeIfAbsent(debtor, k -> new DebtorFeatures());
+      long creditor = n.path("creditor").asLong();
+      long minor = n.path("amount").asLong();
+      if ("approved".equals(n.path("kind").asText())) {
+        f.learn(minor, creditor);
+      } else {
+        f.record(at, minor, creditor, creditorBank.charAt(0), n.path("held").asBoolean());
+      }
+    });
+    int dropped = lines - kept.size();
+    return dropped >= COMPACT_MIN_DROPPED && dropped > kept.size() ? kept : null;
+  }
+}
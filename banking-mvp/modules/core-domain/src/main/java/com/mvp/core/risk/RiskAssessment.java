@@ -0,0 +1,9 @@
+package com.mvp.core.risk;
+
+import java.util.List;
+
+/**
+ * Оценка платежа: score 0..100, причины (коды признаков с величиной) и решение — отложить или пропустить.
+ * tookNanos — сколько заняла оценка (без записи в журнал).
+ */
+public record RiskAssessment(int score, List<String> reasons, boolean hold, long tookNanos) { }
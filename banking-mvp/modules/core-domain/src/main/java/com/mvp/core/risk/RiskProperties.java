@@ -0,0 +1,62 @@
+package com.mvp.core.risk;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Настройки оценки риска платежей, префикс "risk" в application.yml.
+ */
+public class RiskProperties {
+
+  /** Журнал попыток платежей, из него при старте восстанавливаются признаки; пусто — только память. */
+  private String historyFile = "data/payments.jsonl";
+
+  /** Журнал отложенных платежей прежних версий: есть — при старте переносится в хранилище (store.*) и переименовывается в *.imported. */
+  private String holdFile = "data/holds.jsonl";
+
+  /** Платёж с оценкой не ниже этой (0..100) не уходит в банк, а ждёт решения оператора. */
+  private int holdScore = 60;
+
+  /** Окно частоты платежей со счёта. */
+  private Duration velocityWindow = Duration.ofMinutes(10);
+
+  /** Окно подсчёта разных банков получателей. */
+  private Duration hopWindow = Duration.ofHours(1);
+
+  /** Первый платёж со счёта на сумму не меньше этой — подозрителен. */
+  private BigDecimal firstPaymentLimit = new BigDecimal("100000");
+
+  /**
+   * Общий секрет app-ops: без заголовка X-Ops-Token с этим значением портал не отдаёт фиды очереди
+   * проверки (отложенные платежи, заявки), не пропускает, не отклоняет и не сверяет отложенные
+   * платежи, не сбрасывает метрики и не запускает JFR. Пусто — всё это запрещено всем.
+   */
+  private String opsToken = "";
+
+  /** Сколько истории поднимать при старте и сколько хранить решённые отложенные платежи. */
+  private Duration retention = Duration.ofDays(90);
+
+  public String getHistoryFile() { return historyFile; }
+  public void setHistoryFile(String historyFile) { this.historyFile = historyFile; }
+
+  public String getHoldFile() { return holdFile; }
+  public void setHoldFile(String holdFile) { this.holdFile = holdFile; }
+
+  public int getHoldScore() { return holdScore; }
+  public void setHoldScore(int holdScore) { this.holdScore = holdScore; }
+
+  public Duration getVelocityWindow() { return velocityWindow; }
+  public void setVelocityWindow(Duration velocityWindow) { this.velocityWindow = velocityWindow; }
+
+  public Duration getHopWindow() { return hopWindow; }
+  public void setHopWindow(Duration hopWindow) { this.hopWindow = hopWindow; }
+
+  public BigDecimal getFirstPaymentLimit() { return firstPaymentLimit; }
+  public void setFirstPaymentLimit(BigDecimal firstPaymentLimit) { this.firstPaymentLimit = firstPaymentLimit; }
+
+  public String getOpsToken() { return opsToken; }
+  public void setOpsToken(String opsToken) { this.opsToken = opsToken; }
+
+  public Duration getRetention() { return retention; }
+  public void setRetention(Duration retention) { this.retention = retention; }
+}
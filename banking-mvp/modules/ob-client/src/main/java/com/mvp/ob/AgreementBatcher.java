@@ -0,0 +1,196 @@
+package com.mvp.ob;
+
+import com.mvp.ob.ObAccountsClient.ObApiException;
+import com.mvp.ob.limit.ObPriority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пачечное открытие договоров: запросы в один банк, пришедшие в пределах app.agreement-batch-window
+ * после первого (или пока не набралось app.agreement-batch-max), уходят вместе.
+ *
+ * На пачку — один токен банка. Если у банка есть пачечный эндпоинт (app.agreement-batch-path),
+ * пачка — один POST; иначе (или банк ответил 404/405/501 — тогда пачечный путь для него
+ * больше не пробуем) каждый запрос отправляется отдельно, параллельно.
+ *
+ * Без пачечного эндпоинта (путь не задан или банк его не умеет) окно не действует: запрос уходит сразу.
+ *
+ * Ошибка запроса целиком (сеть, 5xx, токен) завершает все его future исключением — повторы на вызывающем.
+ *
+ * Вызовы банка идут из своих потоков, поэтому приоритет в лимитере ({@link ObPriority}) берётся у
+ * вызывающего в open() и переносится: пачка — INTERACTIVE, если её ждёт хоть один пользователь,
+ * одиночный запрос — с приоритетом своего вызывающего.
+ */
+@Component
+public class AgreementBatcher implements DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(AgreementBatcher.class);
+
+  private record Pending(AgreementOpenRequest request, ObPriority priority, CompletableFuture<String> result) { }
+
+  private final ObAgreementsClient client;
+  private final BankTokenProvider tokens;
+  private final ObClientProperties props;
+
+  /** Пачки, которые ещё копятся, по baseUrl; под this. */
+  private final Map<String, List<Pending>> open = new HashMap<>();
+  /** Банки, которые пачечный эндпоинт не поддерживают. */
+  private final Set<String> noBulk = ConcurrentHashMap.newKeySet();
+
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "ob-agreements-batch");
+    t.setDaemon(true);
+    return t;
+  });
+  private final ExecutorService senders;
+
+  public AgreementBatcher(ObAgreementsClient client, BankTokenProvider tokens, ObClientProperties props) {
+    this.client = client;
+    this.tokens = tokens;
+    this.props = props;
+    AtomicInteger n = new AtomicInteger();
+    this.senders = Executors.newFixedThreadPool(4, r -> {
+      Thread t = new Thread(r, "ob-agreements-" + n.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /** Поставить открытие договора в пачку для банка; future завершится agreementId. */
+  public CompletableFuture<String> open(String bankBaseUrl, AgreementOpenRequest request) {
+    Pending p = new Pending(request, ObPriority.current(), new CompletableFuture<>());
+    long window = props.getAgreementBatchWindow() == null ? 0 : props.getAgreementBatchWindow().toMillis();
+    // по одному договоры уходят и из пачки — ждать попутчиков незачем
+    if (!StringUtils.hasText(props.getAgreementBatchPath()) || noBulk.contains(bankBaseUrl)) window = 0;
+    if (window <= 0) {
+      send(bankBaseUrl, List.of(p));
+      return p.result();
+    }
+
+    List<Pending> full = null;
+    synchronized (this) {
+      List<Pending> batch = open.get(bankBaseUrl);
+      if (batch == null) {
+        List<Pending> fresh = new ArrayList<>();
+        open.put(bankBaseUrl, fresh);
+        batch = fresh;
+        timer.schedule(() -> flush(bankBaseUrl, fresh), window, TimeUnit.MILLISECONDS);
+      }
+      batch.add(p);
+      if (batch.size() >= Math.max(1, props.getAgreementBatchMax())) {
+        open.remove(bankBaseUrl);
+        full = batch;
+      }
+    }
+    if (full != null) send(bankBaseUrl, full);
+    return p.result();
+  }
+
+  /** Окно истекло; если эту пачку уже увёз переполненный open — таймер опоздал, ничего не делаем. */
+  private void flush(String bankBaseUrl, List<Pending> batch) {
+    synchronized (this) {
+      if (open.get(bankBaseUrl) != batch) return;
+      open.remove(bankBaseUrl);
+    }
+    send(bankBaseUrl, batch);
+  }
+
+  private void send(String bankBaseUrl, List<Pending> batch) {
+    try {
+      ObPriority priority = batch.stream().anyMatch(p -> p.priority() == ObPriority.INTERACTIVE)
+          ? ObPriority.INTERACTIVE : ObPriority.BACKGROUND;
+      senders.execute(() -> ObPriority.with(priority, () -> {
+        sendNow(bankBaseUrl, batch);
+        return null;
+      }));
+    } catch (RuntimeException e) {
+      fail(batch, e);
+    }
+  }
+
+  private void sendNow(String bankBaseUrl, List<Pending> batch) {
+    String token;
+    try {
+      token = tokens.get(bankBaseUrl);
+    } catch (RuntimeException e) {
+      fail(batch, e);
+      return;
+    }
+
+    String path = props.getAgreementBatchPath();
+    if (batch.size() > 1 && StringUtils.hasText(path) && !noBulk.contains(bankBaseUrl)) {
+      try {
+        List<AgreementOpenRequest> requests = batch.stream().map(Pending::request).toList();
+        List<ObAgreementsClient.OpenResult> res =
+            client.openAgreements(bankBaseUrl, token, props.getClientId(), path, requests);
+        for (int i = 0; i < batch.size(); i++) {
+          ObAgreementsClient.OpenResult r = res.get(i);
+          if (r.isOpened()) batch.get(i).result().complete(r.agreementId());
+          else batch.get(i).result().completeExceptionally(
+              new IllegalStateException("Bank rejected agreement open: " + r.error()));
+        }
+        log.debug("Opened {} agreements at {} in one request", batch.size(), bankBaseUrl);
+        return;
+      } catch (ObApiException e) {
+        int code = e.getStatus().value();
+        if (code != 404 && code != 405 && code != 501) {
+          fail(batch, e);
+          return;
+        }
+        noBulk.add(bankBaseUrl);
+        log.info("Bank {} has no batch agreement endpoint ({}), opening one by one", bankBaseUrl, code);
+      } catch (RuntimeException e) {
+        fail(batch, e);
+        return;
+      }
+    }
+
+    for (Pending p : batch) {
+      try {
+        CompletableFuture
+            .supplyAsync(() -> ObPriority.with(p.priority(),
+                () -> client.openAgreement(bankBaseUrl, token, props.getClientId(), p.request())), senders)
+            .whenComplete((id, err) -> {
+              if (err == null) p.result().complete(id);
+              else p.result().completeExceptionally(
+                  err instanceof CompletionException && err.getCause() != null ? err.getCause() : err);
+            });
+      } catch (RuntimeException e) {
+        p.result().completeExceptionally(e); // пул уже остановлен
+      }
+    }
+  }
+
+  private static void fail(List<Pending> batch, Throwable e) {
+    for (Pending p : batch) p.result().completeExceptionally(e);
+  }
+
+  @Override
+  public void destroy() {
+    timer.shutdownNow();
+    List<Pending> left = new ArrayList<>();
+    synchronized (this) {
+      open.values().forEach(left::addAll);
+      open.clear();
+    }
+    fail(left, new IllegalStateException("Agreement batcher is shutting down"));
+    senders.shutdownNow();
+  }
+}
@@ -0,0 +1,34 @@
+package com.mvp.ob;
+
+import java.math.BigDecimal;
+
+/**
+ * Открытие договора по продукту банка (кредит или вклад).
+ * sourceAccountId — счёт списания для вклада; у кредита пусто.
+ * termMonths ≤ 0 — срок не передаётся (бессрочные продукты).
+ * idempotencyKey — ключ идемпотентности (заголовок, в пачке — поле элемента); пусто — без ключа.
+ */
+public record AgreementOpenRequest(
+    String clientId,
+    String consentId,
+    String productId,
+    BigDecimal amount,
+    int termMonths,
+    String sourceAccountId,
+    String idempotencyKey
+) {
+
+  public static AgreementOpenRequest loan(String clientId, String consentId, String productId,
+                                          BigDecimal amount, int termMonths) {
+    return new AgreementOpenRequest(clientId, consentId, productId, amount, termMonths, null, null);
+  }
+
+  public static AgreementOpenRequest deposit(String clientId, String consentId, String productId,
+                                             BigDecimal amount, int termMonths, String sourceAccountId) {
+    return new AgreementOpenRequest(clientId, consentId, productId, amount, termMonths, sourceAccountId, null);
+  }
+
+  public AgreementOpenRequest withIdempotencyKey(String key) {
+    return new AgreementOpenRequest(clientId, consentId, productId, amount, termMonths, sourceAccountId, key);
+  }
+}
@@ -10,18 +10,24 @@ import java.util.concurrent.ConcurrentHashMap;
 public class BankTokenProvider {
   private final ObAuthClient authClient;
   private final ObClientProperties props;
+  private final TokenCacheStats stats;
   private final Map<String, Entry> cache = new ConcurrentHashMap<>();
   private static final Duration SKEW = Duration.ofSeconds(30);
   private static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
 
-  public BankTokenProvider(ObAuthClient authClient, ObClientProperties props) {
+  public BankTokenProvider(ObAuthClient authClient, ObClientProperties props, TokenCacheStats stats) {
     this.authClient = authClient;
     this.props = props;
+    this.stats = stats;
   }
 
   public synchronized String get(String baseUrl) {
     Entry e = cache.get(baseUrl);
-    if (e != null && Instant.now().isBefore(e.exp.minus(SKEW))) return e.token;
+    if (e != null && Instant.now().isBefore(e.exp.minus(SKEW))) {
+      stats.hit();
+      return e.token;
+    }
+    // промах считает ObAuthClient (у него свой кэш)
     String token = authClient.obtainBankToken(baseUrl, props.getClientId(), props.getClientSecret());
     cache.put(baseUrl, new Entry(token, Instant.now().plus(DEFAULT_TTL)));
     return token;
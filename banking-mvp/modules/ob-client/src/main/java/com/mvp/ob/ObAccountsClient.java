@@ -2,7 +2,7 @@ package com.mvp.ob;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.http.HttpHeaders;
+import com.mvp.ob.trace.ObTrace;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.ClientHttpResponse;
@@ -14,24 +14,18 @@ import org.springframework.web.util.UriComponentsBuilder;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.util.UUID;
 
 @Component
 public class ObAccountsClient {
 
-    private static final String HDR_X_REQUESTING_BANK = "X-Requesting-Bank";
-    private static final String HDR_X_CONSENT_ID      = "X-Consent-Id";
-    private static final String HDR_X_CONSENT_ID_ALT  = "X-Consent-ID";   // на всякий случай
-    private static final String HDR_CONSENT_ID_ALT2   = "Consent-Id";     // на всякий случай
-    private static final String HDR_X_REQUEST_ID      = "X-Request-Id";
-
-    private final RestClient http = RestClient.builder().build();
+    private final RestClient http;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    private final ObClientProperties props;
+    private final ObRequestHeaders headers;
 
-    public ObAccountsClient(ObClientProperties props) {
-        this.props = props;
+    public ObAccountsClient(RestClient obRestClient, ObRequestHeaders headers) {
+        this.http = obRestClient;
+        this.headers = headers;
     }
 
     /** POST {base}/account-consents/request — создать согласие. */
@@ -40,6 +34,20 @@ public class ObAccountsClient {
             String bearerToken,
             String clientId,
             String requestingBank
+    ) {
+        return createConsent(bankBaseUrl, bearerToken, clientId, requestingBank, null);
+    }
+
+    /**
+     * То же с ключом идемпотентности: повтор запроса с тем же ключом (после обрыва, рестарта)
+     * банк не считает новым согласием. Пустой ключ — заголовок не отправляется.
+     */
+    public ConsentCreateResult createConsent(
+            String bankBaseUrl,
+            String bearerToken,
+            String clientId,
+            String requestingBank,
+            String idempotencyKey
     ) {
         String body = """
             {
@@ -62,6 +70,9 @@ public class ObAccountsClient {
                 .body(body);
 
         req = addAuthHeaders(req, bearerToken, null, requestingBank, bankBaseUrl);
+        if (StringUtils.hasText(idempotencyKey)) {
+            req = req.header(ObRequestHeaders.HDR_IDEMPOTENCY_KEY, idempotencyKey);
+        }
 
         String resp = req.retrieve()
                 .onStatus(HttpStatusCode::isError, (rq, rs) -> {
@@ -70,16 +81,19 @@ public class ObAccountsClient {
                 .body(String.class);
 
         try {
+            long t0 = System.nanoTime();
             JsonNode root = mapper.readTree(resp);
+            ObTrace.recordDecode(t0);
             JsonNode data = root.has("data") ? root.get("data") : root;
 
             String consentId = first(data, "consentId", "consent_id");
             String status    = first(data, "status");
             String requestId = first(data, "requestId", "request_id");
 
+            // Boolean.valueOf: иначе тернарник распакуется в boolean и упадёт на null (pending без autoApproved)
             Boolean autoApproved =
-                    data.hasNonNull("autoApproved") ? data.get("autoApproved").asBoolean()
-                    : data.hasNonNull("auto_approved") ? data.get("auto_approved").asBoolean()
+                    data.hasNonNull("autoApproved") ? Boolean.valueOf(data.get("autoApproved").asBoolean())
+                    : data.hasNonNull("auto_approved") ? Boolean.valueOf(data.get("auto_approved").asBoolean())
                     : null;
 
             return new ConsentCreateResult(
@@ -99,6 +113,35 @@ public class ObAccountsClient {
             String bearerToken,
             String consentId,
             String requestingBank
+    ) {
+        return consentStatusRequest(bankBaseUrl, bearerToken, consentId, requestingBank)
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (rq, rs) -> {
+                    throw readAsObApiError("Consent status fetch failed", rs);
+                })
+                .body(String.class);
+    }
+
+    /** То же, что getConsentStatus, но ответ банка (включая ошибки) уходит в sink потоком. */
+    public void streamConsentStatus(
+            String bankBaseUrl,
+            String bearerToken,
+            String consentId,
+            String requestingBank,
+            ObResponseSink sink
+    ) {
+        consentStatusRequest(bankBaseUrl, bearerToken, consentId, requestingBank)
+                .exchange((rq, rs) -> {
+                    sink.write(rs.getStatusCode(), rs.getHeaders(), rs.getBody());
+                    return null;
+                });
+    }
+
+    private RestClient.RequestHeadersSpec<?> consentStatusRequest(
+            String bankBaseUrl,
+            String bearerToken,
+            String consentId,
+            String requestingBank
     ) {
         URI uri = UriComponentsBuilder
                 .fromUriString(normalize(bankBaseUrl))
@@ -110,13 +153,7 @@ public class ObAccountsClient {
                 .uri(uri)
                 .accept(MediaType.APPLICATION_JSON);
 
-        req = addAuthHeaders(req, bearerToken, consentId, requestingBank, bankBaseUrl);
-
-        return req.retrieve()
-                .onStatus(HttpStatusCode::isError, (rq, rs) -> {
-                    throw readAsObApiError("Consent status fetch failed", rs);
-                })
-                .body(String.class);
+        return addAuthHeaders(req, bearerToken, consentId, requestingBank, bankBaseUrl);
     }
 
     /** DELETE {base}/account-consents/{id} — отзыв согласия. */
@@ -315,45 +352,7 @@ public class ObAccountsClient {
             String requestingBank,
             String bankBaseUrl
     ) {
-        if (StringUtils.hasText(bearerToken)) {
-            req = req.header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken);
-        }
-
-        // X-Requesting-Bank — это ID команды (например "team101"), не код банка.
-        if (StringUtils.hasText(requestingBank)) {
-            req = req.header(HDR_X_REQUESTING_BANK, requestingBank);
-        }
-
-        if (StringUtils.hasText(consentId)) {
-            req = req
-                    .header(HDR_X_CONSENT_ID, consentId)
-                    .header(HDR_X_CONSENT_ID_ALT, consentId)
-                    .header(HDR_CONSENT_ID_ALT2, consentId);
-        }
-
-        if (props.isSendFapiHeaders()) {
-            String bankCode = bankCodeFromBaseUrl(bankBaseUrl);
-            String finId = props.financialIdFor(bankCode);
-            if (StringUtils.hasText(finId)) {
-                req = req.header("x-fapi-financial-id", finId);
-            }
-            String ip = props.getDefaultCustomerIp();
-            if (StringUtils.hasText(ip)) {
-                req = req.header("x-fapi-customer-ip-address", ip)
-                         .header("x-psu-ip-address", ip)
-                         .header("PSU-IP-Address", ip);
-            }
-            req = req.header("x-fapi-interaction-id", UUID.randomUUID().toString());
-        }
-
-        return req.header(HDR_X_REQUEST_ID, UUID.randomUUID().toString());
-    }
-
-    private static String bankCodeFromBaseUrl(String baseUrl) {
-        String u = baseUrl == null ? "" : baseUrl.toLowerCase();
-        if (u.contains("abank")) return "a";
-        if (u.contains("sbank")) return "s";
-        return "v";
+        return req.headers(h -> headers.apply(h, bankBaseUrl, bearerToken, requestingBank, consentId));
     }
 
     private static String normalize(String baseUrl) {
@@ -1,10 +1,310 @@
 package com.mvp.ob;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mvp.ob.ObAccountsClient.ObApiException;
+import com.mvp.ob.trace.ObTrace;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Договоры по продуктам банка (/product-agreements): открыть, получить, список, закрыть.
+ * Пачечное открытие для многих заявок сразу — через {@link AgreementBatcher}.
+ */
 @Component
 public class ObAgreementsClient {
-    private final RestClient http = RestClient.builder().build();
-    // Заглушка: при необходимости добавишь методы
+
+    private final RestClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObRequestHeaders headers;
+
+    public ObAgreementsClient(RestClient obRestClient, ObRequestHeaders headers) {
+        this.http = obRestClient;
+        this.headers = headers;
+    }
+
+    /**
+     * POST {base}/product-agreements?client_id=... — открыть кредитный договор по продукту.
+     * @return agreementId из ответа банка
+     */
+    public String openLoanAgreement(
+            String bankBaseUrl,
+            String bearerToken,
+            String clientId,
+            String consentId,
+            String requestingBank,
+            String productId,
+            BigDecimal amount,
+            int termMonths
+    ) {
+        return openAgreement(bankBaseUrl, bearerToken, requestingBank,
+                AgreementOpenRequest.loan(clientId, consentId, productId, amount, termMonths));
+    }
+
+    /** То же для вклада: сумма списывается со счёта sourceAccountId. */
+    public String openDepositAgreement(
+            String bankBaseUrl,
+            String bearerToken,
+            String clientId,
+            String consentId,
+            String requestingBank,
+            String productId,
+            BigDecimal amount,
+            int termMonths,
+            String sourceAccountId
+    ) {
+        return openAgreement(bankBaseUrl, bearerToken, requestingBank,
+                AgreementOpenRequest.deposit(clientId, consentId, productId, amount, termMonths, sourceAccountId));
+    }
+
+    /** POST {base}/product-agreements?client_id=... — открыть договор; возвращает agreementId. */
+    public String openAgreement(
+            String bankBaseUrl,
+            String bearerToken,
+            String requestingBank,
+            AgreementOpenRequest rq
+    ) {
+        URI uri = UriComponentsBuilder
+                .fromUriString(normalize(bankBaseUrl))
+                .path("/product-agreements")
+                .queryParam("client_id", rq.clientId())
+                .build(true)
+                .toUri();
+
+        String resp = http.post()
+                .uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(toJson(openBody(rq, false)))
+                .headers(h -> {
+                    headers.apply(h, bankBaseUrl, bearerToken, requestingBank, rq.consentId());
+                    if (StringUtils.hasText(rq.idempotencyKey())) {
+                        h.set(ObRequestHeaders.HDR_IDEMPOTENCY_KEY, rq.idempotencyKey());
+                    }
+                })
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (rqst, rs) -> {
+                    throw readAsObApiError("Agreement open failed", rs);
+                })
+                .body(String.class);
+
+        JsonNode root = parse(resp);
+        String id = agreementId(root.has("data") ? root.get("data") : root);
+        if (id == null) throw new IllegalStateException("No agreement id in bank response: " + resp);
+        return id;
+    }
+
+    /**
+     * POST {base}{batchPath} — открыть несколько договоров одним запросом.
+     * Тело: {"agreements": [{client_id, consent_id, product_id, ...}, ...]};
+     * ответ: data — массив в том же порядке, элемент с agreementId или с ошибкой.
+     *
+     * @return по элементу на запрос, в том же порядке
+     */
+    public List<OpenResult> openAgreements(
+            String bankBaseUrl,
+            String bearerToken,
+            String requestingBank,
+            String batchPath,
+            List<AgreementOpenRequest> requests
+    ) {
+        URI uri = UriComponentsBuilder
+                .fromUriString(normalize(bankBaseUrl))
+                .path(batchPath)
+                .build(true)
+                .toUri();
+
+        ObjectNode body = mapper.createObjectNode();
+        ArrayNode items = body.putArray("agreements");
+        for (AgreementOpenRequest rq : requests) items.add(openBody(rq, true));
+
+        String resp = http.post()
+                .uri(uri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(toJson(body))
+                .headers(h -> headers.apply(h, bankBaseUrl, bearerToken, requestingBank, null))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (rqst, rs) -> {
+                    throw readAsObApiError("Agreement batch open failed", rs);
+                })
+                .body(String.class);
+
+        JsonNode root = parse(resp);
+        JsonNode data = root.isArray() ? root : root.path("data");
+        if (!data.isArray() || data.size() != requests.size()) {
+            throw new IllegalStateException("Batch response does not match request (" + requests.size()
+                    + " items): " + resp);
+        }
+        List<OpenResult> out = new ArrayList<>(data.size());
+        for (JsonNode item : data) {
+            String id = agreementId(item);
+            out.add(new OpenResult(id, id != null ? null : item.toString()));
+        }
+        return out;
+    }
+
+    /** GET {base}/product-agreements/{id}?client_id=... — договор. */
+    public String getAgreement(
+            String bankBaseUrl,
+            String bearerToken,
+            String agreementId,
+            String clientId,
+            String requestingBank
+    ) {
+        URI uri = UriComponentsBuilder
+                .fromUriString(normalize(bankBaseUrl))
+                .path("/product-agreements/{id}")
+                .queryParam("client_id", clientId)
+                .buildAndExpand(agreementId)
+                .toUri();
+
+        return http.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .headers(h -> headers.apply(h, bankBaseUrl, bearerToken, requestingBank, null))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (rq, rs) -> {
+                    throw readAsObApiError("Agreement fetch failed", rs);
+                })
+                .body(String.class);
+    }
+
+    /** GET {base}/product-agreements?client_id=... — все договоры клиента. */
+    public String listAgreements(
+            String bankBaseUrl,
+            String bearerToken,
+            String clientId,
+            String requestingBank
+    ) {
+        URI uri = UriComponentsBuilder
+                .fromUriString(normalize(bankBaseUrl))
+                .path("/product-agreements")
+                .queryParam("client_id", clientId)
+                .build(true)
+                .toUri();
+
+        return http.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .headers(h -> headers.apply(h, bankBaseUrl, bearerToken, requestingBank, null))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (rq, rs) -> {
+                    throw readAsObApiError("Agreements list fetch failed", rs);
+                })
+                .body(String.class);
+    }
+
+    /**
+     * DELETE {base}/product-agreements/{id}?client_id=... — закрыть договор
+     * (досрочное погашение кредита / закрытие вклада — по правилам банка).
+     */
+    public String closeAgreement(
+            String bankBaseUrl,
+            String bearerToken,
+            String agreementId,
+            String clientId,
+            String requestingBank
+    ) {
+        URI uri = UriComponentsBuilder
+                .fromUriString(normalize(bankBaseUrl))
+                .path("/product-agreements/{id}")
+                .queryParam("client_id", clientId)
+                .buildAndExpand(agreementId)
+                .toUri();
+
+        return http.delete()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .headers(h -> headers.apply(h, bankBaseUrl, bearerToken, requestingBank, null))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, (rq, rs) -> {
+                    throw readAsObApiError("Agreement close failed", rs);
+                })
+                .body(String.class);
+    }
+
+    /** Элемент пачечного ответа: agreementId либо (если банк отклонил именно его) error — JSON элемента. */
+    public record OpenResult(String agreementId, String error) {
+        public boolean isOpened() { return agreementId != null; }
+    }
+
+    /* ------------ helpers ------------ */
+
+    private ObjectNode openBody(AgreementOpenRequest rq, boolean withParties) {
+        ObjectNode n = mapper.createObjectNode();
+        if (withParties) {
+            n.put("client_id", rq.clientId());
+            if (rq.consentId() != null) n.put("consent_id", rq.consentId());
+            // у пачки общий заголовок, поэтому ключ каждого договора — в его элементе
+            if (StringUtils.hasText(rq.idempotencyKey())) n.put("idempotency_key", rq.idempotencyKey());
+        }
+        n.put("product_id", rq.productId() == null ? "" : rq.productId());
+        // plain-запись: 1E+5 банк может не принять
+        n.put("amount", rq.amount() == null ? BigDecimal.ZERO
+                : new BigDecimal(rq.amount().stripTrailingZeros().toPlainString()));
+        if (rq.termMonths() > 0) n.put("term_months", rq.termMonths());
+        if (rq.sourceAccountId() != null) n.put("source_account_id", rq.sourceAccountId());
+        return n;
+    }
+
+    private String toJson(JsonNode n) {
+        try {
+            return mapper.writeValueAsString(n);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize agreement request", e);
+        }
+    }
+
+    private JsonNode parse(String resp) {
+        try {
+            long t0 = System.nanoTime();
+            JsonNode root = mapper.readTree(resp);
+            ObTrace.recordDecode(t0);
+            return root;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to parse agreement response: " + resp, e);
+        }
+    }
+
+    private static String agreementId(JsonNode n) {
+        for (String f : new String[]{"agreementId", "agreement_id", "id"}) {
+            if (n.hasNonNull(f)) return n.get(f).asText();
+        }
+        return null;
+    }
+
+    private static String normalize(String baseUrl) {
+        if (baseUrl == null) return "";
+        return baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    private static ObApiException readAsObApiError(String prefix, ClientHttpResponse res) {
+        HttpStatusCode status;
+        String body = null;
+        try {
+            status = res.getStatusCode();
+            try (InputStream is = res.getBody()) {
+                if (is != null) body = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        } catch (Exception e) {
+            status = HttpStatusCode.valueOf(500);
+        }
+        String msg = prefix + ": HTTP " + status + (body != null && !body.isBlank() ? " — " + body : "");
+        return new ObApiException(msg, status, body);
+    }
 }
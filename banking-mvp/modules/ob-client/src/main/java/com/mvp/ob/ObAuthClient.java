@@ -20,11 +20,18 @@ import org.springframework.web.util.UriComponentsBuilder;
 @Component
 public class ObAuthClient {
 
-  private final RestClient http = RestClient.builder().build();
+  private final RestClient http;
 
   /** Кэш токенов: ключ = "{baseUrl}|{clientId}" */
   private final Map<String, TokenEntry> cache = new ConcurrentHashMap<>();
 
+  private final TokenCacheStats stats;
+
+  public ObAuthClient(RestClient obRestClient, TokenCacheStats stats) {
+    this.http = obRestClient;
+    this.stats = stats;
+  }
+
   /**
    * POST {base}/auth/bank-token?client_id=...&client_secret=...
    * Возвращает access_token из ответа. Токен кэшируется до истечения срока.
@@ -35,8 +42,10 @@ public class ObAuthClient {
     // 1) быстрый путь — валидный кэш
     TokenEntry cached = cache.get(cacheKey);
     if (cached != null && !cached.isExpired()) {
+      stats.hit();
       return cached.token;
     }
+    stats.miss();
 
     // 2) запрос нового токена
     URI uri = UriComponentsBuilder
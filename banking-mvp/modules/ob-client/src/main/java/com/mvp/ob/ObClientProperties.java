@@ -4,6 +4,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Связывается с application.yml по префиксу "app".
  * Поддерживает kebab-case ключи.
@@ -33,6 +37,72 @@ public class ObClientProperties {
     private String abankFinancialId;
     private String sbankFinancialId;
 
+    // --- трассировка вызовов банков ---
+    /** Сколько последних трасс держать в памяти для /debug/traces. */
+    private int traceBufferSize = 200;
+
+    /** Файл для экспорта трасс в OTLP/JSON (по строке на трассу); пусто — не писать. */
+    private String traceExportFile;
+
+    /** Очередь трасс к записи в файл; полна (диск не успевает) — трасса в файл не попадёт. */
+    private int traceExportQueueSize = 1024;
+
+    // --- пачечное открытие договоров (AgreementBatcher) ---
+    /**
+     * Сколько ждать попутчиков к первому запросу на открытие в тот же банк; 0 — без пачек.
+     * Действует, только если задан agreementBatchPath: без пачечного эндпоинта договоры всё равно
+     * уходят по одному, и ожидание было бы чистой задержкой.
+     */
+    private Duration agreementBatchWindow = Duration.ofMillis(50);
+
+    /** Пачка уходит сразу, как только набралось столько запросов. */
+    private int agreementBatchMax = 20;
+
+    /** Путь пачечного эндпоинта банка (например /product-agreements/batch); пусто — банк его не умеет. */
+    private String agreementBatchPath;
+
+    // --- аудит вызовов банков (AuditLog) ---
+    /** Каталог сегментов аудита; пусто — аудит выключен. */
+    private String auditDir;
+
+    /** Ёмкость кольца между потоками запросов и писателем; переполнено — события теряются (dropped). */
+    private int auditBufferSize = 4096;
+
+    /** Сколько байт тела ответа сохранять (остальное только считается). */
+    private int auditMaxBodyBytes = 32 * 1024;
+
+    /** Сегмент закрывается, когда в сжатом виде вырос до этого размера. */
+    private long auditSegmentBytes = 64L * 1024 * 1024;
+
+    /** Как часто сбрасывать записанное на диск (fsync); потерять при падении можно не больше этого окна. */
+    private Duration auditFsyncInterval = Duration.ofSeconds(1);
+
+    /** Сколько хранить сегменты; 0 — не удалять. */
+    private Duration auditRetention = Duration.ZERO;
+
+    // --- лимит запросов к банкам (RateLimiter) ---
+    /**
+     * Запросов в секунду по классу эндпоинта: auth, consents, accounts, payments, products, other;
+     * "[a.accounts]" — только для банка a; "default" — для остальных; 0 — без лимита.
+     */
+    private Map<String, Double> rateLimits = new LinkedHashMap<>(Map.of("default", 10.0));
+
+    /** Запас на всплеск: корзина вмещает столько секунд своей скорости (не меньше одного запроса). */
+    private Duration rateLimitBurst = Duration.ofSeconds(1);
+
+    /** Сколько интерактивный вызов (страница пользователя) ждёт очереди, прежде чем сдаться. */
+    private Duration rateLimitMaxWait = Duration.ofSeconds(5);
+
+    /** То же для фоновых вызовов. */
+    private Duration rateLimitBackgroundMaxWait = Duration.ofMinutes(1);
+
+    /** Фоновый вызов стоит в очереди так, будто пришёл на столько позже интерактивного. */
+    private Duration rateLimitBackgroundDelay = Duration.ofSeconds(2);
+
+    // --- объединение одинаковых GET (RequestCoalescer) ---
+    /** Одинаковые GET (URL и все заголовки, кроме id корреляции), пока первый в пути, получают его ответ. */
+    private boolean singleFlight = true;
+
     // ---------- getters / setters ----------
 
     public String getVbankBaseUrl() { return vbankBaseUrl; }
@@ -65,6 +135,60 @@ public class ObClientProperties {
     public String getSbankFinancialId() { return sbankFinancialId; }
     public void setSbankFinancialId(String sbankFinancialId) { this.sbankFinancialId = sbankFinancialId; }
 
+    public int getTraceBufferSize() { return traceBufferSize; }
+    public void setTraceBufferSize(int traceBufferSize) { this.traceBufferSize = traceBufferSize; }
+
+    public String getTraceExportFile() { return traceExportFile; }
+    public void setTraceExportFile(String traceExportFile) { this.traceExportFile = traceExportFile; }
+
+    public int getTraceExportQueueSize() { return traceExportQueueSize; }
+    public void setTraceExportQueueSize(int traceExportQueueSize) { this.traceExportQueueSize = traceExportQueueSize; }
+
+    public Duration getAgreementBatchWindow() { return agreementBatchWindow; }
+    public void setAgreementBatchWindow(Duration agreementBatchWindow) { this.agreementBatchWindow = agreementBatchWindow; }
+
+    public int getAgreementBatchMax() { return agreementBatchMax; }
+    public void setAgreementBatchMax(int agreementBatchMax) { this.agreementBatchMax = agreementBatchMax; }
+
+    public String getAgreementBatchPath() { return agreementBatchPath; }
+    public void setAgreementBatchPath(String agreementBatchPath) { this.agreementBatchPath = agreementBatchPath; }
+
+    public String getAuditDir() { return auditDir; }
+    public void setAuditDir(String auditDir) { this.auditDir = auditDir; }
+
+    public int getAuditBufferSize() { return auditBufferSize; }
+    public void setAuditBufferSize(int auditBufferSize) { this.auditBufferSize = auditBufferSize; }
+
+    public int getAuditMaxBodyBytes() { return auditMaxBodyBytes; }
+    public void setAuditMaxBodyBytes(int auditMaxBodyBytes) { this.auditMaxBodyBytes = auditMaxBodyBytes; }
+
+    public long getAuditSegmentBytes() { return auditSegmentBytes; }
+    public void setAuditSegmentBytes(long auditSegmentBytes) { this.auditSegmentBytes = auditSegmentBytes; }
+
+    public Duration getAuditFsyncInterval() { return auditFsyncInterval; }
+    public void setAuditFsyncInterval(Duration auditFsyncInterval) { this.auditFsyncInterval = auditFsyncInterval; }
+
+    public Duration getAuditRetention() { return auditRetention; }
+    public void setAuditRetention(Duration auditRetention) { this.auditRetention = auditRetention; }
+
+    public Map<String, Double> getRateLimits() { return rateLimits; }
+    public void setRateLimits(Map<String, Double> rateLimits) { this.rateLimits = rateLimits; }
+
+    public Duration getRateLimitBurst() { return rateLimitBurst; }
+    public void setRateLimitBurst(Duration rateLimitBurst) { this.rateLimitBurst = rateLimitBurst; }
+
+    public Duration getRateLimitMaxWait() { return rateLimitMaxWait; }
+    public void setRateLimitMaxWait(Duration rateLimitMaxWait) { this.rateLimitMaxWait = rateLimitMaxWait; }
+
+    public Duration getRateLimitBackgroundMaxWait() { return rateLimitBackgroundMaxWait; }
+    public void setRateLimitBackgroundMaxWait(Duration rateLimitBackgroundMaxWait) { this.rateLimitBackgroundMaxWait = rateLimitBackgroundMaxWait; }
+
+    public Duration getRateLimitBackgroundDelay() { return rateLimitBackgroundDelay; }
+    public void setRateLimitBackgroundDelay(Duration rateLimitBackgroundDelay) { this.rateLimitBackgroundDelay = rateLimitBackgroundDelay; }
+
+    public boolean isSingleFlight() { return singleFlight; }
+    public void setSingleFlight(boolean singleFlight) { this.singleFlight = singleFlight; }
+
     // ---------- helpers ----------
 
     /** Возвращает financial-id для кода банка (v/a/s). */
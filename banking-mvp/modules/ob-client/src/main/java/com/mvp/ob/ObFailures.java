@@ -0,0 +1,48 @@
+package com.mvp.ob;
+
+import com.mvp.ob.ObAccountsClient.ObApiException;
+import com.mvp.ob.limit.RateLimitedException;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+
+/**
+ * Разбор ошибок вызова банка для повторов неидемпотентных POST (согласие, договор, платёж).
+ *
+ * Повторять безопасно только то, что заведомо не дошло до банка: соединение не установлено,
+ * вызов не дождался очереди лимитера ({@link RateLimitedException}), банк ответил 429/503.
+ * Таймаут чтения, обрыв посреди ответа, 5xx — исход неизвестен: банк мог запрос уже исполнить.
+ */
+public final class ObFailures {
+
+  private ObFailures() {
+  }
+
+  /** Запрос точно не исполнен банком — его можно отправить ещё раз. */
+  public static boolean notDelivered(Throwable e) {
+    int status = status(e);
+    if (status == 429 || status == 503) return true;
+    for (Throwable c = e; c != null; c = c.getCause()) {
+      if (c instanceof ConnectException || c instanceof NoRouteToHostException
+          || c instanceof UnknownHostException || c instanceof HttpConnectTimeoutException
+          || c instanceof RateLimitedException) {
+        return true;
+      }
+      if (c.getCause() == c) break;
+    }
+    return false;
+  }
+
+  /** HTTP-статус ответа банка из исключения клиента; 0 — ответа не было. */
+  public static int status(Throwable e) {
+    for (Throwable c = e; c != null; c = c.getCause()) {
+      if (c instanceof ObApiException api && api.getStatus() != null) return api.getStatus().value();
+      if (c instanceof HttpStatusCodeException http) return http.getStatusCode().value();
+      if (c.getCause() == c) break;
+    }
+    return 0;
+  }
+}
@@ -2,7 +2,7 @@ package com.mvp.ob;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.http.HttpHeaders;
+import com.mvp.ob.trace.ObTrace;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.ClientHttpResponse;
@@ -16,20 +16,17 @@ import java.math.BigDecimal;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.UUID;
 
 @Component
 public class ObPaymentsClient {
 
-    private static final String HDR_X_REQUESTING_BANK = "X-Requesting-Bank";
-    private static final String HDR_X_REQUEST_ID      = "X-Request-Id";
-
-    private final RestClient http = RestClient.builder().build();
+    private final RestClient http;
     private final ObjectMapper mapper = new ObjectMapper();
-    private final ObClientProperties props;
+    private final ObRequestHeaders headers;
 
-    public ObPaymentsClient(ObClientProperties props) {
-        this.props = props;
+    public ObPaymentsClient(RestClient obRestClient, ObRequestHeaders headers) {
+        this.http = obRestClient;
+        this.headers = headers;
     }
 
     /**
@@ -122,38 +119,8 @@ public class ObPaymentsClient {
             String requestingBank,
             String bankBaseUrl
     ) {
-        if (StringUtils.hasText(bearerToken)) {
-            req = req.header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken);
-        }
-
-        // Если бэку нужен X-Requesting-Bank — отправляем то, что пришло (team id)
-        if (StringUtils.hasText(requestingBank)) {
-            req = req.header(HDR_X_REQUESTING_BANK, requestingBank);
-        }
-
-        if (props.isSendFapiHeaders()) {
-            String bankCode = bankCodeFromBaseUrl(bankBaseUrl);
-            String finId = props.financialIdFor(bankCode);
-            if (StringUtils.hasText(finId)) {
-                req = req.header("x-fapi-financial-id", finId);
-            }
-            String ip = props.getDefaultCustomerIp();
-            if (StringUtils.hasText(ip)) {
-                req = req.header("x-fapi-customer-ip-address", ip)
-                        .header("x-psu-ip-address", ip)
-                        .header("PSU-IP-Address", ip);
-            }
-            req = req.header("x-fapi-interaction-id", UUID.randomUUID().toString());
-        }
-
-        return req.header(HDR_X_REQUEST_ID, UUID.randomUUID().toString());
-    }
-
-    private static String bankCodeFromBaseUrl(String baseUrl) {
-        String u = baseUrl == null ? "" : baseUrl.toLowerCase();
-        if (u.contains("abank")) return "a";
-        if (u.contains("sbank")) return "s";
-        return "v";
+        // consent-заголовки платежам не нужны
+        return req.headers(h -> headers.apply(h, bankBaseUrl, bearerToken, requestingBank, null));
     }
 
     private static String normalize(String baseUrl) {
@@ -162,10 +129,13 @@ public class ObPaymentsClient {
     }
 
     private Map<String, Object> readToMap(String json) {
+        long t0 = System.nanoTime();
         try {
             return mapper.readValue(json, new TypeReference<Map<String, Object>>() {});
         } catch (Exception e) {
             return Map.of("raw", json);
+        } finally {
+            ObTrace.recordDecode(t0);
         }
     }
 
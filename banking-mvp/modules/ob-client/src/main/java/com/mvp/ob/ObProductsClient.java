@@ -12,6 +12,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mvp.ob.trace.ObTrace;
 
 /**
  * Класс для работы с продуктами банка.
@@ -19,9 +20,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @Component
 public class ObProductsClient {
 
-  private final RestClient http = RestClient.builder().build();
+  private final RestClient http;
   private final ObjectMapper mapper = new ObjectMapper();
 
+  public ObProductsClient(RestClient obRestClient) {
+    this.http = obRestClient;
+  }
+
   /**
    * GET {base}/products
    * Если token не пустой — добавляем Authorization: Bearer.
@@ -36,6 +41,31 @@ public class ObProductsClient {
    * Возвращаем «сырую строку JSON».
    */
   public String getProducts(String bankBaseUrl, String bearerToken, String productType) {
+    return productsRequest(bankBaseUrl, bearerToken, productType, null).retrieve().body(String.class);
+  }
+
+  /**
+   * GET {base}/products[?product_type=...] в режиме pass-through:
+   * статус, заголовки и байты ответа уходят в sink как есть (ошибки банка — тоже).
+   */
+  public void streamProducts(String bankBaseUrl, String bearerToken, String productType, ObResponseSink sink) {
+    streamProducts(bankBaseUrl, bearerToken, productType, null, sink);
+  }
+
+  /**
+   * То же, но условным запросом: If-None-Match клиента уходит в банк,
+   * и если банк ответил 304 — в sink придёт 304 без тела.
+   */
+  public void streamProducts(String bankBaseUrl, String bearerToken, String productType,
+                             String ifNoneMatch, ObResponseSink sink) {
+    productsRequest(bankBaseUrl, bearerToken, productType, ifNoneMatch).exchange((rq, rs) -> {
+      sink.write(rs.getStatusCode(), rs.getHeaders(), rs.getBody());
+      return null;
+    });
+  }
+
+  private RestClient.RequestHeadersSpec<?> productsRequest(String bankBaseUrl, String bearerToken, String productType,
+                                                          String ifNoneMatch) {
     String uri = UriComponentsBuilder.fromUriString(bankBaseUrl)
         .path("/products")
         .queryParamIfPresent("product_type", productType == null || productType.isBlank()
@@ -51,7 +81,10 @@ public class ObProductsClient {
     if (bearerToken != null && !bearerToken.isBlank()) {
       req = req.header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken);
     }
-    return req.retrieve().body(String.class);
+    if (ifNoneMatch != null && !ifNoneMatch.isBlank()) {
+      req = req.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return req;
   }
 
   /**
@@ -67,7 +100,9 @@ public class ObProductsClient {
   public List<Product> getProductsList(String bankBaseUrl, String bearerToken, String productType) {
     String json = getProducts(bankBaseUrl, bearerToken, productType);
     try {
+      long t0 = System.nanoTime();
       JsonNode root = mapper.readTree(json);
+      ObTrace.recordDecode(t0);
 
       // чаще всего: { "data": { "product": [ ... ] } }
       JsonNode arr = root.path("data").path("product");
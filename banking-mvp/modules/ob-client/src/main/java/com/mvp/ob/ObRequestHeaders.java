@@ -0,0 +1,122 @@
+package com.mvp.ob;
+
+import com.mvp.ob.trace.ObTrace;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Заголовки запросов к банкам.
+ * Статическая часть (x-fapi-financial-id, IP клиента ×3) зависит только от банка
+ * и настроек, поэтому собирается один раз на банк при старте и дальше копируется как есть:
+ * для base URL из настроек — готовый шаблон по точному совпадению, для прочих — шаблон
+ * банка по коду (шаблонов ровно столько, сколько банков, что бы ни передавали вызывающие).
+ * На каждый запрос добавляются только Authorization, X-Requesting-Bank,
+ * consent-id и id запроса.
+ */
+@Component
+public class ObRequestHeaders {
+
+  static final String HDR_X_REQUESTING_BANK = "X-Requesting-Bank";
+  static final String HDR_X_CONSENT_ID      = "X-Consent-Id";
+  static final String HDR_X_CONSENT_ID_ALT  = "X-Consent-ID";   // на всякий случай
+  static final String HDR_CONSENT_ID_ALT2   = "Consent-Id";     // на всякий случай
+  static final String HDR_X_REQUEST_ID      = "X-Request-Id";
+  static final String HDR_INTERACTION_ID    = "x-fapi-interaction-id";
+  /** Ключ идемпотентности POST: повтор с тем же ключом банк не исполняет второй раз. */
+  public static final String HDR_IDEMPOTENCY_KEY = "x-idempotency-key";
+
+  private static final String[] BANK_CODES = {"v", "a", "s"};
+
+  private final ObClientProperties props;
+  /** Шаблон банка: для чтения — read-only HttpHeaders, для копирования — плоские пары имя/значение. */
+  private record Template(HttpHeaders headers, String[] pairs) { }
+
+  private final Map<String, Template> byCode;
+  private final Map<String, Template> byBaseUrl;
+
+  public ObRequestHeaders(ObClientProperties props) {
+    this.props = props;
+    Map<String, Template> codes = new HashMap<>();
+    Map<String, Template> urls = new HashMap<>();
+    for (String code : BANK_CODES) codes.put(code, buildTemplate(code));
+    for (String code : BANK_CODES) {
+      String url = props.baseUrlFor(code);
+      if (StringUtils.hasText(url)) urls.put(url, codes.get(bankCodeFromBaseUrl(url)));
+    }
+    this.byCode = Map.copyOf(codes);
+    this.byBaseUrl = Map.copyOf(urls);
+  }
+
+  /** Неизменяемый шаблон статических заголовков банка. */
+  public HttpHeaders template(String bankBaseUrl) {
+    return templateFor(bankBaseUrl).headers();
+  }
+
+  /** Заполнить заголовки запроса: шаблон банка + динамическая часть. */
+  public void apply(HttpHeaders h,
+                    String bankBaseUrl,
+                    String bearerToken,
+                    String requestingBank,
+                    String consentId) {
+    // не h.addAll(template): read-only HttpHeaders на каждый entrySet() копирует все записи
+    String[] pairs = templateFor(bankBaseUrl).pairs();
+    for (int i = 0; i < pairs.length; i += 2) h.add(pairs[i], pairs[i + 1]);
+
+    if (StringUtils.hasText(bearerToken)) {
+      h.set(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken);
+    }
+
+    // X-Requesting-Bank — это ID команды (например "team101"), не код банка.
+    if (StringUtils.hasText(requestingBank)) {
+      h.set(HDR_X_REQUESTING_BANK, requestingBank);
+    }
+
+    if (StringUtils.hasText(consentId)) {
+      h.set(HDR_X_CONSENT_ID, consentId);
+      h.set(HDR_X_CONSENT_ID_ALT, consentId);
+      h.set(HDR_CONSENT_ID_ALT2, consentId);
+    }
+
+    if (props.isSendFapiHeaders()) {
+      h.set(HDR_INTERACTION_ID, ObTrace.interactionId());
+    }
+    h.set(HDR_X_REQUEST_ID, RequestIds.next());
+  }
+
+  private Template templateFor(String bankBaseUrl) {
+    Template t = bankBaseUrl == null ? null : byBaseUrl.get(bankBaseUrl);
+    return t != null ? t : byCode.get(bankCodeFromBaseUrl(bankBaseUrl));
+  }
+
+  private Template buildTemplate(String bankCode) {
+    HttpHeaders h = new HttpHeaders();
+    if (props.isSendFapiHeaders()) {
+      String finId = props.financialIdFor(bankCode);
+      if (StringUtils.hasText(finId)) {
+        h.set("x-fapi-financial-id", finId);
+      }
+      String ip = props.getDefaultCustomerIp();
+      if (StringUtils.hasText(ip)) {
+        h.set("x-fapi-customer-ip-address", ip);
+        h.set("x-psu-ip-address", ip);
+        h.set("PSU-IP-Address", ip);
+      }
+    }
+    List<String> pairs = new ArrayList<>();
+    h.forEach((name, values) -> values.forEach(v -> { pairs.add(name); pairs.add(v); }));
+    return new Template(HttpHeaders.readOnlyHttpHeaders(h), pairs.toArray(String[]::new));
+  }
+
+  static String bankCodeFromBaseUrl(String baseUrl) {
+    String u = baseUrl == null ? "" : baseUrl.toLowerCase();
+    if (u.contains("abank")) return "a";
+    if (u.contains("sbank")) return "s";
+    return "v";
+  }
+}
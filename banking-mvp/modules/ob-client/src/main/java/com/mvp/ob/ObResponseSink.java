@@ -0,0 +1,17 @@
+package com.mvp.ob;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Приёмник «сырого» ответа банка для pass-through эндпоинтов:
+ * получает статус, заголовки и поток тела, пока соединение ещё открыто.
+ * Тело не буферизуется целиком и не декодируется в String.
+ */
+@FunctionalInterface
+public interface ObResponseSink {
+  void write(HttpStatusCode status, HttpHeaders headers, InputStream body) throws IOException;
+}
@@ -0,0 +1,22 @@
+package com.mvp.ob;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Быстрые id для X-Request-Id / x-fapi-interaction-id.
+ * UUID.randomUUID() ходит в общий SecureRandom и под нагрузкой упирается в его блокировку;
+ * здесь UUID v4 того же формата из ThreadLocalRandom — без блокировок.
+ * Для корреляции запросов криптостойкость не нужна.
+ */
+public final class RequestIds {
+
+  private RequestIds() { }
+
+  public static String next() {
+    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+    long hi = (rnd.nextLong() & ~0xF000L) | 0x4000L;                         // версия 4
+    long lo = (rnd.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;  // вариант IETF
+    return new UUID(hi, lo).toString();
+  }
+}
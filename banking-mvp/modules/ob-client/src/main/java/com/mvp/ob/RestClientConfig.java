@@ -1,25 +1,40 @@
 package com.mvp.ob;
 
+import com.mvp.ob.audit.AuditInterceptor;
+import com.mvp.ob.audit.AuditLog;
+import com.mvp.ob.coalesce.CoalescingInterceptor;
+import com.mvp.ob.coalesce.RequestCoalescer;
+import com.mvp.ob.limit.RateLimitInterceptor;
+import com.mvp.ob.limit.RateLimiter;
+import com.mvp.ob.trace.ObTraceInterceptor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.web.client.RestClient;
 
-import java.util.UUID;
-
+/**
+ * Общий транспорт всех Ob*Client: один RestClient с общими интерсепторами
+ * (X-Request-ID по умолчанию, объединение одинаковых GET в полёте, лимит запросов к банку,
+ * трассировка вызовов банков, аудит — последним, чтобы видеть запрос ровно таким, каким он ушёл).
+ */
 @Configuration
 public class RestClientConfig {
 
   @Bean
-  public RestClient obRestClient(RestClient.Builder builder) {
+  public RestClient obRestClient(RestClient.Builder builder, RateLimiter limiter,
+                                  RequestCoalescer coalescer, AuditLog audit) {
     ClientHttpRequestInterceptor addRequestId =
         (request, body, execution) -> {
-          request.getHeaders().addIfAbsent("X-Request-ID", UUID.randomUUID().toString());
+          request.getHeaders().addIfAbsent("X-Request-ID", RequestIds.next());
           return execution.execute(request, body);
         };
 
     return builder
         .requestInterceptor(addRequestId)
+        .requestInterceptor(new CoalescingInterceptor(coalescer))
+        .requestInterceptor(new RateLimitInterceptor(limiter))
+        .requestInterceptor(new ObTraceInterceptor())
+        .requestInterceptor(new AuditInterceptor(audit))
         .build();
   }
 }
@@ -0,0 +1,28 @@
+package com.mvp.ob;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики кэша bank-token: каждый запрос токена учитывается ровно один раз —
+ * либо как попадание в кэш (BankTokenProvider или ObAuthClient), либо как поход в банк.
+ */
+@Component
+public class TokenCacheStats {
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public void hit() { hits.increment(); }
+  public void miss() { misses.increment(); }
+
+  public long getHits() { return hits.sum(); }
+  public long getMisses() { return misses.sum(); }
+
+  /** Доля попаданий 0..1; без запросов — 0. */
+  public double getHitRate() {
+    long h = hits.sum(), m = misses.sum();
+    return h + m == 0 ? 0.0 : (double) h / (h + m);
+  }
+}
@@ -0,0 +1,43 @@
+package com.mvp.ob.audit;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сырой снимок одного вызова банка, как его видит поток запроса: ссылки на заголовки и тела
+ * без копирования строк и без маскирования. В JSON с маскированием его превращает поток
+ * писателя ({@link AuditLog}), так что на пути запроса — только ссылки и копия байтов ответа.
+ */
+final class AuditEvent {
+
+  final long startEpochMillis;
+  final long startNanos;
+  final String method;
+  final String url;
+  final Map<String, List<String>> requestHeaders;
+  final byte[] requestBody;
+
+  int status;
+  Map<String, List<String>> responseHeaders;
+  /** Первые app.audit-max-body-bytes байт ответа. */
+  byte[] responseBody;
+  int responseLength;
+  /** Всего байт ответа (может быть больше сохранённых). */
+  long responseBytes;
+  long durationNanos;
+  String error;
+
+  AuditEvent(long startEpochMillis, long startNanos, String method, String url,
+             Map<String, List<String>> requestHeaders, byte[] requestBody) {
+    this.startEpochMillis = startEpochMillis;
+    this.startNanos = startNanos;
+    this.method = method;
+    this.url = url;
+    this.requestHeaders = requestHeaders;
+    this.requestBody = requestBody;
+  }
+
+  boolean truncated() {
+    return responseBytes > responseLength;
+  }
+}
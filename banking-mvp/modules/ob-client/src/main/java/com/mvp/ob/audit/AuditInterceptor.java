@@ -0,0 +1,152 @@
+package com.mvp.ob.audit;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отдаёт каждый вызов банка в {@link AuditLog}: запрос — как ушёл (стоит последним в цепочке,
+ * после X-Request-ID и трассировки), ответ — по мере чтения тела, событие публикуется на EOF/close.
+ *
+ * На пути запроса только ссылки на заголовки/тело и копия первых app.audit-max-body-bytes байт
+ * ответа; маскирование и JSON — в потоке писателя. Аудит выключен — вызов идёт насквозь.
+ */
+public class AuditInterceptor implements ClientHttpRequestInterceptor {
+
+  private final AuditLog audit;
+
+  public AuditInterceptor(AuditLog audit) {
+    this.audit = audit;
+  }
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                      ClientHttpRequestExecution execution) throws IOException {
+    if (!audit.isEnabled()) {
+      return execution.execute(request, body);
+    }
+    AuditEvent ev = new AuditEvent(System.currentTimeMillis(), System.nanoTime(), request.getMethod().name(),
+        request.getURI().toString(), copy(request.getHeaders()), body);
+    try {
+      ClientHttpResponse resp = execution.execute(request, body);
+      HttpStatusCode status = resp.getStatusCode();
+      ev.status = status.value();
+      ev.responseHeaders = copy(resp.getHeaders());
+      return new AuditedResponse(resp, ev, audit);
+    } catch (IOException | RuntimeException e) {
+      ev.error = e.getClass().getSimpleName() + ": " + e.getMessage();
+      ev.durationNanos = System.nanoTime() - ev.startNanos;
+      audit.publish(ev);
+      throw e;
+    }
+  }
+
+  /** Заголовки дальше по цепочке не меняются — копируется только карта, не списки значений. */
+  private static Map<String, List<String>> copy(HttpHeaders h) {
+    return new LinkedHashMap<>(h);
+  }
+
+  private static final class AuditedResponse implements ClientHttpResponse {
+    private final ClientHttpResponse delegate;
+    private final AuditEvent ev;
+    private final AuditLog audit;
+    private InputStream body;
+    private boolean published;
+
+    AuditedResponse(ClientHttpResponse delegate, AuditEvent ev, AuditLog audit) {
+      this.delegate = delegate;
+      this.ev = ev;
+      this.audit = audit;
+    }
+
+    @Override public HttpStatusCode getStatusCode() throws IOException { return delegate.getStatusCode(); }
+    @Override public String getStatusText() throws IOException { return delegate.getStatusText(); }
+    @Override public HttpHeaders getHeaders() { return delegate.getHeaders(); }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      if (body == null) body = new TeeStream(delegate.getBody(), this);
+      return body;
+    }
+
+    @Override
+    public void close() {
+      finish();
+      delegate.close();
+    }
+
+    void finish() {
+      if (published) return;
+      published = true;
+      ev.durationNanos = System.nanoTime() - ev.startNanos;
+      audit.publish(ev);
+    }
+
+    void capture(byte[] buf, int off, int len) {
+      ev.responseBytes += len;
+      int room = audit.maxBodyBytes() - ev.responseLength;
+      if (room <= 0) return;
+      int n = Math.min(room, len);
+      byte[] dst = ev.responseBody;
+      if (dst == null || dst.length < ev.responseLength + n) {
+        int cap = Math.min(audit.maxBodyBytes(), Math.max(ev.responseLength + n, dst == null ? 1024 : dst.length * 2));
+        dst = dst == null ? new byte[cap] : Arrays.copyOf(dst, cap);
+        ev.responseBody = dst;
+      }
+      System.arraycopy(buf, off, dst, ev.responseLength, n);
+      ev.responseLength += n;
+    }
+  }
+
+  private static final class TeeStream extends FilterInputStream {
+    private final AuditedResponse resp;
+    private final byte[] one = new byte[1];
+
+    TeeStream(InputStream in, AuditedResponse resp) {
+      super(in);
+      this.resp = resp;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        resp.finish();
+      } else {
+        one[0] = (byte) b;
+        resp.capture(one, 0, 1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+      int n = super.read(buf, off, len);
+      if (n < 0) resp.finish(); else resp.capture(buf, off, n);
+      return n;
+    }
+
+    /** Без mark/reset: иначе байт, прочитанный при проверке «есть ли тело», попал бы в копию дважды. */
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      resp.finish();
+      super.close();
+    }
+  }
+}
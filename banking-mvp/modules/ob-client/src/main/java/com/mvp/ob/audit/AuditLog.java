@@ -0,0 +1,346 @@
+package com.mvp.ob.audit;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.mvp.ob.ObClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Аудит всех вызовов банков с отложенной записью: поток запроса кладёт {@link AuditEvent}
+ * в кольцо без блокировок ({@link AuditRing}, app.audit-buffer-size) и идёт дальше; поток
+ * "audit-writer-1" забирает события пачками, маскирует секреты ({@link AuditMasker}) и пишет
+ * JSON по строке в сжатые сегменты app.audit-dir/audit-yyyyMMdd'T'HHmmssSSS.jsonl.gz.
+ *
+ * Сегмент — один gzip-поток: после каждой пачки — SYNC_FLUSH (всё записанное читается даже из
+ * недописанного сегмента), fsync — не чаще app.audit-fsync-interval. Сегмент закрывается по
+ * размеру app.audit-segment-bytes и при остановке; после рестарта — всегда новый, старые не
+ * дописываются. Кольцо полно (диск не успевает) — событие отбрасывается и считается в dropped:
+ * запрос к банку аудит не задерживает никогда. Читать — {@link AuditLogReader}.
+ */
+@Component
+public class AuditLog implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+
+  static final String PREFIX = "audit-";
+  static final String SUFFIX = ".jsonl.gz";
+  private static final DateTimeFormatter NAME =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS", Locale.ROOT).withZone(ZoneOffset.UTC);
+  /** Сколько событий писатель берёт за раз до SYNC_FLUSH. */
+  private static final int BATCH = 512;
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+  private final ObClientProperties props;
+  private final JsonFactory json = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  private final AtomicLong published = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+
+  private AuditRing<AuditEvent> ring;
+  private volatile boolean enabled;
+  private volatile boolean running;
+  private Thread writer;
+  private int maxBodyBytes;
+
+  // состояние писателя — только из потока audit-writer-1
+  private Path dir;
+  private FileChannel channel;
+  private GZIPOutputStream gzip;
+  private OutputStream out;
+  private Path segment;
+  private long lastForce;
+  private boolean dirty;
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream(4096);
+  private volatile long segmentsWritten;
+  private volatile long segmentBytes;
+
+  public AuditLog(ObClientProperties props) {
+    this.props = props;
+  }
+
+  @Override
+  public void afterPropertiesSet() throws IOException {
+    if (!StringUtils.hasText(props.getAuditDir())) {
+      log.info("Bank call audit is off (app.audit-dir is empty)");
+      return;
+    }
+    dir = Path.of(props.getAuditDir()).toAbsolutePath();
+    Files.createDirectories(dir);
+    maxBodyBytes = Math.max(0, props.getAuditMaxBodyBytes());
+    ring = new AuditRing<>(props.getAuditBufferSize());
+    running = true;
+    writer = new Thread(this::writeLoop, "audit-writer-1");
+    writer.setDaemon(true);
+    writer.start();
+    enabled = true;
+    log.info("Bank call audit to {} (buffer {} events)", dir, ring.capacity());
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    if (!enabled) return;
+    enabled = false;
+    running = false;
+    LockSupport.unpark(writer);
+    writer.join(TimeUnit.SECONDS.toMillis(5));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  int maxBodyBytes() {
+    return maxBodyBytes;
+  }
+
+  /** С пути запроса: без блокировок и без ожидания; кольцо полно — событие теряется (dropped). */
+  void publish(AuditEvent ev) {
+    AuditRing<AuditEvent> r = ring;
+    if (r == null) return;
+    if (!r.offer(ev)) {
+      dropped.incrementAndGet();
+      return;
+    }
+    published.incrementAndGet();
+    // писатель спит до IDLE_NANOS; будим, только если кольцо заполнилось на четверть
+    if (r.size() > r.capacity() >> 2) LockSupport.unpark(writer);
+  }
+
+  /** Счётчики для /debug/metrics. */
+  public Map<String, Object> stats() {
+    Map<String, Object> m = new LinkedHashMap<>();
+    m.put("enabled", enabled);
+    if (ring == null) return m;
+    m.put("published", published.get());
+    m.put("written", written.get());
+    m.put("dropped", dropped.get());
+    m.put("failed", failed.get());
+    m.put("queued", ring.size());
+    m.put("segments", segmentsWritten);
+    m.put("segmentBytes", segmentBytes);
+    Path s = segment;
+    if (s != null) m.put("segment", s.getFileName().toString());
+    return m;
+  }
+
+  // ---------------- писатель ----------------
+
+  private void writeLoop() {
+    while (true) {
+      boolean stop = !running;
+      int n = drain();
+      if (n == 0) {
+        if (stop) break;
+        maybeForce();
+        LockSupport.parkNanos(this, IDLE_NANOS);
+      }
+    }
+    closeSegment();
+  }
+
+  /** Забрать пачку, записать, SYNC_FLUSH. @return сколько событий забрано */
+  private int drain() {
+    int n = 0;
+    AuditEvent ev;
+    while (n < BATCH && (ev = ring.poll()) != null) {
+      n++;
+      try {
+        line.reset();
+        encode(ev, line);
+      } catch (IOException | RuntimeException e) {
+        failed.incrementAndGet();
+        log.warn("Audit event {} {} not encoded: {}", ev.method, AuditMasker.url(ev.url), e.toString());
+        continue;
+      }
+      try {
+        if (out == null) openSegment();
+        line.writeTo(out);
+        written.incrementAndGet();
+      } catch (IOException e) {
+        failed.incrementAndGet();
+        log.warn("Audit write to {} failed, starting a new segment: {}", segment, e.toString());
+        abandonSegment();
+      }
+    }
+    if (n > 0 && out != null) {
+      try {
+        out.flush();
+        dirty = true;
+        segmentBytes = channel.size();
+        maybeForce();
+        if (channel.size() >= props.getAuditSegmentBytes()) closeSegment();
+      } catch (IOException e) {
+        failed.incrementAndGet();
+        log.warn("Audit flush to {} failed: {}", segment, e.toString());
+        abandonSegment();
+      }
+    }
+    return n;
+  }
+
+  private void maybeForce() {
+    if (!dirty || channel == null) return;
+    long now = System.nanoTime();
+    if (now - lastForce < props.getAuditFsyncInterval().toNanos()) return;
+    try {
+      channel.force(false);
+      dirty = false;
+      lastForce = now;
+    } catch (IOException e) {
+      log.warn("Audit fsync of {} failed: {}", segment, e.toString());
+    }
+  }
+
+  private void openSegment() throws IOException {
+    String name = PREFIX + NAME.format(Instant.now()) + SUFFIX;
+    Path p = dir.resolve(name);
+    for (int i = 1; Files.exists(p); i++) p = dir.resolve(name.replace(SUFFIX, "-" + i + SUFFIX));
+    channel = FileChannel.open(p, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    segment = p;
+    // syncFlush: flush() сбрасывает deflate до границы байта — прочитать можно всё, что записано
+    gzip = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024, true);
+    out = new BufferedOutputStream(gzip, 64 * 1024);
+    segmentsWritten++;
+    deleteExpired();
+  }
+
+  private void closeSegment() {
+    if (out == null) return;
+    try {
+      out.flush();
+      gzip.finish(); // трейлер gzip; close() закрыл бы и канал до fsync
+      channel.force(true);
+    } catch (IOException e) {
+      log.warn("Audit segment {} close failed: {}", segment, e.toString());
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+        // сегмент уже дописан или брошен
+      }
+      out = null;
+      gzip = null;
+      channel = null;
+      dirty = false;
+    }
+  }
+
+  /** После ошибки записи сегмент бросается как есть (читатель прочтёт его до места обрыва). */
+  private void abandonSegment() {
+    try {
+      if (channel != null) channel.close();
+    } catch (IOException ignored) {
+      // уже неважно
+    }
+    out = null;
+    gzip = null;
+    channel = null;
+    dirty = false;
+  }
+
+  /** Сегменты старше app.audit-retention (по времени в имени); 0 — хранить всё. */
+  private void deleteExpired() {
+    long keepMs = props.getAuditRetention().toMillis();
+    if (keepMs <= 0) return;
+    long cutoff = System.currentTimeMillis() - keepMs;
+    try (Stream<Path> files = Files.list(dir)) {
+      for (Path p : (Iterable<Path>) files::iterator) {
+        long started = AuditLogReader.segmentStart(p);
+        if (started > 0 && started < cutoff && !p.equals(segment)) Files.deleteIfExists(p);
+      }
+    } catch (IOException e) {
+      log.warn("Audit retention cleanup in {} failed: {}", dir, e.toString());
+    }
+  }
+
+  private void encode(AuditEvent ev, OutputStream to) throws IOException {
+    try (JsonGenerator g = json.createGenerator(to, JsonEncoding.UTF8)) {
+      g.writeStartObject();
+      g.writeNumberField("ts", ev.startEpochMillis);
+      g.writeNumberField("durationUs", ev.durationNanos / 1_000);
+      g.writeStringField("method", ev.method);
+      g.writeStringField("url", AuditMasker.url(ev.url));
+      if (ev.status > 0) g.writeNumberField("status", ev.status);
+      if (ev.error != null) g.writeStringField("error", ev.error);
+      writeHeaders(g, "requestHeaders", ev.requestHeaders);
+      if (ev.requestBody != null && ev.requestBody.length > 0) {
+        writeBody(g, "requestBody", ev.requestHeaders, ev.requestBody, ev.requestBody.length);
+      }
+      if (ev.responseHeaders != null) writeHeaders(g, "responseHeaders", ev.responseHeaders);
+      if (ev.responseBytes > 0) {
+        g.writeNumberField("responseBytes", ev.responseBytes);
+        if (ev.truncated()) g.writeBooleanField("truncated", true);
+        if (ev.responseLength > 0) {
+          writeBody(g, "responseBody", ev.responseHeaders, ev.responseBody, ev.responseLength);
+        }
+      }
+      g.writeEndObject();
+    }
+    to.write('\n');
+  }
+
+  private static void writeHeaders(JsonGenerator g, String field, Map<String, List<String>> headers) throws IOException {
+    if (headers == null || headers.isEmpty()) return;
+    g.writeObjectFieldStart(field);
+    for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+      List<String> values = e.getValue();
+      if (values == null || values.isEmpty()) continue;
+      g.writeStringField(e.getKey(), AuditMasker.header(e.getKey(), values.size() == 1
+          ? values.get(0) : String.join(", ", values)));
+    }
+    g.writeEndObject();
+  }
+
+  /** Текст — строкой с маскированием; сжатое банком (Content-Encoding) — base64 как есть. */
+  private static void writeBody(JsonGenerator g, String field, Map<String, List<String>> headers,
+                                byte[] body, int len) throws IOException {
+    String encoding = first(headers, "Content-Encoding");
+    if (encoding != null && !encoding.equalsIgnoreCase("identity")) {
+      g.writeStringField(field + "Base64", Base64.getEncoder().encodeToString(Arrays.copyOf(body, len)));
+      return;
+    }
+    g.writeStringField(field, AuditMasker.body(new String(body, 0, len, StandardCharsets.UTF_8)));
+  }
+
+  private static String first(Map<String, List<String>> headers, String name) {
+    if (headers == null) return null;
+    for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+      if (e.getKey().equalsIgnoreCase(name) && e.getValue() != null && !e.getValue().isEmpty()) {
+        return e.getValue().get(0);
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,215 @@
+package com.mvp.ob.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Чтение журнала аудита ({@link AuditLog}): сегменты по времени, записи в диапазоне [from, to],
+ * с фильтрами. Недописанный сегмент (текущий или оборванный падением) читается до места обрыва.
+ *
+ * Из консоли (портал — Spring Boot jar, главный класс подменяется через PropertiesLauncher):
+ * <pre>
+ * java -cp app-portal.jar -Dloader.main=com.mvp.ob.audit.AuditLogReader \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     data/audit --from 2026-10-19T10:00:00Z --to 2026-10-19T11:00:00Z --status 4xx --grep /payments --limit 100
+ * </pre>
+ * Вывод — JSON по строке в stdout, итог — в stderr.
+ */
+public final class AuditLogReader {
+
+  private static final DateTimeFormatter NAME =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS", Locale.ROOT).withZone(ZoneOffset.UTC);
+  /**
+   * Запись попадает в сегмент после завершения вызова, ts — его начало: сегмент, открытый
+   * позже to, может ещё содержать записи до to — но не старше этого запаса.
+   */
+  private static final long LATE_WRITE_MS = 10 * 60_000L;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Path dir;
+  private long from = Long.MIN_VALUE;
+  private long to = Long.MAX_VALUE;
+  private String status;
+  private String grep;
+  private int limit = Integer.MAX_VALUE;
+
+  /** Сколько сегментов оборвано (ещё пишутся или остались от падения). */
+  private int torn;
+
+  public AuditLogReader(Path dir) {
+    this.dir = dir;
+  }
+
+  public AuditLogReader from(long epochMillis) { this.from = epochMillis; return this; }
+  public AuditLogReader to(long epochMillis) { this.to = epochMillis; return this; }
+  /** Код ответа: "429", класс "5xx" или "error" — вызов без ответа. */
+  public AuditLogReader status(String status) { this.status = status; return this; }
+  /** Подстрока записи (метод, url, тело — уже в маскированном виде). */
+  public AuditLogReader grep(String grep) { this.grep = grep; return this; }
+  public AuditLogReader limit(int limit) { this.limit = limit; return this; }
+
+  public int tornSegments() { return torn; }
+
+  /**
+   * Отдать подходящие записи по порядку сегментов; sink вернул false — остановиться.
+   * @return сколько записей отдано
+   */
+  public int read(Predicate<JsonNode> sink) throws IOException {
+    List<Path> segs = segments(dir);
+    int n = 0;
+    for (int i = 0; i < segs.size() && n < limit; i++) {
+      // все записи сегмента сделаны до открытия следующего — он целиком раньше from
+      if (i + 1 < segs.size() && segmentStart(segs.get(i + 1)) < from) continue;
+      if (segmentStart(segs.get(i)) - LATE_WRITE_MS > to) break;
+      TornTail in = new TornTail(new GZIPInputStream(Files.newInputStream(segs.get(i)), 64 * 1024));
+      try (BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+        String line;
+        while (n < limit && (line = r.readLine()) != null) {
+          if (line.isBlank() || grep != null && !line.contains(grep)) continue;
+          JsonNode rec;
+          try {
+            rec = mapper.readTree(line);
+          } catch (IOException e) {
+            continue; // строка, оборванная вместе с сегментом
+          }
+          long ts = rec.path("ts").asLong();
+          if (ts < from || ts > to || !statusMatches(rec)) continue;
+          n++;
+          if (!sink.test(rec)) return n;
+        }
+      }
+      if (in.torn) torn++;
+    }
+    return n;
+  }
+
+  /** Сегменты каталога по времени открытия. */
+  public static List<Path> segments(Path dir) throws IOException {
+    List<Path> out = new ArrayList<>();
+    try (Stream<Path> files = Files.list(dir)) {
+      files.filter(p -> segmentStart(p) > 0).sorted().forEach(out::add);
+    }
+    return out;
+  }
+
+  /** Время открытия сегмента из имени (epoch ms); не сегмент — 0. */
+  static long segmentStart(Path p) {
+    String name = p.getFileName().toString();
+    if (!name.startsWith(AuditLog.PREFIX) || !name.endsWith(AuditLog.SUFFIX)) return 0;
+    int start = AuditLog.PREFIX.length();
+    try {
+      return Instant.from(NAME.parse(name.substring(start, start + 18))).toEpochMilli();
+    } catch (DateTimeParseException | IndexOutOfBoundsException e) {
+      return 0;
+    }
+  }
+
+  private boolean statusMatches(JsonNode rec) {
+    if (status == null) return true;
+    JsonNode s = rec.get("status");
+    if (status.equalsIgnoreCase("error")) return s == null;
+    if (s == null) return false;
+    String code = s.asText();
+    if (status.length() == 3 && status.toLowerCase(Locale.ROOT).endsWith("xx")) {
+      return code.charAt(0) == status.charAt(0);
+    }
+    return code.equals(status);
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0 || args[0].startsWith("--")) {
+      System.err.println("usage: AuditLogReader <dir> [--from T] [--to T] [--status 429|5xx|error] [--grep S] [--limit N]");
+      System.err.println("  T — ISO-8601 (2026-10-19T10:00:00Z) или epoch ms");
+      System.exit(2);
+    }
+    AuditLogReader reader = new AuditLogReader(Path.of(args[0]));
+    for (int i = 1; i + 1 < args.length; i += 2) {
+      String v = args[i + 1];
+      switch (args[i]) {
+        case "--from" -> reader.from(time(v));
+        case "--to" -> reader.to(time(v));
+        case "--status" -> reader.status(v);
+        case "--grep" -> reader.grep(v);
+        case "--limit" -> reader.limit(Integer.parseInt(v));
+        default -> {
+          System.err.println("unknown option " + args[i]);
+          System.exit(2);
+        }
+      }
+    }
+    PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+    int n = reader.read(rec -> {
+      out.println(rec.toString());
+      return true;
+    });
+    out.flush();
+    System.err.println(n + " records" + (reader.tornSegments() > 0
+        ? ", " + reader.tornSegments() + " segment(s) still open or cut short" : ""));
+  }
+
+  /**
+   * Сегмент без трейлера gzip (ещё пишется или оборван падением) кончается исключением, а не EOF.
+   * Здесь оно превращается в обычный конец потока — иначе декодер символов выбросил бы вместе
+   * с ним и уже прочитанный хвост записей.
+   */
+  private static final class TornTail extends FilterInputStream {
+    boolean torn;
+
+    TornTail(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (torn) return -1;
+      try {
+        return super.read();
+      } catch (EOFException | ZipException e) {
+        torn = true;
+        return -1;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (torn) return -1;
+      try {
+        return super.read(b, off, len);
+      } catch (EOFException | ZipException e) {
+        torn = true;
+        return -1;
+      }
+    }
+
+    @Override
+    public int available() throws IOException {
+      return torn ? 0 : super.available();
+    }
+  }
+
+  private static long time(String v) {
+    return v.chars().allMatch(Character::isDigit) ? Long.parseLong(v) : Instant.parse(v).toEpochMilli();
+  }
+}
@@ -0,0 +1,79 @@
+package com.mvp.ob.audit;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Маскирование секретов перед записью в аудит: client_secret, токены, пароли — в query-строке,
+ * в заголовках и в телах (JSON и form-urlencoded). Вместо значения — "***" и отпечаток
+ * (первые 8 hex SHA-256): по нему видно, что вызовы шли с одним и тем же токеном, но сам токен
+ * из журнала не восстановить.
+ */
+final class AuditMasker {
+
+  private static final String SECRET_NAMES =
+      "client_secret|access_token|refresh_token|id_token|token|password|code_verifier|assertion";
+
+  private static final Pattern QUERY = Pattern.compile(
+      "([?&](?:" + SECRET_NAMES + ")=)([^&#]*)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern JSON_FIELD = Pattern.compile(
+      "(\"(?:" + SECRET_NAMES + "|clientSecret|accessToken|refreshToken)\"\\s*:\\s*)\"((?:[^\"\\\\]|\\\\.)*)\"",
+      Pattern.CASE_INSENSITIVE);
+  private static final Pattern FORM_FIELD = Pattern.compile(
+      "((?:^|&)(?:" + SECRET_NAMES + ")=)([^&]*)", Pattern.CASE_INSENSITIVE);
+
+  private AuditMasker() { }
+
+  static String url(String url) {
+    return url == null || url.indexOf('?') < 0 ? url : replace(QUERY, url, "");
+  }
+
+  /** Значение заголовка как есть или замаскированное — по имени заголовка. */
+  static String header(String name, String value) {
+    if (value == null) return null;
+    String n = name.toLowerCase(Locale.ROOT);
+    if (n.equals("authorization") || n.equals("proxy-authorization")) {
+      int sp = value.indexOf(' ');
+      return sp < 0 ? secret(value) : value.substring(0, sp) + " " + secret(value.substring(sp + 1).trim());
+    }
+    if (n.contains("token") || n.contains("secret") || n.contains("api-key") || n.contains("password")
+        || n.equals("cookie") || n.equals("set-cookie")) {
+      return secret(value);
+    }
+    return value;
+  }
+
+  static String body(String body) {
+    if (body == null || body.isEmpty()) return body;
+    String s = replace(JSON_FIELD, body, "\"");
+    return s.indexOf('=') >= 0 ? replace(FORM_FIELD, s, "") : s;
+  }
+
+  static String secret(String value) {
+    if (value == null || value.isEmpty()) return value;
+    try {
+      byte[] d = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+      return "***" + HexFormat.of().formatHex(d, 0, 4);
+    } catch (NoSuchAlgorithmException e) {
+      return "***";
+    }
+  }
+
+  /** Группа 1 — префикс, группа 2 — секрет; quote — чем обернуть замену (кавычка для JSON). */
+  private static String replace(Pattern p, String s, String quote) {
+    Matcher m = p.matcher(s);
+    if (!m.find()) return s;
+    StringBuilder out = new StringBuilder(s.length());
+    do {
+      m.appendReplacement(out, "");
+      out.append(m.group(1)).append(quote).append(secret(m.group(2))).append(quote);
+    } while (m.find());
+    m.appendTail(out);
+    return out.toString();
+  }
+}
@@ -0,0 +1,57 @@
+package com.mvp.ob.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченная очередь «много писателей — один читатель» без блокировок (кольцо размера 2^n).
+ *
+ * Писатель CAS-ом занимает номер хвоста и кладёт элемент в слот; читатель забирает слот головы,
+ * обнуляет его и только потом двигает голову — писатель не займёт слот, пока читатель его не
+ * освободил. Кольцо полно — offer сразу возвращает false: поток запроса никогда не ждёт писателя.
+ * Занятый, но ещё не заполненный слот читатель видит как пустоту и заберёт его в следующий раз.
+ */
+final class AuditRing<T> {
+
+  private final AtomicReferenceArray<T> slots;
+  private final int mask;
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+
+  AuditRing(int capacity) {
+    int cap = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+    this.slots = new AtomicReferenceArray<>(cap);
+    this.mask = cap - 1;
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+
+  /** @return false — кольцо полно, элемент не принят */
+  boolean offer(T e) {
+    long t;
+    do {
+      t = tail.get();
+      if (t - head.get() > mask) return false;
+    } while (!tail.compareAndSet(t, t + 1));
+    slots.lazySet((int) t & mask, e);
+    return true;
+  }
+
+  /** Только из потока читателя. @return null — пусто (или следующий слот ещё заполняется) */
+  T poll() {
+    long h = head.get();
+    int i = (int) h & mask;
+    T e = slots.get(i);
+    if (e == null) return null;
+    slots.lazySet(i, null);
+    head.lazySet(h + 1);
+    return e;
+  }
+
+  /** Примерное число элементов (для метрик и решения «пора будить читателя»). */
+  int size() {
+    return (int) Math.max(0, tail.get() - head.get());
+  }
+}
@@ -0,0 +1,68 @@
+package com.mvp.ob.coalesce;
+
+import com.mvp.ob.limit.ObPriority;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Объединение одинаковых GET в полёте ({@link RequestCoalescer}). Стоит до лимитера:
+ * попутчик не занимает жетон и место в очереди к банку, в аудит и трассировку попадает
+ * только настоящий вызов.
+ */
+public class CoalescingInterceptor implements ClientHttpRequestInterceptor {
+
+  private final RequestCoalescer coalescer;
+
+  public CoalescingInterceptor(RequestCoalescer coalescer) {
+    this.coalescer = coalescer;
+  }
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                      ClientHttpRequestExecution execution) throws IOException {
+    String key = coalescer.isEnabled() ? coalescer.key(request) : null;
+    if (key == null) return execution.execute(request, body);
+
+    ObPriority priority = ObPriority.current();
+    RequestCoalescer.Flight flight;
+    while (true) {
+      RequestCoalescer.Flight other = coalescer.join(key, priority);
+      if (other != null) return coalescer.await(other, request.getURI().getPath());
+      flight = coalescer.lead(key, priority);
+      if (flight != null) break;
+      // ведущим успел стать другой поток — присоединяемся к нему
+    }
+
+    ClientHttpResponse resp;
+    try {
+      resp = execution.execute(request, body);
+    } catch (Throwable e) {
+      coalescer.land(key, priority, flight);
+      flight.result.completeExceptionally(e);
+      throw e;
+    }
+    if (coalescer.land(key, priority, flight) == 0) {
+      flight.result.cancel(false);
+      return resp;
+    }
+
+    // есть попутчики: тело читаем целиком, каждому — своя копия
+    RequestCoalescer.Shared shared;
+    try (resp) {
+      HttpHeaders headers = new HttpHeaders();
+      headers.putAll(resp.getHeaders());
+      shared = new RequestCoalescer.Shared(resp.getStatusCode(), resp.getStatusText(),
+          HttpHeaders.readOnlyHttpHeaders(headers), resp.getBody().readAllBytes());
+    } catch (Throwable e) {
+      flight.result.completeExceptionally(e);
+      throw e;
+    }
+    flight.result.complete(shared);
+    return shared.response();
+  }
+}
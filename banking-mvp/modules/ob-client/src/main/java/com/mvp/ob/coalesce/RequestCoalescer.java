@@ -0,0 +1,172 @@
+package com.mvp.ob.coalesce;
+
+import com.mvp.ob.ObClientProperties;
+import com.mvp.ob.limit.ObPriority;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Single-flight для GET в банки: одинаковые запросы, пришедшие, пока первый ещё в пути,
+ * не идут в банк сами, а получают копию его ответа (статус, заголовки, тело).
+ *
+ * Одинаковые — тот же URL и те же заголовки, кроме идентификаторов корреляции (X-Request-ID,
+ * x-fapi-interaction-id, traceparent): токен, согласие, IP клиента и прочее входят в ключ целиком,
+ * так что чужой ответ по чужому токену или согласию не достанется никому. Присоединиться можно
+ * только к вызову не ниже своего приоритета ({@link ObPriority}): страница пользователя не ждёт
+ * фоновый вызов, стоящий в очереди лимитера.
+ *
+ * Пока к вызову никто не присоединился, его ответ идёт вызывающему потоком, как обычно; тело
+ * читается в память, только если ответ ждут попутчики.
+ */
+@Component
+public class RequestCoalescer {
+
+  /** Заголовки, уникальные для каждого вызова и не влияющие на ответ банка. */
+  private static final Set<String> CORRELATION_HEADERS =
+      Set.of("x-request-id", "x-fapi-interaction-id", "traceparent", "tracestate");
+
+  private final ObClientProperties props;
+  private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+  private final LongAdder upstream = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final Map<String, LongAdder> savedByEndpoint = new ConcurrentHashMap<>();
+
+  public RequestCoalescer(ObClientProperties props) {
+    this.props = props;
+  }
+
+  public boolean isEnabled() {
+    return props.isSingleFlight();
+  }
+
+  /** Вызов в пути; попутчики ждут result. */
+  static final class Flight {
+    final CompletableFuture<Shared> result = new CompletableFuture<>();
+    private int followers;
+    private boolean closed;
+
+    /** @return false — ответ уже пришёл, присоединяться поздно */
+    synchronized boolean join() {
+      if (closed) return false;
+      followers++;
+      return true;
+    }
+
+    /** Больше никого не принимать. @return сколько попутчиков ждут */
+    synchronized int close() {
+      closed = true;
+      return followers;
+    }
+  }
+
+  /** Ответ банка в памяти: каждый попутчик получает свою копию потока тела. */
+  record Shared(HttpStatusCode status, String statusText, HttpHeaders headers, byte[] body) {
+    ClientHttpResponse response() {
+      return new ClientHttpResponse() {
+        private final InputStream in = new ByteArrayInputStream(body);
+        @Override public HttpStatusCode getStatusCode() { return status; }
+        @Override public String getStatusText() { return statusText; }
+        @Override public HttpHeaders getHeaders() { return headers; }
+        @Override public InputStream getBody() { return in; }
+        @Override public void close() { }
+      };
+    }
+  }
+
+  /** Ключ вызова или null — вызов не объединяется (не GET). */
+  String key(HttpRequest request) {
+    if (!"GET".equals(request.getMethod().name())) return null;
+    // имена заголовков без учёта регистра, в порядке имён — порядок добавления не важен
+    Map<String, List<String>> sorted = new TreeMap<>();
+    for (Map.Entry<String, List<String>> e : request.getHeaders().entrySet()) {
+      String name = e.getKey().toLowerCase(Locale.ROOT);
+      if (!CORRELATION_HEADERS.contains(name)) sorted.computeIfAbsent(name, k -> new ArrayList<>()).addAll(e.getValue());
+    }
+    StringBuilder sb = new StringBuilder(256).append(request.getURI());
+    for (Map.Entry<String, List<String>> e : sorted.entrySet()) sb.append('\n').append(e.getKey()).append(':').append(e.getValue());
+    return sb.toString();
+  }
+
+  /** Найти вызов в пути, к которому можно присоединиться с приоритетом priority; null — нет такого. */
+  Flight join(String key, ObPriority priority) {
+    for (ObPriority p : ObPriority.values()) {
+      Flight f = flights.get(slot(key, p));
+      if (f != null && f.join()) return f;
+      if (p == priority) break; // менее срочные вызовы не ждём
+    }
+    return null;
+  }
+
+  /** Стать ведущим; кто-то успел раньше — null (тогда снова {@link #join}). */
+  Flight lead(String key, ObPriority priority) {
+    Flight f = new Flight();
+    return flights.putIfAbsent(slot(key, priority), f) == null ? f : null;
+  }
+
+  /** Ответ пришёл (или ошибка): новых попутчиков не принимаем. @return сколько ждут */
+  int land(String key, ObPriority priority, Flight f) {
+    flights.remove(slot(key, priority), f);
+    upstream.increment();
+    return f.close();
+  }
+
+  ClientHttpResponse await(Flight f, String path) throws IOException {
+    coalesced.increment();
+    savedByEndpoint.computeIfAbsent(endpoint(path), k -> new LongAdder()).increment();
+    try {
+      return f.result.get().response();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a coalesced bank call");
+    } catch (ExecutionException e) {
+      Throwable c = e.getCause();
+      throw new IOException("Coalesced bank call failed: " + c.getMessage(), c);
+    }
+  }
+
+  /** Счётчики для /debug/metrics: сколько GET ушло в банк и сколько сэкономлено. */
+  public Map<String, Object> stats() {
+    Map<String, Object> m = new LinkedHashMap<>();
+    long up = upstream.sum();
+    long saved = coalesced.sum();
+    m.put("enabled", isEnabled());
+    m.put("upstream", up);
+    m.put("saved", saved);
+    m.put("savedRate", up + saved == 0 ? 0.0 : Math.round(saved * 10_000.0 / (up + saved)) / 10_000.0);
+    m.put("inFlight", flights.size());
+    Map<String, Long> by = new TreeMap<>();
+    savedByEndpoint.forEach((k, v) -> by.put(k, v.sum()));
+    m.put("savedByEndpoint", by);
+    return m;
+  }
+
+  private static String slot(String key, ObPriority p) {
+    return p.ordinal() + key;
+  }
+
+  /** "/accounts/acc-1/balances" → "/accounts": первая часть пути, без id. */
+  private static String endpoint(String path) {
+    if (path == null || path.isEmpty()) return "/";
+    int next = path.indexOf('/', 1);
+    return next < 0 ? path : path.substring(0, next);
+  }
+}
@@ -0,0 +1,36 @@
+package com.mvp.ob.limit;
+
+import com.mvp.ob.trace.ObTrace;
+
+import java.util.function.Supplier;
+
+/**
+ * Приоритет вызова банка в очереди лимитера ({@link RateLimiter}).
+ *
+ * По умолчанию вызов из потока, который обслуживает входящий запрос портала (есть {@link ObTrace}),
+ * — INTERACTIVE: его ждёт пользователь. Всё остальное (фоновые обновления каталогов и балансов,
+ * движок заявок) — BACKGROUND. Явно переопределить — {@link #with}.
+ */
+public enum ObPriority {
+  INTERACTIVE,
+  BACKGROUND;
+
+  private static final ThreadLocal<ObPriority> OVERRIDE = new ThreadLocal<>();
+
+  public static ObPriority current() {
+    ObPriority p = OVERRIDE.get();
+    if (p != null) return p;
+    return ObTrace.current() != null ? INTERACTIVE : BACKGROUND;
+  }
+
+  /** Выполнить body с приоритетом priority для всех вызовов банков этого потока. */
+  public static <T> T with(ObPriority priority, Supplier<T> body) {
+    ObPriority prev = OVERRIDE.get();
+    OVERRIDE.set(priority);
+    try {
+      return body.get();
+    } finally {
+      if (prev == null) OVERRIDE.remove(); else OVERRIDE.set(prev);
+    }
+  }
+}
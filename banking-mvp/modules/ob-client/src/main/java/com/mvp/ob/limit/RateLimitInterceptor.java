@@ -0,0 +1,34 @@
+package com.mvp.ob.limit;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+
+/**
+ * Каждый вызов банка сначала ждёт жетон своей корзины в {@link RateLimiter}
+ * (приоритет — {@link ObPriority#current()}), ответ 429/503 ставит корзину на паузу по Retry-After.
+ * Стоит до трассировки и аудита: их время — время самого вызова, без очереди.
+ */
+public class RateLimitInterceptor implements ClientHttpRequestInterceptor {
+
+  private final RateLimiter limiter;
+
+  public RateLimitInterceptor(RateLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                      ClientHttpRequestExecution execution) throws IOException {
+    limiter.acquire(request.getURI(), ObPriority.current());
+    ClientHttpResponse resp = execution.execute(request, body);
+    int status = resp.getStatusCode().value();
+    if (status == 429 || status == 503) {
+      limiter.onResponse(request.getURI(), status, resp.getHeaders().getFirst("Retry-After"));
+    }
+    return resp;
+  }
+}
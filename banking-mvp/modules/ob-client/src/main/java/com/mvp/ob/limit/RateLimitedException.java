@@ -0,0 +1,17 @@
+package com.mvp.ob.limit;
+
+import java.io.IOException;
+
+/**
+ * Вызов не дождался своей очереди к банку за app.rate-limit-max-wait (фон — за
+ * app.rate-limit-background-max-wait). Как и сетевая ошибка, доходит до вызывающего
+ * кода в виде ResourceAccessException от RestClient.
+ */
+public class RateLimitedException extends IOException {
+
+  private static final long serialVersionUID = 1L;
+
+  public RateLimitedException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,319 @@
+package com.mvp.ob.limit;
+
+import com.mvp.ob.ObClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Лимит запросов к банкам: token bucket на пару (банк, класс эндпоинта) — auth, consents,
+ * accounts, payments, products, other — со скоростью app.rate-limits.&lt;класс&gt; запросов
+ * в секунду (для одного банка — ключ "[&lt;v|a|s&gt;.&lt;класс&gt;]", по умолчанию — "default")
+ * и запасом на всплеск app.rate-limit-burst.
+ *
+ * Свободный жетон и пустая очередь — вызов идёт сразу. Иначе он встаёт в очередь корзины:
+ * порядок — по времени прихода, фоновые ({@link ObPriority#BACKGROUND}) — как будто пришли
+ * на app.rate-limit-background-delay позже. Интерактивные обгоняют фон, но фон, прождавший
+ * дольше этой задержки, пропускает вперёд только тех, кто ждёт ещё дольше, — без голодания.
+ * По времени спит только голова очереди; остальных будит тот, кто забрал жетон.
+ *
+ * Ответ 429/503 с Retry-After (секунды или HTTP-дата; без заголовка — секунда) останавливает
+ * корзину до этого момента для всех. Не дождался за app.rate-limit-max-wait (фон —
+ * app.rate-limit-background-max-wait) — {@link RateLimitedException}.
+ */
+@Component
+public class RateLimiter {
+
+  private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+
+  /** Дольше не паузим корзину, что бы ни прислал банк. */
+  private static final long MAX_PAUSE_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+  public enum EndpointClass { AUTH, CONSENTS, ACCOUNTS, PAYMENTS, PRODUCTS, OTHER }
+
+  private final ObClientProperties props;
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+  public RateLimiter(ObClientProperties props) {
+    this.props = props;
+  }
+
+  /**
+   * Дождаться жетона на вызов uri. @return сколько ждали, нс
+   * @throws RateLimitedException не дождались за допустимое время
+   */
+  public long acquire(URI uri, ObPriority priority) throws RateLimitedException, InterruptedIOException {
+    Bucket b = bucket(uri);
+    return b == null ? 0 : b.acquire(priority);
+  }
+
+  /** Банк ответил status: 429/503 — корзина ждёт Retry-After. */
+  public void onResponse(URI uri, int status, String retryAfter) {
+    if (status != 429 && status != 503) return;
+    Bucket b = bucket(uri);
+    if (b == null) return;
+    b.throttled.incrementAndGet();
+    long delay = Math.min(MAX_PAUSE_NANOS, retryAfterNanos(retryAfter));
+    b.pause(delay);
+    log.info("Bank {} throttled {} ({}), pausing {} ms", b.bank, b.endpoint, status, delay / 1_000_000);
+  }
+
+  /** Счётчики по корзинам для /debug/metrics. */
+  public Map<String, Object> stats() {
+    Map<String, Object> out = new TreeMap<>();
+    for (Bucket b : buckets.values()) out.put(b.bank + "." + b.endpoint.name().toLowerCase(Locale.ROOT), b.stats());
+    return out;
+  }
+
+  static EndpointClass classify(String path) {
+    if (path == null) return EndpointClass.OTHER;
+    if (path.startsWith("/auth")) return EndpointClass.AUTH;
+    if (path.contains("consent")) return EndpointClass.CONSENTS;
+    if (path.startsWith("/accounts")) return EndpointClass.ACCOUNTS;
+    if (path.contains("payment")) return EndpointClass.PAYMENTS;
+    if (path.startsWith("/product")) return EndpointClass.PRODUCTS;
+    return EndpointClass.OTHER;
+  }
+
+  /** Retry-After: секунды или HTTP-дата; нет или не разобрать — секунда. */
+  static long retryAfterNanos(String v) {
+    if (v == null || v.isBlank()) return TimeUnit.SECONDS.toNanos(1);
+    String s = v.trim();
+    try {
+      return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(s)));
+    } catch (NumberFormatException ignored) {
+      // не число — значит дата
+    }
+    try {
+      long at = ZonedDateTime.parse(s, DateTimeFormatter.RFC_1123_DATE_TIME)
+          .toInstant().toEpochMilli();
+      return TimeUnit.MILLISECONDS.toNanos(Math.max(0, at - System.currentTimeMillis()));
+    } catch (RuntimeException e) {
+      return TimeUnit.SECONDS.toNanos(1);
+    }
+  }
+
+  private Bucket bucket(URI uri) {
+    EndpointClass ec = classify(uri.getPath());
+    String bank = bankOf(uri);
+    String key = bank + "|" + uri.getAuthority() + "|" + ec;
+    Bucket b = buckets.get(key);
+    if (b != null) return b.unlimited ? null : b;
+    double rps = rateFor(bank, ec);
+    b = buckets.computeIfAbsent(key, k -> new Bucket(bank, ec, rps));
+    return b.unlimited ? null : b;
+  }
+
+  /** Код банка по базовому URL из app.*-base-url; чужой хост — сам хост. */
+  private String bankOf(URI uri) {
+    String u = uri.toString();
+    for (String code : new String[] {"v", "a", "s"}) {
+      String base = props.baseUrlFor(code);
+      if (base != null && !base.isBlank() && u.startsWith(base)) return code;
+    }
+    return uri.getAuthority();
+  }
+
+  private double rateFor(String bank, EndpointClass ec) {
+    Map<String, Double> limits = props.getRateLimits();
+    String cls = ec.name().toLowerCase(Locale.ROOT);
+    Double v = limits.get(bank + "." + cls);
+    if (v == null) v = limits.get(cls);
+    if (v == null) v = limits.get("default");
+    return v == null ? 0 : v;
+  }
+
+  private static Duration orZero(Duration d) {
+    return d == null ? Duration.ZERO : d;
+  }
+
+  /** Ждущий вызов; order — время прихода, у фона — со сдвигом. */
+  private record Waiter(Thread thread, ObPriority priority, long order, long seq) { }
+
+  final class Bucket {
+    final String bank;
+    final EndpointClass endpoint;
+    final boolean unlimited;
+    private final double perNano;
+    private final double capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>((x, y) -> {
+      int c = Long.compare(x.order, y.order);
+      return c != 0 ? c : Long.compare(x.seq, y.seq);
+    });
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private long pausedUntil = refilledAt;
+    private long seq;
+
+    final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final Map<ObPriority, WaitStats> waits = new EnumMap<>(ObPriority.class);
+
+    Bucket(String bank, EndpointClass endpoint, double rps) {
+      this.bank = bank;
+      this.endpoint = endpoint;
+      this.unlimited = rps <= 0;
+      this.perNano = rps / 1e9;
+      this.capacity = Math.max(1, rps * orZero(props.getRateLimitBurst()).toMillis() / 1000.0);
+      this.tokens = capacity;
+      for (ObPriority p : ObPriority.values()) waits.put(p, new WaitStats());
+    }
+
+    long acquire(ObPriority priority) throws RateLimitedException, InterruptedIOException {
+      long start = System.nanoTime();
+      Waiter me;
+      lock.lock();
+      try {
+        refill(start);
+        if (queue.isEmpty() && start >= pausedUntil && tokens >= 1) {
+          tokens -= 1;
+          waits.get(priority).record(0);
+          return 0;
+        }
+        long delay = priority == ObPriority.BACKGROUND ? orZero(props.getRateLimitBackgroundDelay()).toNanos() : 0;
+        me = new Waiter(Thread.currentThread(), priority, start + delay, seq++);
+        queue.add(me);
+      } finally {
+        lock.unlock();
+      }
+
+      Duration max = priority == ObPriority.BACKGROUND ? props.getRateLimitBackgroundMaxWait() : props.getRateLimitMaxWait();
+      long deadline = start + orZero(max).toNanos();
+      while (true) {
+        long now = System.nanoTime();
+        long sleep;
+        lock.lock();
+        try {
+          refill(now);
+          boolean head = queue.peek() == me;
+          if (head && now >= pausedUntil && tokens >= 1) {
+            queue.poll();
+            tokens -= 1;
+            wakeHead();
+            long waited = now - start;
+            waits.get(priority).record(waited);
+            return waited;
+          }
+          if (now >= deadline) {
+            queue.remove(me);
+            if (head) wakeHead();
+            rejected.incrementAndGet();
+            throw new RateLimitedException("Rate limit queue to bank " + bank + " " + endpoint
+                + ": no slot within " + TimeUnit.NANOSECONDS.toMillis(now - start) + " ms");
+          }
+          // голова спит до жетона (или конца паузы), остальные — пока их не разбудят
+          sleep = head
+              ? Math.max(pausedUntil - now, (long) Math.ceil((1 - tokens) / perNano))
+              : deadline - now;
+        } finally {
+          lock.unlock();
+        }
+        LockSupport.parkNanos(this, Math.max(1, Math.min(sleep, deadline - now)));
+        if (Thread.interrupted()) {
+          lock.lock();
+          try {
+            if (queue.peek() == me) {
+              queue.poll();
+              wakeHead();
+            } else {
+              queue.remove(me);
+            }
+          } finally {
+            lock.unlock();
+          }
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for rate limit to bank " + bank);
+        }
+      }
+    }
+
+    void pause(long nanos) {
+      lock.lock();
+      try {
+        pausedUntil = Math.max(pausedUntil, System.nanoTime() + nanos);
+        // жетоны копятся заново только после паузы — без залпа сразу по её окончании
+        tokens = Math.min(tokens, 0);
+        refilledAt = Math.max(refilledAt, pausedUntil);
+        wakeHead();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /** Под lock: новая голова должна сама пересчитать, сколько ей спать. */
+    private void wakeHead() {
+      Waiter h = queue.peek();
+      if (h != null) LockSupport.unpark(h.thread);
+    }
+
+    private void refill(long now) {
+      if (now > refilledAt) {
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * perNano);
+        refilledAt = now;
+      }
+    }
+
+    Map<String, Object> stats() {
+      Map<String, Object> m = new LinkedHashMap<>();
+      lock.lock();
+      try {
+        m.put("rps", Math.round(perNano * 1e9 * 100) / 100.0);
+        m.put("queued", queue.size());
+        long pause = pausedUntil - System.nanoTime();
+        if (pause > 0) m.put("pausedMs", TimeUnit.NANOSECONDS.toMillis(pause));
+        m.put("throttled", throttled.get());
+        m.put("rejected", rejected.get());
+        for (Map.Entry<ObPriority, WaitStats> e : waits.entrySet()) {
+          m.put(e.getKey().name().toLowerCase(Locale.ROOT), e.getValue().snapshot());
+        }
+      } finally {
+        lock.unlock();
+      }
+      return m;
+    }
+  }
+
+  /** Ожидание в очереди по приоритету; под lock корзины. */
+  private static final class WaitStats {
+    long calls;
+    long queued;
+    long totalNanos;
+    long maxNanos;
+
+    void record(long nanos) {
+      calls++;
+      if (nanos <= 0) return;
+      queued++;
+      totalNanos += nanos;
+      maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    Map<String, Object> snapshot() {
+      Map<String, Object> m = new LinkedHashMap<>();
+      m.put("calls", calls);
+      m.put("queued", queued);
+      m.put("waitMeanMs", calls == 0 ? 0.0 : Math.round(totalNanos / 1e4 / calls) / 100.0);
+      m.put("waitMaxMs", Math.round(maxNanos / 1e4) / 100.0);
+      return m;
+    }
+  }
+}
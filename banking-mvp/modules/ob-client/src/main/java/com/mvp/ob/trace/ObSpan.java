@@ -0,0 +1,71 @@
+package com.mvp.ob.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Один спан трассы: корневой (входящий servlet-запрос) или вызов банка.
+ * Идентификаторы в формате OpenTelemetry: spanId — 16 hex-символов.
+ */
+public final class ObSpan {
+
+  private final String spanId = hex(ThreadLocalRandom.current().nextLong());
+  private final String parentSpanId;
+  private final String name;
+  private final long startEpochNanos;
+  private final long startNanos;
+  private volatile long endNanos;
+
+  private final Map<String, Object> attributes = new LinkedHashMap<>();
+  private volatile long bytesIn;
+  private volatile long bytesOut;
+  private volatile long decodeNanos;
+  private volatile boolean error;
+
+  ObSpan(String name, String parentSpanId) {
+    this.name = name;
+    this.parentSpanId = parentSpanId;
+    this.startEpochNanos = System.currentTimeMillis() * 1_000_000L;
+    this.startNanos = System.nanoTime();
+  }
+
+  public ObSpan attr(String key, Object value) {
+    if (value != null) {
+      synchronized (attributes) { attributes.put(key, value); }
+    }
+    return this;
+  }
+
+  public void addBytesIn(long n) { bytesIn += n; }
+  public void setBytesOut(long n) { bytesOut = n; }
+  public void addDecodeNanos(long n) { decodeNanos += n; }
+  public void markError() { error = true; }
+
+  /** Закрыть спан; повторный вызов ничего не меняет. */
+  public void end() {
+    if (endNanos == 0) endNanos = System.nanoTime();
+  }
+
+  public boolean isEnded() { return endNanos != 0; }
+
+  public String getSpanId() { return spanId; }
+  public String getParentSpanId() { return parentSpanId; }
+  public String getName() { return name; }
+  public long getStartEpochNanos() { return startEpochNanos; }
+  public long getEndEpochNanos() { return startEpochNanos + getDurationNanos(); }
+  public long getDurationNanos() { return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos; }
+  public long getBytesIn() { return bytesIn; }
+  public long getBytesOut() { return bytesOut; }
+  public long getDecodeNanos() { return decodeNanos; }
+  public boolean isError() { return error; }
+
+  public Map<String, Object> getAttributes() {
+    synchronized (attributes) { return new LinkedHashMap<>(attributes); }
+  }
+
+  static String hex(long v) {
+    String s = Long.toHexString(v);
+    return s.length() == 16 ? s : "0".repeat(16 - s.length()) + s;
+  }
+}
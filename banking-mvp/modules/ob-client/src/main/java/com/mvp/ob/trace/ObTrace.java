@@ -0,0 +1,94 @@
+package com.mvp.ob.trace;
+
+import com.mvp.ob.RequestIds;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Трасса одного входящего запроса портала: корневой спан + спаны вызовов банков.
+ * Живёт в ThreadLocal, пока поток обрабатывает servlet-запрос
+ * (открывается фильтром портала, закрывается им же).
+ *
+ * requestId входящего запроса уходит в банки как x-fapi-interaction-id,
+ * поэтому все вызовы одной страницы коррелируются и у нас, и на стороне банка.
+ */
+public final class ObTrace {
+
+  private static final ThreadLocal<ObTrace> CURRENT = new ThreadLocal<>();
+
+  private final String traceId;
+  private final String requestId;
+  private final ObSpan root;
+  private final List<ObSpan> spans = new ArrayList<>();
+
+  private ObTrace(String name, String requestId) {
+    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+    this.traceId = ObSpan.hex(rnd.nextLong()) + ObSpan.hex(rnd.nextLong());
+    this.requestId = requestId;
+    this.root = new ObSpan(name, null);
+  }
+
+  /** Открыть трассу для текущего потока. */
+  public static ObTrace begin(String name, String requestId) {
+    ObTrace t = new ObTrace(name, requestId != null ? requestId : RequestIds.next());
+    CURRENT.set(t);
+    return t;
+  }
+
+  /** Закрыть трассу текущего потока; незакрытые спаны закрываются вместе с корнем. */
+  public static ObTrace end() {
+    ObTrace t = CURRENT.get();
+    CURRENT.remove();
+    if (t != null) {
+      synchronized (t.spans) {
+        for (ObSpan s : t.spans) s.end();
+      }
+      t.root.end();
+    }
+    return t;
+  }
+
+  /** Текущая трасса или null, если поток не обслуживает входящий запрос. */
+  public static ObTrace current() {
+    return CURRENT.get();
+  }
+
+  /** x-fapi-interaction-id: requestId входящего запроса, вне запроса — новый UUID. */
+  public static String interactionId() {
+    ObTrace t = CURRENT.get();
+    return t != null ? t.requestId : RequestIds.next();
+  }
+
+  /**
+   * Учесть время разбора JSON последнего вызова банка.
+   * Использование: {@code long t0 = System.nanoTime(); ...parse...; ObTrace.recordDecode(t0);}
+   */
+  public static void recordDecode(long startNanos) {
+    ObTrace t = CURRENT.get();
+    if (t == null) return;
+    long took = System.nanoTime() - startNanos;
+    ObSpan last = t.lastSpan();
+    (last != null ? last : t.root).addDecodeNanos(took);
+  }
+
+  /** Дочерний спан под корнем (вызов банка). */
+  public ObSpan startChild(String name) {
+    ObSpan s = new ObSpan(name, root.getSpanId());
+    synchronized (spans) { spans.add(s); }
+    return s;
+  }
+
+  private ObSpan lastSpan() {
+    synchronized (spans) { return spans.isEmpty() ? null : spans.get(spans.size() - 1); }
+  }
+
+  public String getTraceId() { return traceId; }
+  public String getRequestId() { return requestId; }
+  public ObSpan getRoot() { return root; }
+
+  public List<ObSpan> getSpans() {
+    synchronized (spans) { return List.copyOf(spans); }
+  }
+}
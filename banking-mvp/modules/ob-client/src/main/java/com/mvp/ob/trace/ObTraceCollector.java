@@ -0,0 +1,195 @@
+package com.mvp.ob.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mvp.ob.ObClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборщик завершённых трасс:
+ * - in-memory: последние app.trace-buffer-size трасс (для /debug/traces);
+ * - файл: если задан app.trace-export-file, каждая трасса дописывается строкой
+ *   в формате OTLP/JSON (resourceSpans), который понимает otel-collector (filereceiver).
+ *
+ * В файл пишет один поток "trace-writer" из очереди app.trace-export-queue-size: поток запроса
+ * только кладёт трассу и не ждёт диска. Очередь полна — трасса в файл не попадает.
+ */
+@Component
+public class ObTraceCollector implements InitializingBean, DisposableBean {
+
+  private static final Logger log = LoggerFactory.getLogger(ObTraceCollector.class);
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ObClientProperties props;
+  private final Deque<ObTrace> recent = new ArrayDeque<>();
+
+  private Path file;
+  private BlockingQueue<ObTrace> toFile;
+  private Thread writer;
+  private volatile boolean running;
+
+  // состояние писателя — только из потока trace-writer
+  private BufferedWriter out;
+
+  public ObTraceCollector(ObClientProperties props) {
+    this.props = props;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (!StringUtils.hasText(props.getTraceExportFile())) return;
+    file = Path.of(props.getTraceExportFile());
+    toFile = new ArrayBlockingQueue<>(Math.max(1, props.getTraceExportQueueSize()));
+    running = true;
+    writer = new Thread(this::writeLoop, "trace-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    if (writer == null) return;
+    running = false; // писатель допишет очередь и закроет файл
+    writer.join(TimeUnit.SECONDS.toMillis(5));
+  }
+
+  public void export(ObTrace trace) {
+    if (trace == null) return;
+    synchronized (recent) {
+      recent.addFirst(trace);
+      while (recent.size() > Math.max(props.getTraceBufferSize(), 0)) recent.removeLast();
+    }
+    if (toFile != null && !toFile.offer(trace)) {
+      log.debug("Trace export queue is full, trace {} not written", trace.getTraceId());
+    }
+  }
+
+  /** Последние трассы, новые первыми. */
+  public List<ObTrace> recent(int limit) {
+    synchronized (recent) {
+      List<ObTrace> out = new ArrayList<>(Math.min(limit, recent.size()));
+      for (ObTrace t : recent) {
+        if (out.size() >= limit) break;
+        out.add(t);
+      }
+      return out;
+    }
+  }
+
+  /** OTLP/JSON: {"resourceSpans":[{"resource":...,"scopeSpans":[{"scope":...,"spans":[...]}]}]} */
+  public ObjectNode toOtlp(List<ObTrace> traces) {
+    ObjectNode root = mapper.createObjectNode();
+    ObjectNode rs = root.putArray("resourceSpans").addObject();
+    addAttr(rs.putObject("resource").putArray("attributes"), "service.name", "app-portal");
+    ObjectNode ss = rs.putArray("scopeSpans").addObject();
+    ss.putObject("scope").put("name", "com.mvp.ob");
+    ArrayNode spans = ss.putArray("spans");
+    for (ObTrace t : traces) {
+      writeSpan(spans, t, t.getRoot(), 2);          // SPAN_KIND_SERVER
+      for (ObSpan s : t.getSpans()) writeSpan(spans, t, s, 3); // SPAN_KIND_CLIENT
+    }
+    return root;
+  }
+
+  private void writeSpan(ArrayNode out, ObTrace t, ObSpan s, int kind) {
+    ObjectNode n = out.addObject();
+    n.put("traceId", t.getTraceId());
+    n.put("spanId", s.getSpanId());
+    if (s.getParentSpanId() != null) n.put("parentSpanId", s.getParentSpanId());
+    n.put("name", s.getName());
+    n.put("kind", kind);
+    n.put("startTimeUnixNano", String.valueOf(s.getStartEpochNanos()));
+    n.put("endTimeUnixNano", String.valueOf(s.getEndEpochNanos()));
+
+    ArrayNode attrs = n.putArray("attributes");
+    if (s.getParentSpanId() == null) addAttr(attrs, "http.request.id", t.getRequestId());
+    for (Map.Entry<String, Object> e : s.getAttributes().entrySet()) {
+      addAttr(attrs, e.getKey(), e.getValue());
+    }
+    if (s.getBytesOut() > 0) addAttr(attrs, "http.request.body.size", s.getBytesOut());
+    if (s.getBytesIn() > 0) addAttr(attrs, "http.response.body.size", s.getBytesIn());
+    if (s.getDecodeNanos() > 0) addAttr(attrs, "json.decode.duration_us", s.getDecodeNanos() / 1_000);
+
+    n.putObject("status").put("code", s.isError() ? 2 : 1); // ERROR | OK
+  }
+
+  private static void addAttr(ArrayNode attrs, String key, Object value) {
+    ObjectNode a = attrs.addObject();
+    a.put("key", key);
+    ObjectNode v = a.putObject("value");
+    if (value instanceof Integer || value instanceof Long) {
+      v.put("intValue", String.valueOf(value));
+    } else {
+      v.put("stringValue", String.valueOf(value));
+    }
+  }
+
+  // ---------------- писатель ----------------
+
+  private void writeLoop() {
+    List<ObTrace> batch = new ArrayList<>();
+    while (running || !toFile.isEmpty()) {
+      try {
+        ObTrace first = toFile.poll(200, TimeUnit.MILLISECONDS);
+        if (first == null) continue;
+        batch.add(first);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      toFile.drainTo(batch);
+      if (!batch.isEmpty()) write(batch);
+      batch.clear();
+    }
+    close();
+  }
+
+  /** Пачка трасс — по строке на трассу, один flush на пачку. */
+  private void write(List<ObTrace> batch) {
+    try {
+      if (out == null) {
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+      }
+      for (ObTrace t : batch) {
+        out.write(mapper.writeValueAsString(toOtlp(List.of(t))));
+        out.write('\n');
+      }
+      out.flush();
+    } catch (IOException e) {
+      log.warn("Trace export to {} failed: {}", file, e.getMessage());
+      close(); // следующая пачка откроет файл заново
+    }
+  }
+
+  private void close() {
+    if (out == null) return;
+    try {
+      out.close();
+    } catch (IOException e) {
+      log.warn("Trace export file {} close failed: {}", file, e.getMessage());
+    }
+    out = null;
+  }
+}
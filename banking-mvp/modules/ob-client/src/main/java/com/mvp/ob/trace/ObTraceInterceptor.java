@@ -0,0 +1,112 @@
+package com.mvp.ob.trace;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * Пишет спан на каждый вызов банка: метод, хост, путь, статус,
+ * размер тела запроса/ответа и время до конца чтения ответа.
+ * Вне входящего запроса (нет {@link ObTrace#current()}) ничего не делает.
+ *
+ * Query-строка в спан не попадает: в /auth/bank-token там client_secret.
+ */
+public class ObTraceInterceptor implements ClientHttpRequestInterceptor {
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+                                      ClientHttpRequestExecution execution) throws IOException {
+    ObTrace trace = ObTrace.current();
+    if (trace == null) {
+      return execution.execute(request, body);
+    }
+
+    URI uri = request.getURI();
+    HttpHeaders h = request.getHeaders();
+    ObSpan span = trace.startChild(request.getMethod() + " " + uri.getPath())
+        .attr("http.request.method", request.getMethod().name())
+        .attr("server.address", uri.getHost())
+        .attr("url.path", uri.getPath())
+        .attr("x-request-id", h.getFirst("X-Request-Id"))
+        .attr("x-fapi-interaction-id", h.getFirst("x-fapi-interaction-id"));
+    span.setBytesOut(body.length);
+
+    try {
+      ClientHttpResponse resp = execution.execute(request, body);
+      HttpStatusCode status = resp.getStatusCode();
+      span.attr("http.response.status_code", status.value());
+      if (status.isError()) span.markError();
+      return new TracedResponse(resp, span);
+    } catch (IOException | RuntimeException e) {
+      span.markError();
+      span.attr("error.type", e.getClass().getSimpleName());
+      span.end();
+      throw e;
+    }
+  }
+
+  /** Считает байты ответа и закрывает спан на EOF/close. */
+  private static final class TracedResponse implements ClientHttpResponse {
+    private final ClientHttpResponse delegate;
+    private final ObSpan span;
+    private InputStream body;
+
+    TracedResponse(ClientHttpResponse delegate, ObSpan span) {
+      this.delegate = delegate;
+      this.span = span;
+    }
+
+    @Override public HttpStatusCode getStatusCode() throws IOException { return delegate.getStatusCode(); }
+    @Override public String getStatusText() throws IOException { return delegate.getStatusText(); }
+    @Override public HttpHeaders getHeaders() { return delegate.getHeaders(); }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      if (body == null) body = new CountingStream(delegate.getBody(), span);
+      return body;
+    }
+
+    @Override
+    public void close() {
+      span.end();
+      delegate.close();
+    }
+  }
+
+  private static final class CountingStream extends FilterInputStream {
+    private final ObSpan span;
+
+    CountingStream(InputStream in, ObSpan span) {
+      super(in);
+      this.span = span;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) span.end(); else span.addBytesIn(1);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+      int n = super.read(buf, off, len);
+      if (n < 0) span.end(); else span.addBytesIn(n);
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      span.end();
+      super.close();
+    }
+  }
+}